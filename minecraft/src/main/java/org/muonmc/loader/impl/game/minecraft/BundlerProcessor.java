@@ -15,25 +15,64 @@
  */
 package org.muonmc.loader.impl.game.minecraft;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
+import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.impl.game.LibClassifier;
+import org.muonmc.loader.impl.util.FileStamp;
 import org.muonmc.loader.impl.util.LoaderUtil;
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
 
 
 final class BundlerProcessor {
 	private static final String MAIN_CLASS_PROPERTY = "bundlerMainClass";
+	private static final int CACHE_VERSION = 1;
 
-	static void process(LibClassifier<McLibrary> classifier) throws IOException {
+	/**
+	 * @param cacheFile Where the class path from the last time the bundler was run is saved, so it only needs to run
+	 *                  again if the bundler or any of the files it extracted have changed. Null to always run it.
+	 */
+	static void process(LibClassifier<McLibrary> classifier, @Nullable Path cacheFile) throws IOException {
 		Path bundlerOrigin = classifier.getOrigin(McLibrary.MC_BUNDLER);
+		URL[] urls = cacheFile == null ? null : readCache(cacheFile, bundlerOrigin);
 
+		if (urls == null) {
+			urls = runBundler(classifier, bundlerOrigin);
+			if (urls == null) return;
+
+			if (cacheFile != null) {
+				writeCache(cacheFile, bundlerOrigin, urls);
+			}
+		}
+
+		// analyze urls to determine game/realms/log4j/misc libs and the entrypoint
+
+		classifier.remove(bundlerOrigin);
+
+		for (URL url : urls) {
+			classifier.process(url);
+		}
+	}
+
+	/** @return The class path which the bundler launches the server with, or null if there isn't a bundler. */
+	private static URL[] runBundler(LibClassifier<McLibrary> classifier, Path bundlerOrigin) throws IOException {
 		// determine urls by running the bundler and extracting them from the context class loader
 
 		String prevProperty = null;
@@ -97,7 +136,7 @@ final class BundlerProcessor {
 			method.invoke(null, (Object) new String[0]);
 			urls = BundlerClassPathCapture.FUTURE.get(10, TimeUnit.SECONDS);
 		} catch (ClassNotFoundException e) { // no bundler on the class path
-			return;
+			return null;
 		} catch (Throwable t) {
 			throw new RuntimeException("Error invoking MC server bundler: "+t, t);
 		} finally {
@@ -112,12 +151,60 @@ final class BundlerProcessor {
 			}
 		}
 
-		// analyze urls to determine game/realms/log4j/misc libs and the entrypoint
+		return urls;
+	}
 
-		classifier.remove(bundlerOrigin);
+	/** @return The cached class path, or null if the bundler or any file on the class path has changed since. */
+	private static URL[] readCache(Path cacheFile, Path bundlerOrigin) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_VERSION
+				|| !in.readUTF().equals(bundlerOrigin.toString())
+				|| !FileStamp.read(in).equals(FileStamp.read(bundlerOrigin))) {
+				return null;
+			}
 
-		for (URL url : urls) {
-			classifier.process(url);
+			URL[] urls = new URL[in.readInt()];
+
+			for (int i = 0; i < urls.length; i++) {
+				urls[i] = new URL(in.readUTF());
+
+				// The bundler re-extracts anything which has been modified, so it needs to run again
+				if (!FileStamp.read(in).equals(FileStamp.read(Paths.get(urls[i].toURI())))) {
+					return null;
+				}
+			}
+
+			return urls;
+		} catch (NoSuchFileException e) {
+			// Either the first launch, or a library was deleted
+			return null;
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Failed to read the bundler cache %s", cacheFile, e);
+			return null;
+		}
+	}
+
+	private static void writeCache(Path cacheFile, Path bundlerOrigin, URL[] urls) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(CACHE_VERSION);
+				out.writeUTF(bundlerOrigin.toString());
+				FileStamp.read(bundlerOrigin).write(out);
+				out.writeInt(urls.length);
+
+				for (URL url : urls) {
+					out.writeUTF(url.toString());
+					FileStamp.read(Paths.get(url.toURI())).write(out);
+				}
+			}
+
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException | URISyntaxException | IllegalArgumentException e) {
+			// Also thrown for class path entries which aren't files, which the bundler never produces anyway
+			Log.warn(LogCategory.GAME_PROVIDER, "Failed to save the bundler cache %s", cacheFile, e);
 		}
 	}
 }
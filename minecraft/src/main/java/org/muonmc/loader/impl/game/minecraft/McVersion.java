@@ -39,6 +39,10 @@ public final class McVersion {
 	 * <p>This is derived from the version.json's id and name fields if available, otherwise through other sources.
 	 */
 	private final String raw;
+	/**
+	 * The release the raw version is part of, such as {@code 1.13} for {@code 18w21a}.
+	 */
+	private final String release;
 	/**
 	 * The normalized version.
 	 *
@@ -52,6 +56,7 @@ public final class McVersion {
 		this.id = id;
 		this.name = name;
 		this.raw = raw;
+		this.release = release;
 
 		String normalized = McVersionLookup.normalizeVersion(raw, release);
 
@@ -78,6 +83,10 @@ public final class McVersion {
 		return this.raw;
 	}
 
+	public String getRelease() {
+		return this.release;
+	}
+
 	public String getNormalized() {
 		return this.normalized;
 	}
@@ -17,17 +17,27 @@
 
 package org.muonmc.loader.impl.game.minecraft;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
 import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.FieldVisitor;
@@ -40,8 +50,11 @@ import org.quiltmc.json5.JsonToken;
 import org.muonmc.loader.api.Version;
 import org.muonmc.loader.impl.MuonLoaderImpl;
 import org.muonmc.loader.impl.util.ExceptionUtil;
+import org.muonmc.loader.impl.util.FileStamp;
 import org.muonmc.loader.impl.util.LoaderUtil;
 import org.muonmc.loader.impl.util.SimpleClassPath;
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
 
 public final class McVersionLookup {
 	private static final Pattern VERSION_PATTERN = Pattern.compile(
@@ -65,8 +78,44 @@ public final class McVersionLookup {
 	private static final Pattern ALPHA_PATTERN = Pattern.compile("(?:a|Alpha v?)[01]\\.(\\d+(\\.\\d+)?[a-z]?(_\\d+)?[a-z]?)");
 	private static final Pattern INDEV_PATTERN = Pattern.compile("(?:inf-|Inf?dev )(?:0\\.31 )?(\\d+(-\\d+)?)");
 	private static final String STRING_DESC = "Ljava/lang/String;";
+	private static final int CACHE_VERSION = 1;
 
 	public static McVersion getVersion(List<Path> gameJars, String entrypointClass, String versionName) {
+		return getVersion(gameJars, entrypointClass, versionName, null);
+	}
+
+	/** Like {@link #getVersion(List, String, String)}, but reuses the version saved in the cache file if none of the game
+	 * jars have changed since, so the jars don't need to be opened at all. Only the raw version and release are cached,
+	 * and normalized again when loading, so changes to {@link #normalizeVersion(String, String)} apply immediately.
+	 *
+	 * @param cacheFile The file to save the version to, or null to always read it from the jars. */
+	public static McVersion getVersion(List<Path> gameJars, String entrypointClass, String versionName, @Nullable Path cacheFile) {
+		if (cacheFile == null) {
+			return readVersion(gameJars, entrypointClass, versionName);
+		}
+
+		// Read before looking up the version, so a change while reading is always noticed next time
+		FileStamp[] stamps = new FileStamp[gameJars.size()];
+
+		try {
+			for (int i = 0; i < stamps.length; i++) {
+				stamps[i] = FileStamp.read(gameJars.get(i));
+			}
+		} catch (IOException e) {
+			return readVersion(gameJars, entrypointClass, versionName);
+		}
+
+		McVersion version = readCache(cacheFile, gameJars, stamps, entrypointClass, versionName);
+
+		if (version == null) {
+			version = readVersion(gameJars, entrypointClass, versionName);
+			writeCache(cacheFile, gameJars, stamps, entrypointClass, versionName, version);
+		}
+
+		return version;
+	}
+
+	private static McVersion readVersion(List<Path> gameJars, String entrypointClass, String versionName) {
 		McVersion.Builder builder = new McVersion.Builder();
 
 		if (versionName != null) {
@@ -97,6 +146,83 @@ public final class McVersionLookup {
 		return builder.build();
 	}
 
+	/** @return The cached version, or null if the cache is missing or was saved for different game jars or arguments. */
+	private static McVersion readCache(Path cacheFile, List<Path> gameJars, FileStamp[] stamps, String entrypointClass, String versionName) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_VERSION
+				|| !Objects.equals(readNullable(in), entrypointClass)
+				|| !Objects.equals(readNullable(in), versionName)
+				|| in.readInt() != gameJars.size()) {
+				return null;
+			}
+
+			for (int i = 0; i < stamps.length; i++) {
+				if (!in.readUTF().equals(gameJars.get(i).toString()) || !FileStamp.read(in).equals(stamps[i])) {
+					return null;
+				}
+			}
+
+			McVersion.Builder builder = new McVersion.Builder()
+				.setId(readNullable(in))
+				.setName(readNullable(in))
+				.setVersion(in.readUTF())
+				.setRelease(readNullable(in));
+			int classVersion = in.readInt();
+
+			if (classVersion >= 0) {
+				builder.setClassVersion(classVersion);
+			}
+
+			return builder.build();
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Failed to read the game version cache %s", cacheFile, e);
+			return null;
+		}
+	}
+
+	private static void writeCache(Path cacheFile, List<Path> gameJars, FileStamp[] stamps, String entrypointClass, String versionName, McVersion version) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(CACHE_VERSION);
+				writeNullable(out, entrypointClass);
+				writeNullable(out, versionName);
+				out.writeInt(gameJars.size());
+
+				for (int i = 0; i < stamps.length; i++) {
+					out.writeUTF(gameJars.get(i).toString());
+					stamps[i].write(out);
+				}
+
+				writeNullable(out, version.getId());
+				writeNullable(out, version.getName());
+				out.writeUTF(version.getRaw());
+				writeNullable(out, version.getRelease());
+				out.writeInt(version.getClassVersion().orElse(-1));
+			}
+
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Log.warn(LogCategory.GAME_PROVIDER, "Failed to save the game version cache %s", cacheFile, e);
+		}
+	}
+
+	private static String readNullable(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeNullable(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
 	public static McVersion getVersionExceptClassVersion(Path gameJar) {
 		McVersion.Builder builder = new McVersion.Builder();
 
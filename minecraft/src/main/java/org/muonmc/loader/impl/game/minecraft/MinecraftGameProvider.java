@@ -215,6 +215,11 @@ public class MinecraftGameProvider implements GameProvider {
 
 		try {
 			LibClassifier<McLibrary> classifier = new LibClassifier<>(McLibrary.class, environment, this);
+
+			if (!Boolean.getBoolean(SystemProperties.DISABLE_LIB_CLASSIFICATION_CACHE)) {
+				classifier.useCache(getLoaderCacheFile("game-libraries-" + environment.name().toLowerCase(Locale.ROOT) + ".bin"));
+			}
+
 			McLibrary envGameLib = environment == Environment.CLIENT ? McLibrary.MC_CLIENT : McLibrary.MC_SERVER;
 			Path commonGameJar = GameProviderHelper.getCommonGameJar();
 			Path envGameJar = GameProviderHelper.getEnvGameJar(environment);
@@ -239,9 +244,12 @@ public class MinecraftGameProvider implements GameProvider {
 			}
 
 			if (classifier.has(McLibrary.MC_BUNDLER)) {
-				BundlerProcessor.process(classifier);
+				boolean cacheBundler = !Boolean.getBoolean(SystemProperties.DISABLE_BUNDLER_CACHE);
+				BundlerProcessor.process(classifier, cacheBundler ? getLoaderCacheFile("bundler-class-path.bin") : null);
 			}
 
+			classifier.saveCache();
+
 			envGameJar = classifier.getOrigin(envGameLib);
 			if (envGameJar == null) return false;
 
@@ -312,7 +320,11 @@ public class MinecraftGameProvider implements GameProvider {
 
 		String version = arguments.remove(Arguments.GAME_VERSION);
 		if (version == null) version = System.getProperty(SystemProperties.GAME_VERSION);
-		versionData = McVersionLookup.getVersion(gameJars, entrypoint, version);
+		Path versionCache = null;
+		if (!Boolean.getBoolean(SystemProperties.DISABLE_GAME_VERSION_CACHE)) {
+			versionCache = getLoaderCacheFile("game-version-" + environment.name().toLowerCase(Locale.ROOT) + ".bin");
+		}
+		versionData = McVersionLookup.getVersion(gameJars, entrypoint, version, versionCache);
 
 		processArgumentMap(arguments, environment);
 
@@ -352,6 +364,13 @@ public class MinecraftGameProvider implements GameProvider {
 		}
 	}
 
+	/** @return A file in the loader cache folder. This is needed before {@link MuonLoaderImpl} knows the game folder,
+	 *         so it's resolved the same way here. */
+	private Path getLoaderCacheFile(String name) {
+		Path cacheDir = getLaunchDirectory(arguments).resolve(System.getProperty(SystemProperties.CACHE_DIRECTORY, MuonLoaderImpl.DEFAULT_CACHE_DIR));
+		return cacheDir.resolve(MuonLoaderImpl.CACHE_DIR_NAME).resolve(name);
+	}
+
 	private static Path getLaunchDirectory(Arguments argMap) {
 		return Paths.get(argMap.getOrDefault("gameDir", "."));
 	}
@@ -438,7 +457,11 @@ public class MinecraftGameProvider implements GameProvider {
 
 		setupLogHandler(launcher, true);
 
-		transformer.locateEntrypoints(launcher, getNamespace(), gameJars);
+		Path patchCache = null;
+		if (!Boolean.getBoolean(SystemProperties.DISABLE_GAME_PATCH_CACHE)) {
+			patchCache = getLoaderCacheFile("game-patches-" + environment.name().toLowerCase(Locale.ROOT) + ".bin");
+		}
+		transformer.locateEntrypoints(launcher, getNamespace(), gameJars, patchCache);
 	}
 
 	private void setupLogHandler(MuonLauncher launcher, boolean useTargetCl) {
@@ -73,6 +73,12 @@ public class EntrypointPatch extends GamePatch {
 		it.add(new MethodInsnNode(Opcodes.INVOKESTATIC, Hooks.INTERNAL_NAME, methodName, "(Ljava/io/File;Ljava/lang/Object;)V", false));
 	}
 
+	@Override
+	public void appendCacheKey(List<String> key) {
+		// Can be overridden without changing the game jars
+		key.add(String.valueOf(gameProvider.getNormalizedGameVersion()));
+	}
+
 	@Override
 	public void process(MuonLauncher launcher, String namespace, GamePatchContext context) {
 		Environment environment = launcher.getEnvironmentType();
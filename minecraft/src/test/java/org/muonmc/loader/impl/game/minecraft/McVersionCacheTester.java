@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.game.minecraft;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class McVersionCacheTester {
+
+	private static final String ENTRYPOINT = "net.minecraft.client.main.Main";
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testSnapshot() throws IOException {
+		McVersion version = lookupTwice("18w47b", "1.14", 52);
+		Assertions.assertEquals("18w47b", version.getRaw());
+		Assertions.assertEquals("1.14-alpha.18.47.b", version.getNormalized());
+		Assertions.assertEquals(52, version.getClassVersion().getAsInt());
+	}
+
+	@Test
+	public void testSnapshotWithoutReleaseTarget() throws IOException {
+		McVersion version = lookupTwice("23w13a", null, 61);
+		Assertions.assertEquals("1.20", version.getRelease());
+		Assertions.assertEquals("1.20-alpha.23.13.a", version.getNormalized());
+	}
+
+	@Test
+	public void testAprilFools() throws IOException {
+		Assertions.assertEquals("1.20.5-alpha.24.12.potato", lookupTwice("24w14potato", null, 65).getNormalized());
+		Assertions.assertEquals("1.20-alpha.23.13.ab", lookupTwice("23w13a_or_b", null, 61).getNormalized());
+		Assertions.assertEquals("1.14-alpha.19.13.shareware", lookupTwice("3D Shareware v1.34", null, 52).getNormalized());
+	}
+
+	@Test
+	public void testChangedJar() throws IOException {
+		Path jar = dir.resolve("game.jar");
+		Path cache = dir.resolve("game-version.bin");
+		List<Path> jars = Collections.singletonList(jar);
+
+		writeGameJar(jar, "1.20.4", null, 65);
+		Assertions.assertEquals("1.20.4", McVersionLookup.getVersion(jars, ENTRYPOINT, null, cache).getNormalized());
+
+		writeGameJar(jar, "24w14potato", null, 65);
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(Files.getLastModifiedTime(jar).toMillis() + 10_000));
+		Assertions.assertEquals("1.20.5-alpha.24.12.potato", McVersionLookup.getVersion(jars, ENTRYPOINT, null, cache).getNormalized());
+
+		// A different explicit version name is also a different cache key
+		Assertions.assertEquals("1.20.4", McVersionLookup.getVersion(jars, ENTRYPOINT, "1.20.4", cache).getNormalized());
+	}
+
+	/** Looks up the version once to fill the cache, then replaces the game jar with junk (without changing its size or
+	 * modified time) and checks the cached version is identical to the first. */
+	private McVersion lookupTwice(String id, String releaseTarget, int classVersion) throws IOException {
+		Path jar = dir.resolve("game.jar");
+		Path cache = dir.resolve("game-version.bin");
+		List<Path> jars = Collections.singletonList(jar);
+
+		writeGameJar(jar, id, releaseTarget, classVersion);
+		McVersion first = McVersionLookup.getVersion(jars, ENTRYPOINT, null, cache);
+
+		FileTime modified = Files.getLastModifiedTime(jar);
+		byte[] junk = new byte[(int) Files.size(jar)];
+		// Overwrites in place, so the file key stays the same
+		Files.write(jar, junk);
+		Files.setLastModifiedTime(jar, modified);
+
+		McVersion cached = McVersionLookup.getVersion(jars, ENTRYPOINT, null, cache);
+		Assertions.assertEquals(first.toString(), cached.toString());
+		Assertions.assertEquals(first.getRelease(), cached.getRelease());
+		return cached;
+	}
+
+	private static void writeGameJar(Path jar, String id, String releaseTarget, int classVersion) throws IOException {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"id\": \"").append(id).append("\", \"name\": \"").append(id).append('"');
+		if (releaseTarget != null) {
+			json.append(", \"release_target\": \"").append(releaseTarget).append('"');
+		}
+		json.append(", \"world_version\": 3700}");
+
+		try (OutputStream os = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(os)) {
+			zip.putNextEntry(new ZipEntry("version.json"));
+			zip.write(json.toString().getBytes(StandardCharsets.UTF_8));
+			zip.putNextEntry(new ZipEntry(ENTRYPOINT.replace('.', '/') + ".class"));
+			zip.write(new byte[] { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0, (byte) classVersion });
+		}
+	}
+}
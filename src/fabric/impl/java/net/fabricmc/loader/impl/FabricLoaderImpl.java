@@ -31,6 +31,7 @@ import org.muonmc.loader.api.MuonLoader;
 import org.muonmc.loader.api.entrypoint.EntrypointException;
 import org.muonmc.loader.api.entrypoint.EntrypointUtil;
 import org.muonmc.loader.api.game.minecraft.MinecraftMuonLoader;
+import org.muonmc.loader.impl.MuonLoaderImpl;
 import org.muonmc.loader.impl.util.deprecated.EnvTypeUtil;
 
 import java.io.File;
@@ -39,8 +40,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 @Deprecated
 public class FabricLoaderImpl extends FabricLoader {
@@ -48,23 +52,36 @@ public class FabricLoaderImpl extends FabricLoader {
 
 	public static final FabricLoaderImpl INSTANCE = new FabricLoaderImpl();
 
+	/** Created once mods are frozen, since fabric mods often call {@link #getModContainer(String)} and
+	 * {@link #getAllMods()} at runtime. Until then new wrappers are created on every call instead. */
+	private volatile ModWrappers modWrappers;
+	private volatile MappingResolver mappingResolver;
+	/** Keyed by the entrypoint key, then the entrypoint type. Each entry remembers the (cached) quilt container list it
+	 * wraps, and is replaced once new entrypoints replace that list. */
+	private final Map<String, Map<Class<?>, EntrypointContainers<?>>> entrypointContainers = new ConcurrentHashMap<>();
+
 	@Override
 	public <T> List<T> getEntrypoints(String key, Class<T> type) {
 		return MuonLoader.getEntrypoints(key, type);
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <T> List<EntrypointContainer<T>> getEntrypointContainers(String key, Class<T> type) {
-		List<org.muonmc.loader.api.entrypoint.EntrypointContainer<T>> from = MuonLoader.getEntrypointContainers(key, type);
-		List<EntrypointContainer<T>> out = new ArrayList<>(from.size());
+		List<org.muonmc.loader.api.entrypoint.EntrypointContainer<T>> from;
 		try {
-			for (org.muonmc.loader.api.entrypoint.EntrypointContainer<T> c : from) {
-				out.add(new EntrypointContainerImpl<>(c));
-			}
-			return out;
+			from = MuonLoader.getEntrypointContainers(key, type);
 		} catch (EntrypointException e) {
 			throw new net.fabricmc.loader.api.EntrypointException(e.getKey(), e);
 		}
+
+		Map<Class<?>, EntrypointContainers<?>> byType = entrypointContainers.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+		EntrypointContainers<?> cached = byType.get(type);
+		if (cached == null || cached.from != (List<?>) from) {
+			cached = new EntrypointContainers<>(from);
+			byType.put(type, cached);
+		}
+		return (List<EntrypointContainer<T>>) (List<?>) cached.containers;
 	}
 
 	@Override
@@ -79,21 +96,34 @@ public class FabricLoaderImpl extends FabricLoader {
 
 	@Override
 	public MappingResolver getMappingResolver() {
-		return new MappingResolverImpl(MuonLoader.getMappingResolver());
+		MappingResolver resolver = mappingResolver;
+		if (resolver == null) {
+			// The quilt mapping resolver never changes once created
+			mappingResolver = resolver = new MappingResolverImpl(MuonLoader.getMappingResolver());
+		}
+		return resolver;
 	}
 
 	@Override
 	public Optional<ModContainer> getModContainer(String id) {
+		ModWrappers wrappers = getModWrappers();
+		if (wrappers != null) {
+			return wrappers.get(id);
+		}
 		return MuonLoader.getModContainer(id).map(ModContainerImpl::new);
 	}
 
 	@Override
 	public Optional<ModContainer> quilt_getModContainer(Class<?> clazz) {
-		return MuonLoader.getModContainer(clazz).map(ModContainerImpl::new);
+		return MuonLoader.getModContainer(clazz).map(this::wrap);
 	}
 
 	@Override
 	public Collection<ModContainer> getAllMods() {
+		ModWrappers wrappers = getModWrappers();
+		if (wrappers != null) {
+			return wrappers.all;
+		}
 		Collection<ModContainer> out = new ArrayList<>();
 		for (org.muonmc.loader.api.ModContainer mc : MuonLoader.getAllMods()) {
 			out.add(new ModContainerImpl(mc));
@@ -101,6 +131,24 @@ public class FabricLoaderImpl extends FabricLoader {
 		return Collections.unmodifiableCollection(out);
 	}
 
+	/** @return The fabric wrapper for the given mod, which is the same object every time once mods are frozen. */
+	public ModContainer wrap(org.muonmc.loader.api.ModContainer mod) {
+		ModWrappers wrappers = getModWrappers();
+		if (wrappers != null) {
+			return wrappers.wrap(mod);
+		}
+		return new ModContainerImpl(mod);
+	}
+
+	private ModWrappers getModWrappers() {
+		ModWrappers wrappers = modWrappers;
+		if (wrappers == null && MuonLoaderImpl.INSTANCE != null && MuonLoaderImpl.INSTANCE.isFrozen()) {
+			// Racing threads may create this twice, but both copies are equivalent
+			modWrappers = wrappers = new ModWrappers(MuonLoader.getAllMods(), MuonLoader::getModContainer);
+		}
+		return wrappers;
+	}
+
 	@Override
 	public boolean isModLoaded(String id) {
 		return MuonLoader.isModLoaded(id);
@@ -150,6 +198,61 @@ public class FabricLoaderImpl extends FabricLoader {
 		return MuonLoader.getLaunchArguments(sanitize);
 	}
 
+	private static final class EntrypointContainers<T> {
+		final List<org.muonmc.loader.api.entrypoint.EntrypointContainer<T>> from;
+		/** Lazy, like the containers they wrap, so a broken entrypoint only throws when it's used. */
+		final List<EntrypointContainer<T>> containers;
+
+		EntrypointContainers(List<org.muonmc.loader.api.entrypoint.EntrypointContainer<T>> from) {
+			this.from = from;
+			List<EntrypointContainer<T>> out = new ArrayList<>(from.size());
+			for (org.muonmc.loader.api.entrypoint.EntrypointContainer<T> c : from) {
+				out.add(new EntrypointContainerImpl<>(c));
+			}
+			this.containers = Collections.unmodifiableList(out);
+		}
+	}
+
+	static final class ModWrappers {
+		private final Map<String, Optional<ModContainer>> byId = new ConcurrentHashMap<>();
+		private final Function<String, Optional<org.muonmc.loader.api.ModContainer>> lookup;
+		final Collection<ModContainer> all;
+
+		ModWrappers(Collection<org.muonmc.loader.api.ModContainer> mods, Function<String, Optional<org.muonmc.loader.api.ModContainer>> lookup) {
+			this.lookup = lookup;
+			List<ModContainer> list = new ArrayList<>(mods.size());
+			for (org.muonmc.loader.api.ModContainer mod : mods) {
+				ModContainer wrapper = new ModContainerImpl(mod);
+				list.add(wrapper);
+				byId.put(mod.metadata().id(), Optional.of(wrapper));
+			}
+			all = Collections.unmodifiableCollection(list);
+		}
+
+		Optional<ModContainer> get(String id) {
+			Optional<ModContainer> wrapper = byId.get(id);
+			if (wrapper == null) {
+				// Provided aliases aren't in the mod list, so they're wrapped the first time they're asked for.
+				// Unknown ids aren't stored, since mods can query any number of them.
+				Optional<org.muonmc.loader.api.ModContainer> mod = lookup.apply(id);
+				if (!mod.isPresent()) {
+					return Optional.empty();
+				}
+				wrapper = Optional.of(new ModContainerImpl(mod.get()));
+				Optional<ModContainer> existing = byId.putIfAbsent(id, wrapper);
+				if (existing != null) {
+					wrapper = existing;
+				}
+			}
+			return wrapper;
+		}
+
+		ModContainer wrap(org.muonmc.loader.api.ModContainer mod) {
+			Optional<ModContainer> wrapper = byId.get(mod.metadata().id());
+			return wrapper != null ? wrapper.get() : new ModContainerImpl(mod);
+		}
+	}
+
 	/**
 	 * Provides singleton for static init assignment regardless of load order.
 	 */
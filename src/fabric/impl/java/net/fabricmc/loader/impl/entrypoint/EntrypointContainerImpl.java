@@ -16,7 +16,7 @@
 
 package net.fabricmc.loader.impl.entrypoint;
 
-import net.fabricmc.loader.impl.ModContainerImpl;
+import net.fabricmc.loader.impl.FabricLoaderImpl;
 import net.fabricmc.loader.api.ModContainer;
 import net.fabricmc.loader.api.entrypoint.EntrypointContainer;
 
@@ -36,6 +36,6 @@ public final class EntrypointContainerImpl<T> implements EntrypointContainer<T>
 
 	@Override
 	public ModContainer getProvider() {
-		return new ModContainerImpl(quilt.getProvider());
+		return FabricLoaderImpl.INSTANCE.wrap(quilt.getProvider());
 	}
 }
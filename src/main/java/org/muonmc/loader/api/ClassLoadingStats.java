@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.api;
+
+import org.jetbrains.annotations.ApiStatus;
+
+/**
+ * Statistics about the classes which have been loaded from a single mod so far. Every value only ever increases, and
+ * reading them while classes are being loaded on other threads may return slightly inconsistent values.
+ *
+ * @see MuonLoader#getClassLoadingStats(String)
+ */
+@ApiStatus.NonExtendable
+public interface ClassLoadingStats {
+	/**
+	 * @return the id of the mod which these statistics are for
+	 */
+	String modId();
+
+	/**
+	 * @return the number of classes which have been defined from the mod
+	 */
+	long classesDefined();
+
+	/**
+	 * @return the total size of every class file which has been read from the mod, before mixins are applied
+	 */
+	long bytesRead();
+
+	/**
+	 * @return the total time spent finding and reading class files from the mod, in nanoseconds
+	 */
+	long lookupNanos();
+
+	/**
+	 * @return the total time spent applying mixins to classes from the mod, in nanoseconds
+	 */
+	long mixinNanos();
+
+	/**
+	 * @return the total time spent defining classes from the mod in the JVM, in nanoseconds
+	 */
+	long defineNanos();
+}
@@ -28,6 +28,7 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.api.entrypoint.EntrypointContainer;
+import org.muonmc.loader.api.entrypoint.EntrypointDispatcher;
 import org.muonmc.loader.api.entrypoint.EntrypointException;
 import org.muonmc.loader.impl.MuonLoaderImpl;
 import org.muonmc.loader.impl.util.GlobalPaths;
@@ -97,6 +98,22 @@ public final class MuonLoader {
 		return impl().getEntrypointContainers(key, type);
 	}
 
+	/**
+	 * Returns a dispatcher for every entrypoint declared under a {@code key}, assuming they are of a specific type.
+	 *
+	 * <p>Unlike {@link #getEntrypoints(String, Class)} every entrypoint is created immediately, and the returned
+	 * dispatcher is cached. This makes it suitable for entrypoints which are queried or invoked repeatedly.</p>
+	 *
+	 * @param key  the key in entrypoint declaration in {@code fabric.mod.json}
+	 * @param type the type of entrypoints
+	 * @param <T>  the type of entrypoints
+	 * @return the dispatcher for the entrypoints
+	 * @throws EntrypointException if a problem arises during entrypoint creation
+	 */
+	public static <T> EntrypointDispatcher<T> getEntrypointDispatcher(String key, Class<T> type) throws EntrypointException {
+		return impl().getEntrypointDispatcher(key, type);
+	}
+
 	/**
 	 * Get the current mapping resolver.
 	 *
@@ -139,6 +156,54 @@ public final class MuonLoader {
 		return impl().isModLoaded(id);
 	}
 
+	/**
+	 * Gets statistics about the classes which have been loaded from a mod so far. This includes the number of classes,
+	 * and the time spent reading, transforming, and defining them.
+	 *
+	 * @param id the ID of the mod
+	 * @return the statistics, or empty if no classes have been loaded from the mod
+	 */
+	public static Optional<ClassLoadingStats> getClassLoadingStats(String id) {
+		return impl().getClassLoadingStats(id);
+	}
+
+	/**
+	 * Gets statistics about the classes which have been loaded so far, for every mod which has loaded at least one
+	 * class. These are also available through JMX, as the {@code org.muonmc.loader:type=ClassLoading} MBean.
+	 *
+	 * @return an unmodifiable view of the statistics of every mod
+	 * @see #getClassLoadingStats(String)
+	 */
+	public static Collection<ClassLoadingStats> getAllClassLoadingStats() {
+		return impl().getAllClassLoadingStats();
+	}
+
+	/**
+	 * Lists every file in the mods on the class path whose path starts with the given prefix, for example
+	 * {@code "assets/mymod/"} or {@code "data/minecraft/tags"}. This uses an index of the class path, so it's much
+	 * faster than walking the root of every mod.
+	 *
+	 * <p>If multiple mods contain the same path then all of them are included, and the first is the one
+	 * {@link ClassLoader#getResource(String)} returns.
+	 *
+	 * @param prefix the start of the path, relative to the root of each mod
+	 * @return an unmodifiable list of every matching file, sorted by path
+	 */
+	public static List<Path> getClassPathResourcesUnder(String prefix) {
+		return impl().getClassPathResourcesUnder(prefix);
+	}
+
+	/**
+	 * Lists every file in the mods on the class path with the given extension, for example {@code "json"}.
+	 *
+	 * @param extension the file extension, without the leading dot
+	 * @return an unmodifiable list of every matching file, sorted by path
+	 * @see #getClassPathResourcesUnder(String)
+	 */
+	public static List<Path> getClassPathResourcesWithExtension(String extension) {
+		return impl().getClassPathResourcesWithExtension(extension);
+	}
+
 	/**
 	 * Gets the mod container that provides the given class.
 	 * <p>
@@ -24,7 +24,6 @@ import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.Nullable;
-import org.muonmc.loader.impl.metadata.qmj.GenericVersionImpl;
 import org.muonmc.loader.impl.metadata.qmj.SemanticVersionImpl;
 
 /** Representation of a version. <br>
@@ -38,11 +37,7 @@ public interface Version {
 	static Comparator<Version> COMPARATOR = Version::compareTo;
 
 	static Version of(String raw) {
-		try {
-			return Semantic.of(raw);
-		} catch (VersionFormatException ex) {
-			return new GenericVersionImpl(raw);
-		}
+		return SemanticVersionImpl.ofAny(raw);
 	}
 
 	/** @return The raw string that this version was constructed from.*/
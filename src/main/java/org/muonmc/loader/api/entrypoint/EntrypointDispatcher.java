@@ -0,0 +1,66 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.api.entrypoint;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.muonmc.loader.api.ModContainer;
+import org.muonmc.loader.api.MuonLoader;
+
+/** A frozen list of every entrypoint with a single key and type, which have all been created already. This is intended
+ * for entrypoints which are invoked many times: unlike {@link MuonLoader#getEntrypoints(String, Class)} and
+ * {@link EntrypointUtil}, getting or invoking entrypoints from a dispatcher doesn't allocate anything.
+ * <p>
+ * Dispatchers are cached, so calling {@link MuonLoader#getEntrypointDispatcher(String, Class)} again with the same key
+ * and type will return the same dispatcher.
+ *
+ * @param <T> The type of the entrypoint */
+@ApiStatus.NonExtendable
+public interface EntrypointDispatcher<T> {
+
+	/** @return The entrypoint key. */
+	String key();
+
+	/** @return The number of entrypoints. */
+	int size();
+
+	/** @return The entrypoint at the given index. */
+	T get(int index);
+
+	/** @return The mod which provided the entrypoint at the given index. */
+	ModContainer getProvider(int index);
+
+	/** @return An unmodifiable list of every entrypoint, in the same order as
+	 *         {@link MuonLoader#getEntrypoints(String, Class)}. */
+	List<T> getEntrypoints();
+
+	/** @return An unmodifiable list of every entrypoint container, in the same order as
+	 *         {@link MuonLoader#getEntrypointContainers(String, Class)}. */
+	List<EntrypointContainer<T>> getContainers();
+
+	/** Passes every entrypoint to the given consumer, in order. If the consumer throws an exception for any of the
+	 * entrypoints then the remaining entrypoints are still invoked, and then every exception is thrown together. */
+	void invoke(Consumer<? super T> invoker);
+
+	/** Passes every entrypoint and the {@link ModContainer} which provided it to the given consumer, in order. If the
+	 * consumer throws an exception for any of the entrypoints then the remaining entrypoints are still invoked, and
+	 * then every exception is thrown together. */
+	void invoke(BiConsumer<? super T, ModContainer> invoker);
+}
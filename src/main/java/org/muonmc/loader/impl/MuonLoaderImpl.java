@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.file.FileSystem;
@@ -42,6 +43,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Random;
 import java.util.Set;
@@ -49,9 +51,9 @@ import java.util.function.Consumer;
 import java.util.jar.Attributes;
 import java.util.jar.Manifest;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.stream.Stream;
 
+import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.api.ModContainer;
 import org.muonmc.loader.api.entrypoint.PreLaunchEntrypoint;
 import org.muonmc.loader.api.game.minecraft.Environment;
@@ -67,10 +69,12 @@ import org.muonmc.loader.impl.filesystem.MuonZipPath;
 import org.muonmc.loader.impl.game.GameProvider;
 import org.muonmc.loader.impl.gui.GuiManagerImpl;
 import org.muonmc.loader.impl.gui.MuonJsonGuiMessage;
+import org.muonmc.loader.impl.gui.MuonStatusNode;
 import org.muonmc.loader.impl.launch.common.QuiltCodeSource;
 import org.muonmc.loader.impl.launch.common.MuonLauncher;
 import org.muonmc.loader.impl.launch.common.MuonLauncherBase;
 import org.muonmc.loader.impl.launch.common.MuonMixinBootstrap;
+import org.muonmc.loader.impl.launch.knot.ClassLoadingMetrics;
 import org.muonmc.loader.impl.metadata.FabricLoaderModMetadata;
 import org.muonmc.loader.impl.metadata.qmj.InternalModMetadata;
 import org.muonmc.loader.impl.metadata.qmj.ProvidedModContainer;
@@ -86,6 +90,7 @@ import org.muonmc.loader.impl.transformer.TransformCacheResult;
 import org.muonmc.loader.impl.util.log.Log;
 import org.muonmc.loader.impl.util.log.LogCategory;
 import org.objectweb.asm.Opcodes;
+import org.muonmc.loader.api.ClassLoadingStats;
 import org.muonmc.loader.api.FasterFiles;
 import org.muonmc.loader.api.LanguageAdapter;
 import org.muonmc.loader.api.MappingResolver;
@@ -94,6 +99,7 @@ import org.muonmc.loader.api.ModMetadata.ProvidedMod;
 import org.muonmc.loader.api.MuonLoader;
 import org.muonmc.loader.api.Version;
 import org.muonmc.loader.api.entrypoint.EntrypointContainer;
+import org.muonmc.loader.api.entrypoint.EntrypointDispatcher;
 import org.muonmc.loader.api.gui.LoaderGuiException;
 import org.muonmc.loader.api.gui.MuonBasicWindow;
 import org.muonmc.loader.api.gui.MuonDisplayedError;
@@ -117,6 +123,8 @@ import org.muonmc.loader.impl.util.FilePreloadHelper;
 import org.muonmc.loader.impl.util.HashUtil;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.PrecomputedZipWriter;
+import org.muonmc.loader.impl.util.SharedCacheStore;
 import org.muonmc.loader.impl.util.SystemProperties;
 import org.spongepowered.asm.mixin.FabricUtil;
 
@@ -138,6 +146,8 @@ public final class MuonLoaderImpl {
 	private static final String PROCESSED_MODS_DIR_NAME = "processedMods"; // relative to loader cache dir
 	public static final String REMAPPED_JARS_DIR_NAME = "remappedJars"; // relative to loader cache dir
 	private static final String TMP_DIR_NAME = "tmp"; // relative to loader cache dir
+	/** How many files {@link #writeJarCopy(Path, Path)} compresses at once. */
+	private static final int JAR_COPY_BATCH_SIZE = 1024;
 
 	// Mod table flags
 	public static final char FLAG_DEPS_CHANGED = 'o';
@@ -193,6 +203,11 @@ public final class MuonLoaderImpl {
 		finishModLoading();
 	}
 
+	/** @return True if {@link #freeze()} has been called, after which the list of mods never changes. */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
 	public GameProvider getGameProvider() {
 		if (provider == null) throw new IllegalStateException("game provider not set (yet)");
 
@@ -282,6 +297,15 @@ public final class MuonLoaderImpl {
 		return ensureDirExists(configDir, "config");
 	}
 
+	/**
+	 * @return "{@link #getLoaderCacheDir()} / transform-cache-(suffix)", where the suffix is either the value of
+	 *         {@link SystemProperties#CACHE_SUFFIX} or the current environment.
+	 */
+	public Path getTransformCacheFolder() {
+		String suffix = System.getProperty(SystemProperties.CACHE_SUFFIX, getEnvironmentType().name().toLowerCase(Locale.ROOT));
+		return getCacheDir().resolve(CACHE_DIR_NAME).resolve("transform-cache-" + suffix);
+	}
+
 	public Path getModsDir() {
 		// modsDir should be initialized before this method is ever called, this acts as a very special failsafe
 		if (modsDir == null) {
@@ -345,7 +369,6 @@ public final class MuonLoaderImpl {
 		temporaryOrderedModList = modList.toArray(new ModLoadOption[0]);
 
 		long zipStart = System.nanoTime();
-		String suffix = System.getProperty(SystemProperties.CACHE_SUFFIX, getEnvironmentType().name().toLowerCase(Locale.ROOT));
 		FileHasherImpl hasher = new FileHasherImpl(null);
 
 		for (ModLoadOption mod : modList) {
@@ -370,7 +393,7 @@ public final class MuonLoaderImpl {
 			}
 		}
 
-		Path transformCacheFolder = getCacheDir().resolve(CACHE_DIR_NAME).resolve("transform-cache-" + suffix);
+		Path transformCacheFolder = getTransformCacheFolder();
 		TransformCacheResult cacheResult = TransformCacheManager.populateTransformBundle(transformCacheFolder, modList, modOriginHash, result);
 		MuonZipPath transformedModBundle = cacheResult.transformCacheRoot;
 
@@ -444,7 +467,7 @@ public final class MuonLoaderImpl {
 
 			if (copyThis) {
 				long start = System.nanoTime();
-				resourceRoot = copyToJar(transformCacheFolder, modOption, resourceRoot);
+				resourceRoot = copyToJar(transformCacheFolder, cacheResult.cacheKey, modOption, resourceRoot);
 				jarCopyTotal += System.nanoTime() - start;
 			}
 
@@ -506,7 +529,7 @@ public final class MuonLoaderImpl {
 		return false;
 	}
 
-	private Path copyToJar(Path transformCacheFolder, ModLoadOption modOption, final Path resourceRoot) throws Error {
+	private Path copyToJar(Path transformCacheFolder, String cacheKey, ModLoadOption modOption, final Path resourceRoot) throws Error {
 
 		String versionFrom = modOption.version().toString();
 		StringBuilder version = new StringBuilder();
@@ -532,39 +555,18 @@ public final class MuonLoaderImpl {
 
 			Log.info(LogCategory.GENERAL, "Copying " + modOption.id() + " to a temporary jar file " + modJarFile);
 			try {
-				try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(modJarFile))) {
-					List<Path> list = Files.walk(resourceRoot).collect(Collectors.toList());
-					for (Path path : list) {
-						String pathStr = path.toString();
-						if (pathStr.startsWith("/")) {
-							pathStr = pathStr.substring(1);
-						}
-						if (FasterFiles.isDirectory(path)) {
-							zip.putNextEntry(new ZipEntry(pathStr + "/"));
-						} else {
-							if (pathStr.startsWith("META-INF/") && pathStr.lastIndexOf('/') == 8 && pathStr.endsWith(".SF")) {
-								continue;
-							}
-							byte[] bytes = Files.readAllBytes(path);
-							if ("META-INF/MANIFEST.MF".equals(pathStr)) {
-								boolean changed = false;
-								Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
-								for (Attributes attributes : manifest.getEntries().values()) {
-									if (attributes.remove(new Attributes.Name("SHA-256-Digest")) != null) {
-										changed = true;
-									}
-								}
-								if (changed) {
-									ByteArrayOutputStream baos = new ByteArrayOutputStream();
-									manifest.write(baos);
-									bytes = baos.toByteArray();
-								}
-							}
-							zip.putNextEntry(new ZipEntry(pathStr));
-							zip.write(bytes);
-						}
-						zip.closeEntry();
+				SharedCacheStore sharedStore = SharedCacheStore.get();
+				if (sharedStore != null && !modOption.couldResourcesChange()) {
+					// The copy only depends on the transform cache, so instances with the same cache can share it
+					String key = new SharedCacheStore.KeyBuilder().add(cacheKey).add(fileName).build();
+					Path shared = sharedStore.getOrCreate("mod-jars", key + ".jar", tmp -> writeJarCopy(resourceRoot, tmp));
+					modJarFile = SharedCacheStore.link(shared, modJarFile);
+					if (modJarFile.equals(shared)) {
+						// Not linked, so don't mark the local copy as finished
+						return openJarCopy(modJarFile);
 					}
+				} else {
+					writeJarCopy(resourceRoot, modJarFile);
 				}
 
 				Files.createFile(andFinished);
@@ -575,6 +577,10 @@ public final class MuonLoaderImpl {
 			FilePreloadHelper.preLoad(modJarFile);
 		}
 
+		return openJarCopy(modJarFile);
+	}
+
+	private static Path openJarCopy(Path modJarFile) throws Error {
 		try {
 			FileSystem fs = FileSystems.newFileSystem(modJarFile, (ClassLoader) null);
 			return fs.getPath("/");
@@ -583,8 +589,77 @@ public final class MuonLoaderImpl {
 		}
 	}
 
+	/** Copies every file in the given root into a new jar. Files which are already deflated in a
+	 * {@link MuonZipFileSystem} are copied without compressing them again, and everything else is compressed in
+	 * parallel, in batches of {@link #JAR_COPY_BATCH_SIZE} files so the whole jar is never held in memory. */
+	private static void writeJarCopy(Path resourceRoot, Path to) throws IOException {
+		List<Path> list;
+		try (Stream<Path> stream = Files.walk(resourceRoot)) {
+			list = stream.collect(Collectors.toList());
+		}
+
+		try (PrecomputedZipWriter writer = new PrecomputedZipWriter(to)) {
+			for (int start = 0; start < list.size(); start += JAR_COPY_BATCH_SIZE) {
+				List<PrecomputedZipWriter.Entry> entries;
+				try {
+					entries = list.subList(start, Math.min(list.size(), start + JAR_COPY_BATCH_SIZE)).parallelStream().map(path -> {
+						try {
+							return createJarCopyEntry(path);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					}).filter(Objects::nonNull).collect(Collectors.toList());
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+
+				for (PrecomputedZipWriter.Entry entry : entries) {
+					writer.write(entry);
+				}
+			}
+		}
+	}
+
+	@Nullable
+	private static PrecomputedZipWriter.Entry createJarCopyEntry(Path path) throws IOException {
+		String pathStr = path.toString();
+		if (pathStr.startsWith("/")) {
+			pathStr = pathStr.substring(1);
+		}
+		if (FasterFiles.isDirectory(path)) {
+			return PrecomputedZipWriter.Entry.folder(pathStr + "/");
+		}
+		if (pathStr.startsWith("META-INF/") && pathStr.lastIndexOf('/') == 8 && pathStr.endsWith(".SF")) {
+			return null;
+		}
+		if ("META-INF/MANIFEST.MF".equals(pathStr)) {
+			byte[] bytes = Files.readAllBytes(path);
+			boolean changed = false;
+			Manifest manifest = new Manifest(new ByteArrayInputStream(bytes));
+			for (Attributes attributes : manifest.getEntries().values()) {
+				if (attributes.remove(new Attributes.Name("SHA-256-Digest")) != null) {
+					changed = true;
+				}
+			}
+			if (changed) {
+				ByteArrayOutputStream baos = new ByteArrayOutputStream();
+				manifest.write(baos);
+				bytes = baos.toByteArray();
+			}
+			return PrecomputedZipWriter.Entry.compress(pathStr, bytes);
+		}
+
+		MuonZipFileSystem.DeflatedFile deflated = MuonZipFileSystem.readDeflated(path);
+		if (deflated != null) {
+			return PrecomputedZipWriter.Entry.deflated(pathStr, deflated.data, deflated.uncompressedSize, deflated.crc);
+		}
+		return PrecomputedZipWriter.Entry.compress(pathStr, Files.readAllBytes(path));
+	}
+
 	private ModSolveResult runPlugins() {
 		QuiltLoaderConfig config = new QuiltLoaderConfig(getConfigDir().resolve("quilt-loader.txt"));
+		// Without a gui the status tree is only checked for errors, so don't bother formatting and sorting it
+		MuonStatusNode.setHeadlessMode((provider != null && !provider.canOpenGui()) || GraphicsEnvironment.isHeadless());
 		MuonPluginManagerImpl plugins = new MuonPluginManagerImpl(getGameDir(), getConfigDir(), getModsDir(), getCacheDir(), provider, config);
 
 		Path crashReportFile = null;
@@ -931,6 +1006,40 @@ public final class MuonLoaderImpl {
 
 		to.accept("Mod Table Version: 2");
 		to.accept("Plugin Types: " + types);
+
+		appendClassLoadingTable(to);
+	}
+
+	/** Appends a table of the {@link ClassLoadingStats} for every mod which has loaded at least one class, ordered by
+	 * the total time spent loading them. */
+	private static void appendClassLoadingTable(Consumer<String> to) {
+		List<ClassLoadingStats> stats = new ArrayList<>(ClassLoadingMetrics.getAll());
+		if (stats.isEmpty()) {
+			return;
+		}
+
+		stats.sort(Comparator.comparingLong((ClassLoadingStats s) -> s.lookupNanos() + s.mixinNanos() + s.defineNanos()).reversed());
+
+		AsciiTableGenerator table = new AsciiTableGenerator();
+		AsciiTableGenerator.AsciiTableColumn id = table.addColumn("ID", false);
+		AsciiTableGenerator.AsciiTableColumn classes = table.addColumn("Classes", true);
+		AsciiTableGenerator.AsciiTableColumn bytes = table.addColumn("Bytes Read", true);
+		AsciiTableGenerator.AsciiTableColumn lookup = table.addColumn("Lookup (ms)", true);
+		AsciiTableGenerator.AsciiTableColumn mixin = table.addColumn("Mixin (ms)", true);
+		AsciiTableGenerator.AsciiTableColumn define = table.addColumn("Define (ms)", true);
+
+		for (ClassLoadingStats stat : stats) {
+			AsciiTableGenerator.AsciiTableRow row = table.addRow();
+			row.put(id, stat.modId());
+			row.put(classes, Long.toString(stat.classesDefined()));
+			row.put(bytes, Long.toString(stat.bytesRead()));
+			row.put(lookup, Long.toString(stat.lookupNanos() / 1_000_000));
+			row.put(mixin, Long.toString(stat.mixinNanos() / 1_000_000));
+			row.put(define, Long.toString(stat.defineNanos() / 1_000_000));
+		}
+
+		to.accept("Class Loading:");
+		table.appendTable(to);
 	}
 
 	public static String prefixPath(Path gameDir, Path modsDir, Path path) {
@@ -1075,6 +1184,28 @@ public final class MuonLoaderImpl {
 		return entrypointStorage.getEntrypointContainers(key, type);
 	}
 
+	public <T> EntrypointDispatcher<T> getEntrypointDispatcher(String key, Class<T> type) {
+		return entrypointStorage.getEntrypointDispatcher(key, type);
+	}
+
+	public Optional<ClassLoadingStats> getClassLoadingStats(String modId) {
+		return Optional.ofNullable(ClassLoadingMetrics.get(modId));
+	}
+
+	public Collection<ClassLoadingStats> getAllClassLoadingStats() {
+		return ClassLoadingMetrics.getAll();
+	}
+
+	public List<Path> getClassPathResourcesUnder(String prefix) {
+		MuonLauncher launcher = MuonLauncherBase.getLauncher();
+		return launcher == null ? Collections.emptyList() : launcher.getResourcesUnder(prefix);
+	}
+
+	public List<Path> getClassPathResourcesWithExtension(String extension) {
+		MuonLauncher launcher = MuonLauncherBase.getLauncher();
+		return launcher == null ? Collections.emptyList() : launcher.getResourcesWithExtension(extension);
+	}
+
 	public MappingResolver getMappingResolver() {
 		if (mappingResolver == null) {
 			mappingResolver = new MuonMappingResolver(
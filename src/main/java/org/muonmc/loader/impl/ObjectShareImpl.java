@@ -18,10 +18,10 @@
 package org.muonmc.loader.impl;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
@@ -29,16 +29,20 @@ import org.muonmc.loader.impl.util.MuonLoaderInternalType;
 
 import net.fabricmc.loader.api.ObjectShare;
 
+/** Stores both values and pending {@link #whenAvailable(String, BiConsumer)} consumers in a single
+ * {@link ConcurrentHashMap}, so reads never lock, and a value replacing a {@link Pending} entry atomically takes every
+ * consumer which was registered for it. Consumers are always invoked outside of the map. */
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 public final class ObjectShareImpl implements ObjectShare {
-	private final Map<String, Object> values = new HashMap<>();
-	private final Map<String, List<BiConsumer<String, Object>>> pendingMap = new HashMap<>();
+	/** Either a value, or a {@link Pending} if there are consumers waiting for the key. */
+	private final Map<String, Object> entries = new ConcurrentHashMap<>();
 
 	@Override
-	public synchronized Object get(String key) {
+	public Object get(String key) {
 		validateKey(key);
 
-		return values.get(key);
+		Object value = entries.get(key);
+		return value instanceof Pending ? null : value;
 	}
 
 	@Override
@@ -46,18 +50,14 @@ public final class ObjectShareImpl implements ObjectShare {
 		validateKey(key);
 		Objects.requireNonNull(value, "null value");
 
-		List<BiConsumer<String, Object>> pending;
+		Object prev = entries.put(key, value);
 
-		synchronized (this) {
-			Object prev = values.put(key, value);
-			if (prev != null) return prev; // no new entry -> can't have pending entries for it
-
-			pending = pendingMap.remove(key);
+		if (prev instanceof Pending) {
+			((Pending) prev).invoke(key, value);
+			return null;
 		}
 
-		if (pending != null) invokePending(key, value, pending);
-
-		return null;
+		return prev;
 	}
 
 	@Override
@@ -65,40 +65,67 @@ public final class ObjectShareImpl implements ObjectShare {
 		validateKey(key);
 		Objects.requireNonNull(value, "null value");
 
-		List<BiConsumer<String, Object>> pending;
+		while (true) {
+			Object prev = entries.putIfAbsent(key, value);
 
-		synchronized (this) {
-			Object prev = values.putIfAbsent(key, value);
-			if (prev != null) return prev; // no new entry -> can't have pending entries for it
-
-			pending = pendingMap.remove(key);
-		}
+			if (prev == null) {
+				return null;
+			}
 
-		if (pending != null) invokePending(key, value, pending);
+			if (!(prev instanceof Pending)) {
+				return prev;
+			}
 
-		return null;
+			// Pending doesn't override equals, so this only succeeds if no value was added in the meantime
+			if (entries.replace(key, prev, value)) {
+				((Pending) prev).invoke(key, value);
+				return null;
+			}
+		}
 	}
 
 	@Override
-	public synchronized Object remove(String key) {
+	public Object remove(String key) {
 		validateKey(key);
 
-		return values.remove(key);
+		Object[] removed = { null };
+		entries.computeIfPresent(key, (k, current) -> {
+			if (current instanceof Pending) {
+				return current;
+			}
+			removed[0] = current;
+			return null;
+		});
+		return removed[0];
 	}
 
 	@Override
 	public void whenAvailable(String key, BiConsumer<String, Object> consumer) {
 		validateKey(key);
 
-		Object value;
-
-		synchronized (this) {
-			value = values.get(key);
-
-			if (value == null) { // value doesn't exist yet, queue invocation for when it gets added
-				pendingMap.computeIfAbsent(key, ignore -> new ArrayList<>()).add(consumer);
+		Object value = entries.get(key);
+
+		if (value == null || value instanceof Pending) {
+			Object[] existing = { null };
+			entries.compute(key, (k, current) -> {
+				if (current == null) {
+					return new Pending(consumer);
+				}
+				if (current instanceof Pending) {
+					// Safe to modify, since anything which replaces this is also locked on the same map entry
+					((Pending) current).consumers.add(consumer);
+				} else {
+					existing[0] = current;
+				}
+				return current;
+			});
+
+			if (existing[0] == null) {
+				// value doesn't exist yet, queued for when it gets added
 				return;
 			}
+
+			value = existing[0];
 		}
 
 		// value exists already, invoke directly
@@ -112,9 +139,17 @@ public final class ObjectShareImpl implements ObjectShare {
 		if (pos <= 0 || pos >= key.length() - 1) throw new IllegalArgumentException("invalid key, must be modid:subkey");
 	}
 
-	private static void invokePending(String key, Object value, List<BiConsumer<String, Object>> pending) {
-		for (BiConsumer<String, Object> consumer : pending) {
-			consumer.accept(key, value);
+	private static final class Pending {
+		final List<BiConsumer<String, Object>> consumers = new ArrayList<>();
+
+		Pending(BiConsumer<String, Object> first) {
+			consumers.add(first);
+		}
+
+		void invoke(String key, Object value) {
+			for (BiConsumer<String, Object> consumer : consumers) {
+				consumer.accept(key, value);
+			}
 		}
 	}
 }
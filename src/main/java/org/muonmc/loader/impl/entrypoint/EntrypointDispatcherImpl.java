@@ -0,0 +1,127 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.entrypoint;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.muonmc.loader.api.ModContainer;
+import org.muonmc.loader.api.entrypoint.EntrypointContainer;
+import org.muonmc.loader.api.entrypoint.EntrypointDispatcher;
+import org.muonmc.loader.impl.util.ExceptionUtil;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+final class EntrypointDispatcherImpl<T> implements EntrypointDispatcher<T> {
+	private final String key;
+	private final T[] entrypoints;
+	private final ModContainer[] providers;
+	private final List<T> entrypointList;
+	private final List<EntrypointContainer<T>> containers;
+
+	@SuppressWarnings("unchecked")
+	EntrypointDispatcherImpl(String key, List<EntrypointContainer<T>> from) {
+		this.key = key;
+		this.entrypoints = (T[]) new Object[from.size()];
+		this.providers = new ModContainer[from.size()];
+		EntrypointContainer<T>[] frozen = new EntrypointContainer[from.size()];
+		for (int i = 0; i < entrypoints.length; i++) {
+			EntrypointContainer<T> container = from.get(i);
+			entrypoints[i] = container.getEntrypoint();
+			providers[i] = container.getProvider();
+			frozen[i] = new EntrypointContainerImpl<>(providers[i], entrypoints[i]);
+		}
+		this.entrypointList = Collections.unmodifiableList(Arrays.asList(entrypoints));
+		this.containers = Collections.unmodifiableList(Arrays.asList(frozen));
+	}
+
+	@Override
+	public String key() {
+		return key;
+	}
+
+	@Override
+	public int size() {
+		return entrypoints.length;
+	}
+
+	@Override
+	public T get(int index) {
+		return entrypoints[index];
+	}
+
+	@Override
+	public ModContainer getProvider(int index) {
+		return providers[index];
+	}
+
+	@Override
+	public List<T> getEntrypoints() {
+		return entrypointList;
+	}
+
+	@Override
+	public List<EntrypointContainer<T>> getContainers() {
+		return containers;
+	}
+
+	@Override
+	public void invoke(Consumer<? super T> invoker) {
+		RuntimeException exception = null;
+		for (int i = 0; i < entrypoints.length; i++) {
+			try {
+				invoker.accept(entrypoints[i]);
+			} catch (Throwable t) {
+				exception = gather(t, exception, i);
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	@Override
+	public void invoke(BiConsumer<? super T, ModContainer> invoker) {
+		RuntimeException exception = null;
+		for (int i = 0; i < entrypoints.length; i++) {
+			try {
+				invoker.accept(entrypoints[i], providers[i]);
+			} catch (Throwable t) {
+				exception = gather(t, exception, i);
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private RuntimeException gather(Throwable t, RuntimeException previous, int index) {
+		return ExceptionUtil.gatherExceptions(t, previous, exc -> new RuntimeException(String.format(
+			"Could not execute entrypoint stage '%s' due to errors, provided by '%s'!",
+			key, providers[index].metadata().id()
+		), exc));
+	}
+
+	@Override
+	public String toString() {
+		return "EntrypointDispatcher{" + key + ", " + entrypoints.length + " entrypoints}";
+	}
+}
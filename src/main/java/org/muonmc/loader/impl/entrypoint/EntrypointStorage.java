@@ -20,6 +20,7 @@ package org.muonmc.loader.impl.entrypoint;
 import org.muonmc.loader.api.LanguageAdapter;
 import org.muonmc.loader.api.LanguageAdapterException;
 import org.muonmc.loader.api.entrypoint.EntrypointContainer;
+import org.muonmc.loader.api.entrypoint.EntrypointDispatcher;
 import org.muonmc.loader.api.entrypoint.EntrypointException;
 import org.muonmc.loader.api.plugin.ModContainerExt;
 import org.muonmc.loader.api.plugin.ModMetadataExt.ModEntrypoint;
@@ -31,6 +32,7 @@ import org.muonmc.loader.impl.util.log.Log;
 import org.muonmc.loader.impl.util.log.LogCategory;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 public final class EntrypointStorage {
@@ -133,18 +135,51 @@ public final class EntrypointStorage {
 		}
 	}
 
-	private final Map<String, List<Entry>> entryMap = new HashMap<>();
+	/** Every entrypoint, keyed by the entrypoint key. The lists are never modified, instead they are replaced when an
+	 * entrypoint is added, so they can be read from any thread without locking. */
+	private final Map<String, List<Entry>> entryMap = new ConcurrentHashMap<>();
 
-	private List<Entry> getOrCreateEntries(String key) {
-		return entryMap.computeIfAbsent(key, (z) -> new ArrayList<>());
+	/** Every dispatcher and container list created so far, keyed by the entrypoint key. */
+	private final Map<String, KeyCache> caches = new ConcurrentHashMap<>();
+
+	/** The dispatchers and container lists created from a single version of the entries for a key. */
+	private static final class KeyCache {
+		final List<Entry> entries;
+		final Map<Class<?>, EntrypointDispatcherImpl<?>> dispatchers = new ConcurrentHashMap<>();
+		final Map<Class<?>, List<EntrypointContainer<?>>> containers = new ConcurrentHashMap<>();
+
+		KeyCache(List<Entry> entries) {
+			this.entries = entries;
+		}
+	}
+
+	private void addEntry(String key, Entry entry) {
+		entryMap.compute(key, (k, old) -> {
+			List<Entry> list = old == null ? new ArrayList<>(1) : new ArrayList<>(old);
+			list.add(entry);
+			return Collections.unmodifiableList(list);
+		});
+		// Any existing dispatchers and containers no longer contain every entrypoint. Another thread might put back a
+		// cache for the old entries after this, but getCache never returns a cache whose entries are out of date.
+		caches.remove(key);
+	}
+
+	/** @return The cache for the current entries with the given key. */
+	private KeyCache getCache(String key) {
+		List<Entry> entries = entryMap.getOrDefault(key, Collections.emptyList());
+		KeyCache cache = caches.get(key);
+		if (cache != null && cache.entries == entries) {
+			return cache;
+		}
+		return caches.compute(key, (k, old) -> old != null && old.entries == entries ? old : new KeyCache(entries));
 	}
 
 	public void addDeprecated(ModContainerExt modContainer, String adapter, String value) throws ClassNotFoundException, LanguageAdapterException {
 		Log.debug(LogCategory.ENTRYPOINT, "Registering 0.3.x old-style initializer %s for mod %s", value, modContainer.metadata().id());
 		OldEntry oe = new OldEntry(modContainer, adapter, value);
-		getOrCreateEntries("main").add(oe);
-		getOrCreateEntries("client").add(oe);
-		getOrCreateEntries("server").add(oe);
+		addEntry("main", oe);
+		addEntry("client", oe);
+		addEntry("server", oe);
 	}
 
 	public void add(ModContainerExt modContainer, String key, ModEntrypoint metadata, Map<String, LanguageAdapter> adapterMap) throws Exception {
@@ -154,7 +189,7 @@ public final class EntrypointStorage {
 		}
 
 		Log.debug(LogCategory.ENTRYPOINT, "Registering new-style initializer %s for mod %s (key %s)", data.getValue(), modContainer.metadata().id(), key);
-		getOrCreateEntries(key).add(new NewEntry(
+		addEntry(key, new NewEntry(
 				modContainer, adapterMap.get(data.getAdapter()), data.getValue()
 				));
 	}
@@ -194,10 +229,44 @@ public final class EntrypointStorage {
 		return results;
 	}
 
-	@SuppressWarnings("deprecation")
+	@SuppressWarnings("unchecked")
+	public <T> EntrypointDispatcher<T> getEntrypointDispatcher(String key, Class<T> type) {
+		KeyCache cache = getCache(key);
+		EntrypointDispatcherImpl<?> dispatcher = cache.dispatchers.get(type);
+		if (dispatcher == null) {
+			// Not computeIfAbsent since entrypoint creation can call back into here for a different type
+			EntrypointDispatcherImpl<T> created = new EntrypointDispatcherImpl<>(key, getEntrypointContainers(cache, key, type));
+			dispatcher = cache.dispatchers.putIfAbsent(type, created);
+			if (dispatcher == null) {
+				dispatcher = created;
+			}
+		}
+		return (EntrypointDispatcher<T>) dispatcher;
+	}
+
+	/** @return An unmodifiable list of lazy entrypoint containers. This is the same list every time, until more
+	 *         entrypoints are added with the given key. */
 	public <T> List<EntrypointContainer<T>> getEntrypointContainers(String key, Class<T> type) {
-		List<Entry> entries = entryMap.get(key);
-		if (entries == null) return Collections.emptyList();
+		return getEntrypointContainers(getCache(key), key, type);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> List<EntrypointContainer<T>> getEntrypointContainers(KeyCache cache, String key, Class<T> type) {
+		List<EntrypointContainer<?>> list = cache.containers.get(type);
+		if (list == null) {
+			// Not computeIfAbsent since optional entrypoints are created here, which can call back into here
+			List<EntrypointContainer<?>> created = (List<EntrypointContainer<?>>) (List<?>) createEntrypointContainers(cache.entries, key, type);
+			list = cache.containers.putIfAbsent(type, created);
+			if (list == null) {
+				list = created;
+			}
+		}
+		return (List<EntrypointContainer<T>>) (List<?>) list;
+	}
+
+	@SuppressWarnings("deprecation")
+	private <T> List<EntrypointContainer<T>> createEntrypointContainers(List<Entry> entries, String key, Class<T> type) {
+		if (entries.isEmpty()) return Collections.emptyList();
 
 		List<EntrypointContainer<T>> results = new ArrayList<>(entries.size());
 		EntrypointException exc = null;
@@ -236,6 +305,6 @@ public final class EntrypointStorage {
 
 		if (exc != null) throw exc;
 
-		return results;
+		return Collections.unmodifiableList(results);
 	}
 }
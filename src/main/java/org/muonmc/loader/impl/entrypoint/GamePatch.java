@@ -128,6 +128,12 @@ public abstract class GamePatch {
 		return ((access & 0x0F) == (Opcodes.ACC_PUBLIC | 0 /* non-static */));
 	}
 
+	/** Adds anything this patch depends on, other than the game jars and the launcher, to the key of the patched class
+	 * cache. For example, a patch which depends on the game version must add it here, since the version can be
+	 * changed without changing the game jars. */
+	public void appendCacheKey(List<String> key) {
+	}
+
 	public void process(MuonLauncher launcher, String namespace, Function<String, ClassReader> classSource, Consumer<ClassNode> classEmitter) {
 		throw new AbstractMethodError(getClass() + " must override one of the 'process' methods!");
 	}
@@ -17,7 +17,10 @@
 
 package org.muonmc.loader.impl.entrypoint;
 
+import org.jetbrains.annotations.Nullable;
+import org.muonmc.loader.impl.MuonLoaderImpl;
 import org.muonmc.loader.impl.util.ExceptionUtil;
+import org.muonmc.loader.impl.util.FileStamp;
 import org.muonmc.loader.impl.util.LoaderUtil;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
@@ -29,9 +32,17 @@ import org.muonmc.loader.impl.util.SimpleClassPath;
 import org.muonmc.loader.impl.util.log.Log;
 import org.muonmc.loader.impl.util.log.LogCategory;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -42,6 +53,8 @@ import java.util.zip.ZipError;
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 
 public class GameTransformer {
+	private static final int CACHE_VERSION = 2;
+
 	private final List<GamePatch> patches;
 	private Map<String, byte[]> patchedClasses;
 	private boolean entrypointsLocated = false;
@@ -66,10 +79,37 @@ public class GameTransformer {
 		this.locateEntrypoints(launcher, null, gameJars);
 	}
 	public void locateEntrypoints(MuonLauncher launcher, String namespace, List<Path> gameJars) {
+		this.locateEntrypoints(launcher, namespace, gameJars, null);
+	}
+
+	/** Like {@link #locateEntrypoints(MuonLauncher, String, List)}, but reuses the patched classes saved in the cache
+	 * file if the game jars, the loader version, the patches, and the launcher properties they depend on are all the
+	 * same as when it was saved (see {@link GamePatch#appendCacheKey(List)}). Otherwise the patches run as normal, and the result is saved to the cache file.
+	 *
+	 * @param cacheFile The file to save the patched classes to, or null to always patch them. */
+	public void locateEntrypoints(MuonLauncher launcher, String namespace, List<Path> gameJars, @Nullable Path cacheFile) {
 		if (entrypointsLocated) {
 			return;
 		}
 
+		List<String> key = null;
+
+		if (cacheFile != null) {
+			try {
+				key = getCacheKey(launcher, namespace, gameJars);
+				patchedClasses = readCache(cacheFile, key);
+			} catch (IOException e) {
+				Log.warn(LogCategory.GAME_PATCH, "Failed to check the game jars for the patched class cache", e);
+				key = null;
+			}
+
+			if (patchedClasses != null) {
+				Log.debug(LogCategory.GAME_PATCH, "Loaded %d patched class%s from %s", patchedClasses.size(), patchedClasses.size() != 1 ? "es" : "", cacheFile);
+				entrypointsLocated = true;
+				return;
+			}
+		}
+
 		patchedClasses = new HashMap<>();
 
 		try (SimpleClassPath cp = new SimpleClassPath(gameJars)) {
@@ -141,8 +181,96 @@ public class GameTransformer {
 			throw ExceptionUtil.wrap(e);
 		}
 
-		Log.debug(LogCategory.GAME_PATCH, "Patched %d class%s", patchedClasses.size(), patchedClasses.size() != 1 ? "s" : "");
+		Log.debug(LogCategory.GAME_PATCH, "Patched %d class%s", patchedClasses.size(), patchedClasses.size() != 1 ? "es" : "");
 		entrypointsLocated = true;
+
+		if (key != null) {
+			writeCache(cacheFile, key);
+		}
+	}
+
+	/** @return Everything the patched classes depend on. The game jars are identified by their {@link FileStamp}, since
+	 *         hashing them would read far more of the jars than the patches themselves do. */
+	private List<String> getCacheKey(MuonLauncher launcher, String namespace, List<Path> gameJars) throws IOException {
+		List<String> key = new ArrayList<>();
+		key.add(MuonLoaderImpl.VERSION);
+		key.add(String.valueOf(launcher.getEnvironmentType()));
+		key.add(String.valueOf(launcher.isDevelopment()));
+		key.add(String.valueOf(launcher.getEntrypoint()));
+		key.add(String.valueOf(launcher.getTargetNamespace()));
+		key.add(String.valueOf(namespace));
+
+		for (GamePatch patch : patches) {
+			key.add(patch.getClass().getName());
+			patch.appendCacheKey(key);
+		}
+
+		for (Path jar : gameJars) {
+			key.add(jar.toString());
+			key.add(FileStamp.read(jar).toString());
+		}
+
+		return key;
+	}
+
+	/** @return The cached classes, or null if the cache is missing or was saved with a different key. */
+	private static Map<String, byte[]> readCache(Path cacheFile, List<String> key) {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+			if (in.readInt() != CACHE_VERSION || in.readInt() != key.size()) {
+				return null;
+			}
+
+			for (String part : key) {
+				if (!in.readUTF().equals(part)) {
+					return null;
+				}
+			}
+
+			int count = in.readInt();
+			Map<String, byte[]> classes = new HashMap<>();
+
+			for (int i = 0; i < count; i++) {
+				String name = in.readUTF();
+				byte[] data = new byte[in.readInt()];
+				in.readFully(data);
+				classes.put(name, data);
+			}
+
+			return classes;
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			Log.warn(LogCategory.GAME_PATCH, "Failed to read the patched class cache %s", cacheFile, e);
+			return null;
+		}
+	}
+
+	private void writeCache(Path cacheFile, List<String> key) {
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(CACHE_VERSION);
+				out.writeInt(key.size());
+
+				for (String part : key) {
+					out.writeUTF(part);
+				}
+
+				out.writeInt(patchedClasses.size());
+
+				for (Map.Entry<String, byte[]> entry : patchedClasses.entrySet()) {
+					out.writeUTF(entry.getKey());
+					out.writeInt(entry.getValue().length);
+					out.write(entry.getValue());
+				}
+			}
+
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Log.warn(LogCategory.GAME_PATCH, "Failed to save the patched class cache %s", cacheFile, e);
+		}
 	}
 
 	/**
@@ -0,0 +1,532 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.filesystem;
+
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.jetbrains.annotations.Nullable;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+
+/** A glob {@link PathMatcher} which matches each name of a path separately, rather than converting the whole path to a
+ * string and running a regex over it. This matches exactly the same paths as the regex from {@link GlobToRegex} does
+ * when run on {@link Path#toString()}.
+ * <p>
+ * A "**" which is an entire segment of the glob (like "a/**&#47;b") matches one or more names. Globs with a "**" inside
+ * a segment, or a "/" inside braces, can match across segments in ways that don't fit this model, so those fall back
+ * to the regex. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+final class GlobPathMatcher implements PathMatcher {
+
+	/** The maximum number of segments in a glob with more than one "**", since the automaton state is a bitset. */
+	private static final int MAX_AUTOMATON_SEGMENTS = 63;
+	/** The maximum number of patterns a single segment's braces are expanded into. */
+	private static final int MAX_EXPANDED_ALTERNATIVES = 64;
+
+	private final Segment[] segments;
+	/** The index of the only "**" segment, or -1 if there isn't exactly one. */
+	private final int onlyMulti;
+	private final int multiCount;
+
+	private GlobPathMatcher(Segment[] segments) {
+		this.segments = segments;
+		int multi = -1;
+		int count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			if (segments[i] == Segment.MULTI) {
+				multi = i;
+				count++;
+			}
+		}
+		this.multiCount = count;
+		this.onlyMulti = count == 1 ? multi : -1;
+	}
+
+	static PathMatcher compile(String glob) {
+		// Always converted, so invalid globs throw exactly the same exceptions as before
+		String regex = GlobToRegex.toRegex(glob, "/");
+		Segment[] segments = new Parser(glob).parse();
+		if (segments == null) {
+			Pattern pattern = Pattern.compile(regex);
+			return path -> pattern.matcher(path.toString()).matches();
+		}
+		return new GlobPathMatcher(segments);
+	}
+
+	@Override
+	public boolean matches(Path path) {
+		String[] names = path instanceof MuonBasePath ? names((MuonBasePath<?, ?>) path) : path.toString().split("/", -1);
+
+		if (multiCount == 0) {
+			if (names.length != segments.length) {
+				return false;
+			}
+			return matchRange(names, 0, 0, segments.length);
+		}
+
+		if (names.length < segments.length) {
+			// Every segment needs at least one name
+			return false;
+		}
+
+		if (onlyMulti >= 0) {
+			// Most globs are either "prefix/**" or "**/suffix", so match the fixed names on either side directly
+			int after = segments.length - onlyMulti - 1;
+			return matchRange(names, 0, 0, onlyMulti)
+				&& matchRange(names, names.length - after, onlyMulti + 1, after);
+		}
+
+		return matchAutomaton(names);
+	}
+
+	private boolean matchRange(String[] names, int nameStart, int segmentStart, int count) {
+		for (int i = 0; i < count; i++) {
+			if (!segments[segmentStart + i].matches(names[nameStart + i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** Runs the glob as a non-deterministic automaton over the names, where state i means "the first i segments have
+	 * matched". A "**" segment can either stay in the same state after consuming a name, or move on. */
+	private boolean matchAutomaton(String[] names) {
+		long states = 1;
+		for (String name : names) {
+			long next = 0;
+			for (long remaining = states; remaining != 0; remaining &= remaining - 1) {
+				int i = Long.numberOfTrailingZeros(remaining);
+				if (i == segments.length) {
+					continue;
+				}
+				Segment segment = segments[i];
+				if (segment == Segment.MULTI) {
+					next |= (1L << i) | (1L << (i + 1));
+				} else if (segment.matches(name)) {
+					next |= 1L << (i + 1);
+				}
+			}
+			if (next == 0) {
+				return false;
+			}
+			states = next;
+		}
+		return (states & (1L << segments.length)) != 0;
+	}
+
+	/** @return Every name in the path, such that joining them with "/" produces {@link Path#toString()}. */
+	private static String[] names(MuonBasePath<?, ?> path) {
+		if (path.isRoot()) {
+			return new String[] { "", "" };
+		}
+
+		int count = 0;
+		for (MuonBasePath<?, ?> p = path; p != null; p = p.parent) {
+			count++;
+		}
+
+		String[] names = new String[count];
+		for (MuonBasePath<?, ?> p = path; p != null; p = p.parent) {
+			names[--count] = p.isRoot() ? "" : p.name;
+		}
+		return names;
+	}
+
+	/** Matches a single name, which never contains a "/". */
+	abstract static class Segment {
+		/** A whole-segment "**", which matches one or more names. Never asked to match a single name. */
+		static final Segment MULTI = new Segment() {
+			@Override
+			boolean matches(String name) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		static final Segment ANY = new Segment() {
+			@Override
+			boolean matches(String name) {
+				return true;
+			}
+		};
+
+		abstract boolean matches(String name);
+
+		static Segment of(List<Token> tokens) {
+			// Expand braces up front where possible, so "*.{png,json}" becomes two suffix checks
+			List<List<Token>> expanded = new ArrayList<>();
+			expanded.add(new ArrayList<>());
+			for (Token token : tokens) {
+				if (!(token instanceof Token.Alternatives)) {
+					for (List<Token> list : expanded) {
+						list.add(token);
+					}
+					continue;
+				}
+				Token[][] options = ((Token.Alternatives) token).options;
+				if (expanded.size() * options.length > MAX_EXPANDED_ALTERNATIVES) {
+					return general(tokens);
+				}
+				List<List<Token>> next = new ArrayList<>();
+				for (List<Token> list : expanded) {
+					for (Token[] option : options) {
+						List<Token> copy = new ArrayList<>(list);
+						copy.addAll(Arrays.asList(option));
+						next.add(copy);
+					}
+				}
+				expanded = next;
+			}
+
+			if (expanded.size() == 1) {
+				return ofSimple(expanded.get(0));
+			}
+
+			Segment[] options = new Segment[expanded.size()];
+			for (int i = 0; i < options.length; i++) {
+				options[i] = ofSimple(expanded.get(i));
+			}
+			return new Segment() {
+				@Override
+				boolean matches(String name) {
+					for (Segment option : options) {
+						if (option.matches(name)) {
+							return true;
+						}
+					}
+					return false;
+				}
+			};
+		}
+
+		private static Segment ofSimple(List<Token> tokens) {
+			if (tokens.size() == 1 && tokens.get(0) == Token.STAR) {
+				return ANY;
+			}
+
+			int stars = 0;
+			int literals = 0;
+			StringBuilder literal = new StringBuilder();
+			for (Token token : tokens) {
+				if (token == Token.STAR) {
+					stars++;
+				} else if (token instanceof Token.Literal) {
+					literals++;
+					literal.append(((Token.Literal) token).c);
+				}
+			}
+
+			if (literals == tokens.size()) {
+				String value = literal.toString();
+				return new Segment() {
+					@Override
+					boolean matches(String name) {
+						return name.equals(value);
+					}
+				};
+			} else if (stars == 1 && literals == tokens.size() - 1) {
+				String value = literal.toString();
+				if (tokens.get(0) == Token.STAR) {
+					return new Segment() {
+						@Override
+						boolean matches(String name) {
+							return name.endsWith(value);
+						}
+					};
+				} else if (tokens.get(tokens.size() - 1) == Token.STAR) {
+					return new Segment() {
+						@Override
+						boolean matches(String name) {
+							return name.startsWith(value);
+						}
+					};
+				}
+			}
+
+			return general(tokens);
+		}
+
+		private static Segment general(List<Token> tokens) {
+			Token[] array = tokens.toArray(new Token[0]);
+			return new Segment() {
+				@Override
+				boolean matches(String name) {
+					return Token.match(array, 0, name, 0);
+				}
+			};
+		}
+	}
+
+	abstract static class Token {
+		static final Token STAR = new Token() {};
+		static final Token ANY_CHAR = new Token() {};
+
+		static final class Literal extends Token {
+			final char c;
+
+			Literal(char c) {
+				this.c = c;
+			}
+		}
+
+		static final class CharClass extends Token {
+			final boolean negated;
+			/** Pairs of inclusive ranges. */
+			final int[] ranges;
+
+			CharClass(boolean negated, int[] ranges) {
+				this.negated = negated;
+				this.ranges = ranges;
+			}
+
+			boolean matches(int codePoint) {
+				for (int i = 0; i < ranges.length; i += 2) {
+					if (codePoint >= ranges[i] && codePoint <= ranges[i + 1]) {
+						return !negated;
+					}
+				}
+				return negated;
+			}
+		}
+
+		static final class Alternatives extends Token {
+			final Token[][] options;
+
+			Alternatives(Token[][] options) {
+				this.options = options;
+			}
+		}
+
+		/** Backtracking match of the tokens from index t against the name from index n. Names are short, so this is
+		 * much cheaper than it sounds. */
+		static boolean match(Token[] tokens, int t, String name, int n) {
+			for (; t < tokens.length; t++) {
+				Token token = tokens[t];
+				if (token == STAR) {
+					if (t + 1 == tokens.length) {
+						return true;
+					}
+					for (int i = n; i <= name.length(); i++) {
+						if (match(tokens, t + 1, name, i)) {
+							return true;
+						}
+					}
+					return false;
+				} else if (token instanceof Literal) {
+					if (n >= name.length() || name.charAt(n) != ((Literal) token).c) {
+						return false;
+					}
+					n++;
+				} else if (token == ANY_CHAR || token instanceof CharClass) {
+					if (n >= name.length()) {
+						return false;
+					}
+					int codePoint = name.codePointAt(n);
+					if (token instanceof CharClass && !((CharClass) token).matches(codePoint)) {
+						return false;
+					}
+					n += Character.charCount(codePoint);
+				} else {
+					Token[] rest = new Token[tokens.length - t - 1];
+					System.arraycopy(tokens, t + 1, rest, 0, rest.length);
+					for (Token[] option : ((Alternatives) token).options) {
+						Token[] joined = new Token[option.length + rest.length];
+						System.arraycopy(option, 0, joined, 0, option.length);
+						System.arraycopy(rest, 0, joined, option.length, rest.length);
+						if (match(joined, 0, name, n)) {
+							return true;
+						}
+					}
+					return false;
+				}
+			}
+			return n == name.length();
+		}
+	}
+
+	/** Splits a glob (which {@link GlobToRegex} has already validated) into segments. */
+	static final class Parser {
+		private final String glob;
+		private int index;
+
+		Parser(String glob) {
+			this.glob = glob;
+		}
+
+		/** @return The segments, or null if the glob can't be matched one segment at a time. */
+		@Nullable
+		Segment[] parse() {
+			List<Segment> segments = new ArrayList<>();
+			List<Token> tokens = new ArrayList<>();
+			boolean multi = false;
+
+			while (index < glob.length()) {
+				char c = glob.charAt(index++);
+				if (c == '\\') {
+					c = glob.charAt(index++);
+					if (c == '/') {
+						if (!finishSegment(segments, tokens, multi)) {
+							return null;
+						}
+						multi = false;
+						tokens = new ArrayList<>();
+					} else {
+						tokens.add(new Token.Literal(c));
+					}
+				} else if (c == '/') {
+					if (!finishSegment(segments, tokens, multi)) {
+						return null;
+					}
+					multi = false;
+					tokens = new ArrayList<>();
+				} else if (c == '*') {
+					if (index < glob.length() && glob.charAt(index) == '*') {
+						index++;
+						if (multi || !tokens.isEmpty()) {
+							return null;
+						}
+						multi = true;
+					} else if (multi) {
+						return null;
+					} else {
+						tokens.add(Token.STAR);
+					}
+				} else if (multi) {
+					return null;
+				} else if (c == '?') {
+					tokens.add(Token.ANY_CHAR);
+				} else if (c == '[') {
+					Token.CharClass charClass = parseClass();
+					if (charClass == null) {
+						return null;
+					}
+					tokens.add(charClass);
+				} else if (c == '{') {
+					Token.Alternatives alternatives = parseAlternatives();
+					if (alternatives == null) {
+						return null;
+					}
+					tokens.add(alternatives);
+				} else {
+					tokens.add(new Token.Literal(c));
+				}
+			}
+
+			if (!finishSegment(segments, tokens, multi) || segments.size() > MAX_AUTOMATON_SEGMENTS) {
+				return null;
+			}
+			return segments.toArray(new Segment[0]);
+		}
+
+		private static boolean finishSegment(List<Segment> segments, List<Token> tokens, boolean multi) {
+			if (multi) {
+				if (!tokens.isEmpty()) {
+					return false;
+				}
+				segments.add(Segment.MULTI);
+			} else {
+				segments.add(Segment.of(tokens));
+			}
+			return true;
+		}
+
+		@Nullable
+		private Token.CharClass parseClass() {
+			boolean negated = false;
+			if (glob.charAt(index) == '!') {
+				negated = true;
+				index++;
+			}
+
+			StringBuilder chars = new StringBuilder();
+			char c;
+			while ((c = glob.charAt(index++)) != ']') {
+				if (c == '[' || c == '&' || c == '^') {
+					// Special inside a regex character class
+					return null;
+				}
+				chars.append(c);
+			}
+
+			List<Integer> ranges = new ArrayList<>();
+			for (int i = 0; i < chars.length(); i++) {
+				char from = chars.charAt(i);
+				if (i + 2 < chars.length() && chars.charAt(i + 1) == '-') {
+					char to = chars.charAt(i + 2);
+					if (to < from) {
+						return null;
+					}
+					ranges.add((int) from);
+					ranges.add((int) to);
+					i += 2;
+				} else {
+					ranges.add((int) from);
+					ranges.add((int) from);
+				}
+			}
+
+			int[] array = new int[ranges.size()];
+			for (int i = 0; i < array.length; i++) {
+				array[i] = ranges.get(i);
+			}
+			return new Token.CharClass(negated, array);
+		}
+
+		@Nullable
+		private Token.Alternatives parseAlternatives() {
+			List<Token[]> options = new ArrayList<>();
+			List<Token> tokens = new ArrayList<>();
+			while (true) {
+				char c = glob.charAt(index++);
+				if (c == '}' || c == ',') {
+					options.add(tokens.toArray(new Token[0]));
+					tokens = new ArrayList<>();
+					if (c == '}') {
+						return new Token.Alternatives(options.toArray(new Token[0][]));
+					}
+				} else if (c == '\\') {
+					c = glob.charAt(index++);
+					if (c == '/') {
+						return null;
+					}
+					tokens.add(new Token.Literal(c));
+				} else if (c == '/') {
+					return null;
+				} else if (c == '*') {
+					if (glob.charAt(index) == '*') {
+						return null;
+					}
+					tokens.add(Token.STAR);
+				} else if (c == '?') {
+					tokens.add(Token.ANY_CHAR);
+				} else if (c == '[') {
+					Token.CharClass charClass = parseClass();
+					if (charClass == null) {
+						return null;
+					}
+					tokens.add(charClass);
+				} else {
+					tokens.add(new Token.Literal(c));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.filesystem;
+
+import java.io.IOException;
+
+/** A pure java implementation of the LZ4 block format, used by {@link QuiltZipCodec#LZ4}.
+ * <p>
+ * Each sequence is a token (4 bits of literal length, 4 bits of match length), the literals, and then a 2 byte little
+ * endian match offset. The last sequence only contains literals. The compressor is a simple greedy single-probe hash
+ * matcher, since the output is only written once but read on every launch. */
+final class Lz4Block {
+
+	private static final int MIN_MATCH = 4;
+	/** The last 5 bytes are always literals. */
+	private static final int LAST_LITERALS = 5;
+	/** The last match must start at least 12 bytes before the end. */
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_DISTANCE = 0xFFFF;
+	private static final int HASH_LOG = 12;
+
+	private Lz4Block() {}
+
+	/** @return The largest possible size of the compressed form of the given number of bytes. */
+	static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/** Compresses the given bytes.
+	 *
+	 * @param dst The array to write to, which must be at least {@link #maxCompressedLength(int)} long.
+	 * @return The number of bytes written to dst. */
+	static int compress(byte[] src, byte[] dst) {
+		int length = src.length;
+		int anchor = 0;
+		int out = 0;
+
+		if (length > MF_LIMIT) {
+			int[] table = new int[1 << HASH_LOG];
+			int matchStartLimit = length - MF_LIMIT;
+			int matchEndLimit = length - LAST_LITERALS;
+			int pos = 1;
+
+			while (pos < matchStartLimit) {
+				int sequence = readInt(src, pos);
+				int hash = hash(sequence);
+				int ref = table[hash];
+				table[hash] = pos;
+
+				// The table starts full of zeros, which is fine since position 0 is checked like any other
+				if (pos - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+					pos++;
+					continue;
+				}
+
+				while (pos > anchor && ref > 0 && src[pos - 1] == src[ref - 1]) {
+					pos--;
+					ref--;
+				}
+
+				int matchLength = MIN_MATCH;
+				while (pos + matchLength < matchEndLimit && src[pos + matchLength] == src[ref + matchLength]) {
+					matchLength++;
+				}
+
+				int token = out;
+				out = writeSequence(src, anchor, pos - anchor, dst, out);
+				dst[out++] = (byte) (pos - ref);
+				dst[out++] = (byte) ((pos - ref) >>> 8);
+				out = writeMatchLength(dst, token, out, matchLength - MIN_MATCH);
+
+				pos += matchLength;
+				anchor = pos;
+
+				if (pos - 2 < matchStartLimit) {
+					table[hash(readInt(src, pos - 2))] = pos - 2;
+				}
+			}
+		}
+
+		return writeSequence(src, anchor, length - anchor, dst, out);
+	}
+
+	/** Writes the token (with an empty match length) and the literals. */
+	private static int writeSequence(byte[] src, int from, int count, byte[] dst, int out) {
+		int token = out++;
+		if (count >= 15) {
+			dst[token] = (byte) (15 << 4);
+			out = writeLengthExtension(dst, out, count - 15);
+		} else {
+			dst[token] = (byte) (count << 4);
+		}
+		System.arraycopy(src, from, dst, out, count);
+		return out + count;
+	}
+
+	/** Adds the match length to the given token, and writes the rest of it after the match offset. */
+	private static int writeMatchLength(byte[] dst, int token, int out, int length) {
+		if (length >= 15) {
+			dst[token] |= 15;
+			return writeLengthExtension(dst, out, length - 15);
+		} else {
+			dst[token] |= (byte) length;
+			return out;
+		}
+	}
+
+	private static int writeLengthExtension(byte[] dst, int out, int remaining) {
+		while (remaining >= 255) {
+			dst[out++] = (byte) 255;
+			remaining -= 255;
+		}
+		dst[out++] = (byte) remaining;
+		return out;
+	}
+
+	/** Decompresses the given bytes, which must decompress to exactly fill dst. */
+	static void decompress(byte[] src, byte[] dst) throws IOException {
+		int in = 0;
+		int out = 0;
+		int end = src.length;
+
+		while (true) {
+			if (in >= end) {
+				throw new IOException("Unexpected end of LZ4 block");
+			}
+			int token = src[in++] & 0xFF;
+
+			int literals = token >>> 4;
+			if (literals == 15) {
+				int next;
+				do {
+					if (in >= end) {
+						throw new IOException("Unexpected end of LZ4 block");
+					}
+					next = src[in++] & 0xFF;
+					literals += next;
+				} while (next == 255 && literals > 0);
+			}
+			if (literals < 0 || literals > end - in || literals > dst.length - out) {
+				throw new IOException("LZ4 literals out of bounds");
+			}
+			System.arraycopy(src, in, dst, out, literals);
+			in += literals;
+			out += literals;
+
+			if (in == end) {
+				break;
+			}
+
+			if (end - in < 2) {
+				throw new IOException("Unexpected end of LZ4 block");
+			}
+			int offset = (src[in] & 0xFF) | (src[in + 1] & 0xFF) << 8;
+			in += 2;
+			if (offset == 0 || offset > out) {
+				throw new IOException("LZ4 match offset out of bounds");
+			}
+
+			int matchLength = token & 15;
+			if (matchLength == 15) {
+				int next;
+				do {
+					if (in >= end) {
+						throw new IOException("Unexpected end of LZ4 block");
+					}
+					next = src[in++] & 0xFF;
+					matchLength += next;
+				} while (next == 255 && matchLength > 0);
+			}
+			matchLength += MIN_MATCH;
+			if (matchLength < MIN_MATCH || matchLength > dst.length - out) {
+				throw new IOException("LZ4 match out of bounds");
+			}
+
+			int ref = out - offset;
+			if (offset >= matchLength) {
+				System.arraycopy(dst, ref, dst, out, matchLength);
+				out += matchLength;
+			} else {
+				// Overlapping matches repeat the last few bytes
+				for (int i = 0; i < matchLength; i++) {
+					dst[out++] = dst[ref++];
+				}
+			}
+		}
+
+		if (out != dst.length) {
+			throw new IOException("LZ4 block decompressed to " + out + " bytes, but expected " + dst.length);
+		}
+	}
+
+	private static int readInt(byte[] bytes, int pos) {
+		return (bytes[pos] & 0xFF) | (bytes[pos + 1] & 0xFF) << 8 | (bytes[pos + 2] & 0xFF) << 16 | bytes[pos + 3] << 24;
+	}
+
+	private static int hash(int sequence) {
+		return (sequence * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
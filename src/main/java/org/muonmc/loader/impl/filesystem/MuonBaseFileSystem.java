@@ -211,17 +211,14 @@ public abstract class MuonBaseFileSystem<FS extends MuonBaseFileSystem<FS, P>, P
 
 	@Override
 	public PathMatcher getPathMatcher(String syntaxAndPattern) {
-		final String regex;
 		if (syntaxAndPattern.startsWith("regex:")) {
-			regex = syntaxAndPattern.substring("regex:".length());
+			Pattern pattern = Pattern.compile(syntaxAndPattern.substring("regex:".length()));
+			return path -> pattern.matcher(path.toString()).matches();
 		} else if (syntaxAndPattern.startsWith("glob:")) {
-			regex = GlobToRegex.toRegex(syntaxAndPattern.substring("glob:".length()), "/");
+			return GlobPathMatcher.compile(syntaxAndPattern.substring("glob:".length()));
 		} else {
 			throw new UnsupportedOperationException("Unsupported syntax or pattern: '" + syntaxAndPattern + "'");
 		}
-
-		Pattern pattern = Pattern.compile(regex);
-		return path -> pattern.matcher(path.toString()).matches();
 	}
 
 	@Override
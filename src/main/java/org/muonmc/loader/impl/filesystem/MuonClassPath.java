@@ -19,6 +19,7 @@ package org.muonmc.loader.impl.filesystem;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.nio.file.FileSystem;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
@@ -31,15 +32,22 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import org.muonmc.loader.api.FasterFiles;
 import org.muonmc.loader.api.MuonLoader;
@@ -70,6 +78,10 @@ public class MuonClassPath {
 	private final AtomicReference<Path[]> roots = new AtomicReference<>(new Path[0]);
 	private final FileMap files = USE_CUSTOM_TABLE ? new HashTableFileMap() : new StandardFileMap();
 
+	/** Sorted index of every path in {@link #files}, for {@link #getResourcesUnder(String)} and
+	 * {@link #getResourcesWithExtension(String)}. Only built when first queried, since most class paths never are. */
+	private volatile ResourceIndex index;
+
 	/** Set if {@link #VALIDATE} finds a problem. */
 	private static boolean printFullDetail = false;
 
@@ -128,6 +140,11 @@ public class MuonClassPath {
 		}
 	}
 
+	/** @return The number of roots which aren't in the hash table, including jars which are still being scanned. */
+	int getUnindexedRootCount() {
+		return roots.get().length;
+	}
+
 	private void addRootToInternalArray(Path root) {
 		roots.updateAndGet(array -> {
 			Path[] array2 = Arrays.copyOf(array, array.length + 1);
@@ -138,6 +155,10 @@ public class MuonClassPath {
 
 	private void putQuickFile(String fileName, Path file) {
 		files.put(file);
+		ResourceIndex idx = index;
+		if (idx != null) {
+			idx.add(fileName);
+		}
 	}
 
 	private void beginScanning(Path zipRoot) {
@@ -394,12 +415,50 @@ public class MuonClassPath {
 			} else {
 				paths.add(quick);
 			}
+		} else if (absolutePath.length() > 1 && absolutePath.endsWith("/")) {
+			// Only zip file systems store directories with a trailing slash, so other directories are found through
+			// the files inside them instead
+			getDirectoriesFromIndex(absolutePath, paths);
+			if (!paths.isEmpty()) {
+				// A zip which finished scanning after rootsArray was read can be found both ways
+				Set<Path> found = new LinkedHashSet<>(paths);
+				getResourcesIn(rootsArray, path, paths);
+				found.addAll(paths);
+				return Collections.unmodifiableList(new ArrayList<>(found));
+			}
 		}
 
 		getResourcesIn(rootsArray, path, paths);
 		return Collections.unmodifiableList(paths);
 	}
 
+	/** Adds the given directory (which must start and end with a slash) from every indexed file system that contains
+	 * at least one file inside it. */
+	private void getDirectoriesFromIndex(String absoluteDir, List<Path> dst) {
+		String relativeDir = absoluteDir.substring(1, absoluteDir.length() - 1);
+		Set<Path> fsRoots = new HashSet<>();
+		for (String name : index().names.tailSet(absoluteDir)) {
+			if (!name.startsWith(absoluteDir)) {
+				break;
+			}
+			Path file = files.get(name);
+			if (file instanceof OverlappingPath) {
+				for (Path overlapping : ((OverlappingPath) file).paths) {
+					addDirectory(overlapping, relativeDir, fsRoots, dst);
+				}
+			} else if (file != null) {
+				addDirectory(file, relativeDir, fsRoots, dst);
+			}
+		}
+	}
+
+	private static void addDirectory(Path file, String relativeDir, Set<Path> fsRoots, List<Path> dst) {
+		Path root = file.getRoot();
+		if (root != null && fsRoots.add(root)) {
+			dst.add(root.resolve(relativeDir));
+		}
+	}
+
 	private static void getResourcesIn(Path[] src, String path, List<Path> dst) {
 		for (Path root : src) {
 			Path ext = root.resolve(path);
@@ -409,6 +468,106 @@ public class MuonClassPath {
 		}
 	}
 
+	/** Lists every file whose path starts with the given prefix, for example "assets/" or "data/minecraft/tags".
+	 *
+	 * @return Every matching file, sorted by path. If multiple roots contain the same path then all of them are
+	 *         returned, in the same order as {@link #getResources(String)} (so the first one is what
+	 *         {@link #findResource(String)} returns). */
+	public List<Path> getResourcesUnder(String prefix) {
+		String absolutePrefix = prefix.startsWith("/") ? prefix : "/" + prefix;
+
+		// Thread race condition fix
+		// see "quickFindResource" for details
+		Path[] rootsArray = roots.get();
+		List<String> names = new ArrayList<>();
+		for (String name : index().names.tailSet(absolutePrefix)) {
+			if (!name.startsWith(absolutePrefix)) {
+				break;
+			}
+			names.add(name);
+		}
+
+		return collectResources(names, rootsArray, name -> name.startsWith(absolutePrefix));
+	}
+
+	/** Lists every file with the given extension (everything after the last "." in the file name), for example "json"
+	 * or "png".
+	 *
+	 * @return Every matching file, sorted by path, in the same order as {@link #getResourcesUnder(String)}. */
+	public List<Path> getResourcesWithExtension(String extension) {
+		Path[] rootsArray = roots.get();
+		Set<String> names = index().byExtension.get(extension);
+
+		return collectResources(
+			names == null ? Collections.emptyList() : names, rootsArray, name -> extension.equals(extensionOf(name))
+		);
+	}
+
+	private static String extensionOf(String name) {
+		int dot = name.lastIndexOf('.');
+		return dot > name.lastIndexOf('/') ? name.substring(dot + 1) : null;
+	}
+
+	private ResourceIndex index() {
+		ResourceIndex idx = index;
+		if (idx != null) {
+			return idx;
+		}
+		synchronized (this) {
+			idx = index;
+			if (idx == null) {
+				idx = new ResourceIndex();
+				// Published before adding the existing paths, so paths added concurrently are never missed
+				// (at worst they are added twice, which the index ignores)
+				index = idx;
+				files.forEach(idx::add);
+			}
+			return idx;
+		}
+	}
+
+	private List<Path> collectResources(Iterable<String> names, Path[] rootsArray, Predicate<String> filter) {
+		// Sets, since a zip which finished scanning after rootsArray was read is in both the index and rootsArray
+		Map<String, Set<Path>> found = new TreeMap<>();
+		for (String name : names) {
+			Path quick = files.get(name);
+			if (quick == null) {
+				continue;
+			}
+			Set<Path> list = found.computeIfAbsent(name, n -> new LinkedHashSet<>());
+			if (quick instanceof OverlappingPath) {
+				Collections.addAll(list, ((OverlappingPath) quick).paths);
+			} else {
+				list.add(quick);
+			}
+		}
+
+		// Roots which haven't been scanned (yet) need to be walked, just like getResourcesIn does for single paths
+		for (Path root : rootsArray) {
+			try (Stream<Path> stream = Files.walk(root)) {
+				stream.forEach(file -> {
+					String name = root.relativize(file).toString().replace(root.getFileSystem().getSeparator(), "/");
+					name = name.startsWith("/") ? name : "/" + name;
+					if (filter.test(name)) {
+						found.computeIfAbsent(name, n -> new LinkedHashSet<>()).add(file);
+					}
+				});
+			} catch (IOException | UncheckedIOException e) {
+				Log.warn(LogCategory.GENERAL, "Failed to list the files in " + root, e);
+			}
+		}
+
+		List<Path> paths = new ArrayList<>();
+		for (Set<Path> list : found.values()) {
+			for (Path path : list) {
+				if (!FasterFiles.isDirectory(path)) {
+					paths.add(path);
+				}
+			}
+		}
+		return Collections.unmodifiableList(paths);
+	}
+
 	private static boolean isEqualPath(Path in, Path value) {
 		if (in instanceof OverlappingPath) {
 			in = ((OverlappingPath) in).paths[0];
@@ -501,6 +660,21 @@ public class MuonClassPath {
 
 		abstract void ensureCapacityFor(int newPathCount);
 
+		/** Passes the full path of every entry to the given consumer. */
+		abstract void forEach(Consumer<String> consumer);
+
+		static void forEachIn(Path entry, Consumer<String> consumer) {
+			if (entry instanceof HashCollisionPath) {
+				for (Path value : ((HashCollisionPath) entry).values) {
+					forEachIn(value, consumer);
+				}
+			} else if (entry instanceof OverlappingPath) {
+				consumer.accept(((OverlappingPath) entry).paths[0].toString());
+			} else if (entry != null) {
+				consumer.accept(entry.toString());
+			}
+		}
+
 		abstract void put(Path newPath);
 
 		protected static Path computeNewPath(Path current, Path file) {
@@ -568,6 +742,13 @@ public class MuonClassPath {
 		Path get0(String key) {
 			return files.get(key.hashCode());
 		}
+
+		@Override
+		void forEach(Consumer<String> consumer) {
+			for (Path entry : files.values()) {
+				forEachIn(entry, consumer);
+			}
+		}
 	}
 
 	@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
@@ -592,6 +773,13 @@ public class MuonClassPath {
 			return tbl[index];
 		}
 
+		@Override
+		synchronized void forEach(Consumer<String> consumer) {
+			for (Path entry : table) {
+				forEachIn(entry, consumer);
+			}
+		}
+
 		@Override
 		synchronized void ensureCapacityFor(int newPathCount) {
 			int result = entryCount + newPathCount;
@@ -654,6 +842,31 @@ public class MuonClassPath {
 		}
 	}
 
+	/** Every path in a {@link MuonClassPath}, sorted. Only the strings are stored, since the paths themselves (and
+	 * which root comes first) are always looked up in {@link MuonClassPath#files}. */
+	@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+	static final class ResourceIndex {
+		final NavigableSet<String> names = new ConcurrentSkipListSet<>();
+		final Map<String, NavigableSet<String>> byExtension = new ConcurrentHashMap<>();
+
+		void add(String name) {
+			if (name.endsWith("/")) {
+				// Directories from zip file systems, which are never returned anyway
+				return;
+			}
+			if (!name.startsWith("/")) {
+				name = "/" + name;
+			}
+			if (!names.add(name)) {
+				return;
+			}
+			String extension = extensionOf(name);
+			if (extension != null) {
+				byExtension.computeIfAbsent(extension, e -> new ConcurrentSkipListSet<>()).add(name);
+			}
+		}
+	}
+
 	/** Used so we don't need to store a full {@link String} for every file we track. */
 	@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 	private static final class HashCollisionPath extends NullPath {
@@ -20,10 +20,16 @@ import java.io.IOException;
 import java.nio.file.FileStore;
 import java.nio.file.FileSystem;
 import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.jetbrains.annotations.Nullable;
@@ -42,6 +48,12 @@ public class MuonJoinedFileSystem extends MuonBaseFileSystem<MuonJoinedFileSyste
 	final boolean allCached;
 	boolean isOpen = true;
 
+	/** True if {@link #isPermanentlyReadOnly()} has returned true, since it can never change back. */
+	private volatile boolean knownPermanentlyReadOnly;
+	/** Built by {@link #getIndex()} the first time it's needed. */
+	private volatile Index index;
+	private boolean indexFailed;
+
 	public MuonJoinedFileSystem(String name, List<Path> from) {
 		this(name, from, null);
 	}
@@ -100,6 +112,9 @@ public class MuonJoinedFileSystem extends MuonBaseFileSystem<MuonJoinedFileSyste
 
 	@Override
 	public boolean isPermanentlyReadOnly() {
+		if (knownPermanentlyReadOnly) {
+			return true;
+		}
 		if (!allCached) {
 			return false;
 		}
@@ -114,12 +129,41 @@ public class MuonJoinedFileSystem extends MuonBaseFileSystem<MuonJoinedFileSyste
 				return false;
 			}
 		}
+		knownPermanentlyReadOnly = true;
 		return true;
 	}
 
+	/** @return The merged index of every backing path, or null if the backing paths might still change (or couldn't
+	 *         be indexed). */
+	@Nullable
+	Index getIndex() {
+		Index idx = index;
+		if (idx != null) {
+			return idx;
+		}
+		if (!isPermanentlyReadOnly()) {
+			return null;
+		}
+		synchronized (this) {
+			if (index == null && !indexFailed) {
+				try {
+					index = new Index(this);
+				} catch (IOException e) {
+					// Just fall back to checking each backing path in turn
+					indexFailed = true;
+				}
+			}
+			return index;
+		}
+	}
+
 	@Override
 	public boolean exists(Path path, LinkOption... options) {
 		MuonJoinedPath qjp = (MuonJoinedPath) path;
+		Index idx = getIndex();
+		if (idx != null) {
+			return idx.get(qjp) != null;
+		}
 		for (int i = 0; i < from.length; i++) {
 			Path backingPath = getBackingPath(i, qjp);
 			if (FasterFiles.exists(backingPath, options)) {
@@ -129,6 +173,38 @@ public class MuonJoinedFileSystem extends MuonBaseFileSystem<MuonJoinedFileSyste
 		return false;
 	}
 
+	@Override
+	public boolean isDirectory(Path path, LinkOption... options) {
+		Index idx = getIndex();
+		if (idx != null) {
+			return idx.getChildren((MuonJoinedPath) path) != null;
+		}
+		return CachedFileSystem.super.isDirectory(path, options);
+	}
+
+	@Override
+	public boolean isRegularFile(Path path, LinkOption[] options) {
+		Index idx = getIndex();
+		if (idx != null) {
+			MuonJoinedPath qjp = (MuonJoinedPath) path;
+			return idx.get(qjp) != null && idx.getChildren(qjp) == null;
+		}
+		return CachedFileSystem.super.isRegularFile(path, options);
+	}
+
+	@Override
+	public Collection<? extends Path> getChildren(Path dir) throws IOException {
+		Index idx = getIndex();
+		if (idx != null) {
+			MuonJoinedPath[] children = idx.getChildren((MuonJoinedPath) dir);
+			if (children == null) {
+				throw new NotDirectoryException(dir.toString());
+			}
+			return Arrays.asList(children);
+		}
+		return CachedFileSystem.super.getChildren(dir);
+	}
+
 	@Override
 	public Iterable<FileStore> getFileStores() {
 		// TODO Auto-generated method stub
@@ -168,4 +244,50 @@ public class MuonJoinedFileSystem extends MuonBaseFileSystem<MuonJoinedFileSyste
 			return other;
 		}
 	}
+
+	/** A merged view of every backing path, mapping each joined path directly to the backing path it comes from (the
+	 * first backing path which contains it). Only used when every backing path is permanently read only. */
+	static final class Index {
+		private final Map<MuonJoinedPath, Path> entries = new HashMap<>();
+		private final Map<MuonJoinedPath, MuonJoinedPath[]> children = new HashMap<>();
+
+		Index(MuonJoinedFileSystem fs) throws IOException {
+			Map<MuonJoinedPath, Set<MuonJoinedPath>> merged = new HashMap<>();
+			for (Path from : fs.from) {
+				add(from, fs.root, merged);
+			}
+			for (Map.Entry<MuonJoinedPath, Set<MuonJoinedPath>> entry : merged.entrySet()) {
+				children.put(entry.getKey(), entry.getValue().toArray(new MuonJoinedPath[0]));
+			}
+		}
+
+		private void add(Path backing, MuonJoinedPath joined, Map<MuonJoinedPath, Set<MuonJoinedPath>> merged)
+			throws IOException {
+
+			entries.putIfAbsent(joined, backing);
+			if (!FasterFiles.isDirectory(backing)) {
+				return;
+			}
+			// Like the unindexed directory stream, this merges the children of every backing folder, even if an
+			// earlier backing path has a file with the same name
+			Set<MuonJoinedPath> set = merged.computeIfAbsent(joined, p -> new LinkedHashSet<>());
+			for (Path child : FasterFiles.getChildren(backing)) {
+				MuonJoinedPath joinedChild = joined.resolve(child.getFileName().toString());
+				set.add(joinedChild);
+				add(child, joinedChild, merged);
+			}
+		}
+
+		/** @return The backing path for the given path, or null if it doesn't exist. */
+		@Nullable
+		Path get(MuonJoinedPath path) {
+			return entries.get(path.toAbsolutePath().normalize());
+		}
+
+		/** @return Every child of the given folder, in the same order as listing each backing folder in turn, or null
+		 *         if it isn't a folder in any of the backing paths. */
+		MuonJoinedPath @Nullable [] getChildren(MuonJoinedPath dir) {
+			return children.get(dir.toAbsolutePath().normalize());
+		}
+	}
 }
@@ -18,6 +18,7 @@ package org.muonmc.loader.impl.filesystem;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,18 +30,23 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileSystems;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.nio.file.spi.FileSystemProvider;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.Deflater;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
@@ -50,6 +56,7 @@ import java.util.zip.ZipInputStream;
 import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.impl.util.DisconnectableByteChannel;
 import org.muonmc.loader.impl.util.ExposedByteArrayOutputStream;
+import org.muonmc.loader.impl.util.FileStamp;
 import org.muonmc.loader.impl.util.FileUtil;
 import org.muonmc.loader.impl.util.LimitedInputStream;
 import org.muonmc.loader.impl.util.MuonLoaderCleanupTasks;
@@ -72,6 +79,9 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 
 	final WeakReference<MuonZipFileSystem> thisRef = new WeakReference<>(this);
 	final ZipSource source;
+	/** The other zip files which are referenced by a "Quilt compressed file system", which are only opened when a file
+	 * in them is read. */
+	final List<ZipSource> referencedSources = new ArrayList<>();
 
 	public MuonZipFileSystem(String name, Path zipFrom, String zipPathPrefix) throws IOException {
 		super(MuonZipFileSystem.class, MuonZipPath.class, name, true);
@@ -98,14 +108,19 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 			if (readLength == 0 || readLength == -1) {
 				throw new ZeroByteFileException("Zip start header not found - 0 byte file!");
 			}
-			if (readLength == header.length && Arrays.equals(header, QuiltZipCustomCompressedWriter.HEADER)) {
+			int version = readLength == header.length ? QuiltZipCustomCompressedWriter.getVersion(header) : 0;
+			if (version != 0) {
 				if (!(source instanceof SharedByteChannels)) {
 					throw new IOException("Cannot read a custom compressed stream that isn't on the default file system!");
 				}
-				int directoryStart = new DataInputStream(pushback).readInt();
-				int dataStart = readLength + 4;
+				DataInputStream headerStream = new DataInputStream(pushback);
+				long directoryStart = version >= 3 ? headerStream.readLong() : headerStream.readInt();
 				try (GZIPInputStream src = new GZIPInputStream(source.stream(directoryStart))) {
-					readDirectory(root, new DataInputStream(src), zipPathPrefix);
+					DataInputStream stream = new DataInputStream(src);
+					if (version >= 4) {
+						readReferencedZips(stream);
+					}
+					readDirectory(root, stream, zipPathPrefix, version);
 				}
 			} else if (readLength == header.length && Arrays.equals(header, QuiltZipCustomCompressedWriter.PARTIAL_HEADER)) {
 				throw new PartiallyWrittenIOException();
@@ -158,7 +173,30 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 		}
 	}
 
-	private void readDirectory(MuonZipPath path, DataInputStream stream, String zipPathPrefix) throws IOException {
+	private void readReferencedZips(DataInputStream stream) throws IOException {
+		int count = stream.readInt();
+		Path[] zips = new Path[count];
+		for (int i = 0; i < count; i++) {
+			zips[i] = Paths.get(stream.readUTF());
+			FileStamp expected = FileStamp.read(stream);
+			FileStamp actual;
+			try {
+				actual = FileStamp.read(zips[i]);
+			} catch (NoSuchFileException e) {
+				throw new ReferencedFileChangedIOException(zips[i] + " has been removed", e);
+			}
+			if (!expected.equals(actual)) {
+				throw new ReferencedFileChangedIOException(zips[i] + " has changed");
+			}
+		}
+		for (Path zip : zips) {
+			// Nothing is opened until a file is actually read from it
+			referencedSources.add(new SharedByteChannels(this, zip));
+		}
+	}
+
+	private void readDirectory(MuonZipPath path, DataInputStream stream, String zipPathPrefix, int version)
+		throws IOException {
 		String pathString = path.toString();
 		if (pathString.startsWith(zipPathPrefix) || zipPathPrefix.startsWith(pathString)) {
 			createDirectories(path);
@@ -169,11 +207,24 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 			byte[] nameBytes = new byte[length];
 			stream.readFully(nameBytes);
 			MuonZipPath filePath = path.resolve(new String(nameBytes, StandardCharsets.UTF_8));
-			int offset = stream.readInt();
+			long offset = version >= 3 ? stream.readLong() : stream.readInt();
 			int uncompressedSize = stream.readInt();
 			int compressedSize = stream.readInt();
+			QuiltZipCodec codec = version >= 3 ? QuiltZipCodec.byId(stream.readUnsignedByte()) : QuiltZipCodec.DEFLATE;
+			ZipSource fileSource = source;
+			long crc = -1;
+			if (version >= 4) {
+				int referencedZip = stream.readInt();
+				crc = stream.readLong();
+				if (referencedZip >= 0) {
+					if (referencedZip >= referencedSources.size()) {
+						throw new IOException("Unknown referenced zip " + referencedZip + " for " + filePath);
+					}
+					fileSource = referencedSources.get(referencedZip);
+				}
+			}
 			if (filePath.toString().startsWith(zipPathPrefix)) {
-				addEntryAndParents(new QuiltZipFile(filePath, source, offset, compressedSize, uncompressedSize, true));
+				addEntryAndParents(new QuiltZipFile(filePath, fileSource, offset, compressedSize, uncompressedSize, codec, crc));
 			}
 		}
 
@@ -183,7 +234,7 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 			byte[] nameBytes = new byte[length];
 			stream.readFully(nameBytes);
 			String name = new String(nameBytes, StandardCharsets.UTF_8);
-			readDirectory(path.resolve(name), stream, zipPathPrefix);
+			readDirectory(path.resolve(name), stream, zipPathPrefix, version);
 		}
 	}
 
@@ -194,6 +245,10 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 
 		source = newRoot.fs.source;
 		source.open(this);
+		for (ZipSource referenced : newRoot.fs.referencedSources) {
+			referencedSources.add(referenced);
+			referenced.open(this);
+		}
 
 		addFolder(newRoot, getRoot());
 
@@ -220,7 +275,7 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 			addEntryWithoutParentsUnsafe(new QuiltUnifiedEntry.QuiltUnifiedFolderReadOnly(dst, dstChildren));
 		} else if (entryFrom instanceof QuiltZipFile) {
 			QuiltZipFile from = (QuiltZipFile) entryFrom;
-			addEntryWithoutParentsUnsafe(new QuiltZipFile(dst, source, from.offset, from.compressedSize, from.uncompressedSize, from.isCompressed));
+			addEntryWithoutParentsUnsafe(new QuiltZipFile(dst, from.source, from.offset, from.compressedSize, from.uncompressedSize, from.codec, from.crc));
 		} else {
 			// This isn't meant to happen, it means something got constructed badly
 			throw new IllegalArgumentException("Unknown source entry " + entryFrom);
@@ -235,7 +290,126 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 	 * @param dst The destination file to copy to. This must not already exist.
 	 * @throws IOException if anything goes wrong while writing the file or reading the source files. */
 	public static void writeQuiltCompressedFileSystem(Path src, Path dst) throws IOException {
-		new QuiltZipCustomCompressedWriter(src, dst).write();
+		new QuiltZipCustomCompressedWriter(dst).write(src);
+	}
+
+	/** Writes a "Quilt compressed file system", like {@link #writeQuiltCompressedFileSystem(Path, Path)}, but with the
+	 * given codec instead of deflate. Files which would be larger with the given codec are stored instead.
+	 *
+	 * @param deflateLevel The {@link Deflater} level, only used by {@link QuiltZipCodec#DEFLATE}. */
+	public static void writeQuiltCompressedFileSystem(Path src, Path dst, QuiltZipCodec codec, int deflateLevel)
+		throws IOException {
+		new QuiltZipCustomCompressedWriter(dst, codec, deflateLevel, false).write(src);
+	}
+
+	/** Starts writing a "Quilt compressed file system" to the given destination, in the same format as
+	 * {@link #writeQuiltCompressedFileSystem(Path, Path)}. Unlike that method, files stored in memory can be
+	 * {@link StreamingWriter#spill(Path) spilled} to the destination while the source folder is still being built, so
+	 * the whole folder never needs to be held in memory at once.
+	 *
+	 * @param dst The destination file to write to. This must not already exist.
+	 * @throws IOException if the destination file couldn't be opened. */
+	public static StreamingWriter startQuiltCompressedFileSystem(Path dst) throws IOException {
+		return startQuiltCompressedFileSystem(dst, QuiltZipCodec.DEFLATE, Deflater.DEFAULT_COMPRESSION, false);
+	}
+
+	/** Starts writing a "Quilt compressed file system", like {@link #startQuiltCompressedFileSystem(Path)}, but with
+	 * the given codec instead of deflate.
+	 *
+	 * @param deflateLevel The {@link Deflater} level, only used by {@link QuiltZipCodec#DEFLATE}.
+	 * @param referenceZips If true then files which are still mounted to a file in a zip on the default file system
+	 *            (for example with {@link org.muonmc.loader.api.ExtendedFiles#copyOnWrite}) aren't copied. Instead the
+	 *            destination refers to the original zip, which is read when the file is. The destination can't be
+	 *            opened if any of those zips are changed, in which case {@link ReferencedFileChangedIOException} is
+	 *            thrown. */
+	public static StreamingWriter startQuiltCompressedFileSystem(Path dst, QuiltZipCodec codec, int deflateLevel,
+		boolean referenceZips) throws IOException {
+		QuiltZipCustomCompressedWriter writer = new QuiltZipCustomCompressedWriter(dst, codec, deflateLevel, referenceZips);
+		try {
+			writer.start();
+		} catch (IOException | RuntimeException e) {
+			writer.close();
+			throw e;
+		}
+		return new StreamingWriter(writer);
+	}
+
+	/** The contents of a file in a zip, still compressed with raw deflate (as used by zip files). */
+	@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+	public static final class DeflatedFile {
+		public final byte[] data;
+		public final int uncompressedSize;
+		/** The CRC-32 of the uncompressed contents, or -1 if it isn't known. */
+		public final long crc;
+
+		DeflatedFile(byte[] data, int uncompressedSize, long crc) {
+			this.data = data;
+			this.uncompressedSize = uncompressedSize;
+			this.crc = crc;
+		}
+	}
+
+	/** Reads the compressed contents of a file, without inflating them. This is intended for copying files into
+	 * another zip without compressing them again.
+	 *
+	 * @return The deflated file, or null if the path isn't a compressed file in a {@link MuonZipFileSystem}. */
+	public static @Nullable DeflatedFile readDeflated(Path path) throws IOException {
+		if (!(path instanceof MuonZipPath)) {
+			return null;
+		}
+		MuonZipPath zipPath = (MuonZipPath) path;
+		QuiltUnifiedEntry entry = zipPath.fs.getEntry(zipPath);
+		if (!(entry instanceof QuiltZipFile) || ((QuiltZipFile) entry).codec != QuiltZipCodec.DEFLATE) {
+			return null;
+		}
+		QuiltZipFile file = (QuiltZipFile) entry;
+		byte[] data = new byte[file.compressedSize];
+		try (InputStream stream = file.createUncompressingInputStream()) {
+			int read = 0;
+			while (read < data.length) {
+				int count = stream.read(data, read, data.length - read);
+				if (count < 0) {
+					throw new IOException("Unexpected end of " + path + " after " + read + " bytes");
+				}
+				read += count;
+			}
+		}
+		return new DeflatedFile(data, file.uncompressedSize, file.crc);
+	}
+
+	/** A "Quilt compressed file system" which is being written, returned by
+	 * {@link MuonZipFileSystem#startQuiltCompressedFileSystem(Path)}. */
+	@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+	public static final class StreamingWriter implements Closeable {
+		private final QuiltZipCustomCompressedWriter writer;
+
+		StreamingWriter(QuiltZipCustomCompressedWriter writer) {
+			this.writer = writer;
+		}
+
+		/** Writes the given file to the destination now, and replaces it with a reference to the written data. Only
+		 * files stored in memory are spilled - anything else is ignored, and written by {@link #finish(Path)}
+		 * instead. The file can still be read and modified afterwards.
+		 *
+		 * @param file A file in the folder which will be passed to {@link #finish(Path)}. */
+		public void spill(Path file) throws IOException {
+			writer.spill(file);
+		}
+
+		/** Writes every file in the given folder which hasn't been spilled, and then the directory. Every spilled file
+		 * which isn't in this folder is left as unused space in the destination.
+		 *
+		 * @param src The source folder to copy from. */
+		public void finish(Path src) throws IOException {
+			writer.finish(src);
+		}
+
+		/** Stops writing. If {@link #finish(Path)} wasn't called (or threw an exception) then the destination is left
+		 * incomplete, and can't be opened. Spilled files can't be read after this is called. */
+		@Override
+		public void close() throws IOException {
+			writer.close();
+		}
 	}
 
 	@Override
@@ -251,6 +425,9 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 	@Override
 	public void close() throws IOException {
 		source.close(this);
+		for (ZipSource referenced : referencedSources) {
+			referenced.close(this);
+		}
 	}
 
 	@Override
@@ -654,16 +831,18 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 		final ZipSource source;
 		final long offset;
 		final int compressedSize, uncompressedSize;
-		final boolean isCompressed;
+		final QuiltZipCodec codec;
+		/** The CRC-32 of the uncompressed contents, or -1 if it isn't known. */
+		final long crc;
 
 		QuiltZipFile(MuonZipPath path, ZipSource source, ZipEntry entry, CustomZipInputStream zip) throws IOException {
 			super(path);
 			this.offset = zip.getOffset();
 			int method = entry.getMethod();
 			if (method == ZipEntry.DEFLATED) {
-				isCompressed = true;
+				codec = QuiltZipCodec.DEFLATE;
 			} else if (method == ZipEntry.STORED) {
-				isCompressed = false;
+				codec = QuiltZipCodec.STORED;
 			} else {
 				throw new IOException("Unsupported zip entry method " + method);
 			}
@@ -683,7 +862,8 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 					}
 					outputLength += skipped;
 				}
-				compressed = (int) (zip.getOffset() - offset);
+				// The offset includes the data descriptor, but ZipInputStream has read the real size from it by now
+				compressed = entry.getCompressedSize() >= 0 ? (int) entry.getCompressedSize() : (int) (zip.getOffset() - offset);
 				uncompressed = outputLength;
 				time = System.nanoTime() - start;
 			} else {
@@ -697,6 +877,8 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 
 			this.compressedSize = compressed;
 			this.uncompressedSize = uncompressed;
+			// Valid now that the whole entry has been read
+			this.crc = entry.getCrc();
 
 			this.source = source.forIndividualFile(offset, compressedSize);
 
@@ -725,7 +907,7 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 
 		QuiltZipFile(
 				MuonZipPath path, ZipSource source, long offset, int compressedSize, int uncompressedSize,
-			boolean isCompressed) {
+			QuiltZipCodec codec, long crc) {
 
 			super(path);
 
@@ -733,7 +915,8 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 			this.offset = offset;
 			this.compressedSize = compressedSize;
 			this.uncompressedSize = uncompressedSize;
-			this.isCompressed = isCompressed;
+			this.codec = codec;
+			this.crc = crc;
 
 			if (DEBUG_TEST_READING) {
 				testReading(path.toString());
@@ -793,7 +976,7 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 
 		@Override
 		protected QuiltUnifiedEntry createCopiedTo(MuonMapPath<?, ?> newPath) {
-			return new QuiltZipFile((MuonZipPath) newPath, source, offset, compressedSize, uncompressedSize, isCompressed);
+			return new QuiltZipFile((MuonZipPath) newPath, source, offset, compressedSize, uncompressedSize, codec, crc);
 		}
 
 		@Override
@@ -804,8 +987,8 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 		@Override
 		InputStream createInputStream() throws IOException {
 			InputStream stream = createUncompressingInputStream();
-			if (isCompressed) {
-				stream = new InflaterInputStream(stream, new Inflater(true));
+			if (codec != QuiltZipCodec.STORED) {
+				stream = codec.decode(stream, compressedSize, uncompressedSize);
 				// Make InputStream.available work
 				// older versions of FerriteCore used this to allocate a byte array to read into
 				// - newer versions are fixed, but we still want to keep backwards compatibility
@@ -817,7 +1000,7 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 			return stream;
 		}
 
-		private InputStream createUncompressingInputStream() throws IOException, IOException {
+		InputStream createUncompressingInputStream() throws IOException, IOException {
 			return new LimitedInputStream(source.stream(offset), compressedSize);
 		}
 
@@ -838,10 +1021,14 @@ public class MuonZipFileSystem extends MuonMapFileSystem<MuonZipFileSystem, Muon
 		}
 
 		SeekableByteChannel createByteChannel() throws IOException {
-			if (!isCompressed) {
-				return new OffsetSeekableByteChannel(source.channel());
-			} else {
-				return new InflaterSeekableByteChannel();
+			switch (codec) {
+				case STORED:
+					return new OffsetSeekableByteChannel(source.channel());
+				case DEFLATE:
+					return new InflaterSeekableByteChannel();
+				default:
+					// Everything else is decoded all at once anyway
+					return new ByteArrayChannel(FileUtil.readAllBytes(createInputStream()), 0);
 			}
 		}
 
@@ -167,6 +167,11 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 
 		MuonJoinedPath p = (MuonJoinedPath) path;
 
+		MuonJoinedFileSystem.Index index = p.fs.getIndex();
+		if (index != null) {
+			return Files.newInputStream(getIndexed(index, p), options);
+		}
+
 		int count = p.fs.getBackingPathCount();
 		for (int i = 0; i < count; i++) {
 			Path real = p.fs.getBackingPath(i, p);
@@ -198,6 +203,11 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 
 		MuonJoinedPath p = (MuonJoinedPath) path;
 
+		MuonJoinedFileSystem.Index index = p.fs.getIndex();
+		if (index != null) {
+			return Files.newByteChannel(getIndexed(index, p), options, attrs);
+		}
+
 		int count = p.fs.getBackingPathCount();
 		for (int i = 0; i < count; i++) {
 			Path real = p.fs.getBackingPath(i, p);
@@ -213,9 +223,27 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 		throw new NoSuchFileException(path.toString());
 	}
 
+	private static Path getIndexed(MuonJoinedFileSystem.Index index, MuonJoinedPath path) throws NoSuchFileException {
+		Path real = index.get(path);
+		if (real == null) {
+			throw new NoSuchFileException(path.toString());
+		}
+		return real;
+	}
+
 	@Override
 	public DirectoryStream<Path> newDirectoryStream(Path dir, Filter<? super Path> filter) throws IOException {
 		MuonJoinedPath qmp = (MuonJoinedPath) dir;
+
+		MuonJoinedFileSystem.Index index = qmp.fs.getIndex();
+		if (index != null) {
+			MuonJoinedPath[] entries = index.getChildren(qmp);
+			if (entries == null) {
+				throw new NotDirectoryException(dir.toString());
+			}
+			return newIndexedDirectoryStream(entries, filter);
+		}
+
 		return new DirectoryStream<Path>() {
 
 			final List<Path> backingPaths = new ArrayList<>();
@@ -360,6 +388,69 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 		};
 	}
 
+	private static DirectoryStream<Path> newIndexedDirectoryStream(MuonJoinedPath[] entries, Filter<? super Path> filter) {
+		return new DirectoryStream<Path>() {
+
+			boolean opened = false;
+			boolean closed = false;
+
+			@Override
+			public void close() throws IOException {
+				closed = true;
+			}
+
+			@Override
+			public Iterator<Path> iterator() {
+				if (opened) {
+					throw new IllegalStateException("newDirectoryStream only supports a single iteration!");
+				}
+				opened = true;
+
+				return new Iterator<Path>() {
+					int index = 0;
+					Path next;
+
+					@Override
+					public Path next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						Path path = next;
+						next = null;
+						return path;
+					}
+
+					@Override
+					public boolean hasNext() {
+						if (closed) {
+							return false;
+						}
+
+						if (next != null) {
+							return true;
+						}
+
+						for (; index < entries.length; index++) {
+							Path at = entries[index];
+
+							try {
+								if (filter.accept(at)) {
+									next = at;
+									index++;
+									return true;
+								}
+							} catch (IOException e) {
+								throw new DirectoryIteratorException(e);
+							}
+						}
+
+						return false;
+					}
+				};
+			}
+		};
+	}
+
 	private static MuonJoinedPath toAbsQuiltPath(Path path) {
 		Path p = path.toAbsolutePath().normalize();
 		if (p instanceof MuonJoinedPath) {
@@ -420,6 +511,12 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 			}
 		}
 		MuonJoinedPath quiltPath = toAbsQuiltPath(path);
+		MuonJoinedFileSystem.Index index = quiltPath.fs.getIndex();
+		if (index != null) {
+			Path real = getIndexed(index, quiltPath);
+			real.getFileSystem().provider().checkAccess(real, modes);
+			return;
+		}
 		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
 			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
 			try {
@@ -436,6 +533,11 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 	public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
 
 		MuonJoinedPath quiltPath = toAbsQuiltPath(path);
+		MuonJoinedFileSystem.Index index = quiltPath.fs.getIndex();
+		if (index != null) {
+			Path real = index.get(quiltPath);
+			return real != null ? Files.getFileAttributeView(real, type, options) : null;
+		}
 		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
 			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
 			V view = Files.getFileAttributeView(real, type, options);
@@ -451,6 +553,10 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 		throws IOException {
 
 		MuonJoinedPath quiltPath = toAbsQuiltPath(path);
+		MuonJoinedFileSystem.Index index = quiltPath.fs.getIndex();
+		if (index != null) {
+			return Files.readAttributes(getIndexed(index, quiltPath), type, options);
+		}
 		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
 			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
 			try {
@@ -466,6 +572,10 @@ public final class QuiltJoinedFileSystemProvider extends FileSystemProvider {
 	@Override
 	public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options) throws IOException {
 		MuonJoinedPath quiltPath = toAbsQuiltPath(path);
+		MuonJoinedFileSystem.Index index = quiltPath.fs.getIndex();
+		if (index != null) {
+			return Files.readAttributes(getIndexed(index, quiltPath), attributes, options);
+		}
 		for (int i = 0; i < quiltPath.fs.getBackingPathCount(); i++) {
 			Path real = quiltPath.fs.getBackingPath(i, quiltPath);
 			try {
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.jetbrains.annotations.Nullable;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+
+/** How the contents of a single file are stored in a "Quilt compressed file system", or in a zip. Every file in a
+ * compressed file system stores its own codec, so files which don't compress well can be stored instead. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public enum QuiltZipCodec {
+
+	/** Not compressed at all. This is the fastest to read, but the largest on disk. */
+	STORED,
+	/** Raw deflate, as used by zip files. */
+	DEFLATE,
+	/** The LZ4 block format (without a frame), which is much faster to decompress than deflate, but usually larger. */
+	LZ4;
+
+	private static final QuiltZipCodec[] VALUES = values();
+
+	/** @return The codec with the given {@link #ordinal()}, as written by {@link QuiltZipCustomCompressedWriter}. */
+	static QuiltZipCodec byId(int id) throws IOException {
+		if (id < 0 || id >= VALUES.length) {
+			throw new IOException("Unknown codec " + id);
+		}
+		return VALUES[id];
+	}
+
+	/** @return The codec with the given (case insensitive) name, or null if there isn't one. */
+	@Nullable
+	public static QuiltZipCodec byName(String name) {
+		for (QuiltZipCodec codec : VALUES) {
+			if (codec.name().equals(name.toUpperCase(Locale.ROOT))) {
+				return codec;
+			}
+		}
+		return null;
+	}
+
+	/** Wraps a stream of data encoded with this codec in a stream which decodes it.
+	 *
+	 * @param from A stream which contains exactly the encoded bytes.
+	 * @param compressedSize The number of bytes in the given stream.
+	 * @param uncompressedSize The number of decoded bytes. */
+	InputStream decode(InputStream from, int compressedSize, int uncompressedSize) throws IOException {
+		switch (this) {
+			case STORED:
+				return from;
+			case DEFLATE:
+				return new InflaterInputStream(from, new Inflater(true));
+			case LZ4: {
+				byte[] src = new byte[compressedSize];
+				try (DataInputStream stream = new DataInputStream(from)) {
+					stream.readFully(src);
+				}
+				byte[] dst = new byte[uncompressedSize];
+				Lz4Block.decompress(src, dst);
+				return new ByteArrayInputStream(dst);
+			}
+			default:
+				throw new IllegalStateException("Unknown codec " + this);
+		}
+	}
+}
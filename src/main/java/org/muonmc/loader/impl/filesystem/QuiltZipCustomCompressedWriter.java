@@ -16,15 +16,20 @@
 
 package org.muonmc.loader.impl.filesystem;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.StandardOpenOption;
@@ -33,74 +38,131 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
 import java.util.zip.GZIPOutputStream;
 
+import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.impl.util.ExposedByteArrayOutputStream;
+import org.muonmc.loader.impl.util.FileStamp;
 
 /** Writer class that implements
- * {@link MuonZipFileSystem#writeQuiltCompressedFileSystem(java.nio.file.Path, java.nio.file.Path)}. */
+ * {@link MuonZipFileSystem#writeQuiltCompressedFileSystem(java.nio.file.Path, java.nio.file.Path)} and
+ * {@link MuonZipFileSystem#startQuiltCompressedFileSystem(Path)}. */
 final class QuiltZipCustomCompressedWriter {
 
 	static final Charset UTF8 = StandardCharsets.UTF_8;
-	static final byte[] HEADER = "quiltmczipcmpv2".getBytes(UTF8);
+	/** The current header, followed by an 8 byte directory pointer. The directory starts with a list of the zip files
+	 * which are referenced, and then every file has a 64 bit offset, its own {@link QuiltZipCodec}, and the index of
+	 * the referenced zip file it's stored in (or -1 if it's stored in this file). */
+	static final byte[] HEADER = "quiltmczipcmpv4".getBytes(UTF8);
+	/** Like {@link #HEADER}, but without any referenced zip files. This is only read, never written. */
+	static final byte[] HEADER_V3 = "quiltmczipcmpv3".getBytes(UTF8);
+	/** The first header, followed by a 4 byte directory pointer. Every file in the directory has a 32 bit offset and
+	 * is deflated. This is only read, never written. */
+	static final byte[] HEADER_V2 = "quiltmczipcmpv2".getBytes(UTF8);
 	static final byte[] PARTIAL_HEADER = Arrays.copyOf("PARTIAL!PARTIAL!PARTIAL!".getBytes(UTF8), HEADER.length);
 
 	private static final AtomicInteger WRITER_THREAD_INDEX = new AtomicInteger();
-	private static final StopThreadsPath THREAD_STOPPER = new StopThreadsPath();
-
-	final Path src, dst;
-	final LinkedBlockingQueue<Path> sourceFiles = new LinkedBlockingQueue<>();
+	private static final Job THREAD_STOPPER = new Job(null, null);
+
+	/** The maximum number of uncompressed bytes which can be waiting to be spilled at once. */
+	static final int SPILL_BUDGET = 64 * 1024 * 1024;
+
+	final Path dst;
+	final QuiltZipCodec codec;
+	/** The deflate level, only used if the {@link #codec} is {@link QuiltZipCodec#DEFLATE}. */
+	final int deflateLevel;
+	/** If true then files which are still mounted to a file in a zip on the default file system are written as a
+	 * reference to that zip, rather than being copied. */
+	final boolean referenceZips;
+	/** Every zip file which is referenced, in the order they are written to the directory. Only used by
+	 * {@link #finish(Path)}. */
+	final Map<Path, ReferencedZip> referencedZips = new LinkedHashMap<>();
+	final LinkedBlockingQueue<Job> sourceFiles = new LinkedBlockingQueue<>();
 	final Map<Path, FileEntry> files = new ConcurrentHashMap<>();
-	final AtomicInteger currentOffset = new AtomicInteger();
+	final AtomicLong currentOffset = new AtomicLong();
+	final Semaphore spillBudget = new Semaphore(SPILL_BUDGET);
+
+	FileChannel channel;
+	WriterThread[] threads;
 
 	volatile boolean interrupted;
 	volatile boolean aborted = false;
 	volatile Exception exception;
 
-	QuiltZipCustomCompressedWriter(Path src, Path dst) {
-		this.src = src;
+	QuiltZipCustomCompressedWriter(Path dst) {
+		this(dst, QuiltZipCodec.DEFLATE, Deflater.DEFAULT_COMPRESSION, false);
+	}
+
+	/** @param codec The codec to use for every file, unless a file would be smaller if it was
+	 *            {@link QuiltZipCodec#STORED}.
+	 * @param deflateLevel The {@link Deflater} level, only used by {@link QuiltZipCodec#DEFLATE}.
+	 * @param referenceZips If true then unmodified files which are mounted from a zip file are written as a reference
+	 *            to that zip file. The written file can't be opened if any referenced zip is changed or removed. */
+	QuiltZipCustomCompressedWriter(Path dst, QuiltZipCodec codec, int deflateLevel, boolean referenceZips) {
+		if (deflateLevel != Deflater.DEFAULT_COMPRESSION && (deflateLevel < 0 || deflateLevel > 9)) {
+			throw new IllegalArgumentException("Invalid deflate level " + deflateLevel);
+		}
 		this.dst = dst;
+		this.codec = codec;
+		this.deflateLevel = deflateLevel;
+		this.referenceZips = referenceZips;
+	}
+
+	/** @return The format version of the given header, or 0 if it isn't a known header. */
+	static int getVersion(byte[] header) {
+		if (Arrays.equals(header, HEADER)) {
+			return 4;
+		} else if (Arrays.equals(header, HEADER_V3)) {
+			return 3;
+		} else if (Arrays.equals(header, HEADER_V2)) {
+			return 2;
+		} else {
+			return 0;
+		}
 	}
 
 	/** @see MuonZipFileSystem#writeQuiltCompressedFileSystem(Path, Path) */
-	void write() throws IOException {
-		try (FileChannel channel = FileChannel.open(dst, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
-			write0(channel);
+	void write(Path src) throws IOException {
+		try {
+			start();
+			finish(src);
 		} finally {
-			aborted = true;
+			close();
 		}
 	}
 
-	private void write0(FileChannel channel) throws IOException {
-
-		// Steps:
-		// 1: Find all folders and files
-		// 2: Pass each file on to a queue of files to be processed
-		// 3: On threads compress those files into a set of byte arrays
-		// 4: Write the directory entry list using those compressed files
-		// 5: Append the byte arrays to the output file directly, in the right order
+	/** Opens the destination file and starts the writer threads, so files can be {@link #spill(Path) spilled} before
+	 * {@link #finish(Path)} is called. */
+	void start() throws IOException {
+		channel = FileChannel.open(dst, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
 
 		// Spin up the other threads now
 		int mainIndex = WRITER_THREAD_INDEX.incrementAndGet();
 
 		channel.write(ByteBuffer.wrap(PARTIAL_HEADER));
-		// 4 bytes: Directory pointer
-		channel.write(ByteBuffer.allocate(4));
-		currentOffset.set((int) channel.position());
+		// 8 bytes: Directory pointer
+		channel.write(ByteBuffer.allocate(8));
+		currentOffset.set(channel.position());
 
 		int threadCount = Runtime.getRuntime().availableProcessors();
-		WriterThread[] threads = new WriterThread[threadCount];
+		threads = new WriterThread[threadCount];
 		for (int i = 0; i < threadCount; i++) {
-			threads[i] = new WriterThread(mainIndex, i, channel);
+			threads[i] = new WriterThread(mainIndex, i);
 			threads[i].setUncaughtExceptionHandler((thread, ex) -> {
 				System.err.println("Exception in thread " + thread.getName());
 				ex.printStackTrace(System.err);
@@ -116,8 +178,67 @@ final class QuiltZipCustomCompressedWriter {
 			threads[i].setDaemon(true);
 			threads[i].start();
 		}
+	}
+
+	/** Compresses the given file and writes it to the destination now, rather than when {@link #finish(Path)} is
+	 * called. The in-memory contents of the file are replaced with a reference to the written data, so only the
+	 * directory is kept in memory. Files which are modified after they have been spilled are written again by
+	 * {@link #finish(Path)}, leaving the previously spilled data unused.
+	 * <p>
+	 * This does nothing if the file isn't stored in memory, since those files are already cheap to keep around. */
+	void spill(Path file) throws IOException {
+		checkException();
+
+		if (!(file.getFileSystem() instanceof MuonMapFileSystem)) {
+			return;
+		}
+
+		MuonMapFileSystem<?, ?> fs = (MuonMapFileSystem<?, ?>) file.getFileSystem();
+		SpilledData data;
+		synchronized (fs) {
+			QuiltUnifiedEntry entry = fs.getEntry(file);
+			if (!(entry instanceof QuiltMemoryFile)) {
+				return;
+			}
+			data = new SpilledData(this, Files.readAllBytes(file));
+			Files.delete(file);
+			fs.addEntryRequiringParent(new SpilledFile(entry.path, data));
+		}
+
+		try {
+			// Wait for the writer threads to catch up, but don't wait forever if one of them crashed
+			while (!spillBudget.tryAcquire(data.permits, 100, TimeUnit.MILLISECONDS)) {
+				checkException();
+			}
+		} catch (InterruptedException e) {
+			interrupted = true;
+			throw new InterruptedIOException();
+		}
 
+		sourceFiles.add(new Job(null, data));
+	}
+
+	private void checkException() throws IOException {
+		if (exception != null) {
+			throw new IOException("Failed to spill a previous file!", exception);
+		}
+	}
+
+	/** Writes every file in the given folder which hasn't already been spilled, followed by the directory. */
+	void finish(Path src) throws IOException {
+
+		// Steps:
+		// 1: Find all folders and files
+		// 2: Pass each file on to a queue of files to be processed (unless it was already spilled)
+		// 3: On threads compress those files and append them to the output file
+		// 4: Write the directory entry list using those compressed files
+
+		int threadCount = threads.length;
 		final Deque<Directory> stack = new ArrayDeque<>();
+		final Map<Path, SpilledData> spilledFiles = new HashMap<>();
+		final MuonMapFileSystem<?, ?> srcFs = src.getFileSystem() instanceof MuonMapFileSystem
+			? (MuonMapFileSystem<?, ?>) src.getFileSystem()
+			: null;
 
 		try {
 			Files.walkFileTree(src, new SimpleFileVisitor<Path>() {
@@ -139,7 +260,15 @@ final class QuiltZipCustomCompressedWriter {
 						return FileVisitResult.TERMINATE;
 					}
 					stack.peek().childFiles.add(file);
-					sourceFiles.add(file);
+					QuiltUnifiedEntry entry = srcFs == null ? null : srcFs.getEntry(file);
+					FileEntry reference;
+					if (entry instanceof SpilledFile && ((SpilledFile) entry).data.writer == QuiltZipCustomCompressedWriter.this) {
+						spilledFiles.put(file, ((SpilledFile) entry).data);
+					} else if (referenceZips && (reference = createReference(entry)) != null) {
+						files.put(file, reference);
+					} else {
+						sourceFiles.add(new Job(file, null));
+					}
 					return FileVisitResult.CONTINUE;
 				}
 
@@ -199,11 +328,11 @@ final class QuiltZipCustomCompressedWriter {
 		synchronized (QuiltZipCustomCompressedWriter.this) {
 			if (!sourceFiles.isEmpty()) {
 				StringBuilder sb = new StringBuilder();
-				Iterator<Path> iterator = sourceFiles.iterator();
+				Iterator<Job> iterator = sourceFiles.iterator();
 				int count = 0;
 				while (iterator.hasNext()) {
 					count++;
-					Path next = iterator.next();
+					Job next = iterator.next();
 					if (count < 100) {
 						if (sb.length() == 0) {
 							sb.append(", ");
@@ -250,18 +379,28 @@ final class QuiltZipCustomCompressedWriter {
 			}
 		}
 
+		for (Map.Entry<Path, SpilledData> entry : spilledFiles.entrySet()) {
+			files.put(entry.getKey(), entry.getValue().written);
+		}
+
 		// Write the directory
-		int directoryOffset = currentOffset.get();
+		long directoryOffset = currentOffset.get();
 		ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream();
 		GZIPOutputStream gzip = new GZIPOutputStream(baos);
-		writeDirectory(stack.pop(), files, new DataOutputStream(gzip));
+		DataOutputStream directory = new DataOutputStream(gzip);
+		directory.writeInt(referencedZips.size());
+		for (Map.Entry<Path, ReferencedZip> zip : referencedZips.entrySet()) {
+			directory.writeUTF(zip.getKey().toString());
+			zip.getValue().stamp.write(directory);
+		}
+		writeDirectory(stack.pop(), files, directory);
 		gzip.finish();
 		channel.write(baos.wrapIntoBuffer(), directoryOffset);
 
 		// Write the directory offset
 		baos = new ExposedByteArrayOutputStream();
 		DataOutputStream dos = new DataOutputStream(baos);
-		dos.writeInt(directoryOffset);
+		dos.writeLong(directoryOffset);
 		channel.write(baos.wrapIntoBuffer(), HEADER.length);
 		channel.force(false);
 
@@ -269,6 +408,51 @@ final class QuiltZipCustomCompressedWriter {
 		channel.write(ByteBuffer.wrap(HEADER), 0);
 	}
 
+	/** @return A reference to the file that the given entry is mounted to, or null if it isn't mounted to a file in a
+	 *         zip on the default file system. */
+	@Nullable
+	FileEntry createReference(@Nullable QuiltUnifiedEntry entry) throws IOException {
+		if (!(entry instanceof QuiltUnifiedEntry.QuiltUnifiedMountedFile)) {
+			return null;
+		}
+		Path to = ((QuiltUnifiedEntry.QuiltUnifiedMountedFile) entry).to;
+		if (!(to instanceof MuonZipPath)) {
+			return null;
+		}
+		QuiltUnifiedEntry target = ((MuonZipPath) to).fs.getEntry(to);
+		if (!(target instanceof MuonZipFileSystem.QuiltZipFile)) {
+			return null;
+		}
+		MuonZipFileSystem.QuiltZipFile file = (MuonZipFileSystem.QuiltZipFile) target;
+		if (!(file.source instanceof MuonZipFileSystem.SharedByteChannels)) {
+			// Zips in memory (like jar-in-jar mods) don't have anything to refer to
+			return null;
+		}
+		Path zip = ((MuonZipFileSystem.SharedByteChannels) file.source).zipFrom.toAbsolutePath();
+		ReferencedZip referenced = referencedZips.get(zip);
+		if (referenced == null) {
+			// Stamped now rather than when the directory is written, so a zip which changes while the rest of the
+			// files are written can't be mistaken for the one that the offsets came from
+			referenced = new ReferencedZip(referencedZips.size(), FileStamp.read(zip));
+			referencedZips.put(zip, referenced);
+		}
+		return new FileEntry(file.offset, file.uncompressedSize, file.compressedSize, file.codec, referenced.index, file.crc);
+	}
+
+	/** Stops every writer thread (if they haven't already been stopped by {@link #finish(Path)}), and closes the
+	 * destination file. */
+	void close() throws IOException {
+		aborted = true;
+		if (threads != null) {
+			for (WriterThread thread : threads) {
+				thread.interrupt();
+			}
+		}
+		if (channel != null) {
+			channel.close();
+		}
+	}
+
 	private void writeDirectory(Directory directory, Map<Path, FileEntry> fileMap, DataOutputStream to)
 		throws IOException {
 		// Some directories might have thousands of files, but it's not common
@@ -278,9 +462,12 @@ final class QuiltZipCustomCompressedWriter {
 			to.writeByte(nameBytes.length);
 			to.write(nameBytes);
 			FileEntry entry = fileMap.get(file);
-			to.writeInt(entry.offset);
+			to.writeLong(entry.offset);
 			to.writeInt(entry.uncompressedLength);
 			to.writeInt(entry.compressedLength);
+			to.writeByte(entry.codec.ordinal());
+			to.writeInt(entry.referencedZip);
+			to.writeLong(entry.crc);
 		}
 		to.writeShort(directory.childDirectories.size());
 		for (Directory sub : directory.childDirectories) {
@@ -303,46 +490,39 @@ final class QuiltZipCustomCompressedWriter {
 
 	private final class WriterThread extends Thread {
 
-		final FileChannel channel;
 		Deflater deflater;
 
-		public WriterThread(int mainIndex, int subIndex, FileChannel channel) {
+		public WriterThread(int mainIndex, int subIndex) {
 			super("QuiltZipWriter-" + mainIndex + "." + subIndex);
-			this.channel = channel;
 		}
 
 		@Override
 		public void run() {
 			while (exception == null && !aborted) {
-				final Path next;
+				final Job next;
 				try {
 					next = sourceFiles.take();
 				} catch (InterruptedException e) {
-					interrupted = true;
+					if (!aborted) {
+						interrupted = true;
+					}
 					break;
 				}
 				if (next == THREAD_STOPPER) {
 					break;
 				}
 
-				if (deflater == null) {
-					deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
-				} else {
-					deflater.reset();
-				}
-
 				try {
-					int uncompressedLength;
-					ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream();
-					try (DeflaterOutputStream compressor = new DeflaterOutputStream(baos, deflater)) {
-						uncompressedLength = (int) Files.copy(next, compressor);
+					byte[] bytes = next.spilled != null ? next.spilled.pending : Files.readAllBytes(next.file);
+					FileEntry entry = writeEntry(bytes);
+					if (next.spilled != null) {
+						next.spilled.written = entry;
+						next.spilled.pending = null;
+					} else {
+						files.put(next.file, entry);
 					}
-					int offset = currentOffset.getAndAdd(baos.size());
-					int length = baos.size();
-					channel.write(ByteBuffer.wrap(baos.getArray(), 0, length), offset);
-					files.put(next, new FileEntry(offset, uncompressedLength, length));
 				} catch (IOException e) {
-					e = new IOException("Failed to copy " + next, e);
+					e = new IOException("Failed to copy " + (next.file != null ? next.file : "a spilled file"), e);
 					synchronized (QuiltZipCustomCompressedWriter.this) {
 						if (aborted) {
 							// Don't try to append to an exception if it's already been thrown
@@ -356,6 +536,10 @@ final class QuiltZipCustomCompressedWriter {
 						}
 						break;
 					}
+				} finally {
+					if (next.spilled != null) {
+						spillBudget.release(next.spilled.permits);
+					}
 				}
 			}
 
@@ -363,25 +547,196 @@ final class QuiltZipCustomCompressedWriter {
 				deflater.end();
 			}
 		}
+
+		/** Compresses the given bytes with the writer's codec (unless they would be smaller stored), and appends
+		 * them to the destination. */
+		private FileEntry writeEntry(byte[] bytes) throws IOException {
+			QuiltZipCodec entryCodec = codec;
+			byte[] data;
+			int length;
+			switch (codec) {
+				case DEFLATE: {
+					if (deflater == null) {
+						deflater = new Deflater(deflateLevel, true);
+					} else {
+						deflater.reset();
+					}
+					ExposedByteArrayOutputStream baos = new ExposedByteArrayOutputStream();
+					try (DeflaterOutputStream compressor = new DeflaterOutputStream(baos, deflater)) {
+						compressor.write(bytes);
+					}
+					data = baos.getArray();
+					length = baos.size();
+					break;
+				}
+				case LZ4: {
+					data = new byte[Lz4Block.maxCompressedLength(bytes.length)];
+					length = Lz4Block.compress(bytes, data);
+					break;
+				}
+				default: {
+					data = bytes;
+					length = bytes.length;
+				}
+			}
+
+			if (length >= bytes.length) {
+				entryCodec = QuiltZipCodec.STORED;
+				data = bytes;
+				length = bytes.length;
+			}
+
+			long offset = currentOffset.getAndAdd(length);
+			channel.write(ByteBuffer.wrap(data, 0, length), offset);
+			return new FileEntry(offset, bytes.length, length, entryCodec);
+		}
 	}
 
 	static final class FileEntry {
-		final int offset;
+		final long offset;
 		final int uncompressedLength, compressedLength;
+		final QuiltZipCodec codec;
+		/** The index of the zip file which stores this file, or -1 if it's stored in the destination. */
+		final int referencedZip;
+		/** The CRC-32 of the uncompressed contents, or -1 if it isn't known. */
+		final long crc;
+
+		FileEntry(long offset, int uncompressedLength, int compressedLength, QuiltZipCodec codec) {
+			this(offset, uncompressedLength, compressedLength, codec, -1, -1);
+		}
 
-		FileEntry(int offset, int uncompressedLength, int compressedLength) {
+		FileEntry(long offset, int uncompressedLength, int compressedLength, QuiltZipCodec codec, int referencedZip, long crc) {
 			this.offset = offset;
 			this.uncompressedLength = uncompressedLength;
 			this.compressedLength = compressedLength;
+			this.codec = codec;
+			this.referencedZip = referencedZip;
+			this.crc = crc;
+		}
+	}
+
+	/** A zip file which files are referenced from, and its state when it was first referenced. */
+	static final class ReferencedZip {
+		final int index;
+		final FileStamp stamp;
+
+		ReferencedZip(int index, FileStamp stamp) {
+			this.index = index;
+			this.stamp = stamp;
 		}
 	}
 
-	private static final class StopThreadsPath extends NullPath {
+	/** A single file to compress and write: either a file to read from, or a spilled file. */
+	static final class Job {
+		final Path file;
+		final SpilledData spilled;
+
+		Job(Path file, SpilledData spilled) {
+			this.file = file;
+			this.spilled = spilled;
+		}
+
 		@Override
-		protected IllegalStateException illegal() {
-			throw new IllegalStateException(
-				"QuiltZipCustomCompressedWriter must NEVER permit StopThreadsPath to leak!"
-			);
+		public String toString() {
+			return file != null ? file.toString() : "spilled";
+		}
+	}
+
+	/** The contents of a spilled file, which are either still waiting to be written, or have been written. Shared
+	 * between every {@link SpilledFile} that was copied from the same original file. */
+	static final class SpilledData {
+		final QuiltZipCustomCompressedWriter writer;
+		final int length;
+		final int permits;
+
+		/** The uncompressed bytes, until they have been {@link #written}. */
+		volatile byte[] pending;
+		volatile FileEntry written;
+
+		SpilledData(QuiltZipCustomCompressedWriter writer, byte[] bytes) {
+			this.writer = writer;
+			this.length = bytes.length;
+			this.permits = Math.min(bytes.length, SPILL_BUDGET);
+			this.pending = bytes;
+		}
+
+		InputStream createInputStream() throws IOException {
+			byte[] bytes = pending;
+			if (bytes != null) {
+				return new ByteArrayInputStream(bytes);
+			}
+			FileEntry entry = written;
+			ByteBuffer buffer = ByteBuffer.allocate(entry.compressedLength);
+			while (buffer.hasRemaining()) {
+				if (writer.channel.read(buffer, entry.offset + buffer.position()) < 0) {
+					throw new IOException("Unexpected end of file while reading a spilled file!");
+				}
+			}
+			return entry.codec.decode(new ByteArrayInputStream(buffer.array()), entry.compressedLength, entry.uncompressedLength);
+		}
+	}
+
+	/** A file whose contents have been passed to {@link #spill(Path)}. This is read only: writing to it replaces it
+	 * with a normal in-memory file. */
+	static final class SpilledFile extends QuiltUnifiedEntry.QuiltUnifiedFile {
+		final SpilledData data;
+
+		SpilledFile(MuonMapPath<?, ?> path, SpilledData data) {
+			super(path);
+			this.data = data;
+		}
+
+		@Override
+		protected BasicFileAttributes createAttributes() {
+			return new QuiltFileAttributes(path, data.length);
+		}
+
+		@Override
+		protected QuiltUnifiedEntry createCopiedTo(MuonMapPath<?, ?> newPath) {
+			return new SpilledFile(newPath, data);
+		}
+
+		@Override
+		InputStream createInputStream() throws IOException {
+			return data.createInputStream();
+		}
+
+		private QuiltMemoryFile.ReadWrite toMemoryFile(boolean truncate) throws IOException {
+			QuiltMemoryFile.ReadWrite file = new QuiltMemoryFile.ReadWrite(path);
+			if (!truncate) {
+				try (InputStream from = createInputStream(); OutputStream to = file.createOutputStream(false, true)) {
+					byte[] buffer = new byte[8192];
+					int count;
+					while ((count = from.read(buffer)) > 0) {
+						to.write(buffer, 0, count);
+					}
+				}
+			}
+			return file;
+		}
+
+		private QuiltMemoryFile.ReadWrite replaceWithMemoryFile(boolean truncate) throws IOException {
+			QuiltMemoryFile.ReadWrite file = toMemoryFile(truncate);
+			synchronized (path.fs) {
+				path.fs.provider().delete(path);
+				path.fs.addEntryRequiringParent(file);
+			}
+			return file;
+		}
+
+		@Override
+		OutputStream createOutputStream(boolean append, boolean truncate) throws IOException {
+			return replaceWithMemoryFile(truncate).createOutputStream(append, truncate);
+		}
+
+		@Override
+		SeekableByteChannel createByteChannel(Set<? extends OpenOption> options) throws IOException {
+			if (options.contains(StandardOpenOption.WRITE)) {
+				boolean truncate = options.contains(StandardOpenOption.TRUNCATE_EXISTING);
+				return replaceWithMemoryFile(truncate).createByteChannel(options);
+			}
+			// Reading from a detached copy is fine, since nothing can write to it
+			return toMemoryFile(false).createByteChannel(options);
 		}
 	}
 }
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.filesystem;
+
+import java.io.IOException;
+
+/** Thrown by {@link MuonZipFileSystem#MuonZipFileSystem(String, java.nio.file.Path, String)} if the input file refers
+ * to files in another zip, and that zip has been changed or removed since the input file was written. */
+public class ReferencedFileChangedIOException extends IOException {
+
+	public ReferencedFileChangedIOException(String message) {
+		super(message);
+	}
+
+	public ReferencedFileChangedIOException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -28,6 +28,7 @@ import org.muonmc.loader.impl.util.mappings.TinyRemapperMappingsHelper;
 import org.muonmc.loader.impl.util.LoaderUtil;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.SharedCacheStore;
 
 import net.fabricmc.mapping.tree.TinyTree;
 
@@ -58,6 +59,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.jar.JarFile;
 import java.util.zip.ZipFile;
 
@@ -244,6 +246,11 @@ public final class GameProviderHelper {
 		}
 
 		try {
+			SharedCacheStore sharedStore = SharedCacheStore.get();
+			if (sharedStore != null) {
+				return deobfuscateShared(sharedStore, inputFileMap, gameId, gameVersion, deobfJarDir, mappingConfig, launcher);
+			}
+
 			Files.createDirectories(deobfJarDir);
 			deobfuscate0(inputFiles, outputFiles, tmpFiles, mappings, targetNamespace, launcher);
 		} catch (IOException e) {
@@ -253,6 +260,52 @@ public final class GameProviderHelper {
 		return ret;
 	}
 
+	/** @return The key of the remapped jars in the shared cache, which depends on the content of every input jar and the
+	 *         mappings, rather than their paths. */
+	static String remappedJarsKey(Map<String, Path> inputFileMap, String gameId, String gameVersion,
+		String targetNamespace, URL mappings) throws IOException {
+
+		SharedCacheStore.KeyBuilder key = new SharedCacheStore.KeyBuilder();
+		key.add(MuonLoaderImpl.VERSION).add(gameId).add(gameVersion).add(targetNamespace);
+		for (Map.Entry<String, Path> entry : new TreeMap<>(inputFileMap).entrySet()) {
+			key.add(entry.getKey()).addContent(entry.getValue());
+		}
+		key.addContent(mappings);
+		return key.build();
+	}
+
+	/** Remaps the game jars into the shared cache (unless another instance already did), and then links them into
+	 * the normal remapped jar folder. */
+	private static Map<String, Path> deobfuscateShared(SharedCacheStore store, Map<String, Path> inputFileMap,
+		String gameId, String gameVersion, Path deobfJarDir, MappingConfiguration mappingConfig, MuonLauncher launcher)
+		throws IOException {
+
+		String targetNamespace = mappingConfig.getTargetNamespace();
+		Map<String, Path> sortedInputs = new TreeMap<>(inputFileMap);
+
+		String key = remappedJarsKey(sortedInputs, gameId, gameVersion, targetNamespace, new URL(mappingConfig.getMappingsSource()));
+		Path shared = store.getOrCreate("remapped-jars", key, tmpDir -> {
+			Files.createDirectories(tmpDir);
+			List<Path> inputFiles = new ArrayList<>();
+			List<Path> outputFiles = new ArrayList<>();
+			List<Path> tmpFiles = new ArrayList<>();
+			for (Map.Entry<String, Path> entry : sortedInputs.entrySet()) {
+				String deobfJarFilename = String.format("%s-%s.jar", entry.getKey(), targetNamespace);
+				inputFiles.add(entry.getValue());
+				outputFiles.add(tmpDir.resolve(deobfJarFilename));
+				tmpFiles.add(tmpDir.resolve(deobfJarFilename + ".tmp"));
+			}
+			deobfuscate0(inputFiles, outputFiles, tmpFiles, mappingConfig.getMappings(), targetNamespace, launcher);
+		});
+
+		Path folder = SharedCacheStore.link(shared, deobfJarDir);
+		Map<String, Path> ret = new HashMap<>(inputFileMap.size());
+		for (String name : inputFileMap.keySet()) {
+			ret.put(name, folder.resolve(String.format("%s-%s.jar", name, targetNamespace)));
+		}
+		return ret;
+	}
+
 	private static Path getDeobfJarDir(Path gameDir, String gameId, String gameVersion) {
 		MuonLoaderImpl loader = MuonLoaderImpl.INSTANCE;
 
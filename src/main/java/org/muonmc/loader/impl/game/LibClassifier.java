@@ -17,17 +17,24 @@
 
 package org.muonmc.loader.impl.game;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -42,6 +49,7 @@ import java.util.zip.ZipFile;
 import net.fabricmc.api.EnvType;
 
 import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.impl.util.FileStamp;
 import org.muonmc.loader.impl.util.LoaderUtil;
 import org.muonmc.loader.impl.util.ManifestUtil;
 import org.muonmc.loader.impl.util.SystemProperties;
@@ -51,6 +59,7 @@ import org.muonmc.loader.impl.util.log.LogCategory;
 
 public final class LibClassifier<L extends Enum<L> & LibClassifier.LibraryType> {
 	private static final boolean DEBUG = System.getProperty(SystemProperties.DEBUG_LOG_LIB_CLASSIFICATION) != null;
+	private static final int CACHE_VERSION = 1;
 
 	private final List<L> libs;
 	private final Map<L, Path> origins;
@@ -58,6 +67,15 @@ public final class LibClassifier<L extends Enum<L> & LibClassifier.LibraryType>
 	private final Set<Path> systemLibraries = new HashSet<>();
 	private final List<Path> unmatchedOrigins = new ArrayList<>();
 
+	/** Where {@link #cache} is saved, or null if jars aren't cached. */
+	private Path cacheFile;
+	/** Which libraries were found in each jar, from this launch or a previous one. */
+	private final Map<Path, CachedJar> cache = new HashMap<>();
+	private final Set<Path> usedCacheEntries = new HashSet<>();
+	private boolean cacheChanged;
+	/** The number of jars which have been opened (rather than read from the cache), for tests. */
+	int jarsOpened;
+
 	public LibClassifier(Class<L> cls, Environment env, GameProvider gameProvider) throws IOException {
 		L[] libs = cls.getEnumConstants();
 
@@ -201,20 +219,17 @@ public final class LibClassifier<L extends Enum<L> & LibClassifier.LibraryType>
 				}
 			}
 		} else {
-			try (ZipFile zf = new ZipFile(path.toFile())) {
-				for (L lib : libs) {
-					if (excludedLibs.contains(lib) || origins.containsKey(lib)) continue;
-
-					for (String p : lib.getPaths()) {
-						if (zf.getEntry(p) != null) {
-							matched = true;
-							addLibrary(lib, path, p);
-							break;
-						}
-					}
+			Map<String, String> found = probeJar(path);
+
+			for (L lib : libs) {
+				if (excludedLibs.contains(lib) || origins.containsKey(lib)) continue;
+
+				String p = found.get(lib.name());
+
+				if (p != null) {
+					matched = true;
+					addLibrary(lib, path, p);
 				}
-			} catch (ZipError | IOException e) {
-				throw new IOException("error reading "+path, e);
 			}
 		}
 
@@ -225,6 +240,141 @@ public final class LibClassifier<L extends Enum<L> & LibClassifier.LibraryType>
 		}
 	}
 
+	/**
+	 * Finds every library in the given jar, regardless of whether it has already been found elsewhere.
+	 *
+	 * @return A map from library name to the first of its {@link LibraryType#getPaths()} in the jar.
+	 */
+	private Map<String, String> probeJar(Path path) throws IOException {
+		FileStamp stamp = null;
+
+		if (cacheFile != null) {
+			stamp = FileStamp.read(path);
+			CachedJar cached = cache.get(path);
+
+			if (cached != null && cached.stamp.equals(stamp)) {
+				usedCacheEntries.add(path);
+				return cached.found;
+			}
+		}
+
+		Map<String, String> found = new HashMap<>();
+		jarsOpened++;
+
+		try (ZipFile zf = new ZipFile(path.toFile())) {
+			for (L lib : libs) {
+				for (String p : lib.getPaths()) {
+					if (zf.getEntry(p) != null) {
+						found.put(lib.name(), p);
+						break;
+					}
+				}
+			}
+		} catch (ZipError | IOException e) {
+			throw new IOException("error reading "+path, e);
+		}
+
+		if (stamp != null) {
+			cache.put(path, new CachedJar(stamp, found));
+			usedCacheEntries.add(path);
+			cacheChanged = true;
+		}
+
+		return found;
+	}
+
+	/**
+	 * Reads the results of a previous launch from the given file, and saves them back to it in {@link #saveCache()}.
+	 * Jars which haven't changed since (based on their size, last modified time, and file key) aren't opened again.
+	 * Only jars are cached, since folders are normally only used in a development environment.
+	 */
+	public void useCache(Path file) {
+		cacheFile = file;
+		cache.clear();
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != CACHE_VERSION || !in.readUTF().equals(getLibrarySignature())) {
+				// Different loader version or environment, so every jar needs to be probed again anyway
+				return;
+			}
+
+			int count = in.readInt();
+
+			for (int i = 0; i < count; i++) {
+				Path path = Paths.get(in.readUTF());
+				FileStamp stamp = FileStamp.read(in);
+				Map<String, String> found = new HashMap<>();
+				int libCount = in.readInt();
+
+				for (int j = 0; j < libCount; j++) {
+					found.put(in.readUTF(), in.readUTF());
+				}
+
+				cache.put(path, new CachedJar(stamp, found));
+			}
+		} catch (NoSuchFileException e) {
+			// First launch
+		} catch (IOException e) {
+			Log.warn(LogCategory.LIB_CLASSIFICATION, "Failed to read the library classification cache %s", file, e);
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Saves the cache file passed to {@link #useCache(Path)}, if anything changed. Jars which weren't processed since
+	 * then are removed from it.
+	 */
+	public void saveCache() {
+		if (cacheFile == null || (!cacheChanged && usedCacheEntries.size() == cache.size())) {
+			return;
+		}
+
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path tmp = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+				out.writeInt(CACHE_VERSION);
+				out.writeUTF(getLibrarySignature());
+				out.writeInt(usedCacheEntries.size());
+
+				for (Path path : usedCacheEntries) {
+					CachedJar cached = cache.get(path);
+					out.writeUTF(path.toString());
+					cached.stamp.write(out);
+					out.writeInt(cached.found.size());
+
+					for (Map.Entry<String, String> entry : cached.found.entrySet()) {
+						out.writeUTF(entry.getKey());
+						out.writeUTF(entry.getValue());
+					}
+				}
+			}
+
+			Files.move(tmp, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+			cacheChanged = false;
+		} catch (IOException e) {
+			Log.warn(LogCategory.LIB_CLASSIFICATION, "Failed to save the library classification cache %s", cacheFile, e);
+		}
+	}
+
+	/** @return Every library (and the paths it's found by) which jars are checked for. */
+	private String getLibrarySignature() {
+		StringBuilder sb = new StringBuilder();
+
+		for (L lib : libs) {
+			sb.append(lib.name());
+
+			for (String p : lib.getPaths()) {
+				sb.append(' ').append(p);
+			}
+
+			sb.append('\n');
+		}
+
+		return sb.toString();
+	}
+
 	private void addLibrary(L lib, Path originPath, String localPath) {
 		Path prev = origins.put(lib, originPath);
 		if (prev != null) throw new IllegalStateException("lib "+lib+" was already added");
@@ -291,6 +441,16 @@ public final class LibClassifier<L extends Enum<L> & LibClassifier.LibraryType>
 		return ret;
 	}
 
+	private static final class CachedJar {
+		final FileStamp stamp;
+		final Map<String, String> found;
+
+		CachedJar(FileStamp stamp, Map<String, String> found) {
+			this.stamp = stamp;
+			this.found = found;
+		}
+	}
+
 	public interface LibraryType {
 		boolean isApplicable(Environment env);
 		String[] getPaths();
@@ -1081,7 +1081,7 @@ class BasicWindowUI {
 
 		@Override
 		public String toString() {
-			return applyWrapping(StringUtil.wrapLines(node.text, 120));
+			return applyWrapping(StringUtil.wrapLines(node.textString(), 120));
 		}
 
 		@Override
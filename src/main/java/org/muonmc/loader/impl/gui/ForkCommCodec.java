@@ -0,0 +1,319 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.gui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.muonmc.loader.api.LoaderValue;
+import org.muonmc.loader.api.plugin.LoaderValueFactory;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+
+/** Compact binary encoding of {@link LoaderValue}s, used by {@link MuonForkComms} instead of json.
+ * <p>
+ * Each frame contains a number of values, written one after another. Short strings (which includes nearly every
+ * object key) are only written in full the first time they appear in a frame - after that they are written as an
+ * index into the frame's string table. Since both sides of the connection always run the same loader version there's
+ * no need to version this format. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+final class ForkCommCodec {
+
+	private static final int TAG_NULL = 0;
+	private static final int TAG_FALSE = 1;
+	private static final int TAG_TRUE = 2;
+	private static final int TAG_INT = 3;
+	private static final int TAG_LONG = 4;
+	private static final int TAG_DOUBLE = 5;
+	private static final int TAG_BIG_INTEGER = 6;
+	private static final int TAG_STRING = 7;
+	private static final int TAG_STRING_REF = 8;
+	private static final int TAG_ARRAY = 9;
+	private static final int TAG_OBJECT = 10;
+	private static final int TAG_BIG_DECIMAL = 11;
+
+	/** Strings longer than this are never added to the string table, since they are unlikely to be repeated. */
+	private static final int MAX_TABLE_STRING_LENGTH = 64;
+
+	private ForkCommCodec() {}
+
+	/** Stateful encoder, which reuses its buffers between frames. Not thread safe. */
+	static final class Encoder {
+		private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(buffer);
+		private final Map<String, Integer> strings = new HashMap<>();
+
+		/** Writes the given values as a single length-prefixed frame. */
+		void writeFrame(List<LoaderValue> values, DataOutputStream to) throws IOException {
+			buffer.reset();
+			strings.clear();
+			writeVarInt(values.size());
+			for (LoaderValue value : values) {
+				writeValue(value);
+			}
+			out.flush();
+			to.writeInt(buffer.size());
+			buffer.writeTo(to);
+			to.flush();
+		}
+
+		private void writeValue(LoaderValue value) throws IOException {
+			switch (value.type()) {
+				case NULL: {
+					out.writeByte(TAG_NULL);
+					return;
+				}
+				case BOOLEAN: {
+					out.writeByte(value.asBoolean() ? TAG_TRUE : TAG_FALSE);
+					return;
+				}
+				case NUMBER: {
+					writeNumber(value.asNumber());
+					return;
+				}
+				case STRING: {
+					writeString(value.asString());
+					return;
+				}
+				case ARRAY: {
+					LoaderValue.LArray array = value.asArray();
+					out.writeByte(TAG_ARRAY);
+					writeVarInt(array.size());
+					for (LoaderValue element : array) {
+						writeValue(element);
+					}
+					return;
+				}
+				case OBJECT: {
+					LoaderValue.LObject object = value.asObject();
+					out.writeByte(TAG_OBJECT);
+					writeVarInt(object.size());
+					for (Map.Entry<String, LoaderValue> entry : object.entrySet()) {
+						writeString(entry.getKey());
+						writeValue(entry.getValue());
+					}
+					return;
+				}
+				default: {
+					throw new IOException("Unknown LoaderValue type " + value.type());
+				}
+			}
+		}
+
+		private void writeNumber(Number number) throws IOException {
+			if (number instanceof Integer || number instanceof Short || number instanceof Byte) {
+				out.writeByte(TAG_INT);
+				writeVarInt(zigZag(number.intValue()));
+			} else if (number instanceof Long) {
+				out.writeByte(TAG_LONG);
+				out.writeLong(number.longValue());
+			} else if (number instanceof Double || number instanceof Float) {
+				out.writeByte(TAG_DOUBLE);
+				out.writeDouble(number.doubleValue());
+			} else if (number instanceof BigInteger) {
+				out.writeByte(TAG_BIG_INTEGER);
+				writeRawString(number.toString());
+			} else {
+				// BigDecimal.toString can use an exponent ("1E+3") even for integral values,
+				// so the decoder can't guess the type from the string alone
+				out.writeByte(TAG_BIG_DECIMAL);
+				writeRawString(number.toString());
+			}
+		}
+
+		private void writeString(String str) throws IOException {
+			Integer index = strings.get(str);
+			if (index != null) {
+				out.writeByte(TAG_STRING_REF);
+				writeVarInt(index);
+				return;
+			}
+			out.writeByte(TAG_STRING);
+			writeRawString(str);
+			if (str.length() <= MAX_TABLE_STRING_LENGTH) {
+				strings.put(str, strings.size());
+			}
+		}
+
+		private void writeRawString(String str) throws IOException {
+			byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(bytes.length);
+			out.write(bytes);
+		}
+
+		private void writeVarInt(int value) throws IOException {
+			while ((value & ~0x7F) != 0) {
+				out.writeByte((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			out.writeByte(value);
+		}
+	}
+
+	/** Reads every value from a frame previously written by {@link Encoder#writeFrame(List, DataOutputStream)},
+	 * excluding the length prefix. */
+	static List<LoaderValue> readFrame(byte[] frame) throws IOException {
+		return new Decoder(frame).readAll();
+	}
+
+	private static final class Decoder {
+		private final byte[] data;
+		private final List<String> strings = new ArrayList<>();
+		private int position;
+
+		Decoder(byte[] data) {
+			this.data = data;
+		}
+
+		List<LoaderValue> readAll() throws IOException {
+			int count = readVarInt();
+			List<LoaderValue> values = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				values.add(readValue());
+			}
+			if (position != data.length) {
+				throw new IOException("Found " + (data.length - position) + " trailing bytes in a frame!");
+			}
+			return values;
+		}
+
+		private LoaderValue readValue() throws IOException {
+			int tag = readByte();
+			switch (tag) {
+				case TAG_NULL:
+					return lvf().nul();
+				case TAG_FALSE:
+					return lvf().bool(false);
+				case TAG_TRUE:
+					return lvf().bool(true);
+				case TAG_INT:
+					return lvf().number(unZigZag(readVarInt()));
+				case TAG_LONG:
+					return lvf().number(readLong());
+				case TAG_DOUBLE:
+					return lvf().number(Double.longBitsToDouble(readLong()));
+				case TAG_BIG_INTEGER:
+				case TAG_BIG_DECIMAL: {
+					String str = readRawString();
+					try {
+						return lvf().number(tag == TAG_BIG_INTEGER ? new BigInteger(str) : new BigDecimal(str));
+					} catch (NumberFormatException e) {
+						throw new IOException("Bad number '" + str + "'", e);
+					}
+				}
+				case TAG_STRING:
+				case TAG_STRING_REF:
+					return lvf().string(readString(tag));
+				case TAG_ARRAY: {
+					int length = readVarInt();
+					LoaderValue[] array = new LoaderValue[length];
+					for (int i = 0; i < length; i++) {
+						array[i] = readValue();
+					}
+					return lvf().array(array);
+				}
+				case TAG_OBJECT: {
+					int length = readVarInt();
+					Map<String, LoaderValue> map = new LinkedHashMap<>();
+					for (int i = 0; i < length; i++) {
+						String key = readString(readByte());
+						map.put(key, readValue());
+					}
+					return lvf().object(map);
+				}
+				default:
+					throw new IOException("Unknown tag " + tag + " at " + (position - 1));
+			}
+		}
+
+		private String readString(int tag) throws IOException {
+			if (tag == TAG_STRING_REF) {
+				int index = readVarInt();
+				if (index < 0 || index >= strings.size()) {
+					throw new IOException("Unknown string index " + index);
+				}
+				return strings.get(index);
+			} else if (tag == TAG_STRING) {
+				String str = readRawString();
+				if (str.length() <= MAX_TABLE_STRING_LENGTH) {
+					strings.add(str);
+				}
+				return str;
+			} else {
+				throw new IOException("Expected a string, but got tag " + tag + " at " + (position - 1));
+			}
+		}
+
+		private String readRawString() throws IOException {
+			int length = readVarInt();
+			if (length < 0 || length > data.length - position) {
+				throw new IOException("Bad string length " + length);
+			}
+			String str = new String(data, position, length, StandardCharsets.UTF_8);
+			position += length;
+			return str;
+		}
+
+		private int readByte() throws IOException {
+			if (position >= data.length) {
+				throw new IOException("Unexpected end of frame");
+			}
+			return data[position++] & 0xFF;
+		}
+
+		private long readLong() throws IOException {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | readByte();
+			}
+			return value;
+		}
+
+		private int readVarInt() throws IOException {
+			int value = 0;
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					return value;
+				}
+			}
+			throw new IOException("VarInt too long");
+		}
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	private static int unZigZag(int value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static LoaderValueFactory lvf() {
+		return LoaderValueFactory.getFactory();
+	}
+}
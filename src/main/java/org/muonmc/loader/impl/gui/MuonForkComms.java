@@ -16,6 +16,7 @@
 
 package org.muonmc.loader.impl.gui;
 
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -31,19 +32,19 @@ import java.net.Socket;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
+import java.util.Objects;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
-import org.muonmc.loader.impl.util.LimitedInputStream;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
 import org.muonmc.loader.impl.util.SystemProperties;
@@ -59,6 +60,10 @@ public class MuonForkComms {
 	private static final String SYS_PROP = "quiltmc.loader.fork.comms_port";
 	private static final boolean PRINT_NET_PACKETS = Boolean.getBoolean(SystemProperties.DEBUG_GUI_PACKETS);
 
+	/** How long (in milliseconds) the writer waits after the first message arrives before sending a frame, so that
+	 * further updates can be coalesced and batched into it. */
+	private static final int FRAME_INTERVAL = Math.max(0, Integer.getInteger(SystemProperties.GUI_SYNC_INTERVAL, 16));
+
 	private static ForkSide side;
 	private static final AtomicReference<MuonForkComms> currentComms = new AtomicReference<>();
 
@@ -164,8 +169,13 @@ public class MuonForkComms {
 
 	private final Consumer<LoaderValue> msgHandler;
 
-	/** Set to null if we fail to connect. */
-	private volatile BlockingQueue<LoaderValue> writerQueue;
+	/** Guards {@link #pending}, and is notified whenever it changes. */
+	private final Object pendingLock = new Object();
+
+	/** Messages which haven't been written yet, in the order they should be sent. Keys are either a
+	 * {@link CoalesceKey} for updates which completely replace any previous update of the same name, or a unique
+	 * {@link Object} for everything else. Set to null if we fail to connect, or are closed. */
+	private LinkedHashMap<Object, LoaderValue> pending;
 
 	private Sender sender;
 	private volatile boolean closed;
@@ -174,14 +184,14 @@ public class MuonForkComms {
 		setSide(ForkSide.CLIENT);
 		this.msgHandler = msgHandler;
 
-		writerQueue = new LinkedBlockingQueue<>();
+		pending = new LinkedHashMap<>();
 		currentComms.set(this);
 	}
 
 	MuonForkComms(Socket socket, Consumer<LoaderValue> msgHandler) {
 		setSide(ForkSide.SERVER);
 		this.msgHandler = msgHandler;
-		writerQueue = new LinkedBlockingQueue<>();
+		pending = new LinkedHashMap<>();
 		sender = new ReadySender(socket);
 		currentComms.set(this);
 	}
@@ -198,13 +208,53 @@ public class MuonForkComms {
 	}
 
 	public void send(LoaderValue value) {
-		try {
-			BlockingQueue<LoaderValue> queue = writerQueue;
-			if (queue != null) {
-				queue.put(value);
+		enqueue(new Object(), value);
+	}
+
+	/** Sends an update to the object with the given id, replacing any previous update with the same name which hasn't
+	 * been written yet. This should only be used for updates which completely overwrite some state, since the
+	 * replaced update is never sent. */
+	void sendCoalesced(int id, String name, LoaderValue value) {
+		enqueue(new CoalesceKey(id, name), value);
+	}
+
+	private void enqueue(Object key, LoaderValue value) {
+		synchronized (pendingLock) {
+			if (pending == null) {
+				return;
+			}
+			// Always move the update to the end, since it might depend on something sent since the previous one
+			pending.remove(key);
+			pending.put(key, value);
+			pendingLock.notifyAll();
+		}
+	}
+
+	/** Blocks until at least one message is pending (or we've been closed), waits for {@link #FRAME_INTERVAL}, and
+	 * then removes every pending message.
+	 *
+	 * @return The messages to send, or null if we've been closed. */
+	List<LoaderValue> takeBatch() throws InterruptedException {
+		synchronized (pendingLock) {
+			while (pending != null && pending.isEmpty()) {
+				pendingLock.wait();
+			}
+			if (pending == null) {
+				return null;
 			}
-		} catch (InterruptedException e) {
-			e.printStackTrace();
+		}
+
+		if (FRAME_INTERVAL > 0) {
+			Thread.sleep(FRAME_INTERVAL);
+		}
+
+		synchronized (pendingLock) {
+			if (pending == null) {
+				return null;
+			}
+			List<LoaderValue> batch = new ArrayList<>(pending.values());
+			pending.clear();
+			return batch;
 		}
 	}
 
@@ -214,10 +264,17 @@ public class MuonForkComms {
 
 	public void close() {
 		closed = true;
-		writerQueue = null;
+		clearPending();
 		currentComms.compareAndSet(this, null);
 	}
 
+	private void clearPending() {
+		synchronized (pendingLock) {
+			pending = null;
+			pendingLock.notifyAll();
+		}
+	}
+
 	public boolean isClosed() {
 		return closed;
 	}
@@ -274,7 +331,7 @@ public class MuonForkComms {
 
 	private final class FailedSender extends Sender {
 		FailedSender() {
-			writerQueue = null;
+			clearPending();
 		}
 	}
 
@@ -324,24 +381,25 @@ public class MuonForkComms {
 
 		private void runWriter() {
 			try {
-				DataOutputStream stream = new DataOutputStream(socket.getOutputStream());
+				DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+				ForkCommCodec.Encoder encoder = new ForkCommCodec.Encoder();
 				while (true) {
 					try {
-						BlockingQueue<LoaderValue> queue = writerQueue;
-						LoaderValue value = queue == null ? lvf().nul() : queue.take();
+						List<LoaderValue> batch = takeBatch();
+						boolean closing = batch == null;
+						if (closing) {
+							batch = Collections.singletonList(lvf().nul());
+						}
 						if (PRINT_NET_PACKETS) {
-							ByteArrayOutputStream baos = new ByteArrayOutputStream();
-							LoaderValueFactory.getFactory().write(value, baos);
-							String json = new String(baos.toByteArray(), StandardCharsets.UTF_8);
-							Log.info(LogCategory.GUI, "Sending packet: " + json);
+							for (LoaderValue value : batch) {
+								ByteArrayOutputStream baos = new ByteArrayOutputStream();
+								LoaderValueFactory.getFactory().write(value, baos);
+								String json = new String(baos.toByteArray(), StandardCharsets.UTF_8);
+								Log.info(LogCategory.GUI, "Sending packet: " + json);
+							}
 						}
-						ByteArrayOutputStream baos = new ByteArrayOutputStream();
-						lvf().write(value, baos);
-						byte[] written = baos.toByteArray();
-						stream.writeInt(written.length);
-						stream.write(written);
-						if (queue == null) {
-							// Closed
+						encoder.writeFrame(batch, stream);
+						if (closing) {
 							return;
 						}
 					} catch (InterruptedException e) {
@@ -365,11 +423,17 @@ public class MuonForkComms {
 				DataInputStream stream = new DataInputStream(watchStream);
 				while (true) {
 					int length = stream.readInt();
-					LoaderValue value = lvf().read(new LimitedInputStream(stream, length));
-					handler.execute(() -> readMessage(value));
-					if (value.type() == LType.NULL) {
-						close();
-						return;
+					if (length < 0) {
+						throw new IOException("Bad frame length " + length);
+					}
+					byte[] frame = new byte[length];
+					stream.readFully(frame);
+					for (LoaderValue value : ForkCommCodec.readFrame(frame)) {
+						handler.execute(() -> readMessage(value));
+						if (value.type() == LType.NULL) {
+							close();
+							return;
+						}
 					}
 				}
 			} catch (IOException e) {
@@ -406,6 +470,33 @@ public class MuonForkComms {
 		}
 	}
 
+	private static final class CoalesceKey {
+		final int id;
+		final String name;
+
+		CoalesceKey(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof CoalesceKey)) {
+				return false;
+			}
+			CoalesceKey other = (CoalesceKey) obj;
+			return id == other.id && name.equals(other.name);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(id, name);
+		}
+	}
+
 	/** An {@link InputStream} which sets {@link WatchingInputStream#eof} to true when the underlying input stream
 	 * returns -1 from {@link InputStream#read()}. */
 	static final class WatchingInputStream extends InputStream {
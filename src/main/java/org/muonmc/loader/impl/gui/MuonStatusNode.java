@@ -54,10 +54,24 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 		default void onChildAdded(MuonStatusNode child) {}
 	}
 
+	/** If true then nodes created from now on are {@link #deferred}. This is enabled when no window can be opened, since
+	 * the tree is then only used to check for errors. */
+	private static volatile boolean headlessMode;
+
+	/** Shared between every deferred node which doesn't have an icon, since most never get one. */
+	private static PluginIconImpl sharedBlankIcon;
+
+	/** Deferred nodes don't compute their text, or sort their children, until something actually needs them. (Either
+	 * writing them to a window, or reading them for a report). */
+	private final boolean deferred;
+
 	private MuonLoaderText apiText = MuonLoaderText.EMPTY;
+
+	/** The string form of {@link #apiText}. Null if this is {@link #deferred} and it hasn't been computed yet - use
+	 * {@link #textString()} instead of reading this directly. */
 	String text = "";
 
-	PluginIconImpl icon = new PluginIconImpl();
+	PluginIconImpl icon;
 
 	MuonWarningLevel level = MuonWarningLevel.NONE;
 	MuonWarningLevel maxLevel = MuonWarningLevel.NONE;
@@ -67,16 +81,20 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 
 	final List<MuonStatusNode> childNodesByAddition = new ArrayList<>();
 	final List<MuonStatusNode> childNodesByAlphabetical = new ArrayList<>();
+	private boolean alphabeticalChildrenUnsorted;
 
 	/** Extra text for more information. Lines should be separated by "\n". */
 	public String details;
 
 	MuonStatusNode(QuiltGuiSyncBase parent) {
 		super(parent);
+		deferred = headlessMode;
+		icon = blankIcon();
 	}
 
 	MuonStatusNode(QuiltGuiSyncBase parent, LoaderValue.LObject obj) throws IOException {
 		super(parent, obj);
+		deferred = false;
 		text = HELPER.expectString(obj, "name");
 		icon = readChild(HELPER.expectValue(obj, "icon"), PluginIconImpl.class);
 		level = HELPER.expectEnum(MuonWarningLevel.class, obj, "level");
@@ -91,9 +109,35 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 		}
 	}
 
+	/** Controls whether new nodes are deferred. Existing nodes are unaffected. */
+	public static void setHeadlessMode(boolean headless) {
+		headlessMode = headless;
+	}
+
+	private PluginIconImpl blankIcon() {
+		if (!deferred) {
+			return new PluginIconImpl();
+		}
+		synchronized (MuonStatusNode.class) {
+			if (sharedBlankIcon == null) {
+				sharedBlankIcon = new PluginIconImpl();
+			}
+			return sharedBlankIcon;
+		}
+	}
+
+	String textString() {
+		String str = text;
+		if (str == null) {
+			text = str = apiText.toString();
+		}
+		return str;
+	}
+
 	@Override
 	protected void write0(Map<String, LoaderValue> map) {
-		map.put("name", lvf().string(text));
+		sortChildrenIfNeeded();
+		map.put("name", lvf().string(textString()));
 		map.put("icon", writeChild(icon));
 		map.put("level", lvf().string(level.name()));
 		map.put("maxLevel", lvf().string(maxLevel.name()));
@@ -153,7 +197,7 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 	public MuonTreeNode icon(MuonLoaderIcon icon) {
 		this.icon = PluginIconImpl.fromApi(icon);
 		if (this.icon == null) {
-			this.icon = new PluginIconImpl();
+			this.icon = blankIcon();
 		}
 		invokeListeners(TreeNodeListener.class, TreeNodeListener::onIconChanged);
 		if (shouldSendUpdates()) {
@@ -172,7 +216,7 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 	@Override
 	public MuonStatusNode text(MuonLoaderText text) {
 		apiText = Objects.requireNonNull(text);
-		this.text = text.toString();
+		this.text = deferred ? null : text.toString();
 		MuonStatusNode p = parent();
 		if (p != null) {
 			p.sortChildren();
@@ -180,7 +224,7 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 		invokeListeners(TreeNodeListener.class, TreeNodeListener::onTextChanged);
 		if (shouldSendUpdates()) {
 			Map<String, LoaderValue> map = new HashMap<>();
-			map.put("text", lvf().string(this.text));
+			map.put("text", lvf().string(textString()));
 			sendUpdate("set_text", lvf().object(map));
 		}
 		return this;
@@ -303,6 +347,7 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 	}
 
 	void forEachChild(Consumer<? super MuonStatusNode> consumer) {
+		sortChildrenIfNeeded();
 		childNodesByAddition.forEach(consumer);
 		childNodesByAlphabetical.forEach(consumer);
 	}
@@ -355,12 +400,23 @@ public final class MuonStatusNode extends QuiltGuiSyncBase implements MuonTreeNo
 	}
 
 	private void sortChildren() {
+		alphabeticalChildrenUnsorted = true;
+		if (!deferred || shouldSendUpdates()) {
+			sortChildrenIfNeeded();
+		}
+	}
+
+	private void sortChildrenIfNeeded() {
+		if (!alphabeticalChildrenUnsorted) {
+			return;
+		}
+		alphabeticalChildrenUnsorted = false;
 		childNodesByAlphabetical.sort((a, b) -> {
 			int cmp = a.sortPrefix.compareTo(b.sortPrefix);
 			if (cmp != 0) {
 				return cmp;
 			}
-			return a.text.compareTo(b.text);
+			return a.textString().compareTo(b.textString());
 		});
 	}
 
@@ -63,29 +63,26 @@ abstract class QuiltGuiSyncBase {
 	final int id;
 	Map<Integer, QuiltGuiSyncBase> children;
 	private WriteState writeState = WriteState.NOT_YET;
+	private boolean registered;
 
 	final List<Listener> listeners = new ArrayList<>();
 
-	private QuiltGuiSyncBase(QuiltGuiSyncBase parent, int id) {
+	private QuiltGuiSyncBase(QuiltGuiSyncBase parent, int id, boolean register) {
 		this.parent = parent;
 		this.id = id;
-		ALL_OBJECTS.put(id, this);
-		if (parent != null) {
-			synchronized (parent) {
-				if (parent.children == null) {
-					parent.children = new HashMap<>();
-				}
-				parent.children.put(id, this);
-			}
+		if (register) {
+			register();
 		}
 	}
 
+	/** Creates a new local object. This isn't added to {@link #ALL_OBJECTS} until it's written, since the other side
+	 * can't reference it (or send updates to it) before then. */
 	public QuiltGuiSyncBase(QuiltGuiSyncBase parent) {
-		this(parent, IDS.incrementAndGet());
+		this(parent, IDS.incrementAndGet(), false);
 	}
 
 	public QuiltGuiSyncBase(QuiltGuiSyncBase parent, LoaderValue.LObject obj) throws IOException {
-		this(parent, HELPER.expectNumber(obj, "id").intValue());
+		this(parent, HELPER.expectNumber(obj, "id").intValue(), true);
 		String readType = HELPER.expectString(obj, "syncType");
 		String expectedType = syncType();
 		if (!readType.equals(expectedType)) {
@@ -93,6 +90,22 @@ abstract class QuiltGuiSyncBase {
 		}
 	}
 
+	private void register() {
+		if (registered) {
+			return;
+		}
+		registered = true;
+		ALL_OBJECTS.put(id, this);
+		if (parent != null) {
+			synchronized (parent) {
+				if (parent.children == null) {
+					parent.children = new HashMap<>();
+				}
+				parent.children.put(id, this);
+			}
+		}
+	}
+
 	static void createObject(QuiltGuiSyncBase parent, LObject packet) throws IOException {
 		// Normally it's a bad idea to deserialise an unknown class from the network
 		// However since this only accepts connections to/from localhost rather than the wider network this is okay
@@ -164,10 +177,20 @@ abstract class QuiltGuiSyncBase {
 
 		MuonForkComms comms = MuonForkComms.getCurrentComms();
 		if (comms != null) {
-			comms.send(lvf().object(map));
+			if (isOverwritingUpdate(name)) {
+				comms.sendCoalesced(id, name, lvf().object(map));
+			} else {
+				comms.send(lvf().object(map));
+			}
 		}
 	}
 
+	/** @return True if the named update completely replaces the state set by any previous update with the same name,
+	 *         and so older (unsent) copies of it can be dropped. */
+	private static boolean isOverwritingUpdate(String name) {
+		return name.startsWith("set_");
+	}
+
 	void handleUpdate(String name, LObject data) throws IOException {
 		throw new IOException("Unknown remote update '" + name + "' in " + getClass());
 	}
@@ -190,6 +213,7 @@ abstract class QuiltGuiSyncBase {
 	}
 
 	public final LoaderValue.LObject write() {
+		register();
 		writeState = WriteState.STARTED;
 		Map<String, LoaderValue> map = new HashMap<>();
 		map.put("id", lvf().number(id));
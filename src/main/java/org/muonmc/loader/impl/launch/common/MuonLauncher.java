@@ -27,6 +27,7 @@ import java.util.jar.Manifest;
 
 import org.muonmc.loader.api.game.minecraft.Environment;
 import org.muonmc.loader.impl.entrypoint.GameTransformer;
+import org.muonmc.loader.impl.transformer.DenyLoadIndex;
 import org.muonmc.loader.api.ModContainer;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
@@ -41,6 +42,7 @@ public interface MuonLauncher {
 	void setTransformCache(URL insideTransformCache);
 	void setHiddenClasses(Set<String> classes);
 	void setHiddenClasses(Map<String, String> classes);
+	void setHiddenClasses(DenyLoadIndex classes);
 	void setPluginPackages(Map<String, ClassLoader> hiddenClasses);
 	void hideParentUrl(URL hidden);
 	void hideParentPath(Path obf);
@@ -59,6 +61,12 @@ public interface MuonLauncher {
 
 	URL getResourceURL(String name);
 
+	/** @return Every file on the game class path whose path starts with the given prefix, sorted by path. */
+	List<Path> getResourcesUnder(String prefix);
+
+	/** @return Every file on the game class path with the given extension, sorted by path. */
+	List<Path> getResourcesWithExtension(String extension);
+
 	ClassLoader getTargetClassLoader();
 
 	ClassLoader getClassLoader(ModContainer mod);
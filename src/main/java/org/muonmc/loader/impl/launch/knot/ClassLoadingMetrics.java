@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.launch.knot;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import javax.management.ObjectName;
+
+import org.jetbrains.annotations.Nullable;
+import org.muonmc.loader.api.ClassLoadingStats;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.SystemProperties;
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
+
+/** Per-mod counters for every class loaded by {@link KnotClassDelegate}. These are always enabled, so they only use
+ * {@link LongAdder}s (which don't contend between threads) and a single map lookup per class. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class ClassLoadingMetrics {
+
+	private static final Map<String, ModStats> STATS = new ConcurrentHashMap<>();
+
+	private ClassLoadingMetrics() {}
+
+	/** @return The stats for the given mod, creating them if they don't exist yet. */
+	static ModStats forMod(String modId) {
+		ModStats stats = STATS.get(modId);
+		if (stats == null) {
+			stats = STATS.computeIfAbsent(modId, ModStats::new);
+		}
+		return stats;
+	}
+
+	public static @Nullable ClassLoadingStats get(String modId) {
+		return STATS.get(modId);
+	}
+
+	public static Collection<ClassLoadingStats> getAll() {
+		return Collections.unmodifiableCollection(STATS.values());
+	}
+
+	/** Registers an MBean which exposes every mod's stats. This is done on a separate thread, since creating the
+	 * platform MBean server can be quite slow. */
+	static void registerMBean() {
+		if (Boolean.getBoolean(SystemProperties.DISABLE_CLASS_LOADING_MBEAN)) {
+			return;
+		}
+
+		Thread thread = new Thread(() -> {
+			try {
+				ObjectName name = new ObjectName("org.muonmc.loader:type=ClassLoading");
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MBeanImpl(), name);
+			} catch (Exception | LinkageError e) {
+				Log.warn(LogCategory.GENERAL, "Failed to register the class loading MBean", e);
+			}
+		}, "Muon Class Loading MBean Registration");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	static final class ModStats implements ClassLoadingStats {
+		final String modId;
+		final LongAdder classesDefined = new LongAdder();
+		final LongAdder bytesRead = new LongAdder();
+		final LongAdder lookupNanos = new LongAdder();
+		final LongAdder mixinNanos = new LongAdder();
+		final LongAdder defineNanos = new LongAdder();
+
+		ModStats(String modId) {
+			this.modId = modId;
+		}
+
+		@Override
+		public String modId() {
+			return modId;
+		}
+
+		@Override
+		public long classesDefined() {
+			return classesDefined.sum();
+		}
+
+		@Override
+		public long bytesRead() {
+			return bytesRead.sum();
+		}
+
+		@Override
+		public long lookupNanos() {
+			return lookupNanos.sum();
+		}
+
+		@Override
+		public long mixinNanos() {
+			return mixinNanos.sum();
+		}
+
+		@Override
+		public long defineNanos() {
+			return defineNanos.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "ClassLoadingStats{" + modId + ", " + classesDefined() + " classes}";
+		}
+	}
+
+	/** Every attribute is a map from mod id to the corresponding value in {@link ClassLoadingStats}. */
+	public interface ClassLoadingMetricsMXBean {
+		Map<String, Long> getClassesDefined();
+
+		Map<String, Long> getBytesRead();
+
+		Map<String, Long> getLookupNanos();
+
+		Map<String, Long> getMixinNanos();
+
+		Map<String, Long> getDefineNanos();
+	}
+
+	private static final class MBeanImpl implements ClassLoadingMetricsMXBean {
+		@Override
+		public Map<String, Long> getClassesDefined() {
+			return collect(ClassLoadingStats::classesDefined);
+		}
+
+		@Override
+		public Map<String, Long> getBytesRead() {
+			return collect(ClassLoadingStats::bytesRead);
+		}
+
+		@Override
+		public Map<String, Long> getLookupNanos() {
+			return collect(ClassLoadingStats::lookupNanos);
+		}
+
+		@Override
+		public Map<String, Long> getMixinNanos() {
+			return collect(ClassLoadingStats::mixinNanos);
+		}
+
+		@Override
+		public Map<String, Long> getDefineNanos() {
+			return collect(ClassLoadingStats::defineNanos);
+		}
+
+		private static Map<String, Long> collect(ToLongFunction<ClassLoadingStats> getter) {
+			Map<String, Long> map = new TreeMap<>();
+			for (ModStats stats : STATS.values()) {
+				map.put(stats.modId, getter.applyAsLong(stats));
+			}
+			return map;
+		}
+	}
+}
@@ -27,6 +27,7 @@ import org.muonmc.loader.impl.FormattedException;
 import org.muonmc.loader.impl.MuonLoaderImpl;
 import org.muonmc.loader.impl.config.MuonConfigImpl;
 import org.muonmc.loader.impl.game.GameProvider;
+import org.muonmc.loader.impl.transformer.DenyLoadIndex;
 import org.muonmc.loader.impl.util.FileUtil;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
@@ -90,6 +91,48 @@ public final class Knot extends MuonLauncherBase {
 	}
 
 	public ClassLoader init(String[] args) {
+		MuonLoaderImpl loader = initLoader(args);
+		loader.freeze();
+
+		MixinBootstrap.init();
+		MuonMixinBootstrap.init(getEnvironmentType(), loader);
+		MuonLauncherBase.finishMixinBootstrapping();
+
+		classLoader.getDelegate().initializeTransformers();
+
+		provider.unlockClassPath(this);
+		unlocked = true;
+
+		MuonConfigImpl.init();
+
+		try {
+			// If the very first class transformed by mixin is also referenced by a mixin config
+			// then we'll crash due to an "attempted duplicate class definition"
+			// Since this target class is *very unlikely* to be referenced by mixin we forcibly load it.
+			classLoader.loadIntoTarget("org.muonmc.loader.impl.launch.knot.UnusedEmptyTargetClass");
+		} catch (ClassNotFoundException cnfe) {
+			Log.warn(LogCategory.KNOT, "Early non-mixin-config related class failed to load!");
+			Log.warn(LogCategory.KNOT, "If you get a 'LinkageError' of 'attempted duplicated * definition' after this then this error is the cause!", cnfe);
+		}
+
+		classLoader.getDelegate().afterMixinIntiializeFinished();
+
+		loader.invokePreLaunch();
+
+		return (ClassLoader) classLoader;
+	}
+
+	/** Locates and initialises the game provider, and then loads every mod (which populates every cache) - but doesn't
+	 * freeze the loader or touch mixin. Used directly by {@link KnotCacheWarmup}. */
+	MuonLoaderImpl initLoader(String[] args) {
+		MuonLoaderImpl loader = initGame(args);
+		loader.load();
+		return loader;
+	}
+
+	/** Locates and initialises the game provider, and passes it to the loader - but doesn't load any mods. Used
+	 * directly by {@link KnotModSetValidator}. */
+	MuonLoaderImpl initGame(String[] args) {
 		setProperties(properties);
 
 		// configure fabric vars
@@ -138,6 +181,7 @@ public final class Knot extends MuonLauncherBase {
 		classLoader = useCompatibility ? new KnotCompatibilityClassLoader(isDevelopment(), environment, provider) : new KnotClassLoader(isDevelopment(),
 				environment, provider);
 		ClassLoader cl = (ClassLoader) classLoader;
+		ClassLoadingMetrics.registerMBean();
 
 		provider.initialize(this);
 
@@ -145,35 +189,7 @@ public final class Knot extends MuonLauncherBase {
 
 		MuonLoaderImpl loader = MuonLoaderImpl.INSTANCE;
 		loader.setGameProvider(provider);
-		loader.load();
-		loader.freeze();
-
-		MixinBootstrap.init();
-		MuonMixinBootstrap.init(getEnvironmentType(), loader);
-		MuonLauncherBase.finishMixinBootstrapping();
-
-		classLoader.getDelegate().initializeTransformers();
-
-		provider.unlockClassPath(this);
-		unlocked = true;
-
-		MuonConfigImpl.init();
-
-		try {
-			// If the very first class transformed by mixin is also referenced by a mixin config
-			// then we'll crash due to an "attempted duplicate class definition"
-			// Since this target class is *very unlikely* to be referenced by mixin we forcibly load it.
-			classLoader.loadIntoTarget("org.muonmc.loader.impl.launch.knot.UnusedEmptyTargetClass");
-		} catch (ClassNotFoundException cnfe) {
-			Log.warn(LogCategory.KNOT, "Early non-mixin-config related class failed to load!");
-			Log.warn(LogCategory.KNOT, "If you get a 'LinkageError' of 'attempted duplicated * definition' after this then this error is the cause!", cnfe);
-		}
-
-		classLoader.getDelegate().afterMixinIntiializeFinished();
-
-		loader.invokePreLaunch();
-
-		return cl;
+		return loader;
 	}
 
 	private GameProvider createGameProvider(String[] args) {
@@ -317,6 +333,11 @@ public final class Knot extends MuonLauncherBase {
 		classLoader.getDelegate().setHiddenClasses(hiddenClasses);
 	}
 
+	@Override
+	public void setHiddenClasses(DenyLoadIndex hiddenClasses) {
+		classLoader.getDelegate().setHiddenClasses(hiddenClasses);
+	}
+
 	@Override
 	public void setPluginPackages(Map<String, ClassLoader> hiddenClasses) {
 		classLoader.getDelegate().setPluginPackages(hiddenClasses);
@@ -407,6 +428,16 @@ public final class Knot extends MuonLauncherBase {
 		return classLoader.getResource(name, false);
 	}
 
+	@Override
+	public List<Path> getResourcesUnder(String prefix) {
+		return classLoader.getResourcesUnder(prefix);
+	}
+
+	@Override
+	public List<Path> getResourcesWithExtension(String extension) {
+		return classLoader.getResourcesWithExtension(extension);
+	}
+
 	@Override
 	public ClassLoader getTargetClassLoader() {
 		return (ClassLoader) classLoader;
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.launch.knot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.muonmc.loader.api.FasterFiles;
+import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.api.plugin.ModContainerExt;
+import org.muonmc.loader.impl.FormattedException;
+import org.muonmc.loader.impl.MuonLoaderImpl;
+import org.muonmc.loader.impl.transformer.TransformCacheManager;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.SystemProperties;
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
+
+/** Headless entry point which performs every step of a launch which writes to the cache directory (game jar
+ * remapping, mod discovery and solving, and transform cache generation) and then verifies the results, without
+ * launching the game. This is intended for baking a warm cache into an immutable image (for example a container),
+ * so that the first real launch can reuse it.
+ * <p>
+ * Usage: {@code KnotCacheWarmup --environment <client|server> [--modsDir <dir>] [game arguments...]}
+ * <p>
+ * Every argument not listed above is passed to the game provider, so (for minecraft) the game directory is set with
+ * {@code --gameDir}. Exits with 0 if the caches were generated and verified, or 1 otherwise. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class KnotCacheWarmup {
+
+	private KnotCacheWarmup() {}
+
+	public static void main(String[] args) {
+		Environment environment = null;
+		List<String> gameArgs = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (("--environment".equals(arg) || "--modsDir".equals(arg)) && i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + arg);
+			}
+			if ("--environment".equals(arg)) {
+				environment = parseEnvironment(args[++i]);
+			} else if ("--modsDir".equals(arg)) {
+				System.setProperty(SystemProperties.MODS_DIRECTORY, args[++i]);
+			} else {
+				gameArgs.add(arg);
+			}
+		}
+
+		if (environment == null) {
+			String side = System.getProperty(SystemProperties.SIDE);
+			if (side == null) {
+				throw new IllegalArgumentException("Please specify the environment with '--environment <client|server>'");
+			}
+			environment = parseEnvironment(side);
+		}
+
+		// There's no one to show a window to
+		System.setProperty("java.awt.headless", "true");
+		System.setProperty(SystemProperties.DISABLE_FORKED_GUIS, "true");
+
+		boolean success;
+		try {
+			success = warmUp(environment, gameArgs.toArray(new String[0]));
+		} catch (FormattedException e) {
+			Log.error(LogCategory.CACHE, e.getMainText(), e.getMessage() != null ? e : e.getCause());
+			success = false;
+		}
+
+		System.exit(success ? 0 : 1);
+	}
+
+	static Environment parseEnvironment(String side) {
+		switch (side.toLowerCase(Locale.ROOT)) {
+			case "client":
+				return Environment.CLIENT;
+			case "server":
+			case "dedicated_server":
+				return Environment.DEDICATED_SERVER;
+			default:
+				throw new IllegalArgumentException("Invalid environment '" + side + "': must be \"client\" or \"server\"!");
+		}
+	}
+
+	/** @return True if every cache was generated, and could be read back afterwards. */
+	static boolean warmUp(Environment environment, String[] gameArgs) {
+		long start = System.nanoTime();
+		Knot knot = new Knot(environment);
+		MuonLoaderImpl loader = knot.initLoader(gameArgs);
+		long loaded = System.nanoTime();
+
+		Log.info(LogCategory.CACHE, "Generated caches in %dms, verifying them...", (loaded - start) / 1_000_000);
+
+		if (knot.isDevelopment()) {
+			Log.warn(LogCategory.CACHE, "Transform caches are never reused in a development environment!");
+		}
+
+		boolean success = true;
+
+		try {
+			int count = TransformCacheManager.verifyTransformCache(loader.getTransformCacheFolder());
+			Log.info(LogCategory.CACHE, "Verified %d files in the transform cache", count);
+		} catch (IOException e) {
+			Log.error(LogCategory.CACHE, "Failed to verify the transform cache!", e);
+			success = false;
+		}
+
+		Path remappedJars = loader.getLoaderCacheDir().resolve(MuonLoaderImpl.REMAPPED_JARS_DIR_NAME);
+		try {
+			int count = verifyRemappedJars(remappedJars);
+			Log.info(LogCategory.CACHE, "Verified %d remapped game jars", count);
+		} catch (IOException e) {
+			Log.error(LogCategory.CACHE, "Failed to verify the remapped game jars in " + remappedJars, e);
+			success = false;
+		}
+
+		for (ModContainerExt mod : loader.getAllModsExt()) {
+			if (!FasterFiles.exists(mod.rootPath())) {
+				Log.error(LogCategory.CACHE, "The root of " + mod.metadata().id() + " (" + mod.rootPath() + ") doesn't exist!");
+				success = false;
+			}
+		}
+
+		long verified = System.nanoTime();
+		if (success) {
+			Log.info(LogCategory.CACHE, "Verified every cache in %dms", (verified - loaded) / 1_000_000);
+		}
+		return success;
+	}
+
+	private static int verifyRemappedJars(Path folder) throws IOException {
+		if (!Files.isDirectory(folder)) {
+			// Nothing to remap, for example in a development environment
+			return 0;
+		}
+		int[] count = { 0 };
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				String name = file.getFileName().toString();
+				if (name.endsWith(".tmp")) {
+					throw new IOException("Found an incompletely remapped jar " + file);
+				}
+				if (name.endsWith(".jar")) {
+					verifyJar(file);
+					count[0]++;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return count[0];
+	}
+
+	private static void verifyJar(Path file) throws IOException {
+		byte[] buffer = new byte[8192];
+		try (JarFile jar = new JarFile(file.toFile())) {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				JarEntry entry = entries.nextElement();
+				// Reading every entry fully makes the zip code check its crc
+				try (InputStream stream = jar.getInputStream(entry)) {
+					while (stream.read(buffer) >= 0) {
+						// Just read it
+					}
+				}
+			}
+		}
+	}
+}
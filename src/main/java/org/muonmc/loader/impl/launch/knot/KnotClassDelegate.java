@@ -24,6 +24,7 @@ import org.muonmc.loader.api.ModContainer;
 import org.muonmc.loader.api.MuonLoader;
 import org.muonmc.loader.impl.game.GameProvider;
 import org.muonmc.loader.impl.patch.PatchLoader;
+import org.muonmc.loader.impl.transformer.DenyLoadIndex;
 import org.muonmc.loader.impl.util.FileSystemUtil;
 import org.muonmc.loader.impl.util.FileUtil;
 import org.muonmc.loader.impl.util.ManifestUtil;
@@ -119,7 +120,7 @@ class KnotClassDelegate {
 	private IMixinTransformer mixinTransformer;
 	private boolean transformInitialized = false;
 	private boolean transformFinishedLoading = false;
-	private Map<String, String> hiddenClasses = Collections.emptyMap();
+	private DenyLoadIndex hiddenClasses = DenyLoadIndex.EMPTY;
 	private String transformCacheUrl;
 	private final Map<String, String[]> allowedPrefixes = new ConcurrentHashMap<>();
 	private final Set<String> parentSourcedClasses = Collections.newSetFromMap(new ConcurrentHashMap<>());
@@ -128,9 +129,6 @@ class KnotClassDelegate {
 	 * in this loader. */
 	private final Set<String> parentHiddenUrls = Collections.newSetFromMap(new ConcurrentHashMap<>());
 
-	/** Map of package to the reason why it cannot be loaded. If the package can be loaded then the value is the empty string. */
-	private final Map<String, String> packageLoadDenyCache = new ConcurrentHashMap<>();
-
 	private Map<String, ClassLoader> pluginPackages = Collections.emptyMap();
 
 	KnotClassDelegate(boolean isDevelopment, Environment environment, KnotClassLoaderInterface itf, GameProvider provider) {
@@ -215,7 +213,9 @@ class KnotClassDelegate {
 			}
 		}
 
+		long lookupStart = System.nanoTime();
 		URL url = getClassUrl(name, allowFromParent);
+		long lookupNanos = System.nanoTime() - lookupStart;
 
 		if (!allowFromParent && shouldRerouteToParent(name)) {
 			// Force slf4j itself to be loaded on a single classloader
@@ -274,10 +274,7 @@ class KnotClassDelegate {
 		String pkgString = pkgDelimiterPos > 0 ? name.substring(0, pkgDelimiterPos) : null;
 
 		if (pkgString != null) {
-			final boolean allowFromParentFinal = allowFromParent;
-			String denyReason = packageLoadDenyCache.computeIfAbsent(pkgString, pkgName -> {
-				return computePackageDenyLoadReason(pkgName, allowFromParentFinal);
-			});
+			String denyReason = hiddenClasses.getPackageReason(pkgString);
 
 			if (denyReason != null && !denyReason.isEmpty()) {
 				throw new RuntimeException("Cannot load package " + pkgString + " " + denyReason);
@@ -294,7 +291,15 @@ class KnotClassDelegate {
 			throw new RuntimeException("Cannot load " + name + " " + hideReason);
 		}
 
-		byte[] input = getPostMixinClassByteArray(url, name);
+		lookupStart = System.nanoTime();
+		byte[] input = getPreMixinClassByteArray(url, name);
+		int bytesRead = input != null ? input.length : 0;
+
+		long mixinStart = System.nanoTime();
+		lookupNanos += mixinStart - lookupStart;
+		// Mixin can generate classes which don't exist, so this has to happen before the null check
+		input = applyMixins(name, input);
+		long mixinNanos = System.nanoTime() - mixinStart;
 		if (input == null) return null;
 
 		if (allowFromParent) {
@@ -343,7 +348,18 @@ class KnotClassDelegate {
 			}
 		}
 
+		long defineStart = System.nanoTime();
 		c = itf.defineClassFwd(name, input, 0, input.length, metadata.codeSource);
+		long defineNanos = System.nanoTime() - defineStart;
+
+		if (modId != null) {
+			ClassLoadingMetrics.ModStats stats = ClassLoadingMetrics.forMod(modId);
+			stats.classesDefined.increment();
+			stats.bytesRead.add(bytesRead);
+			stats.lookupNanos.add(lookupNanos);
+			stats.mixinNanos.add(mixinNanos);
+			stats.defineNanos.add(defineNanos);
+		}
 
 		if (Boolean.getBoolean(SystemProperties.DEBUG_CLASS_TO_MOD)) {
 			StringBuilder text = new StringBuilder(name);
@@ -364,12 +380,6 @@ class KnotClassDelegate {
 		return name.startsWith("org.slf4j.") || name.startsWith("org.apache.logging.log4j.");
 	}
 
-	private String computePackageDenyLoadReason(String pkgName, boolean allowFromParent) {
-		String fileName = pkgName + ".package-info";
-		String hideReason = hiddenClasses.get(fileName);
-		return hideReason != null ? hideReason : "";
-	}
-
 	Metadata getMetadata(String name, URL resourceURL) {
 		if (resourceURL == null) return Metadata.EMPTY;
 
@@ -484,8 +494,10 @@ class KnotClassDelegate {
 	}
 
 	public byte[] getPostMixinClassByteArray(URL url, String name) {
-		byte[] transformedClassArray = getPreMixinClassByteArray(url, name);
+		return applyMixins(name, getPreMixinClassByteArray(url, name));
+	}
 
+	private byte[] applyMixins(String name, byte[] transformedClassArray) {
 		if (!transformInitialized || !canTransformClass(name)) {
 			return transformedClassArray;
 		}
@@ -573,6 +585,10 @@ class KnotClassDelegate {
 	}
 
 	void setHiddenClasses(Map<String, String> hiddenClasses) {
+		setHiddenClasses(DenyLoadIndex.of(hiddenClasses));
+	}
+
+	void setHiddenClasses(DenyLoadIndex hiddenClasses) {
 		this.hiddenClasses = hiddenClasses;
 	}
 
@@ -217,6 +217,18 @@ class KnotClassLoader extends SecureClassLoader implements KnotClassLoaderInterf
 		};
 	}
 
+	/** @see MuonClassPath#getResourcesUnder(String) */
+	@Override
+	public List<Path> getResourcesUnder(String prefix) {
+		return paths.getResourcesUnder(prefix);
+	}
+
+	/** @see MuonClassPath#getResourcesWithExtension(String) */
+	@Override
+	public List<Path> getResourcesWithExtension(String extension) {
+		return paths.getResourcesWithExtension(extension);
+	}
+
 	@Override
 	public void resolveClassFwd(Class<?> c) {
 		resolveClass(c);
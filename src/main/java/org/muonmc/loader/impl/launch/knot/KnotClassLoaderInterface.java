@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Path;
+import java.util.List;
 
 import org.muonmc.loader.api.ModContainer;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
@@ -36,4 +37,6 @@ interface KnotClassLoaderInterface extends KnotBaseClassLoader {
 	URL getResource(String name);
 	URL getResource(String name, boolean allowFromParent);
 	InputStream getResourceAsStream(String filename, boolean allowFromParent) throws IOException;
+	List<Path> getResourcesUnder(String prefix);
+	List<Path> getResourcesWithExtension(String extension);
 }
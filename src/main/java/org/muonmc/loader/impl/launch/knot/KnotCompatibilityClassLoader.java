@@ -19,6 +19,7 @@ package org.muonmc.loader.impl.launch.knot;
 
 import org.muonmc.loader.api.ModContainer;
 import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.impl.filesystem.MuonClassPath;
 import org.muonmc.loader.impl.game.GameProvider;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
@@ -31,10 +32,14 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.nio.file.Path;
 import java.security.CodeSource;
+import java.util.List;
 
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 class KnotCompatibilityClassLoader extends URLClassLoader implements KnotClassLoaderInterface {
 	private final KnotClassDelegate delegate;
+	/** Only used for {@link #getResourcesUnder(String)} and {@link #getResourcesWithExtension(String)}, since every
+	 * other lookup goes through the {@link URLClassLoader}. */
+	private final MuonClassPath paths = new MuonClassPath();
 
 	KnotCompatibilityClassLoader(boolean isDevelopment, Environment environment, GameProvider provider) {
 		super(new URL[0], KnotCompatibilityClassLoader.class.getClassLoader());
@@ -115,6 +120,20 @@ class KnotCompatibilityClassLoader extends URLClassLoader implements KnotClassLo
 		} catch (MalformedURLException e) {
 			throw new Error(e);
 		}
+		// Matches the roots KnotClassLoader adds to its MuonClassPath
+		if (root.getFileName() == null || !root.getFileName().toString().endsWith(".jar")) {
+			paths.addRoot(root);
+		}
+	}
+
+	@Override
+	public List<Path> getResourcesUnder(String prefix) {
+		return paths.getResourcesUnder(prefix);
+	}
+
+	@Override
+	public List<Path> getResourcesWithExtension(String extension) {
+		return paths.getResourcesWithExtension(extension);
 	}
 
 	@Override
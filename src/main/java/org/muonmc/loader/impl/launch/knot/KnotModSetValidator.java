@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.launch.knot;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.impl.FormattedException;
+import org.muonmc.loader.impl.MuonLoaderImpl;
+import org.muonmc.loader.impl.QuiltLoaderConfig;
+import org.muonmc.loader.impl.gui.MuonStatusNode;
+import org.muonmc.loader.impl.plugin.ModDiscoverySession;
+import org.muonmc.loader.impl.report.MuonReport;
+import org.muonmc.loader.impl.report.MuonReportedError;
+import org.muonmc.loader.impl.solver.ModSolveResultImpl;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.SystemProperties;
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
+
+/** Headless entry point which simulates mod discovery and solving for the mods folder, without loading any mods or
+ * launching the game. This is intended for validating a mod set before deploying it.
+ * <p>
+ * Usage: {@code KnotModSetValidator --environment <client|server> [--modsDir <dir>] [--watch] [game arguments...]}
+ * <p>
+ * With {@code --watch} this keeps running, and validates the mod set again whenever the mods folder changes. Only
+ * added and changed files are read again (see {@link ModDiscoverySession}). Otherwise this exits with 0 if the mod set
+ * is valid, or 1 if it isn't. Every other argument is passed to the game provider, like {@link KnotCacheWarmup}. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class KnotModSetValidator {
+
+	private KnotModSetValidator() {}
+
+	public static void main(String[] args) {
+		Environment environment = null;
+		boolean watch = false;
+		List<String> gameArgs = new ArrayList<>();
+
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (("--environment".equals(arg) || "--modsDir".equals(arg)) && i + 1 >= args.length) {
+				throw new IllegalArgumentException("Missing value for " + arg);
+			}
+			if ("--environment".equals(arg)) {
+				environment = KnotCacheWarmup.parseEnvironment(args[++i]);
+			} else if ("--modsDir".equals(arg)) {
+				System.setProperty(SystemProperties.MODS_DIRECTORY, args[++i]);
+			} else if ("--watch".equals(arg)) {
+				watch = true;
+			} else {
+				gameArgs.add(arg);
+			}
+		}
+
+		if (environment == null) {
+			String side = System.getProperty(SystemProperties.SIDE);
+			if (side == null) {
+				throw new IllegalArgumentException("Please specify the environment with '--environment <client|server>'");
+			}
+			environment = KnotCacheWarmup.parseEnvironment(side);
+		}
+
+		// There's no one to show a window to
+		System.setProperty("java.awt.headless", "true");
+		System.setProperty(SystemProperties.DISABLE_FORKED_GUIS, "true");
+		MuonStatusNode.setHeadlessMode(true);
+
+		boolean success;
+		try {
+			success = run(environment, gameArgs.toArray(new String[0]), watch);
+		} catch (FormattedException e) {
+			Log.error(LogCategory.DISCOVERY, e.getMainText(), e.getMessage() != null ? e : e.getCause());
+			success = false;
+		} catch (IOException e) {
+			Log.error(LogCategory.DISCOVERY, "Failed to watch the mods folder!", e);
+			success = false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			success = false;
+		}
+
+		System.exit(success ? 0 : 1);
+	}
+
+	private static boolean run(Environment environment, String[] gameArgs, boolean watch) throws IOException, InterruptedException {
+		Knot knot = new Knot(environment);
+		MuonLoaderImpl loader = knot.initGame(gameArgs);
+		Path gameDir = loader.getGameDir();
+		QuiltLoaderConfig config = new QuiltLoaderConfig(loader.getConfigDir().resolve("quilt-loader.txt"));
+
+		try (ModDiscoverySession session = new ModDiscoverySession(
+			gameDir, loader.getConfigDir(), loader.getModsDir(), loader.getCacheDir(), loader.getGameProvider(), config
+		)) {
+			boolean valid = validate(session, gameDir);
+			while (watch) {
+				Set<Path> changed = session.awaitChanges(1, TimeUnit.HOURS);
+				if (!changed.isEmpty()) {
+					Log.info(LogCategory.DISCOVERY, "%d files changed, validating the mod set again...", changed.size());
+					validate(session, gameDir);
+				}
+			}
+			return valid;
+		}
+	}
+
+	private static boolean validate(ModDiscoverySession session, Path gameDir) {
+		long start = System.nanoTime();
+		try {
+			ModSolveResultImpl result = session.resolve(true);
+			long time = (System.nanoTime() - start) / 1_000_000;
+			Log.info(LogCategory.DISCOVERY, "The mod set is valid: found %d mods in %dms", result.directMods().size(), time);
+			return true;
+		} catch (MuonReportedError reported) {
+			try {
+				Path file = reported.report.writeInDirectory(gameDir);
+				Log.error(LogCategory.DISCOVERY, "The mod set is invalid! Saved the report to " + file);
+			} catch (MuonReport.CrashReportSaveFailed e) {
+				Log.error(LogCategory.DISCOVERY, "The mod set is invalid, and the report couldn't be saved!");
+				System.err.println(e.fullReportText);
+			}
+			return false;
+		}
+	}
+}
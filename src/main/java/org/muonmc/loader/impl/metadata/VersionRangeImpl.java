@@ -98,7 +98,8 @@ public class VersionRangeImpl extends AbstractSet<VersionInterval> implements Ve
 
 	@Override
 	public Iterator<VersionInterval> iterator() {
-		return intervals.iterator();
+		// Ranges are shared between mods, so they can't be modified through the iterator
+		return Collections.unmodifiableSortedSet(intervals).iterator();
 	}
 
 	@Override
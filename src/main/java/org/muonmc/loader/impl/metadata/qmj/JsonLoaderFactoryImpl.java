@@ -26,7 +26,7 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.quiltmc.json5.JsonReader;
@@ -90,6 +90,6 @@ public final class JsonLoaderFactoryImpl implements LoaderValueFactory {
 
 	@Override
 	public LoaderValue.LObject object(Map<String, LoaderValue> map) {
-		return new JsonLoaderValue.ObjectImpl(LOCATION, new HashMap<>(map));
+		return new JsonLoaderValue.ObjectImpl(LOCATION, new LinkedHashMap<>(map));
 	}
 }
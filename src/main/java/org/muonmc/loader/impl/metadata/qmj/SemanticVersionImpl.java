@@ -18,9 +18,9 @@
 package org.muonmc.loader.impl.metadata.qmj;
 
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Objects;
-import java.util.StringTokenizer;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.muonmc.loader.api.Version;
 import org.muonmc.loader.api.VersionFormatException;
@@ -31,16 +31,54 @@ import net.fabricmc.loader.api.SemanticVersion;
 
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 public class SemanticVersionImpl implements Version.Semantic {
+	/** Every version created by {@link #of(String)} and {@link #ofAny(String)}, including the ones which aren't semantic,
+	 * so mods which depend on the same version share a single instance, which is only parsed once. */
+	private static final Map<String, Version> INTERNED = new ConcurrentHashMap<>();
+	/** Stops interning after this many versions, in case something parses lots of unique strings. */
+	private static final int MAX_INTERNED = 1 << 16;
+
 	private final String raw;
 	private final int[] components;
 	private final String preRelease;
 	private final String buildMeta;
 
-	private static final Pattern UNSIGNED_INTEGER = Pattern.compile("0|[1-9][0-9]*");
-	private static final Pattern DOT_SEPARATED_ID = Pattern.compile("|[-0-9A-Za-z]+(\\.[-0-9A-Za-z]+)*");
+	/** {@link #preRelease} split into its dot separated identifiers, so comparisons don't need to split it again. */
+	private final String[] preReleaseParts;
+	/** Whether each of {@link #preReleaseParts} is a number, which are compared differently to other identifiers. */
+	private final boolean[] preReleaseNumeric;
+	private final boolean preReleasePresent;
+	private final int hash;
 
 	public static SemanticVersionImpl of(String raw) throws VersionFormatException {
-		return ofInternal(raw, false);
+		Version version = INTERNED.get(raw);
+		if (version instanceof SemanticVersionImpl) {
+			return (SemanticVersionImpl) version;
+		}
+		// Strings which are already known not to be semantic are parsed again, so the exception has the right message
+		return (SemanticVersionImpl) intern(raw, ofInternal(raw, false));
+	}
+
+	/** Implements {@link Version#of(String)}, returning the same instance for the same string. */
+	public static Version ofAny(String raw) {
+		Version version = INTERNED.get(raw);
+		if (version != null) {
+			return version;
+		}
+
+		try {
+			version = ofInternal(raw, false);
+		} catch (VersionFormatException e) {
+			version = new GenericVersionImpl(raw);
+		}
+		return intern(raw, version);
+	}
+
+	private static Version intern(String raw, Version version) {
+		if (INTERNED.size() >= MAX_INTERNED) {
+			return version;
+		}
+		Version existing = INTERNED.putIfAbsent(raw, version);
+		return existing != null ? existing : version;
 	}
 
 	public static SemanticVersionImpl ofFabricPermittingWildcard(String raw) throws VersionFormatException {
@@ -73,7 +111,7 @@ public class SemanticVersionImpl implements Version.Semantic {
 			prerelease = "";
 		}
 
-		if (!prerelease.isEmpty() && !DOT_SEPARATED_ID.matcher(prerelease).matches()) {
+		if (!prerelease.isEmpty() && !isDotSeparatedId(prerelease)) {
 			throw new VersionFormatException("Invalid prerelease string '" + prerelease + "'!");
 		}
 
@@ -124,6 +162,70 @@ public class SemanticVersionImpl implements Version.Semantic {
 		return new SemanticVersionImpl(raw, components, prerelease, build);
 	}
 
+	/** Equivalent to matching {@code [-0-9A-Za-z]+(\.[-0-9A-Za-z]+)*}. */
+	private static boolean isDotSeparatedId(String str) {
+		boolean partStart = true;
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c == '.') {
+				if (partStart) {
+					return false;
+				}
+				partStart = true;
+			} else if (c == '-' || (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+				partStart = false;
+			} else {
+				return false;
+			}
+		}
+		return !partStart;
+	}
+
+	/** Equivalent to matching {@code 0|[1-9][0-9]*}. */
+	private static boolean isUnsignedInteger(String str) {
+		if (str.isEmpty() || (str.length() > 1 && str.charAt(0) == '0')) {
+			return false;
+		}
+		for (int i = 0; i < str.length(); i++) {
+			char c = str.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String[] splitPreRelease(String preRelease) {
+		if (preRelease.isEmpty()) {
+			return new String[0];
+		}
+		int count = 1;
+		for (int i = 0; i < preRelease.length(); i++) {
+			if (preRelease.charAt(i) == '.') {
+				count++;
+			}
+		}
+		String[] parts = new String[count];
+		int start = 0;
+		for (int i = 0; i < count; i++) {
+			int end = preRelease.indexOf('.', start);
+			if (end < 0) {
+				end = preRelease.length();
+			}
+			parts[i] = preRelease.substring(start, end);
+			start = end + 1;
+		}
+		return parts;
+	}
+
+	private static boolean[] findNumericParts(String[] parts) {
+		boolean[] numeric = new boolean[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			numeric[i] = isUnsignedInteger(parts[i]);
+		}
+		return numeric;
+	}
+
 	@Override
 	public int versionComponentCount() {
 		return components.length;
@@ -144,6 +246,10 @@ public class SemanticVersionImpl implements Version.Semantic {
 		this.components = Objects.requireNonNull(components, "components");
 		this.preRelease = Objects.requireNonNull(preRelease, "preRelease");
 		this.buildMeta = Objects.requireNonNull(buildMeta, "buildMeta");
+		this.preReleaseParts = splitPreRelease(preRelease);
+		this.preReleaseNumeric = findNumericParts(preReleaseParts);
+		this.preReleasePresent = !preRelease.isEmpty() || preRelease == EMPTY_BUT_PRESENT_PRERELEASE;
+		this.hash = Arrays.deepHashCode(new Object[] { raw, components, preRelease, buildMeta });
 	}
 
 	@Override
@@ -161,6 +267,11 @@ public class SemanticVersionImpl implements Version.Semantic {
 		return buildMeta;
 	}
 
+	@Override
+	public boolean isPreReleasePresent() {
+		return preReleasePresent;
+	}
+
 	@Override
 	public int compareTo(Version other) {
 		Objects.requireNonNull(other, "other");
@@ -178,6 +289,10 @@ public class SemanticVersionImpl implements Version.Semantic {
 	}
 
 	private int compareSemantic(Version.Semantic o) {
+		if (o == this) {
+			return 0;
+		}
+
 		for (int i = 0; i < Math.max(this.versionComponentCount(), o.versionComponentCount()); i++) {
 			int first = versionComponent(i);
 			int second = o.versionComponent(i);
@@ -186,47 +301,47 @@ public class SemanticVersionImpl implements Version.Semantic {
 			if (compare != 0) return compare;
 		}
 
+		boolean otherPreReleasePresent = o.isPreReleasePresent();
 
-		if (isPreReleasePresent() || o.isPreReleasePresent()) {
-			if (isPreReleasePresent() && o.isPreReleasePresent()) {
-				StringTokenizer prereleaseATokenizer = new StringTokenizer(preRelease(), ".");
-				StringTokenizer prereleaseBTokenizer = new StringTokenizer(o.preRelease(), ".");
+		if (!preReleasePresent || !otherPreReleasePresent) {
+			return preReleasePresent ? -1 : otherPreReleasePresent ? 1 : 0;
+		}
 
-				while (prereleaseATokenizer.hasMoreElements()) {
-					if (prereleaseBTokenizer.hasMoreElements()) {
-						String partA = prereleaseATokenizer.nextToken();
-						String partB = prereleaseBTokenizer.nextToken();
+		String[] otherParts;
+		boolean[] otherNumeric;
 
-						if (UNSIGNED_INTEGER.matcher(partA).matches()) {
-							if (UNSIGNED_INTEGER.matcher(partB).matches()) {
-								int compare = Integer.compare(partA.length(), partB.length());
-								if (compare != 0) return compare;
-							} else {
-								return -1;
-							}
-						} else {
-							if (UNSIGNED_INTEGER.matcher(partB).matches()) {
-								return 1;
-							}
-						}
+		if (o instanceof SemanticVersionImpl) {
+			otherParts = ((SemanticVersionImpl) o).preReleaseParts;
+			otherNumeric = ((SemanticVersionImpl) o).preReleaseNumeric;
+		} else {
+			otherParts = splitPreRelease(o.preRelease());
+			otherNumeric = findNumericParts(otherParts);
+		}
 
-						int compare = partA.compareTo(partB);
-						if (compare != 0) return compare;
-					} else {
-						return 1;
-					}
-				}
+		for (int i = 0; i < preReleaseParts.length; i++) {
+			if (i >= otherParts.length) {
+				return 1;
+			}
+
+			String partA = preReleaseParts[i];
+			String partB = otherParts[i];
 
-				return prereleaseBTokenizer.hasMoreElements() ? -1 : 0;
-			} else if (isPreReleasePresent()) {
-				return -1;
-			} else { // o.isPreReleasePresent()
+			if (preReleaseNumeric[i]) {
+				if (otherNumeric[i]) {
+					int compare = Integer.compare(partA.length(), partB.length());
+					if (compare != 0) return compare;
+				} else {
+					return -1;
+				}
+			} else if (otherNumeric[i]) {
 				return 1;
 			}
-		} else {
-			return 0;
+
+			int compare = partA.compareTo(partB);
+			if (compare != 0) return compare;
 		}
 
+		return otherParts.length > preReleaseParts.length ? -1 : 0;
 	}
 
 	@Override
@@ -239,7 +354,7 @@ public class SemanticVersionImpl implements Version.Semantic {
 
 	@Override
 	public int hashCode() {
-		return Arrays.deepHashCode(new Object[] { raw, components, preRelease, buildMeta });
+		return hash;
 	}
 
 	@Override
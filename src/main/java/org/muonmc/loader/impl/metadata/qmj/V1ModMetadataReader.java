@@ -31,6 +31,7 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.fabricmc.api.EnvType;
 
@@ -67,6 +68,11 @@ import org.muonmc.loader.impl.util.log.LogCategory;
 // TODO: Figure out a way to not need to always specify JsonLoaderValue everywhere so we can let other users and plugins have location data.
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 public final class V1ModMetadataReader {
+	/** Every range returned by {@link #readVersionSpecifier(String)}, keyed by the specifier. */
+	private static final Map<String, VersionRange> VERSION_SPECIFIERS = new ConcurrentHashMap<>();
+	/** Stops caching specifiers after this many, in case something reads lots of unique specifiers. */
+	private static final int MAX_VERSION_SPECIFIERS = 1 << 14;
+
 	public static V1ModMetadataImpl read(JsonLoaderValue.ObjectImpl root) {
 		return read(root, null, null, null);
 	}
@@ -930,6 +936,22 @@ public final class V1ModMetadataReader {
 			return VersionRange.ANY;
 		}
 
+		// Many mods use the same specifiers, so they can share the same (immutable) range
+		VersionRange range = VERSION_SPECIFIERS.get(string);
+
+		if (range == null) {
+			range = parseVersionSpecifier(string);
+
+			if (VERSION_SPECIFIERS.size() < MAX_VERSION_SPECIFIERS) {
+				VersionRange existing = VERSION_SPECIFIERS.putIfAbsent(string, range);
+				range = existing != null ? existing : range;
+			}
+		}
+
+		return range;
+	}
+
+	private static VersionRange parseVersionSpecifier(String string) throws VersionFormatException {
 		String withoutPrefix = string.substring(1);
 
 		switch (string.charAt(0)) {
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.plugin;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.muonmc.loader.api.plugin.NonZipException;
+import org.muonmc.loader.impl.QuiltLoaderConfig;
+import org.muonmc.loader.impl.game.GameProvider;
+import org.muonmc.loader.impl.report.MuonReportedError;
+import org.muonmc.loader.impl.solver.ModSolveResultImpl;
+import org.muonmc.loader.impl.util.FileStamp;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
+
+/** A long-lived mod discovery session, for repeatedly simulating mod loading while the mods folder changes (for example
+ * to validate a mod set before deploying it, see {@link org.muonmc.loader.impl.launch.knot.KnotModSetValidator}). Each
+ * {@link #resolve(boolean)} runs a new simulation-only {@link MuonPluginManagerImpl}, but the zip files it scans
+ * (including nested jars) and their hashes are kept between runs, until the {@link FileStamp} of the file changes. So
+ * only added and changed files are opened and hashed again.
+ * <p>
+ * The {@link PathLoadState}s and {@link org.muonmc.loader.api.plugin.solver.ModLoadOption}s aren't kept, since they
+ * belong to the plugins of a single plugin manager: every resolve scans the cached zips again and solves from scratch.
+ * <p>
+ * {@link #awaitChanges(long, TimeUnit)} uses a {@link WatchService} to wait until the mods folder changes. Folders
+ * added by plugins are watched as well, once a resolve has found them.
+ * <p>
+ * Not thread safe: every method should be called from the same thread. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class ModDiscoverySession implements Closeable {
+
+	/** How long {@link #awaitChanges(long, TimeUnit)} waits for more events after the first one, since copying a jar
+	 * often produces several events. */
+	private static final long DEBOUNCE_MILLIS = 250;
+
+	private final Path gameDir, configDir, modsDir, cacheDir;
+	private final GameProvider game;
+	private final QuiltLoaderConfig config;
+
+	private final WatchService watcher;
+	private final Map<WatchKey, Path> watchedFolders = new HashMap<>();
+
+	/** Every loaded zip root, keyed by the file it was loaded from. Files inside a cached zip are also keys. */
+	private final Map<Path, Path> zips = new ConcurrentHashMap<>();
+	/** The stamp of every real file with a cached zip or hash, from before it was read. */
+	private final Map<Path, FileStamp> stamps = new ConcurrentHashMap<>();
+	private final Map<Path, byte[]> hashes = new ConcurrentHashMap<>();
+	private final Set<Path> changed = new LinkedHashSet<>();
+
+	private MuonPluginManagerImpl manager;
+
+	public ModDiscoverySession(Path gameDir, Path configDir, Path modsDir, Path cacheDir, GameProvider game, QuiltLoaderConfig config) throws IOException {
+		this.gameDir = gameDir;
+		this.configDir = configDir;
+		this.modsDir = modsDir;
+		this.cacheDir = cacheDir;
+		this.game = game;
+		this.config = config;
+
+		Files.createDirectories(modsDir);
+		watcher = modsDir.getFileSystem().newWatchService();
+		watchRecursively(modsDir);
+	}
+
+	/** Simulates loading the mods which are currently present. Anything returned by the previous resolve (including
+	 * {@link #getManager()}) shouldn't be used afterwards, since zips which have changed are closed. */
+	public ModSolveResultImpl resolve(boolean scanClasspath) throws MuonReportedError {
+		invalidateChanged();
+
+		manager = new MuonPluginManagerImpl(gameDir, configDir, modsDir, cacheDir, game, true, config);
+		manager.discoverySession = this;
+		manager.hasher.pathHashCache.putAll(hashes);
+
+		try {
+			return manager.run(scanClasspath);
+		} finally {
+			for (Map.Entry<Path, byte[]> entry : manager.hasher.pathHashCache.entrySet()) {
+				if (stamps.containsKey(entry.getKey())) {
+					hashes.put(entry.getKey(), entry.getValue());
+				}
+			}
+
+			for (Path folder : manager.modFolders.keySet()) {
+				if (folder.getFileSystem() == FileSystems.getDefault() && !watchedFolders.containsValue(folder)) {
+					try {
+						watchRecursively(folder);
+					} catch (IOException e) {
+						Log.warn(LogCategory.DISCOVERY, "Failed to watch " + folder + " for changes", e);
+					}
+				}
+			}
+		}
+	}
+
+	/** @return The plugin manager used by the last {@link #resolve(boolean)}, or null if it hasn't been called yet. */
+	public MuonPluginManagerImpl getManager() {
+		return manager;
+	}
+
+	/** Waits until a file in a watched folder is added, changed, or removed.
+	 *
+	 * @return Every path which changed, or an empty set if nothing changed before the timeout. */
+	public Set<Path> awaitChanges(long timeout, TimeUnit unit) throws InterruptedException {
+		Set<Path> found = new LinkedHashSet<>();
+		WatchKey key = watcher.poll(timeout, unit);
+		while (key != null) {
+			Path folder = watchedFolders.get(key);
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW || folder == null) {
+					// Lost track of which files changed, so check every cached file
+					found.addAll(stamps.keySet());
+					continue;
+				}
+
+				Path path = folder.resolve((Path) event.context());
+				found.add(path);
+
+				if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+					try {
+						watchRecursively(path);
+					} catch (IOException e) {
+						Log.warn(LogCategory.DISCOVERY, "Failed to watch " + path + " for changes", e);
+					}
+				}
+			}
+
+			if (!key.reset()) {
+				watchedFolders.remove(key);
+			}
+
+			key = watcher.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+		changed.addAll(found);
+		return found;
+	}
+
+	private void watchRecursively(Path folder) throws IOException {
+		Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				WatchKey key = dir.register(
+					watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_MODIFY
+				);
+				watchedFolders.put(key, dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	@FunctionalInterface
+	interface ZipLoader {
+		Path load(Path zip) throws IOException, NonZipException;
+	}
+
+	/** Called by {@link MuonPluginManagerImpl#loadZipNow(Path)} to reuse zips from previous runs. */
+	Path loadZip(Path zip, ZipLoader loader) throws IOException, NonZipException {
+		Path root = zips.get(zip);
+		if (root != null) {
+			return root;
+		}
+
+		boolean real = zip.getFileSystem() == FileSystems.getDefault();
+		if (!real && !isInsideCachedZip(zip)) {
+			return loader.load(zip);
+		}
+
+		// Read before loading, so a change while loading is always noticed next time
+		FileStamp stamp = real ? FileStamp.read(zip) : null;
+		root = loader.load(zip);
+		if (real) {
+			stamps.put(zip, stamp);
+		}
+		Path existing = zips.putIfAbsent(zip, root);
+		return existing != null ? existing : root;
+	}
+
+	private boolean isInsideCachedZip(Path path) {
+		FileSystem fs = path.getFileSystem();
+		for (Path root : zips.values()) {
+			if (root.getFileSystem() == fs) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Closes and forgets every cached zip whose file changed since it was read. Called by {@link #resolve(boolean)}. */
+	void invalidateChanged() {
+		// Concurrent maps allow removing entries while iterating
+		for (Map.Entry<Path, FileStamp> entry : stamps.entrySet()) {
+			Path path = entry.getKey();
+			FileStamp current;
+			try {
+				current = FileStamp.read(path);
+			} catch (IOException e) {
+				current = null;
+			}
+			if (changed.contains(path) || !entry.getValue().equals(current)) {
+				stamps.remove(path);
+				hashes.remove(path);
+				Path root = zips.remove(path);
+				if (root != null) {
+					closeZip(root.getFileSystem());
+				}
+			}
+		}
+		changed.clear();
+	}
+
+	/** Closes the given zip, along with every nested zip which was loaded from it. */
+	private void closeZip(FileSystem fs) {
+		for (Map.Entry<Path, Path> entry : zips.entrySet()) {
+			if (entry.getKey().getFileSystem() == fs && zips.remove(entry.getKey(), entry.getValue())) {
+				closeZip(entry.getValue().getFileSystem());
+			}
+		}
+		try {
+			if (fs.isOpen()) {
+				fs.close();
+			}
+		} catch (IOException e) {
+			Log.warn(LogCategory.DISCOVERY, "Failed to close " + fs, e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (Path root : zips.values().toArray(new Path[0])) {
+			closeZip(root.getFileSystem());
+		}
+		zips.clear();
+		stamps.clear();
+		hashes.clear();
+		watcher.close();
+	}
+}
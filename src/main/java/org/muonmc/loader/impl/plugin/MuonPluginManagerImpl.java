@@ -190,6 +190,9 @@ public class MuonPluginManagerImpl implements MuonPluginManager {
 	final List<MuonJsonGuiMessage> errors = new ArrayList<>();
 	public final Map<UnsupportedModChecker.UnsupportedType, MuonDisplayedError> guiUnknownMods = new TreeMap<>();
 
+	/** Set if this is part of a {@link ModDiscoverySession}, which caches zips between runs. */
+	ModDiscoverySession discoverySession;
+
 	/** Only written by {@link #runSingleCycle()}, only read during crash report generation. */
 	private PerCycleStep perCycleStep;
 
@@ -258,6 +261,15 @@ public class MuonPluginManagerImpl implements MuonPluginManager {
 
 	@Override
 	public Path loadZipNow(Path zip) throws IOException, NonZipException {
+		if (discoverySession != null) {
+			Path root = discoverySession.loadZip(zip, this::loadZipUncached);
+			pathParents.put(root, zip);
+			return root;
+		}
+		return loadZipUncached(zip);
+	}
+
+	private Path loadZipUncached(Path zip) throws IOException, NonZipException {
 		String name = zip.getFileName().toString();
 		try {
 			MuonZipPath qRoot = new MuonZipFileSystem(name, zip, "").getRoot();
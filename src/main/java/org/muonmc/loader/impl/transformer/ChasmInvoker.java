@@ -27,14 +27,18 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.jetbrains.annotations.Nullable;
 import org.objectweb.asm.ClassReader;
 import org.quiltmc.chasm.api.ChasmProcessor;
 import org.quiltmc.chasm.api.ClassResult;
-import org.quiltmc.chasm.api.Transformer;
 import org.quiltmc.chasm.api.util.ClassInfo;
 import org.quiltmc.chasm.api.util.Context;
 import org.quiltmc.chasm.internal.transformer.ChasmLangTransformer;
@@ -55,58 +59,29 @@ import org.muonmc.loader.impl.util.log.LogCategory;
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 class ChasmInvoker {
 
-	static void applyChasm(TransformCache cache)
-		throws ChasmTransformException {
+	/** The maximum number of entries in {@link #CLASSPATH_INFOS}. Chasm only asks for the super types of the classes
+	 * it transforms, so this is only reached if something looks up far more of the classpath than expected. */
+	private static final int MAX_CLASSPATH_INFOS = 4096;
+
+	/** Class infos for classes on the loader's classpath. Missing classes are stored as empty, so they aren't looked up
+	 * again. The classpath can't change during a launch, so these are reused if the transform cache is rebuilt. */
+	private static final ConcurrentMap<String, Optional<ClassInfo>> CLASSPATH_INFOS = new ConcurrentHashMap<>();
+
+	/** Finds every chasm transformer in every mod, without reading any class files.
+	 *
+	 * @return Every transformer found. If this is empty then {@link #applyChasm(TransformCache, List)} doesn't need to
+	 *         be called. */
+	static List<TransformerFile> findTransformers(TransformCache cache) throws ChasmTransformException {
 		try {
-			applyChasm0(cache);
+			return findTransformers0(cache);
 		} catch (Throwable e) {
-			throw new ChasmTransformException("Failed to apply chasm!", e);
+			throw new ChasmTransformException("Failed to find chasm transformers!", e);
 		}
 	}
 
-	static void applyChasm0(TransformCache cache) throws IOException {
-		Map<String, ModLoadOption> package2mod = new HashMap<>();
-		Map<String, byte[]> inputClassCache = new HashMap<>();
-
-		// TODO: Move chasm searching to here!
-		for (ModLoadOption mod : cache.getModsInCache()) {
-			Path path2 = cache.getRoot(mod);
-			if (!FasterFiles.isDirectory(path2)) {
-				continue;
-			}
-			Files.walkFileTree(path2, new SimpleFileVisitor<Path>() {
-				@Override
-				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					if (file.getFileName().toString().endsWith(".class")) {
-						package2mod.put(path2.relativize(file.getParent()).toString(), mod);
-						inputClassCache.put(path2.relativize(file).toString(), Files.readAllBytes(file));
-					}
-					return FileVisitResult.CONTINUE;
-				}
-			});
-		}
-
-		ChasmProcessor chasm = new ChasmProcessor(new Context() {
-
-			@Override
-			public @Nullable ClassInfo getClassInfo(String className) {
-				byte[] bytes = readFile(LoaderUtil.getClassFileName(className));
-				if (bytes == null) {
-					return null;
-				}
-				return ClassInfo.fromBytes(bytes);
-			}
-
-			@Override
-			public byte @Nullable [] readFile(String path) {
-				try (InputStream stream = getClass().getClassLoader().getResourceAsStream(path)) {
-					return stream != null ? FileUtil.readAllBytes(stream) : null;
-				} catch (IOException e) {
-					// TODO: Is this correct? Chasm probably won't be expecting this
-					throw new UncheckedIOException(e);
-				}
-			}
-		});
+	private static List<TransformerFile> findTransformers0(TransformCache cache) throws IOException {
+		List<TransformerFile> transformers = new ArrayList<>();
+		Set<Path> visited = new HashSet<>();
 
 		for (ModLoadOption mod : cache.getModsInCache()) {
 			Path modPath = cache.getRoot(mod);
@@ -141,42 +116,106 @@ class ChasmInvoker {
 				Log.warn(LogCategory.CHASM, "Unknown value found for 'experimental_chasm_transformers' in " + mod.id());
 			}
 
-			List<Path> chasmRoots = new ArrayList<>();
-
 			for (String path : paths) {
 				if (path == null) {
 					continue;
 				}
+				Path chasmRoot;
 				try {
-					chasmRoots.add(modPath.resolve(path.replace("/", modPath.getFileSystem().getSeparator())));
+					chasmRoot = modPath.resolve(path.replace("/", modPath.getFileSystem().getSeparator()));
 				} catch (InvalidPathException e) {
 					Log.warn(LogCategory.CHASM, "Invalid path '" + path + "' for 'experimental_chasm_transformers' in " + mod.id());
+					continue;
+				}
+
+				if (!FasterFiles.isDirectory(chasmRoot)) {
+					continue;
+				}
+
+				// Only the transformer folders are searched, rather than every file in the mod
+				Files.walkFileTree(chasmRoot, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						// Folders can overlap, in which case the first one is used for the id
+						if (file.getFileName().toString().endsWith(".chasm") && visited.add(file)) {
+							String chasmId = mod.id() + ":" + chasmRoot.relativize(file).toString();
+							chasmId = chasmId.replace(chasmRoot.getFileSystem().getSeparator(), "/");
+							chasmId = chasmId.substring(0, chasmId.length() - ".chasm".length());
+							Log.info(LogCategory.CHASM, "Found chasm transformer: '" + chasmId + "'");
+							transformers.add(new TransformerFile(mod, chasmId, file));
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+		}
+
+		return transformers;
+	}
+
+	static void applyChasm(TransformCache cache, List<TransformerFile> transformers)
+		throws ChasmTransformException {
+		try {
+			applyChasm0(cache, transformers);
+		} catch (Throwable e) {
+			throw new ChasmTransformException("Failed to apply chasm!", e);
+		}
+	}
+
+	static void applyChasm0(TransformCache cache, List<TransformerFile> transformers) throws IOException {
+		if (transformers.isEmpty()) {
+			return;
+		}
+
+		ChasmProcessor chasm = new ChasmProcessor(new Context() {
+
+			@Override
+			public @Nullable ClassInfo getClassInfo(String className) {
+				// Chasm asks for the same super types over and over again, so they are only parsed once
+				Optional<ClassInfo> info = CLASSPATH_INFOS.get(className);
+				if (info == null) {
+					byte[] bytes = readFile(LoaderUtil.getClassFileName(className));
+					info = bytes == null ? Optional.empty() : Optional.of(ClassInfo.fromBytes(bytes));
+					if (CLASSPATH_INFOS.size() < MAX_CLASSPATH_INFOS) {
+						CLASSPATH_INFOS.putIfAbsent(className, info);
+					}
+				}
+				return info.orElse(null);
+			}
+
+			@Override
+			public byte @Nullable [] readFile(String path) {
+				try (InputStream stream = getClass().getClassLoader().getResourceAsStream(path)) {
+					return stream != null ? FileUtil.readAllBytes(stream) : null;
+				} catch (IOException e) {
+					// TODO: Is this correct? Chasm probably won't be expecting this
+					throw new UncheckedIOException(e);
 				}
 			}
+		});
+
+		for (TransformerFile file : transformers) {
+			Node node = Node.parse(file.path);
+			chasm.addTransformer(new ChasmLangTransformer(file.id, node, chasm.getContext()));
+		}
+
+		Map<String, ModLoadOption> package2mod = new HashMap<>();
+
+		for (ModLoadOption mod : cache.getModsInCache()) {
+			Path modPath = cache.getRoot(mod);
+			if (!FasterFiles.isDirectory(modPath)) {
+				continue;
+			}
 
 			Files.walkFileTree(modPath, new SimpleFileVisitor<Path>() {
 				@Override
 				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
 					if (file.getFileName().toString().endsWith(".class")) {
+						package2mod.put(modPath.relativize(file.getParent()).toString(), mod);
 						byte[] bytes = Files.readAllBytes(file);
 						Metadata meta = new Metadata();
 						meta.put(QuiltMetadata.class, new QuiltMetadata(mod, LoaderUtil.getClassNameFromTransformCache(file.toString())));
 						chasm.addClass(bytes, meta);
-					} else if (file.getFileName().toString().endsWith(".chasm")) {
-						for (Path chasmRoot : chasmRoots) {
-							if (file.startsWith(chasmRoot)) {
-								String chasmId = mod.id() + ":" + chasmRoot.relativize(file).toString();
-								chasmId = chasmId.replace(chasmRoot.getFileSystem().getSeparator(), "/");
-								if (chasmId.endsWith(".chasm")) {
-									chasmId = chasmId.substring(0, chasmId.length() - ".chasm".length());
-								}
-								Log.info(LogCategory.CHASM, "Found chasm transformer: '" + chasmId + "'");
-								Node node = Node.parse(file);
-								Transformer transformer = new ChasmLangTransformer(chasmId, node, chasm.getContext());
-								chasm.addTransformer(transformer);
-								break;
-							}
-						}
 					}
 					return FileVisitResult.CONTINUE;
 				}
@@ -235,6 +274,19 @@ class ChasmInvoker {
 		return in;
 	}
 
+	/** A chasm transformer file, found by {@link ChasmInvoker#findTransformers(TransformCache)}. */
+	static final class TransformerFile {
+		final ModLoadOption mod;
+		final String id;
+		final Path path;
+
+		TransformerFile(ModLoadOption mod, String id, Path path) {
+			this.mod = mod;
+			this.id = id;
+			this.path = path;
+		}
+	}
+
 	static class QuiltMetadata {
 
 		final ModLoadOption from;
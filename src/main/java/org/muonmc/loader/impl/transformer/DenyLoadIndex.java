@@ -0,0 +1,284 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.transformer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.Nullable;
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+
+/** An immutable map from hidden class names (and {@code <package>.package-info} names for hidden packages) to the
+ * reason they can't be loaded, stored as a single binary blob which is written to the transform cache.
+ * <p>
+ * Almost every class which is loaded isn't hidden, so lookups first check a bloom filter, which rejects most names
+ * without touching the string table. Names which pass the filter are found with a binary search over the sorted names.
+ * Reasons are only decoded to strings when a name is actually found.
+ * <p>
+ * The bloom filter is keyed by {@link String#hashCode()}, which is fixed by the JLS, so the blob can be read by any
+ * JVM. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class DenyLoadIndex {
+
+	public static final DenyLoadIndex EMPTY = new DenyLoadIndex(ByteBuffer.wrap(write(new HashMap<>())));
+
+	private static final int VERSION = 1;
+	private static final int BITS_PER_ENTRY = 10;
+	private static final int HASH_COUNT = 7;
+
+	private static final String PACKAGE_INFO = ".package-info";
+	private static final int PACKAGE_INFO_HASH = PACKAGE_INFO.hashCode();
+	/** 31 to the power of the length of {@link #PACKAGE_INFO}, so the hash of {@code pkg + PACKAGE_INFO} can be computed
+	 * from the hash of {@code pkg} without concatenating them. */
+	private static final int PACKAGE_INFO_MULTIPLIER;
+
+	static {
+		int multiplier = 1;
+		for (int i = 0; i < PACKAGE_INFO.length(); i++) {
+			multiplier *= 31;
+		}
+		PACKAGE_INFO_MULTIPLIER = multiplier;
+	}
+
+	private final ByteBuffer data;
+	private final long[] bloom;
+	private final int entryCount;
+	/** Position of the entry offset table. */
+	private final int entriesStart;
+	/** Position of the reason offset table. */
+	private final int reasonsStart;
+	private final int reasonCount;
+
+	private DenyLoadIndex(ByteBuffer data) {
+		this.data = data;
+		if (data.getInt(0) != VERSION) {
+			throw new IllegalArgumentException("Unknown deny load index version " + data.getInt(0));
+		}
+		bloom = new long[data.getInt(4)];
+		int pos = 8;
+		for (int i = 0; i < bloom.length; i++, pos += 8) {
+			bloom[i] = data.getLong(pos);
+		}
+		entryCount = data.getInt(pos);
+		entriesStart = pos + 4;
+		reasonsStart = entriesStart + entryCount * 4 + 4;
+		reasonCount = data.getInt(reasonsStart - 4);
+	}
+
+	/** Reads an index previously created by {@link #write(Map)}. */
+	public static DenyLoadIndex read(byte[] bytes) throws IOException {
+		try {
+			DenyLoadIndex index = new DenyLoadIndex(ByteBuffer.wrap(bytes));
+			// Check the last reason, since it's the end of the data
+			if (index.reasonCount > 0) {
+				index.getReason(index.reasonCount - 1);
+			}
+			return index;
+		} catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+			throw new IOException("Invalid deny load index", e);
+		}
+	}
+
+	public static DenyLoadIndex of(Map<String, String> reasons) {
+		return reasons.isEmpty() ? EMPTY : new DenyLoadIndex(ByteBuffer.wrap(write(reasons)));
+	}
+
+	/** @return The reason the given class can't be loaded, or null if it isn't hidden. */
+	@Nullable
+	public String get(String name) {
+		if (entryCount == 0 || !mightContain(name.hashCode())) {
+			return null;
+		}
+		return find(name);
+	}
+
+	/** Equivalent to {@code get(packageName + ".package-info")}, but doesn't create a new string unless the bloom filter
+	 * matches. */
+	@Nullable
+	public String getPackageReason(String packageName) {
+		if (entryCount == 0 || !mightContain(packageName.hashCode() * PACKAGE_INFO_MULTIPLIER + PACKAGE_INFO_HASH)) {
+			return null;
+		}
+		return find(packageName + PACKAGE_INFO);
+	}
+
+	public int size() {
+		return entryCount;
+	}
+
+	private boolean mightContain(int hash) {
+		long mask = bloom.length * 64L - 1;
+		int h1 = mix(hash);
+		int h2 = mix(h1) | 1;
+		for (int i = 0; i < HASH_COUNT; i++) {
+			long bit = (h1 + i * h2) & mask;
+			if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private String find(String name) {
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = entryCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int entry = data.getInt(entriesStart + middle * 4);
+			int cmp = compare(entry + 4, data.getInt(entry), key);
+			if (cmp < 0) {
+				low = middle + 1;
+			} else if (cmp > 0) {
+				high = middle - 1;
+			} else {
+				return getReason(data.getInt(entry + 4 + key.length));
+			}
+		}
+		return null;
+	}
+
+	private int compare(int pos, int length, byte[] key) {
+		int count = Math.min(length, key.length);
+		for (int i = 0; i < count; i++) {
+			int cmp = (data.get(pos + i) & 0xFF) - (key[i] & 0xFF);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return length - key.length;
+	}
+
+	private String getReason(int index) {
+		int pos = data.getInt(reasonsStart + index * 4);
+		int length = data.getInt(pos);
+		if (length < 0 || pos + 4 + length > data.limit()) {
+			throw new IndexOutOfBoundsException("Reason " + index + " is out of bounds");
+		}
+		return new String(data.array(), data.arrayOffset() + pos + 4, length, StandardCharsets.UTF_8);
+	}
+
+	/** Serializes the given reasons into the format read by {@link #read(byte[])}. */
+	public static byte[] write(Map<String, String> reasons) {
+		byte[][] names = new byte[reasons.size()][];
+		int[] reasonIndices = new int[names.length];
+		Map<String, Integer> reasonIds = new HashMap<>();
+		List<byte[]> reasonBytes = new ArrayList<>();
+
+		int bloomWords = 1;
+		while (bloomWords * 64L < (long) names.length * BITS_PER_ENTRY) {
+			bloomWords <<= 1;
+		}
+		long[] bloom = new long[bloomWords];
+		long mask = bloomWords * 64L - 1;
+
+		Map.Entry<byte[], String>[] sorted = sortByName(reasons);
+		for (int i = 0; i < sorted.length; i++) {
+			names[i] = sorted[i].getKey();
+			reasonIndices[i] = reasonIds.computeIfAbsent(sorted[i].getValue(), reason -> {
+				reasonBytes.add(reason.getBytes(StandardCharsets.UTF_8));
+				return reasonBytes.size() - 1;
+			});
+
+			int h1 = mix(new String(names[i], StandardCharsets.UTF_8).hashCode());
+			int h2 = mix(h1) | 1;
+			for (int j = 0; j < HASH_COUNT; j++) {
+				long bit = (h1 + j * h2) & mask;
+				bloom[(int) (bit >>> 6)] |= 1L << bit;
+			}
+		}
+
+		int size = 8 + bloomWords * 8 + 4 + names.length * 4 + 4 + reasonBytes.size() * 4;
+		for (byte[] name : names) {
+			size += 4 + name.length + 4;
+		}
+		for (byte[] reason : reasonBytes) {
+			size += 4 + reason.length;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(VERSION);
+		buffer.putInt(bloomWords);
+		for (long word : bloom) {
+			buffer.putLong(word);
+		}
+
+		int pos = buffer.position() + 4 + names.length * 4 + 4 + reasonBytes.size() * 4;
+		buffer.putInt(names.length);
+		for (byte[] name : names) {
+			buffer.putInt(pos);
+			pos += 4 + name.length + 4;
+		}
+		buffer.putInt(reasonBytes.size());
+		for (byte[] reason : reasonBytes) {
+			buffer.putInt(pos);
+			pos += 4 + reason.length;
+		}
+
+		for (int i = 0; i < names.length; i++) {
+			buffer.putInt(names[i].length);
+			buffer.put(names[i]);
+			buffer.putInt(reasonIndices[i]);
+		}
+		for (byte[] reason : reasonBytes) {
+			buffer.putInt(reason.length);
+			buffer.put(reason);
+		}
+		return buffer.array();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map.Entry<byte[], String>[] sortByName(Map<String, String> reasons) {
+		Map.Entry<byte[], String>[] entries = new Map.Entry[reasons.size()];
+		int i = 0;
+		for (Map.Entry<String, String> entry : reasons.entrySet()) {
+			entries[i++] = new AbstractMap.SimpleImmutableEntry<>(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue());
+		}
+		// Unsigned byte order, which is the same as the order used by find
+		Arrays.sort(entries, (a, b) -> {
+			byte[] x = a.getKey();
+			byte[] y = b.getKey();
+			int count = Math.min(x.length, y.length);
+			for (int j = 0; j < count; j++) {
+				int cmp = (x[j] & 0xFF) - (y[j] & 0xFF);
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return x.length - y.length;
+		});
+		return entries;
+	}
+
+	/** The murmur3 finalizer, since {@link String#hashCode()} is poorly distributed in its low bits. */
+	private static int mix(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		hash *= 0xc2b2ae35;
+		hash ^= hash >>> 16;
+		return hash;
+	}
+}
@@ -95,9 +95,23 @@ public class InternalsHiderTransform {
 		} catch (IllegalArgumentException e) {
 			throw new IllegalArgumentException("Failed to read the class " + file + " from mod " + mod.id(), e);
 		}
-		String className = reader.getClassName();
-		boolean isPackageInfo = className.endsWith("/package-info");
-		ClassVisitor visitor = new ClassVisitor(MuonLoaderImpl.ASM_VERSION) {
+		reader.accept(createScanner(mod), ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+	}
+
+	/** Creates a visitor which finds every {@link ModInternal} declaration in the class it visits. This only needs
+	 * annotations, so it should be passed {@link ClassReader#SKIP_CODE}.
+	 * <p>
+	 * Every class must be scanned before any are transformed by {@link #createVisitor(ModLoadOption, ClassVisitor)}. */
+	ClassVisitor createScanner(ModLoadOption mod) {
+		return new ClassVisitor(MuonLoaderImpl.ASM_VERSION) {
+			String className;
+			boolean isPackageInfo;
+
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+				className = name;
+				isPackageInfo = name.endsWith("/package-info");
+			}
 
 			@Override
 			public AnnotationVisitor visitAnnotation(String descriptor, boolean visible) {
@@ -153,28 +167,43 @@ public class InternalsHiderTransform {
 				};
 			}
 		};
-		reader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
 	}
 
 	public byte[] run(ModLoadOption mod, byte[] classBytes) {
 		ClassReader reader = new ClassReader(classBytes);
-		String className = reader.getClassName();
 		ClassWriter writer = new ClassWriter(reader, 0) {
 			@Override
 			protected String getCommonSuperClass(String type1, String type2) {
 				throw new Error("We shouldn't need to compute the superclass of " + type1 + ", " + type2);
 			}
 		};
+		reader.accept(createVisitor(mod, writer), 0);
+		return writer.toByteArray();
+	}
 
-		// check if the current super and super-supers are illegal and add them to the list.
-		List<InternalSuper> illegalSupers = new ArrayList<>();
-		checkSuper(mod, reader.getSuperName(), false, illegalSupers);
-		for (String itf : reader.getInterfaces()) {
-			checkSuper(mod, itf, true, illegalSupers);
-		}
+	/** Creates a visitor which applies this transform to the class it visits, and passes the result on to the given
+	 * visitor. This lets the transform run in the same {@link ClassReader} pass as other transforms. */
+	ClassVisitor createVisitor(ModLoadOption mod, ClassVisitor next) {
+		return new ClassVisitor(MuonLoaderImpl.ASM_VERSION, next) {
+			String className;
+			final List<InternalSuper> illegalSupers = new ArrayList<>();
+			boolean hasClassInit = false;
+
+			@Override
+			public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+				className = name;
+
+				// check if the current super and super-supers are illegal and add them to the list.
+				checkSuper(mod, superName, false, illegalSupers);
+				if (interfaces != null) {
+					for (String itf : interfaces) {
+						checkSuper(mod, itf, true, illegalSupers);
+					}
+				}
+
+				super.visit(version, access, name, signature, superName, interfaces);
+			}
 
-		boolean[] hasClassInit = { false };
-		ClassVisitor visitor = new ClassVisitor(MuonLoaderImpl.ASM_VERSION, writer) {
 			@Override
 			public MethodVisitor visitMethod(int access, String mthName, String mthDescriptor, String signature,
 				String[] exceptions) {
@@ -183,7 +212,7 @@ public class InternalsHiderTransform {
 
 				boolean isClassInit = "<clinit>".equals(mthName) && "()V".equals(mthDescriptor);
 				if (isClassInit) {
-					hasClassInit[0] = true;
+					hasClassInit = true;
 				}
 
 				// SO
@@ -270,7 +299,7 @@ public class InternalsHiderTransform {
 
 			@Override
 			public void visitEnd() {
-				if (!hasClassInit[0] && !illegalSupers.isEmpty()) {
+				if (!hasClassInit && !illegalSupers.isEmpty()) {
 					MethodVisitor classInit = super.visitMethod(
 						Opcodes.ACC_STATIC | Opcodes.ACC_PUBLIC, "<clinit>", "()V", null, null
 					);
@@ -301,8 +330,6 @@ public class InternalsHiderTransform {
 				);
 			}
 		};
-		reader.accept(visitor, 0);
-		return writer.toByteArray();
 	}
 
 	void finish() {
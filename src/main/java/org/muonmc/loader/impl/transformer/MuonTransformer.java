@@ -36,23 +36,62 @@ import net.fabricmc.accesswidener.AccessWidenerClassVisitor;
 
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 final class MuonTransformer {
-	public static byte @Nullable [] transform(boolean isDevelopment, Environment environment, TransformCache cache, AccessWidener accessWidener, String name, ModLoadOption mod, byte[] bytes) {
+	/** Finds everything in the given class which needs to be known before any class is transformed. This only reads
+	 * annotations, and ignores anything that {@link #transform} will strip. */
+	public static void scan(boolean isDevelopment, Environment environment, TransformCache cache, String name, ModLoadOption mod, byte[] bytes, InternalsHiderTransform internalsHider) {
+		boolean isGameClass = mod.id().equals(MuonLoaderImpl.INSTANCE.getGameProvider().getGameId());
+		boolean strip = !isGameClass || isDevelopment;
+		scan(environment, cache, name, mod, bytes, internalsHider, strip);
+	}
+
+	static void scan(Environment environment, TransformCache cache, String name, ModLoadOption mod, byte[] bytes, InternalsHiderTransform internalsHider, boolean strip) {
+		ClassReader classReader;
+		try {
+			classReader = new ClassReader(bytes);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Failed to read the class " + name + " from mod " + mod.id(), e);
+		}
+		ClassVisitor visitor = internalsHider.createScanner(mod);
+
+		if (strip) {
+			ClassStrippingData data = new ClassStrippingData(MuonLoaderImpl.ASM_VERSION, environment, cache.getAllMods());
+			classReader.accept(data, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+
+			if (data.stripEntireClass()) {
+				return;
+			}
+
+			// Stripped lambdas are skipped, since they are synthetic and so can't be annotated
+			if (!data.isEmpty()) {
+				visitor = new ClassStripper(MuonLoaderImpl.ASM_VERSION, visitor, data.getStripInterfaces(), data.getStripFields(), data.getStripMethods());
+			}
+		}
+
+		classReader.accept(visitor, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+	}
+
+	/** @param internalsHider If non-null then this is applied after every other transform, in the same pass. Every class
+	 * must have been passed to {@link #scan} first. */
+	public static byte @Nullable [] transform(boolean isDevelopment, Environment environment, TransformCache cache, AccessWidener accessWidener, String name, ModLoadOption mod, byte[] bytes, @Nullable InternalsHiderTransform internalsHider) {
 		boolean isGameClass = mod.id().equals(MuonLoaderImpl.INSTANCE.getGameProvider().getGameId());
 		boolean transformAccess = isGameClass && MuonLauncherBase.getLauncher().getMappingConfiguration().requiresPackageAccessHack();
 		boolean strip = !isGameClass || isDevelopment;
 		boolean applyAccessWidener = isGameClass && accessWidener.getTargets().contains(name);
+		return transform(environment, cache, accessWidener, name, mod, bytes, internalsHider, strip, applyAccessWidener, transformAccess);
+	}
 
-		if (!transformAccess && !strip && !applyAccessWidener) {
+	static byte @Nullable [] transform(Environment environment, TransformCache cache, AccessWidener accessWidener, String name, ModLoadOption mod, byte[] bytes, @Nullable InternalsHiderTransform internalsHider, boolean strip, boolean applyAccessWidener, boolean transformAccess) {
+		if (!transformAccess && !strip && !applyAccessWidener && internalsHider == null) {
 			return bytes;
 		}
 
 		ClassReader classReader = new ClassReader(bytes);
-		ClassWriter classWriter = null;
-		ClassVisitor visitor = null;
-		int visitorCount = 0;
+		ClassStrippingData data = null;
+		Collection<String> stripMethods = null;
+		boolean stripAnyLambdas = false;
 
 		if (strip) {
-			ClassStrippingData data = new ClassStrippingData(MuonLoaderImpl.ASM_VERSION, environment, cache.getAllMods());
+			data = new ClassStrippingData(MuonLoaderImpl.ASM_VERSION, environment, cache.getAllMods());
 			classReader.accept(data, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
 
 			if (data.stripEntireClass()) {
@@ -60,9 +99,7 @@ final class MuonTransformer {
 				return null;
 			}
 
-			Collection<String> stripMethods = data.getStripMethods();
-
-			boolean stripAnyLambdas = false;
+			stripMethods = data.getStripMethods();
 
 			if (!data.getStripMethodLambdas().isEmpty()) {
 				LambdaStripCalculator calc = new LambdaStripCalculator(MuonLoaderImpl.ASM_VERSION, data.getStripMethodLambdas());
@@ -76,28 +113,34 @@ final class MuonTransformer {
 					stripAnyLambdas = true;
 				}
 			}
+		}
 
-			if (!data.isEmpty()) {
+		boolean applyStripper = data != null && !data.isEmpty();
+		ClassWriter classWriter;
+
+		if (applyStripper && stripAnyLambdas) {
+			// ClassWriter has a (useful) optimisation that copies over the
+			// entire constant pool and bootstrap methods from the original one,
+			// as well as any untransformed methods.
+			// However we can't use the second one, since we may need to remove bootstrap methods
+			// that reference methods which are no longer present in the stripped version.
+			classWriter = new ClassWriter(0);
+		} else {
+			classWriter = new ClassWriter(classReader, 0);
+		}
 
-				if (stripAnyLambdas) {
-					// ClassWriter has a (useful) optimisation that copies over the
-					// entire constant pool and bootstrap methods from the original one,
-					// as well as any untransformed methods.
-					// However we can't use the second one, since we may need to remove bootstrap methods
-					// that reference methods which are no longer present in the stripped version.
-					classWriter = new ClassWriter(0);
-				} else {
-					classWriter = new ClassWriter(classReader, 0);
-				}
+		ClassVisitor visitor = classWriter;
+		int visitorCount = 0;
 
-				visitor = new ClassStripper(MuonLoaderImpl.ASM_VERSION, classWriter, data.getStripInterfaces(), data.getStripFields(), stripMethods);
-				visitorCount++;
-			}
+		// The internals hider goes last, since it needs to see the stripped class
+		if (internalsHider != null) {
+			visitor = internalsHider.createVisitor(mod, visitor);
+			visitorCount++;
 		}
 
-		if (classWriter == null) {
-			classWriter = new ClassWriter(classReader, 0);
-			visitor = classWriter;
+		if (applyStripper) {
+			visitor = new ClassStripper(MuonLoaderImpl.ASM_VERSION, visitor, data.getStripInterfaces(), data.getStripFields(), stripMethods);
+			visitorCount++;
 		}
 
 		if (applyAccessWidener) {
@@ -39,6 +39,7 @@ import org.muonmc.loader.api.FasterFiles;
 import org.muonmc.loader.api.LoaderValue;
 import org.muonmc.loader.api.plugin.solver.ModLoadOption;
 import org.muonmc.loader.impl.MuonLoaderImpl;
+import org.muonmc.loader.impl.filesystem.MuonZipFileSystem;
 import org.muonmc.loader.impl.launch.common.MuonLauncherBase;
 import org.muonmc.loader.impl.util.LoaderUtil;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
@@ -58,10 +59,13 @@ class TransformCache {
 	private final List<ModLoadOption> allMods;
 	private final List<ModLoadOption> modsInCache;
 	private final Map<String, String> hiddenClasses = new HashMap<>();
+	/** If non-null then class files are spilled to this after they have been visited, to keep memory usage low. */
+	private final MuonZipFileSystem.@Nullable StreamingWriter spillTo;
 	private static final boolean COPY_ON_WRITE = true;
 
-	public TransformCache(Path root, List<ModLoadOption> orderedMods) {
+	public TransformCache(Path root, List<ModLoadOption> orderedMods, MuonZipFileSystem.@Nullable StreamingWriter spillTo) {
 		this.root = root;
+		this.spillTo = spillTo;
 		this.allMods = orderedMods;
 		this.modsInCache = orderedMods.stream().filter(mod -> mod.needsTransforming() && !MuonLoaderImpl.MOD_ID.equals(mod.id())).collect(Collectors.toList());
 
@@ -178,7 +182,19 @@ class TransformCache {
 	public void forEachClassFile(ClassConsumer action)
 			throws IOException {
 		for (ModLoadOption mod : modsInCache) {
-			visitFolder(mod, getRoot(mod), action);
+			visitFolder(mod, getRoot(mod), action, true);
+		}
+	}
+
+	/** Visits every class file without changing it. Unlike {@link #forEachClassFile(ClassConsumer)} this never spills
+	 * class files, since they still need to be transformed afterwards. */
+	public void scanClassFiles(ClassScanner action)
+			throws IOException {
+		for (ModLoadOption mod : modsInCache) {
+			visitFolder(mod, getRoot(mod), (m, name, file) -> {
+				action.run(m, name, file);
+				return null;
+			}, false);
 		}
 	}
 
@@ -227,7 +243,7 @@ class TransformCache {
 		return null;
 	}
 
-	private void visitFolder(ModLoadOption mod, Path root, ClassConsumer action) throws IOException {
+	private void visitFolder(ModLoadOption mod, Path root, ClassConsumer action, boolean spill) throws IOException {
 		if (!Files.isDirectory(root)) {
 			return;
 		}
@@ -252,6 +268,9 @@ class TransformCache {
 						if (result != null) {
 							Files.write(file, result);
 						}
+						if (spill && spillTo != null) {
+							spillTo.spill(file);
+						}
 					}
 				}
 				return FileVisitResult.CONTINUE;
@@ -283,4 +302,15 @@ class TransformCache {
 		 */
 		byte @Nullable [] run(ModLoadOption mod, String className, Path file) throws IOException;
 	}
+
+	@FunctionalInterface
+	public interface ClassScanner {
+		/**
+		 * Read a class without changing it.
+		 *
+		 * @param mod       the mod which "owns" this class file
+		 * @param className the name of the class in dot form (e.g. {@code net.minecraft.client.MinecraftClient$1}
+		 */
+		void run(ModLoadOption mod, String className, Path file) throws IOException;
+	}
 }
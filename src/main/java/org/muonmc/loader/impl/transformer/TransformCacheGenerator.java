@@ -20,15 +20,18 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.api.FasterFiles;
 import org.muonmc.loader.api.MuonLoader;
 import org.muonmc.loader.api.plugin.solver.ModLoadOption;
 import org.muonmc.loader.impl.discovery.ModResolutionException;
 import org.muonmc.loader.impl.filesystem.MuonMapFileSystem;
+import org.muonmc.loader.impl.filesystem.MuonZipFileSystem;
 import org.muonmc.loader.impl.launch.common.MuonLauncherBase;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
@@ -41,55 +44,73 @@ import net.fabricmc.accesswidener.AccessWidenerReader;
 final class TransformCacheGenerator {
 
 
-	static TransformCache generate(Path root, List<ModLoadOption> modList) throws ModResolutionException, IOException {
-		TransformCache cache = new TransformCache(root, modList);
+	static TransformCache generate(Path root, List<ModLoadOption> modList, MuonZipFileSystem.@Nullable StreamingWriter writer)
+		throws ModResolutionException, IOException {
+		TransformCache cache = new TransformCache(root, modList, writer);
 		MuonMapFileSystem.dumpEntries(root.getFileSystem(), "after-copy");
 
 		// Transform time!
 		// Load AWs
 		AccessWidener accessWidener = loadAccessWideners(cache);
-		// game provider transformer and QuiltTransformer
-		cache.forEachClassFile((mod, name, file) -> {
-
-			byte[] classBytes = MuonLauncherBase.getLauncher().getEntrypointTransformer().transform(name);
+		// ChasmInvoker can only be touched when chasm is enabled, since otherwise it might not be on the classpath
+		List<ChasmInvoker.TransformerFile> chasmTransformers = Boolean.getBoolean(SystemProperties.ENABLE_EXPERIMENTAL_CHASM)
+				? ChasmInvoker.findTransformers(cache)
+				: Collections.emptyList();
+		boolean chasm = !chasmTransformers.isEmpty();
+		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
 
-			if (classBytes == null) {
-				classBytes = Files.readAllBytes(file);
-			}
+		if (!chasm) {
+			// The internals hider needs every @ModInternal declaration before it can transform any class, so they are
+			// scanned for first. This only reads annotations, which is much cheaper than a full transform, and lets
+			// the internals hider run in the same pass as everything else below.
+			cache.scanClassFiles((mod, name, file) -> {
+				MuonTransformer.scan(
+						MuonLoader.isDevelopmentEnvironment(),
+						MuonLauncherBase.getLauncher().getEnvironmentType(),
+						cache,
+						name,
+						mod,
+						readClass(name, file),
+						internalsHider
+				);
+			});
+		}
 
-			return MuonTransformer.transform(
-					MuonLoader.isDevelopmentEnvironment(),
-					MuonLauncherBase.getLauncher().getEnvironmentType(),
-					cache,
-					accessWidener,
-					name,
-					mod,
-					classBytes
-			);
-		});
+		// game provider transformer and QuiltTransformer
+		cache.forEachClassFile((mod, name, file) -> MuonTransformer.transform(
+				MuonLoader.isDevelopmentEnvironment(),
+				MuonLauncherBase.getLauncher().getEnvironmentType(),
+				cache,
+				accessWidener,
+				name,
+				mod,
+				readClass(name, file),
+				chasm ? null : internalsHider
+		));
 
 		// chasm
-		if (Boolean.getBoolean(SystemProperties.ENABLE_EXPERIMENTAL_CHASM)) {
-			ChasmInvoker.applyChasm(cache);
-		}
-		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
-		Map<Path, ModLoadOption> classes = new HashMap<>();
-
-		// internals hider
-		// the double read is necessary to avoid storing all classes in memory at once, and thus having memory complexity
-		// proportional to mod count
-		cache.forEachClassFile((mod, name, file) -> {
-			byte[] classBytes = Files.readAllBytes(file);
-			classes.put(file, mod);
-			internalsHider.scanClass(mod, file, classBytes);
-			return null;
-		});
-
-		for (Map.Entry<Path, ModLoadOption> entry : classes.entrySet()) {
-			byte[] classBytes = Files.readAllBytes(entry.getKey());
-			byte[] newBytes = internalsHider.run(entry.getValue(), classBytes);
-			if (newBytes != null) {
-				Files.write(entry.getKey(), newBytes);
+		if (chasm) {
+			ChasmInvoker.applyChasm(cache, chasmTransformers);
+
+			// chasm can change any class, so the internals hider has to run separately afterwards
+			Map<Path, ModLoadOption> classes = new HashMap<>();
+
+			// internals hider
+			// the double read is necessary to avoid storing all classes in memory at once, and thus having memory complexity
+			// proportional to mod count
+			cache.forEachClassFile((mod, name, file) -> {
+				byte[] classBytes = Files.readAllBytes(file);
+				classes.put(file, mod);
+				internalsHider.scanClass(mod, file, classBytes);
+				return null;
+			});
+
+			for (Map.Entry<Path, ModLoadOption> entry : classes.entrySet()) {
+				byte[] classBytes = Files.readAllBytes(entry.getKey());
+				byte[] newBytes = internalsHider.run(entry.getValue(), classBytes);
+				if (newBytes != null) {
+					Files.write(entry.getKey(), newBytes);
+				}
 			}
 		}
 
@@ -98,6 +119,16 @@ final class TransformCacheGenerator {
 		return cache;
 	}
 
+	private static byte[] readClass(String name, Path file) throws IOException {
+		byte[] classBytes = MuonLauncherBase.getLauncher().getEntrypointTransformer().transform(name);
+
+		if (classBytes == null) {
+			classBytes = Files.readAllBytes(file);
+		}
+
+		return classBytes;
+	}
+
 	private static AccessWidener loadAccessWideners(TransformCache cache) {
 		AccessWidener ret = new AccessWidener();
 		AccessWidenerReader accessWidenerReader = new AccessWidenerReader(ret);
@@ -28,31 +28,34 @@ import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
+import java.util.zip.Deflater;
 
+import org.jetbrains.annotations.Nullable;
 import org.muonmc.loader.api.FasterFiles;
 import org.muonmc.loader.api.MuonLoader;
 import org.muonmc.loader.api.plugin.solver.ModLoadOption;
 import org.muonmc.loader.api.plugin.solver.ModSolveResult;
+import org.muonmc.loader.impl.MuonLoaderImpl;
 import org.muonmc.loader.impl.discovery.ModResolutionException;
 import org.muonmc.loader.impl.filesystem.PartiallyWrittenIOException;
 import org.muonmc.loader.impl.filesystem.MuonMapFileSystem;
 import org.muonmc.loader.impl.filesystem.MuonUnifiedFileSystem;
 import org.muonmc.loader.impl.filesystem.MuonZipFileSystem;
 import org.muonmc.loader.impl.filesystem.MuonZipPath;
+import org.muonmc.loader.impl.filesystem.QuiltZipCodec;
+import org.muonmc.loader.impl.filesystem.ReferencedFileChangedIOException;
 import org.muonmc.loader.impl.util.FilePreloadHelper;
 import org.muonmc.loader.impl.util.FileSystemUtil;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.SharedCacheStore;
 import org.muonmc.loader.impl.util.SystemProperties;
 import org.muonmc.loader.impl.util.log.Log;
 import org.muonmc.loader.impl.util.log.LogCategory;
-import org.quiltmc.parsers.json.JsonReader;
-import org.quiltmc.parsers.json.JsonToken;
 import org.quiltmc.parsers.json.JsonWriter;
 
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
@@ -66,7 +69,9 @@ public class TransformCacheManager {
 	private static final String CACHE_FILE = "files.zip";
 
 	private static final String FILE_TRANSFORM_COMPLETE = "__TRANSFORM_COMPLETE";
+	/** Only written for debugging, launches read {@link #DENY_LOAD_INDEX_PATH} instead. */
 	private static final String DENY_LOAD_REASONS_PATH = "deny_load_reasons.json";
+	private static final String DENY_LOAD_INDEX_PATH = "deny_load_reasons.bin";
 
 	public static TransformCacheResult populateTransformBundle(Path transformCacheFolder, List<ModLoadOption> modList,
 		Map<String, String> modOriginHash, ModSolveResult result) throws ModResolutionException {
@@ -96,31 +101,67 @@ public class TransformCacheManager {
 			throw new ModResolutionException("Failed to create parent directories of the transform cache file!", e);
 		}
 
-		MuonZipPath existing = checkTransformCache(transformCacheFolder, map);
+		String options = toString(map);
+		String cacheKey = cacheKey(options);
+
+		if (MuonLoader.isDevelopmentEnvironment()) {
+			Log.info(LogCategory.CACHE, "Not reusing previous transform cache since we're in a development environment");
+			erasePreviousTransformCache(transformCacheFolder, transformCacheFolder.resolve(CACHE_FILE), null);
+		} else {
+			TransformCacheResult previous = checkTransformCache(transformCacheFolder, map, cacheKey);
+			if (previous != null) {
+				if (!Boolean.getBoolean(SystemProperties.DISABLE_PRELOAD_TRANSFORM_CACHE)) {
+					FilePreloadHelper.preLoad(transformCacheFolder.resolve(CACHE_FILE));
+				}
+				return previous;
+			}
+		}
+
+		MuonZipPath existing;
 		boolean isNewlyGenerated = false;
-		if (existing == null) {
-			existing = createTransformCache(transformCacheFolder.resolve(CACHE_FILE), toString(map), modList);
+		SharedCacheStore sharedStore = SharedCacheStore.get();
+		if (sharedStore != null && !MuonLoader.isDevelopmentEnvironment()) {
+			existing = useSharedTransformCache(sharedStore, cacheKey, transformCacheFolder, options, modList);
+		} else {
+			existing = createTransformCache(transformCacheFolder.resolve(CACHE_FILE), options, modList);
 			isNewlyGenerated = true;
-		} else if (!Boolean.getBoolean(SystemProperties.DISABLE_PRELOAD_TRANSFORM_CACHE)) {
-			FilePreloadHelper.preLoad(transformCacheFolder.resolve(CACHE_FILE));
 		}
 		try {
-			Map<String, String> hiddenClasses = new HashMap<>();
-			try (JsonReader reader = JsonReader.json(existing.resolve(DENY_LOAD_REASONS_PATH))) {
-				reader.beginObject();
-				while (reader.peek() == JsonToken.NAME) {
-					String clName = reader.nextName();
-					String clReason = reader.nextString();
-					hiddenClasses.put(clName, clReason);
-				}
-				reader.endObject();
-			}
-			return new TransformCacheResult(existing, isNewlyGenerated, hiddenClasses);
+			DenyLoadIndex hiddenClasses = DenyLoadIndex.read(Files.readAllBytes(existing.resolve(DENY_LOAD_INDEX_PATH)));
+			return new TransformCacheResult(existing, isNewlyGenerated, hiddenClasses, cacheKey);
 		} catch (IOException e) {
 			throw new ModResolutionException("Failed to read hidden classes in the transform cache file!", e);
 		}
 	}
 
+	/** Checks that the transform cache in the given folder is complete, and that every file in it can be read. This
+	 * reads the entire cache, so it's only intended for use outside of normal launches.
+	 *
+	 * @return The number of files in the cache.
+	 * @throws IOException if the cache is missing, incomplete, or any file in it can't be read. */
+	public static int verifyTransformCache(Path transformCacheFolder) throws IOException {
+		Path cacheFile = transformCacheFolder.resolve(CACHE_FILE);
+		if (!FasterFiles.exists(cacheFile)) {
+			throw new IOException("The transform cache " + cacheFile + " doesn't exist!");
+		}
+		try (MuonZipFileSystem fs = new MuonZipFileSystem("transform-cache-verify", cacheFile, "")) {
+			MuonZipPath inner = fs.getRoot();
+			if (!FasterFiles.isRegularFile(inner.resolve(FILE_TRANSFORM_COMPLETE))) {
+				throw new IOException("The transform cache " + cacheFile + " is incomplete!");
+			}
+			int[] count = { 0 };
+			Files.walkFileTree(inner, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					Files.readAllBytes(file);
+					count[0]++;
+					return FileVisitResult.CONTINUE;
+				}
+			});
+			return count[0];
+		}
+	}
+
 	private static String toString(Map<String, String> map) {
 		StringBuilder optionList = new StringBuilder();
 		for (Entry<String, String> entry : map.entrySet()) {
@@ -134,8 +175,9 @@ public class TransformCacheManager {
 		return options;
 	}
 
-	private static MuonZipPath checkTransformCache(Path transformCacheFolder, Map<String, String> options)
-		throws ModResolutionException {
+	/** @return The previous transform cache, or null if it couldn't be reused (in which case it has been erased). */
+	static @Nullable TransformCacheResult checkTransformCache(Path transformCacheFolder, Map<String, String> options,
+		String cacheKey) throws ModResolutionException {
 
 		Path cacheFile = transformCacheFolder.resolve(CACHE_FILE);
 
@@ -145,12 +187,6 @@ public class TransformCacheManager {
 			return null;
 		}
 
-		if (MuonLoader.isDevelopmentEnvironment()) {
-			Log.info(LogCategory.CACHE, "Not reusing previous transform cache since we're in a development environment");
-			erasePreviousTransformCache(transformCacheFolder, cacheFile, null);
-			return null;
-		}
-
 		try (MuonZipFileSystem fs = new MuonZipFileSystem("transform-cache", cacheFile, "")) {
 			MuonZipPath inner = fs.getRoot();
 			if (!FasterFiles.isRegularFile(inner.resolve(FILE_TRANSFORM_COMPLETE))) {
@@ -212,10 +248,22 @@ public class TransformCacheManager {
 					return null;
 				}
 			}
-			return inner;
+
+			// The options don't include the loader version, so caches written before the binary index existed
+			// can still match them
+			Path indexFile = inner.resolve(DENY_LOAD_INDEX_PATH);
+			if (!FasterFiles.isRegularFile(indexFile)) {
+				Log.info(LogCategory.CACHE, "Not reusing previous transform cache since it has no hidden class index");
+				erasePreviousTransformCache(transformCacheFolder, cacheFile, null);
+				return null;
+			}
+			DenyLoadIndex hiddenClasses = DenyLoadIndex.read(Files.readAllBytes(indexFile));
+			return new TransformCacheResult(inner, false, hiddenClasses, cacheKey);
 		} catch (IOException | IOError io) {
 			if (io instanceof PartiallyWrittenIOException) {
 				Log.info(LogCategory.CACHE, "Not reusing previous transform cache since it's incomplete!");
+			} else if (io instanceof ReferencedFileChangedIOException) {
+				Log.info(LogCategory.CACHE, "Not reusing previous transform cache since %s", io.getMessage());
 			} else {
 				Log.info(
 					LogCategory.CACHE,
@@ -257,6 +305,29 @@ public class TransformCacheManager {
 
 	static final boolean WRITE_CUSTOM = true;
 
+	/** @return The key of the transform cache for the given options, which is also its name in the shared cache. */
+	static String cacheKey(String options) {
+		return new SharedCacheStore.KeyBuilder().add(MuonLoaderImpl.VERSION).add(options).build();
+	}
+
+	private static MuonZipPath useSharedTransformCache(SharedCacheStore store, String cacheKey,
+		Path transformCacheFolder, String options, List<ModLoadOption> modList) throws ModResolutionException {
+
+		Path shared;
+		try {
+			shared = store.getOrCreate("transform-cache", cacheKey + ".zip", tmp -> {
+				// The shared cache can outlive the mod files of the instance which created it, so it can't refer to them
+				writeTransformCacheFile(tmp, options, modList, false);
+			});
+		} catch (IOException e) {
+			throw new ModResolutionException("Failed to create the shared transform bundle!", e);
+		}
+
+		// Files.zip is never modified once written, so a hardlink is safe
+		// (erasePreviousTransformCache only deletes the link)
+		return openCache(SharedCacheStore.link(shared, transformCacheFolder.resolve(CACHE_FILE)));
+	}
+
 	private static MuonZipPath createTransformCache(Path transformCacheFile, String options, List<
 		ModLoadOption> modList) throws ModResolutionException {
 
@@ -266,13 +337,24 @@ public class TransformCacheManager {
 			throw new ModResolutionException("Failed to create the transform cache parent directory!", e);
 		}
 
+		boolean referenceZips = !Boolean.getBoolean(SystemProperties.DISABLE_TRANSFORM_CACHE_REFERENCES);
+		writeTransformCacheFile(transformCacheFile, options, modList, referenceZips);
+		return openCache(transformCacheFile);
+	}
+
+	/** @param referenceZips If true then resources which weren't modified are stored as references to the original mod
+	 *            files, rather than being copied into the cache. */
+	private static void writeTransformCacheFile(Path transformCacheFile, String options, List<ModLoadOption> modList,
+		boolean referenceZips) throws ModResolutionException {
+
 		if (!Boolean.getBoolean(SystemProperties.DISABLE_OPTIMIZED_COMPRESSED_TRANSFORM_CACHE)) {
-			try (MuonUnifiedFileSystem fs = new MuonUnifiedFileSystem("transform-cache", true)) {
+			try (MuonUnifiedFileSystem fs = new MuonUnifiedFileSystem("transform-cache", true);
+				MuonZipFileSystem.StreamingWriter writer = startCompressedCache(transformCacheFile, referenceZips)) {
 				Path root = fs.getRoot();
-				writeTransformCache(options, modList, root);
-				MuonZipFileSystem.writeQuiltCompressedFileSystem(root, transformCacheFile);
-
-				return openCache(transformCacheFile);
+				// Transformed classes are spilled to the file as they are produced, rather than all being kept in memory
+				writeTransformCache(options, modList, root, writer);
+				writer.finish(root);
+				return;
 			} catch (IOException e) {
 				throw new ModResolutionException("Failed to create the transform bundle!", e);
 			}
@@ -284,19 +366,36 @@ public class TransformCacheManager {
 
 			Path inner = fs.get().getPath("/");
 
-			writeTransformCache(options, modList, inner);
+			writeTransformCache(options, modList, inner, null);
 
 		} catch (IOException e) {
 			throw new ModResolutionException("Failed to create the transform bundle!", e);
 		} catch (URISyntaxException e) {
 			throw new ModResolutionException(e);
 		}
+	}
 
-		return openCache(transformCacheFile);
+	private static MuonZipFileSystem.StreamingWriter startCompressedCache(Path transformCacheFile, boolean referenceZips)
+		throws IOException {
+		String codecName = System.getProperty(SystemProperties.TRANSFORM_CACHE_CODEC, "deflate");
+		QuiltZipCodec codec = QuiltZipCodec.byName(codecName);
+		if (codec == null) {
+			Log.warn(LogCategory.CACHE, "Unknown transform cache codec '%s', using deflate instead", codecName);
+			codec = QuiltZipCodec.DEFLATE;
+		}
+
+		int level = Integer.getInteger(SystemProperties.TRANSFORM_CACHE_DEFLATE_LEVEL, Deflater.DEFAULT_COMPRESSION);
+		if (level != Deflater.DEFAULT_COMPRESSION && (level < 0 || level > 9)) {
+			Log.warn(LogCategory.CACHE, "Invalid transform cache deflate level %s, using the default instead", level);
+			level = Deflater.DEFAULT_COMPRESSION;
+		}
+
+		return MuonZipFileSystem.startQuiltCompressedFileSystem(transformCacheFile, codec, level, referenceZips);
 	}
 
-	private static void writeTransformCache(String options, List<ModLoadOption> modList, Path root) throws ModResolutionException, IOException {
-		TransformCache cache = TransformCacheGenerator.generate(root, modList);
+	private static void writeTransformCache(String options, List<ModLoadOption> modList, Path root,
+		MuonZipFileSystem.@Nullable StreamingWriter writer) throws ModResolutionException, IOException {
+		TransformCache cache = TransformCacheGenerator.generate(root, modList, writer);
 		MuonMapFileSystem.dumpEntries(root.getFileSystem(), "after-populate");
 		Files.write(root.resolve("options.txt"), options.getBytes(StandardCharsets.UTF_8));
 		try (JsonWriter json = JsonWriter.json(Files.newBufferedWriter(root.resolve(DENY_LOAD_REASONS_PATH)))) {
@@ -310,6 +409,7 @@ public class TransformCacheManager {
 			}
 			json.endObject();
 		}
+		Files.write(root.resolve(DENY_LOAD_INDEX_PATH), DenyLoadIndex.write(cache.getHiddenClasses()));
 		Files.createFile(root.resolve(FILE_TRANSFORM_COMPLETE));
 	}
 
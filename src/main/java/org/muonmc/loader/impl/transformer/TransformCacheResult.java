@@ -16,8 +16,6 @@
 
 package org.muonmc.loader.impl.transformer;
 
-import java.util.Map;
-
 import org.muonmc.loader.impl.filesystem.MuonZipPath;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
@@ -26,11 +24,15 @@ import org.muonmc.loader.impl.util.MuonLoaderInternalType;
 public class TransformCacheResult {
 	public final MuonZipPath transformCacheRoot;
 	public final boolean isNewlyGenerated;
-	public final Map<String, String> hiddenClasses;
+	public final DenyLoadIndex hiddenClasses;
+	/** A hash of every input to the transform cache. Anything derived purely from the transform cache can use this as
+	 * a content key. */
+	public final String cacheKey;
 
-	TransformCacheResult(MuonZipPath transformCacheRoot, boolean isNewlyGenerated, Map<String, String> hiddenClasses) {
+	TransformCacheResult(MuonZipPath transformCacheRoot, boolean isNewlyGenerated, DenyLoadIndex hiddenClasses, String cacheKey) {
 		this.isNewlyGenerated = isNewlyGenerated;
 		this.transformCacheRoot = transformCacheRoot;
 		this.hiddenClasses = hiddenClasses;
+		this.cacheKey = cacheKey;
 	}
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+/** The size, last modified time, and file key of a file, used by caches which are saved between launches to cheaply
+ * check if a file has changed without reading it. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class FileStamp {
+	public final long size;
+	/** In microseconds. */
+	public final long modified;
+	/** {@link BasicFileAttributes#fileKey()}, or an empty string if the filesystem doesn't have file keys. */
+	public final String fileKey;
+
+	public FileStamp(long size, long modified, String fileKey) {
+		this.size = size;
+		this.modified = modified;
+		this.fileKey = fileKey;
+	}
+
+	public static FileStamp read(Path path) throws IOException {
+		BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+		Object fileKey = attrs.fileKey();
+		return new FileStamp(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.MICROSECONDS), fileKey == null ? "" : fileKey.toString());
+	}
+
+	public static FileStamp read(DataInput in) throws IOException {
+		return new FileStamp(in.readLong(), in.readLong(), in.readUTF());
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeLong(size);
+		out.writeLong(modified);
+		out.writeUTF(fileKey);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof FileStamp)) {
+			return false;
+		}
+		FileStamp other = (FileStamp) obj;
+		return size == other.size && modified == other.modified && fileKey.equals(other.fileKey);
+	}
+
+	@Override
+	public int hashCode() {
+		return (Long.hashCode(size) * 31 + Long.hashCode(modified)) * 31 + fileKey.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "FileStamp{size=" + size + ", modified=" + modified + ", fileKey=" + fileKey + "}";
+	}
+}
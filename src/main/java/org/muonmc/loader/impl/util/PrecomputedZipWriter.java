@@ -0,0 +1,293 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/** Writes a zip file from entries which have all been compressed already, so (unlike {@link java.util.zip.ZipOutputStream})
+ * entries can be compressed in parallel, and files which are already deflated can be copied without inflating and
+ * deflating them again. Since every size is known before an entry is written no data descriptors are needed, and only
+ * the header fields of each entry are kept in memory for the central directory. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class PrecomputedZipWriter implements Closeable {
+
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_SIZE = 22;
+	private static final int ZIP64_END_SIZE = 56;
+	private static final int ZIP64_LOCATOR_SIZE = 20;
+	private static final int ZIP64_OFFSET_EXTRA_SIZE = 12;
+	/** Values at or above these don't fit in the normal fields, so are stored in zip64 records instead. */
+	private static final long ZIP64_MAGIC = 0xFFFF_FFFFL;
+	private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+	private static final int VERSION = 20;
+	private static final int VERSION_ZIP64 = 45;
+	/** Names are always UTF-8. */
+	private static final int FLAGS = 0x800;
+	private static final int METHOD_STORED = 0;
+	private static final int METHOD_DEFLATED = 8;
+
+	private final OutputStream out;
+	private final int dosTime = toDosTime(LocalDateTime.now());
+	private final ByteBuffer local = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private final List<Written> central = new ArrayList<>();
+	/** The offset of the next entry. Package private so tests can pretend that a lot has been written already. */
+	long offset = 0;
+	private boolean closed = false;
+
+	public PrecomputedZipWriter(Path to) throws IOException {
+		out = new BufferedOutputStream(Files.newOutputStream(to), 1 << 16);
+	}
+
+	/** A single compressed entry. These are thread safe to create. Entries must be smaller than 2 GiB, since zip64
+	 * sizes aren't supported (only zip64 offsets and entry counts are). */
+	public static final class Entry {
+		final byte[] name;
+		final int method;
+		final byte[] data;
+		final int size;
+		final long crc;
+
+		private Entry(String name, int method, byte[] data, int size, long crc) {
+			this.name = name.getBytes(StandardCharsets.UTF_8);
+			this.method = method;
+			this.data = data;
+			this.size = size;
+			this.crc = crc;
+		}
+
+		/** @param name The folder name, which must end with a slash. */
+		public static Entry folder(String name) {
+			return new Entry(name, METHOD_STORED, new byte[0], 0, 0);
+		}
+
+		/** Deflates the given file contents. */
+		public static Entry compress(String name, byte[] contents) {
+			CRC32 crc = new CRC32();
+			crc.update(contents);
+
+			Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				deflater.setInput(contents);
+				deflater.finish();
+				// Anything which doesn't compress to smaller than the contents is stored instead, so the buffer never
+				// needs to grow (and its size can't overflow)
+				byte[] buffer = new byte[contents.length];
+				int length = 0;
+				while (!deflater.finished()) {
+					if (length == buffer.length) {
+						// Not worth compressing
+						return new Entry(name, METHOD_STORED, contents, contents.length, crc.getValue());
+					}
+					length += deflater.deflate(buffer, length, buffer.length - length);
+				}
+				return new Entry(name, METHOD_DEFLATED, Arrays.copyOf(buffer, length), contents.length, crc.getValue());
+			} finally {
+				deflater.end();
+			}
+		}
+
+		/** Uses file contents which are already compressed with raw deflate.
+		 *
+		 * @param size The uncompressed size, which must be less than 2 GiB.
+		 * @param crc The CRC-32 of the uncompressed contents, or -1 to compute it (which requires inflating the data,
+		 *            although that's still much faster than compressing it again).
+		 * @throws IOException if the size is 2 GiB or more, or the crc needed to be computed and the data is invalid. */
+		public static Entry deflated(String name, byte[] deflated, long size, long crc) throws IOException {
+			if (size < 0 || size > Integer.MAX_VALUE) {
+				throw new IOException("Can't write " + name + " with a size of " + size + " bytes, since entries must be smaller than 2 GiB");
+			}
+			if (crc < 0) {
+				crc = computeInflatedCrc(deflated, (int) size);
+			}
+			return new Entry(name, METHOD_DEFLATED, deflated, (int) size, crc);
+		}
+
+		private static long computeInflatedCrc(byte[] deflated, int size) throws IOException {
+			CRC32 crc = new CRC32();
+			Inflater inflater = new Inflater(true);
+			try {
+				inflater.setInput(deflated);
+				byte[] buffer = new byte[Math.min(Math.max(size, 1), 1 << 16)];
+				int total = 0;
+				while (!inflater.finished()) {
+					int count = inflater.inflate(buffer);
+					if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+						throw new IOException("Truncated deflate data");
+					}
+					crc.update(buffer, 0, count);
+					total += count;
+				}
+				if (total != size) {
+					throw new IOException("Expected " + size + " bytes, but inflated " + total);
+				}
+			} catch (DataFormatException e) {
+				throw new IOException(e);
+			} finally {
+				inflater.end();
+			}
+			return crc.getValue();
+		}
+	}
+
+	/** Writes the local header and data of the given entry. Only the header fields are kept until {@link #close()}, so
+	 * the entry's data can be discarded afterwards. */
+	public void write(Entry entry) throws IOException {
+		if (closed) {
+			throw new IOException("Already closed");
+		}
+		Written written = new Written(entry, offset);
+		central.add(written);
+
+		local.clear();
+		local.putInt(0x04034b50);
+		local.putShort((short) written.version); // Version needed
+		putCommon(local, entry.name, entry.method, entry.crc, entry.data.length, entry.size, dosTime);
+		local.putShort((short) 0); // Extra field length
+		out.write(local.array(), 0, LOCAL_HEADER_SIZE);
+		out.write(entry.name);
+		out.write(entry.data);
+		offset += (long) LOCAL_HEADER_SIZE + entry.name.length + entry.data.length;
+	}
+
+	/** Writes the central directory, using zip64 records if there are too many entries or the file is too large for a
+	 * plain zip (like {@link java.util.zip.ZipOutputStream} does), and then closes the file. */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try (OutputStream stream = out) {
+			long centralOffset = offset;
+			ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE + ZIP64_OFFSET_EXTRA_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			for (Written entry : central) {
+				boolean zip64 = entry.offset >= ZIP64_MAGIC;
+				header.clear();
+				header.putInt(0x02014b50);
+				header.putShort((short) entry.version); // Version made by
+				header.putShort((short) entry.version); // Version needed
+				putCommon(header, entry.name, entry.method, entry.crc, entry.compressedSize, entry.size, dosTime);
+				header.putShort((short) (zip64 ? ZIP64_OFFSET_EXTRA_SIZE : 0)); // Extra field length
+				header.putShort((short) 0); // Comment length
+				header.putShort((short) 0); // Disk number
+				header.putShort((short) 0); // Internal attributes
+				header.putInt(entry.name[entry.name.length - 1] == '/' ? 0x10 : 0); // External attributes
+				header.putInt((int) Math.min(entry.offset, ZIP64_MAGIC));
+				stream.write(header.array(), 0, CENTRAL_HEADER_SIZE);
+				stream.write(entry.name);
+				if (zip64) {
+					header.clear();
+					header.putShort((short) 0x0001); // Zip64 extended information
+					header.putShort((short) 8);
+					header.putLong(entry.offset);
+					stream.write(header.array(), 0, ZIP64_OFFSET_EXTRA_SIZE);
+				}
+				offset += CENTRAL_HEADER_SIZE + entry.name.length + (zip64 ? ZIP64_OFFSET_EXTRA_SIZE : 0);
+			}
+
+			long centralSize = offset - centralOffset;
+			int count = central.size();
+			ByteBuffer end = ByteBuffer.allocate(ZIP64_END_SIZE + ZIP64_LOCATOR_SIZE + END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if (count >= ZIP64_MAGIC_COUNT || centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC) {
+				end.putInt(0x06064b50);
+				end.putLong(ZIP64_END_SIZE - 12); // Size of the rest of this record
+				end.putShort((short) VERSION_ZIP64); // Version made by
+				end.putShort((short) VERSION_ZIP64); // Version needed
+				end.putInt(0); // Disk number
+				end.putInt(0); // Disk with the central directory
+				end.putLong(count);
+				end.putLong(count);
+				end.putLong(centralSize);
+				end.putLong(centralOffset);
+
+				end.putInt(0x07064b50);
+				end.putInt(0); // Disk with the zip64 end record
+				end.putLong(offset);
+				end.putInt(1); // Total number of disks
+			}
+
+			end.putInt(0x06054b50);
+			end.putShort((short) 0); // Disk number
+			end.putShort((short) 0); // Disk with the central directory
+			end.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+			end.putShort((short) Math.min(count, ZIP64_MAGIC_COUNT));
+			end.putInt((int) Math.min(centralSize, ZIP64_MAGIC));
+			end.putInt((int) Math.min(centralOffset, ZIP64_MAGIC));
+			end.putShort((short) 0); // Comment length
+			stream.write(end.array(), 0, end.position());
+		}
+	}
+
+	/** Writes the fields which are the same in local and central headers, from the flags to the name length. */
+	private static void putCommon(ByteBuffer buffer, byte[] name, int method, long crc, int compressedSize, int size, int dosTime) {
+		buffer.putShort((short) FLAGS);
+		buffer.putShort((short) method);
+		buffer.putInt(dosTime);
+		buffer.putInt((int) crc);
+		buffer.putInt(compressedSize);
+		buffer.putInt(size);
+		buffer.putShort((short) name.length);
+	}
+
+	/** The header fields of an entry which has been written, for the central directory. */
+	private static final class Written {
+		final byte[] name;
+		final int method;
+		final long crc;
+		final int compressedSize;
+		final int size;
+		final long offset;
+		/** The version needed to extract, which is the same in both headers. Only the offset can need zip64, and that
+		 * is only stored in the central header. */
+		final int version;
+
+		Written(Entry entry, long offset) {
+			this.name = entry.name;
+			this.method = entry.method;
+			this.crc = entry.crc;
+			this.compressedSize = entry.data.length;
+			this.size = entry.size;
+			this.offset = offset;
+			this.version = offset >= ZIP64_MAGIC ? VERSION_ZIP64 : VERSION;
+		}
+	}
+
+	private static int toDosTime(LocalDateTime time) {
+		int year = Math.max(time.getYear(), 1980) - 1980;
+		int date = (year << 9) | (time.getMonthValue() << 5) | time.getDayOfMonth();
+		int clock = (time.getHour() << 11) | (time.getMinute() << 5) | (time.getSecond() >> 1);
+		return (date << 16) | clock;
+	}
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.muonmc.loader.impl.util.log.Log;
+import org.muonmc.loader.impl.util.log.LogCategory;
+
+/** A cache folder shared between multiple game instances, enabled by setting
+ * {@link SystemProperties#SHARED_CACHE_DIRECTORY}. Entries are stored by a hash of everything which determines their
+ * content, so identical caches (for example the transform cache of two servers with the same mods) are only generated
+ * and stored once. Instances then reference entries with hardlinks from their own cache folder, or use the shared path
+ * directly if hardlinks aren't supported.
+ * <p>
+ * Entries are never modified after they are created: they are written to a temporary path, and then atomically
+ * renamed into place while holding a lock file, so multiple processes can safely create the same entry at once. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+public final class SharedCacheStore {
+
+	private static final SharedCacheStore INSTANCE;
+
+	/** {@link FileLock}s are held by the whole JVM, so threads in the same process need to be excluded separately. */
+	private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+	static {
+		String dir = System.getProperty(SystemProperties.SHARED_CACHE_DIRECTORY);
+		INSTANCE = dir == null || dir.isEmpty() ? null : new SharedCacheStore(Paths.get(dir).toAbsolutePath());
+	}
+
+	private final Path root;
+
+	SharedCacheStore(Path root) {
+		this.root = root;
+	}
+
+	/** @return The shared store, or null if it's not enabled. */
+	public static SharedCacheStore get() {
+		return INSTANCE;
+	}
+
+	@FunctionalInterface
+	public interface EntryWriter<E extends Exception> {
+		/** Writes the entry (either a single file or a folder) to the given path, which doesn't exist yet. */
+		void write(Path to) throws IOException, E;
+	}
+
+	/** Finds an existing entry, or creates it with the given writer if it doesn't exist yet. If another process is
+	 * already creating the same entry then this waits for it to finish instead.
+	 *
+	 * @param category The sub-folder to store the entry in.
+	 * @param key The content key of the entry, normally from a {@link KeyBuilder}.
+	 * @return The path to the (completely written) shared entry. */
+	public <E extends Exception> Path getOrCreate(String category, String key, EntryWriter<E> writer)
+		throws IOException, E {
+
+		Path folder = root.resolve(category);
+		Path entry = folder.resolve(key);
+		if (Files.exists(entry)) {
+			return entry;
+		}
+
+		Files.createDirectories(folder);
+
+		synchronized (JVM_LOCKS.computeIfAbsent(entry, p -> new Object())) {
+			// The lock file is never deleted, since another process might be waiting to lock it
+			Path lockFile = folder.resolve(key + ".lock");
+			try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+				FileLock lock = channel.lock()) {
+
+				if (Files.exists(entry)) {
+					return entry;
+				}
+
+				Path tmp = folder.resolve(key + "." + UUID.randomUUID() + ".tmp");
+				try {
+					Log.info(LogCategory.CACHE, "Creating shared cache entry " + category + "/" + key);
+					writer.write(tmp);
+					Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+				} finally {
+					if (Files.exists(tmp)) {
+						deleteRecursively(tmp);
+					}
+				}
+				return entry;
+			}
+		}
+	}
+
+	/** Makes the given target path refer to the shared entry, by hardlinking the entry (or every file in it, if it's a
+	 * folder). Any existing file at the target is replaced.
+	 *
+	 * @return The target if the link succeeded, or the shared entry if hardlinks aren't supported between the two
+	 *         paths (in which case the shared entry should be used directly). */
+	public static Path link(Path sharedEntry, Path target) {
+		try {
+			if (Files.isDirectory(sharedEntry)) {
+				Files.createDirectories(target);
+				try (Stream<Path> stream = Files.list(sharedEntry)) {
+					for (Path file : (Iterable<Path>) stream::iterator) {
+						linkFile(file, target.resolve(file.getFileName().toString()));
+					}
+				}
+			} else {
+				Files.createDirectories(target.getParent());
+				linkFile(sharedEntry, target);
+			}
+			return target;
+		} catch (IOException | UnsupportedOperationException e) {
+			Log.info(LogCategory.CACHE, "Unable to hardlink " + sharedEntry + " to " + target + ", using it directly instead (" + e + ")");
+			return sharedEntry;
+		}
+	}
+
+	private static void linkFile(Path from, Path to) throws IOException {
+		Files.deleteIfExists(to);
+		Files.createLink(to, from);
+	}
+
+	private static void deleteRecursively(Path path) throws IOException {
+		Files.walkFileTree(path, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Files.delete(file);
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				Files.delete(dir);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	/** Computes a content key by hashing strings and file contents together. */
+	public static final class KeyBuilder {
+		private final MessageDigest digest;
+		private final byte[] buffer = new byte[0x2000];
+
+		public KeyBuilder() {
+			try {
+				digest = MessageDigest.getInstance("SHA-256");
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("This JVM doesn't support SHA-256???", e);
+			}
+		}
+
+		public KeyBuilder add(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			addLength(bytes.length);
+			digest.update(bytes);
+			return this;
+		}
+
+		public KeyBuilder addContent(Path file) throws IOException {
+			try (InputStream stream = Files.newInputStream(file)) {
+				return addContent(stream);
+			}
+		}
+
+		public KeyBuilder addContent(URL url) throws IOException {
+			try (InputStream stream = url.openStream()) {
+				return addContent(stream);
+			}
+		}
+
+		private KeyBuilder addContent(InputStream stream) throws IOException {
+			int count;
+			long total = 0;
+			while ((count = stream.read(buffer)) > 0) {
+				digest.update(buffer, 0, count);
+				total += count;
+			}
+			addLength(total);
+			return this;
+		}
+
+		private void addLength(long length) {
+			for (int i = 0; i < 8; i++) {
+				digest.update((byte) (length >>> (i * 8)));
+			}
+		}
+
+		public String build() {
+			StringBuilder sb = new StringBuilder();
+			for (byte b : digest.digest()) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			return sb.toString();
+		}
+	}
+}
@@ -46,6 +46,8 @@ public final class SystemProperties {
 	public static final String DISABLE_MOD_SOLVING_PRE_PROCESSING = "loader.mod_solving.disable_pre_processor";
 	public static final String MODS_DIRECTORY = "loader.modsDir";
 	public static final String CACHE_DIRECTORY = "loader.cacheDir";
+	// optional cache folder shared between instances, see SharedCacheStore
+	public static final String SHARED_CACHE_DIRECTORY = "loader.sharedCacheDir";
 	public static final String CONFIG_DIRECTORY = "loader.configDir";
 	// the file extension to be used for configs that do not explicitly declare a specific extension
 	public static final String DEFAULT_CONFIG_EXTENSION = "loader.defaultConfigExtension";
@@ -53,6 +55,10 @@ public final class SystemProperties {
 	public static final String GLOBAL_CONFIG_EXTENSION = "loader.globalConfigExtension";
 	public static final String LOG_FILE = "loader.log.file";
 	public static final String LOG_LEVEL = "loader.log.level";
+	// write log messages on a background thread, see AsyncLogHandler
+	public static final String ASYNC_LOG = "loader.log.async";
+	// maximum number of messages kept for replaying into the game's logger, defaults to unlimited unless ASYNC_LOG is set
+	public static final String LOG_REPLAY_LIMIT = "loader.log.replay_limit";
 	public static final String SKIP_MC_PROVIDER = "loader.skipMcProvider";
 	// additional mods to load (path separator separated paths, @ prefix for meta-file with each line referencing an actual file)
 	// names that end with "\*" (windows) or "/*" (any) will make loader scan the folder, otherwise it will be loaded as a mod.
@@ -63,6 +69,14 @@ public final class SystemProperties {
 	public static final String SYSTEM_LIBRARIES = "loader.systemLibraries";
 	public static final String DISABLE_FORKED_GUIS = "loader.disable_forked_guis";
 	public static final String DEBUG_LOG_LIB_CLASSIFICATION = "loader.debug.logLibClassification";
+	// disables caching which libraries each game class path jar contains between launches
+	public static final String DISABLE_LIB_CLASSIFICATION_CACHE = "loader.disable_lib_classification_cache";
+	// disables reusing the class path from the last time the vanilla server bundler was run
+	public static final String DISABLE_BUNDLER_CACHE = "loader.disable_bundler_cache";
+	// disables reusing the detected game version when the game jars haven't changed
+	public static final String DISABLE_GAME_VERSION_CACHE = "loader.disable_game_version_cache";
+	// disables reusing the classes patched by the game provider when the game jars haven't changed
+	public static final String DISABLE_GAME_PATCH_CACHE = "loader.disable_game_patch_cache";
 	// throw exceptions from entrypoints, discovery etc. directly instead of gathering and attaching as suppressed
 	public static final String DEBUG_THROW_DIRECTLY = "loader.debug.throwDirectly";
 	// logs class transformation errors to uncover caught exceptions without adequate logging
@@ -91,9 +105,16 @@ public final class SystemProperties {
 	public static final String DISABLE_OPTIMIZED_COMPRESSED_TRANSFORM_CACHE = "loader.transform_cache.disable_optimised_compression";
 	public static final String DISABLE_PRELOAD_TRANSFORM_CACHE = "loader.transform_cache.disable_preload";
 	public static final String LOG_CACHE_KEY_CHANGES = "loader.transform_cache.log_changed_keys";
+	// "deflate" (the default), "lz4", or "stored": trades transform cache size for faster class loading
+	public static final String TRANSFORM_CACHE_CODEC = "loader.transform_cache.codec";
+	// the deflate level (0-9) used by the transform cache when its codec is "deflate"
+	public static final String TRANSFORM_CACHE_DEFLATE_LEVEL = "loader.transform_cache.deflate_level";
+	// copy unmodified mod resources into the transform cache, rather than referring to the original mod files
+	public static final String DISABLE_TRANSFORM_CACHE_REFERENCES = "loader.transform_cache.disable_references";
 	// enable useTempFile in ZipFileSystem, reduces memory usage when writing transform cache at the cost of speed
 	public static final String USE_ZIPFS_TEMP_FILE = "loader.zipfs.use_temp_file";
 	public static final String DISABLE_BEACON = "loader.disable_beacon";
+	public static final String DISABLE_CLASS_LOADING_MBEAN = "loader.disable_class_loading_mbean";
 	public static final String DEBUG_DUMP_FILESYSTEM_CONTENTS = "loader.debug.filesystem.dump_contents";
 	public static final String ALWAYS_DEFER_FILESYSTEM_OPERATIONS = "loader.workaround.defer_all_filesystem_operations";
 	public static final String DISABLE_MUON_CLASS_PATH_CUSTOM_TABLE = "loader.muon_class_path.disable_custom_table";
@@ -108,6 +129,10 @@ public final class SystemProperties {
 	/** Enables printing all gui packets that are sent and received. */
 	public static final String DEBUG_GUI_PACKETS = "loader.debug.gui_packets";
 
+	/** Milliseconds to wait before sending a batch of gui updates to the forked gui, so that repeated updates to the
+	 * same object can be merged. Defaults to 16. */
+	public static final String GUI_SYNC_INTERVAL = "loader.gui.sync_interval";
+
 	/** Enables saving of all patched classes for debug purposes. */
 	public static final String DEBUG_DUMP_PATCHED_CLASSES = "loader.debug.dump_patched_classes";
 
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util.log;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.muonmc.loader.impl.util.MuonLoaderInternal;
+import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+
+/** Passes every message to another {@link LogHandler} on a single background thread, so logging threads only need to
+ * add the message to a bounded lock-free ring buffer. Formatting (with {@link Log#logFormat}) is also moved to the
+ * background thread if every argument is immutable.
+ * <p>
+ * Errors are flushed before returning, so they are always printed before a crash. Enabled by
+ * {@link org.muonmc.loader.impl.util.SystemProperties#ASYNC_LOG}. */
+@MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
+final class AsyncLogHandler implements LogHandler {
+
+	private static final int CAPACITY = 1 << 13;
+	private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+	/** Argument types which can't change between logging and formatting. */
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(
+		String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+		Float.class, Double.class, BigInteger.class, BigDecimal.class, Class.class
+	));
+
+	final LogHandler delegate;
+
+	// Bounded MPSC queue (based on Dmitry Vyukov's bounded MPMC queue)
+	private final AtomicReferenceArray<Entry> slots = new AtomicReferenceArray<>(CAPACITY);
+	/** For each slot: equal to the position when it's free to write, or position + 1 when it's ready to read. */
+	private final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+	private final AtomicLong tail = new AtomicLong();
+	/** Only accessed by the consumer thread. */
+	private long head;
+	/** The number of entries which have been fully passed to the delegate. */
+	private volatile long consumed;
+
+	private final Thread consumer;
+	private volatile boolean sleeping;
+	private volatile boolean closed;
+
+	AsyncLogHandler(LogHandler delegate) {
+		this.delegate = delegate;
+		if (delegate instanceof BuiltinLogHandler) {
+			((BuiltinLogHandler) delegate).beforeShutdown = this::flush;
+		}
+		for (int i = 0; i < CAPACITY; i++) {
+			sequences.set(i, i);
+		}
+		consumer = new Thread(this::run, "Muon Log Writer");
+		consumer.setDaemon(true);
+		consumer.start();
+	}
+
+	/** @return True if formatting with the given arguments can safely be delayed until the message is written. */
+	static boolean canDeferFormatting(Object[] args) {
+		for (Object arg : args) {
+			if (arg != null && !IMMUTABLE_TYPES.contains(arg.getClass()) && !(arg instanceof Enum)
+				&& !(arg instanceof Path) && !(arg instanceof Throwable)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void log(long time, LogLevel level, LogCategory category, String msg, Throwable exc, boolean fromReplay, boolean wasSuppressed) {
+		submit(new Entry(time, level, category, msg, null, exc, fromReplay, wasSuppressed));
+	}
+
+	/** Queues a message which will be formatted with {@link String#format} on the writer thread. */
+	void logFormat(long time, LogLevel level, LogCategory category, String format, Object[] args) {
+		submit(new Entry(time, level, category, format, args, null, false, false));
+	}
+
+	@Override
+	public boolean shouldLog(LogLevel level, LogCategory category) {
+		return delegate.shouldLog(level, category);
+	}
+
+	private void submit(Entry entry) {
+		if (closed || Thread.currentThread() == consumer) {
+			// Either logged while formatting another message, or after close() - in both cases there's no
+			// consumer to wait for
+			write(entry);
+			return;
+		}
+
+		long position;
+		while ((position = offer(entry)) < 0) {
+			// Full, so wait for the writer to catch up rather than dropping messages
+			LockSupport.unpark(consumer);
+			LockSupport.parkNanos(10_000);
+		}
+
+		if (sleeping) {
+			LockSupport.unpark(consumer);
+		}
+
+		if (!entry.level.isLessThan(LogLevel.ERROR)) {
+			awaitConsumed(position + 1);
+		}
+	}
+
+	private long offer(Entry entry) {
+		long position = tail.get();
+		while (true) {
+			int index = (int) position & (CAPACITY - 1);
+			long diff = sequences.get(index) - position;
+			if (diff == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					slots.set(index, entry);
+					sequences.set(index, position + 1);
+					return position;
+				}
+				position = tail.get();
+			} else if (diff < 0) {
+				return -1;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	private Entry poll() {
+		int index = (int) head & (CAPACITY - 1);
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+		Entry entry = slots.get(index);
+		slots.set(index, null);
+		sequences.set(index, head + CAPACITY);
+		head++;
+		return entry;
+	}
+
+	private void run() {
+		while (true) {
+			Entry entry = poll();
+			if (entry == null) {
+				if (closed) {
+					return;
+				}
+				sleeping = true;
+				// Checked again after setting sleeping, so a producer which missed the flag must have published first
+				int index = (int) head & (CAPACITY - 1);
+				if (sequences.get(index) != head + 1) {
+					LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+				}
+				sleeping = false;
+				continue;
+			}
+
+			write(entry);
+			consumed = head;
+		}
+	}
+
+	private void write(Entry entry) {
+		try {
+			if (entry.args != null) {
+				Log.formatAndLog(delegate, entry.time, entry.level, entry.category, entry.msg, entry.args);
+			} else {
+				delegate.log(entry.time, entry.level, entry.category, entry.msg, entry.exc, entry.fromReplay, entry.wasSuppressed);
+			}
+		} catch (Throwable t) {
+			System.err.println("Failed to write a log message: " + entry.msg);
+			t.printStackTrace();
+		}
+	}
+
+	/** Waits until every message which was logged before this call has been passed to the delegate. */
+	void flush() {
+		if (Thread.currentThread() != consumer) {
+			awaitConsumed(tail.get());
+		}
+	}
+
+	private void awaitConsumed(long position) {
+		long start = System.nanoTime();
+		while (consumed < position && consumer.isAlive()) {
+			if (System.nanoTime() - start > FLUSH_TIMEOUT_NANOS) {
+				// Something is wrong with the writer thread, but never deadlock the game because of it
+				return;
+			}
+			LockSupport.unpark(consumer);
+			LockSupport.parkNanos(10_000);
+		}
+	}
+
+	@Override
+	public void close() {
+		flush();
+		closed = true;
+		LockSupport.unpark(consumer);
+		try {
+			consumer.join(TimeUnit.NANOSECONDS.toMillis(FLUSH_TIMEOUT_NANOS));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (!consumer.isAlive()) {
+			// Anything queued just before closing
+			Entry entry;
+			while ((entry = poll()) != null) {
+				write(entry);
+			}
+		}
+		delegate.close();
+	}
+
+	private static final class Entry {
+		final long time;
+		final LogLevel level;
+		final LogCategory category;
+		/** The message, or the format string if {@link #args} isn't null. */
+		final String msg;
+		final Object[] args;
+		final Throwable exc;
+		final boolean fromReplay;
+		final boolean wasSuppressed;
+
+		Entry(long time, LogLevel level, LogCategory category, String msg, Object[] args, Throwable exc, boolean fromReplay, boolean wasSuppressed) {
+			this.time = time;
+			this.level = level;
+			this.category = category;
+			this.msg = msg;
+			this.args = args;
+			this.exc = exc;
+			this.fromReplay = fromReplay;
+			this.wasSuppressed = wasSuppressed;
+		}
+	}
+}
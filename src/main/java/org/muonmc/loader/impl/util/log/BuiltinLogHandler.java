@@ -27,8 +27,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Default LogHandler until Log is initialized.
@@ -38,17 +36,27 @@ import java.util.List;
  * - log to stderr for LogLevel.ERROR
  * - option to relay previous log output to another log handler if requested through Log.init
  * - dumps previous log output to a log file if not closed/relayed yet
+ * - optionally limits the number of buffered messages, see {@link SystemProperties#LOG_REPLAY_LIMIT}
  */
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 final class BuiltinLogHandler extends ConsoleLogHandler {
 	private static final String DEFAULT_LOG_FILE = "quiltloader.log";
+	/** The default {@link SystemProperties#LOG_REPLAY_LIMIT} when logging asynchronously, which is only needed to stop
+	 * a very chatty startup from using too much memory. */
+	private static final int DEFAULT_ASYNC_REPLAY_LIMIT = 100_000;
 
+	private final int replayLimit;
 	private boolean configured;
 	private boolean enableOutput;
-	private List<ReplayEntry> buffer = new ArrayList<>();
+	private ReplayBuffer buffer;
 	private final Thread shutdownHook;
+	/** Called by the shutdown hook before it locks this handler, so {@link AsyncLogHandler} can write everything it has
+	 * queued first. */
+	volatile Runnable beforeShutdown;
 
-	BuiltinLogHandler() {
+	BuiltinLogHandler(boolean async) {
+		replayLimit = Integer.getInteger(SystemProperties.LOG_REPLAY_LIMIT, async ? DEFAULT_ASYNC_REPLAY_LIMIT : Integer.MAX_VALUE);
+		buffer = new ReplayBuffer(replayLimit);
 		shutdownHook = new ShutdownHook();
 		Runtime.getRuntime().addShutdownHook(shutdownHook);
 	}
@@ -111,7 +119,7 @@ final class BuiltinLogHandler extends ConsoleLogHandler {
 		}
 
 		if (buffer) {
-			if (this.buffer == null) this.buffer = new ArrayList<>();
+			if (this.buffer == null) this.buffer = new ReplayBuffer(replayLimit);
 		} else {
 			this.buffer = null;
 		}
@@ -134,6 +142,62 @@ final class BuiltinLogHandler extends ConsoleLogHandler {
 		return true;
 	}
 
+	/** A list of {@link ReplayEntry}s which drops the oldest entries once it reaches its limit. If any entries have been
+	 * dropped then the first entry is a warning saying how many. */
+	private static final class ReplayBuffer {
+		private final int limit;
+		private ReplayEntry[] entries;
+		private int start;
+		private int count;
+		private long dropped;
+
+		ReplayBuffer(int limit) {
+			this.limit = Math.max(1, limit);
+			this.entries = new ReplayEntry[Math.min(this.limit, 64)];
+		}
+
+		void add(ReplayEntry entry) {
+			if (count == limit) {
+				entries[start] = entry;
+				start = (start + 1) % entries.length;
+				dropped++;
+				return;
+			}
+
+			if (count == entries.length) {
+				ReplayEntry[] larger = new ReplayEntry[(int) Math.min((long) entries.length * 2, limit)];
+				for (int i = 0; i < count; i++) {
+					larger[i] = entries[(start + i) % entries.length];
+				}
+				entries = larger;
+				start = 0;
+			}
+
+			entries[(start + count) % entries.length] = entry;
+			count++;
+		}
+
+		int size() {
+			return dropped > 0 ? count + 1 : count;
+		}
+
+		boolean isEmpty() {
+			return count == 0;
+		}
+
+		ReplayEntry get(int index) {
+			if (dropped > 0) {
+				if (index == 0) {
+					ReplayEntry first = entries[start];
+					String msg = dropped + " earlier log messages were dropped (see " + SystemProperties.LOG_REPLAY_LIMIT + ")";
+					return new ReplayEntry(first.time, LogLevel.WARN, LogCategory.LOG, msg, null);
+				}
+				index--;
+			}
+			return entries[(start + index) % entries.length];
+		}
+	}
+
 	private static final class ReplayEntry {
 		ReplayEntry(long time, LogLevel level, LogCategory category, String msg, Throwable exc) {
 			this.time = time;
@@ -157,6 +221,11 @@ final class BuiltinLogHandler extends ConsoleLogHandler {
 
 		@Override
 		public void run() {
+			Runnable beforeShutdown = BuiltinLogHandler.this.beforeShutdown;
+			if (beforeShutdown != null) {
+				beforeShutdown.run();
+			}
+
 			synchronized (BuiltinLogHandler.this) {
 				if (buffer == null || buffer.isEmpty()) return;
 
@@ -23,13 +23,16 @@ import java.util.IllegalFormatException;
 import org.muonmc.loader.impl.MuonConstants;
 import org.muonmc.loader.impl.util.MuonLoaderInternal;
 import org.muonmc.loader.impl.util.MuonLoaderInternalType;
+import org.muonmc.loader.impl.util.SystemProperties;
 
 @MuonLoaderInternal(MuonLoaderInternalType.INTERNAL)
 public final class Log {
 	public static final String NAME = MuonConstants.NAME;
 	private static final boolean CHECK_FOR_BRACKETS = true;
 
-	private static LogHandler handler = new BuiltinLogHandler();
+	private static LogHandler handler = Boolean.getBoolean(SystemProperties.ASYNC_LOG)
+		? new AsyncLogHandler(new BuiltinLogHandler(true))
+		: new BuiltinLogHandler(false);
 
 	private Log() { }
 
@@ -38,8 +41,14 @@ public final class Log {
 
 		LogHandler oldhHandler = Log.handler;
 
-		if (oldhHandler instanceof BuiltinLogHandler && replayBuiltin) {
-			((BuiltinLogHandler) oldhHandler).replay(handler);
+		if (oldhHandler instanceof AsyncLogHandler) {
+			((AsyncLogHandler) oldhHandler).flush();
+		}
+
+		LogHandler builtin = unwrap(oldhHandler);
+
+		if (builtin instanceof BuiltinLogHandler && replayBuiltin) {
+			((BuiltinLogHandler) builtin).replay(handler);
 		}
 
 		Log.handler = handler;
@@ -53,7 +62,7 @@ public final class Log {
 	 * @param output whether to output log messages directly
 	 */
 	public static void configureBuiltin(boolean buffer, boolean output) {
-		LogHandler handler = Log.handler;
+		LogHandler handler = unwrap(Log.handler);
 
 		if (handler instanceof BuiltinLogHandler) {
 			((BuiltinLogHandler) handler).configure(buffer, output);
@@ -63,13 +72,17 @@ public final class Log {
 	/** Disables the formatting if the current logger is the builtin / console logger. This is intended to be called in
 	 * loader's tests, where we don't need to know the time, log level, or category of the messages. */
 	public static void disableBuiltinFormatting() {
-		LogHandler handler = Log.handler;
+		LogHandler handler = unwrap(Log.handler);
 
 		if (handler instanceof ConsoleLogHandler) {
 			((ConsoleLogHandler) handler).configureFormatting(false);
 		}
 	}
 
+	private static LogHandler unwrap(LogHandler handler) {
+		return handler instanceof AsyncLogHandler ? ((AsyncLogHandler) handler).delegate : handler;
+	}
+
 	public static void error(LogCategory category, String format, Object... args) {
 		logFormat(LogLevel.ERROR, category, format, args);
 	}
@@ -144,6 +157,23 @@ public final class Log {
 		LogHandler handler = Log.handler;
 		if (!handler.shouldLog(level, category)) return;
 
+		if (args.length != 0) {
+			if (CHECK_FOR_BRACKETS) {
+				if (format.indexOf("{}") != -1) throw new IllegalArgumentException("log message containing {}: "+format);
+			}
+
+			if (handler instanceof AsyncLogHandler && AsyncLogHandler.canDeferFormatting(args)) {
+				((AsyncLogHandler) handler).logFormat(System.currentTimeMillis(), level, category, format, args);
+				return;
+			}
+		}
+
+		formatAndLog(handler, System.currentTimeMillis(), level, category, format, args);
+	}
+
+	/** The slow part of {@link #logFormat(LogLevel, LogCategory, String, Object...)}, which {@link AsyncLogHandler}
+	 * calls on its own thread. */
+	static void formatAndLog(LogHandler handler, long time, LogLevel level, LogCategory category, String format, Object[] args) {
 		String msg;
 		Throwable exc;
 
@@ -153,10 +183,6 @@ public final class Log {
 			msg = format;
 			exc = null;
 		} else {
-			if (CHECK_FOR_BRACKETS) {
-				if (format.indexOf("{}") != -1) throw new IllegalArgumentException("log message containing {}: "+format);
-			}
-
 			Object lastArg = args[args.length - 1];
 			Object[] newArgs;
 
@@ -178,7 +204,7 @@ public final class Log {
 			}
 		}
 
-		log(handler, level, category, msg, exc);
+		handler.log(time, level, category, msg.trim(), exc, false, false);
 	}
 
 	private static int getRequiredArgs(String format) {
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package net.fabricmc.loader.impl;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.muonmc.loader.api.ModContainer;
+import org.muonmc.loader.api.ModMetadata;
+
+public class FabricModWrappersTester {
+
+	@Test
+	public void testProvidedAlias() {
+		ModContainer main = mod("main");
+		ModContainer library = mod("library");
+		ModContainer alias = mod("library_alias");
+
+		Map<String, ModContainer> modMap = new HashMap<>();
+		modMap.put("main", main);
+		modMap.put("library", library);
+		modMap.put("library_alias", alias);
+
+		FabricLoaderImpl.ModWrappers wrappers = new FabricLoaderImpl.ModWrappers(
+			Arrays.asList(main, library), id -> Optional.ofNullable(modMap.get(id))
+		);
+
+		Assertions.assertEquals(2, wrappers.all.size());
+
+		net.fabricmc.loader.api.ModContainer mainWrapper = wrappers.get("main").get();
+		Assertions.assertSame(main, ((ModContainerImpl) mainWrapper).getQuiltModContainer());
+		Assertions.assertSame(mainWrapper, wrappers.get("main").get());
+		Assertions.assertSame(mainWrapper, wrappers.wrap(main));
+
+		Optional<net.fabricmc.loader.api.ModContainer> aliasWrapper = wrappers.get("library_alias");
+		Assertions.assertTrue(aliasWrapper.isPresent());
+		Assertions.assertSame(alias, ((ModContainerImpl) aliasWrapper.get()).getQuiltModContainer());
+		Assertions.assertSame(aliasWrapper.get(), wrappers.get("library_alias").get());
+		Assertions.assertSame(aliasWrapper.get(), wrappers.wrap(alias));
+
+		Assertions.assertFalse(wrappers.get("missing").isPresent());
+	}
+
+	private static ModContainer mod(String id) {
+		ModMetadata metadata = (ModMetadata) Proxy.newProxyInstance(
+			FabricModWrappersTester.class.getClassLoader(), new Class<?>[] { ModMetadata.class }, (proxy, method, args) -> {
+				if (method.getName().equals("id")) {
+					return id;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+		return (ModContainer) Proxy.newProxyInstance(
+			FabricModWrappersTester.class.getClassLoader(), new Class<?>[] { ModContainer.class }, (proxy, method, args) -> {
+				if (method.getName().equals("metadata")) {
+					return metadata;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+	}
+}
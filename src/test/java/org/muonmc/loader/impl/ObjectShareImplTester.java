@@ -0,0 +1,140 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ObjectShareImplTester {
+
+	@Test
+	public void testWhenAvailableBeforePut() {
+		ObjectShareImpl share = new ObjectShareImpl();
+		List<Object> seen = new ArrayList<>();
+		share.whenAvailable("test:key", (key, value) -> seen.add(value));
+		share.whenAvailable("test:key", (key, value) -> seen.add(key));
+
+		// Pending consumers aren't values
+		Assertions.assertNull(share.get("test:key"));
+		Assertions.assertNull(share.remove("test:key"));
+		Assertions.assertTrue(seen.isEmpty());
+
+		Assertions.assertNull(share.put("test:key", "first"));
+		Assertions.assertEquals(2, seen.size());
+		Assertions.assertEquals("first", seen.get(0));
+		Assertions.assertEquals("test:key", seen.get(1));
+		Assertions.assertEquals("first", share.get("test:key"));
+
+		// Consumers only run once, and later consumers run immediately
+		Assertions.assertEquals("first", share.put("test:key", "second"));
+		share.whenAvailable("test:key", (key, value) -> seen.add(value));
+		Assertions.assertEquals(3, seen.size());
+		Assertions.assertEquals("second", seen.get(2));
+
+		Assertions.assertEquals("second", share.remove("test:key"));
+		Assertions.assertNull(share.get("test:key"));
+	}
+
+	@Test
+	public void testPutIfAbsentWithPending() {
+		ObjectShareImpl share = new ObjectShareImpl();
+		List<Object> seen = new ArrayList<>();
+		share.whenAvailable("test:key", (key, value) -> seen.add(value));
+
+		Assertions.assertNull(share.putIfAbsent("test:key", "first"));
+		Assertions.assertEquals("first", share.putIfAbsent("test:key", "second"));
+		Assertions.assertEquals(1, seen.size());
+		Assertions.assertEquals("first", seen.get(0));
+		Assertions.assertEquals("first", share.get("test:key"));
+	}
+
+	/** Races one or two writers against several consumers for many keys, checking that every consumer is invoked
+	 * exactly once, with the value which is actually stored. */
+	@Test
+	public void testConcurrentPutAndWhenAvailable() throws Exception {
+		int keys = 2000;
+		int consumers = 4;
+		int threads = consumers + 2;
+		ObjectShareImpl share = new ObjectShareImpl();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CyclicBarrier barrier = new CyclicBarrier(threads);
+		AtomicInteger absentWins = new AtomicInteger();
+		List<Queue<Object>> seen = new ArrayList<>();
+		for (int i = 0; i < keys; i++) {
+			seen.add(new ConcurrentLinkedQueue<>());
+		}
+
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < consumers; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < keys; i++) {
+						barrier.await(30, TimeUnit.SECONDS);
+						Queue<Object> values = seen.get(i);
+						share.whenAvailable("test:key" + i, (key, value) -> values.add(value));
+					}
+					return null;
+				}));
+			}
+			// Odd keys use put, while even keys have two threads racing to putIfAbsent
+			for (int t = 0; t < 2; t++) {
+				String name = "writer" + t;
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < keys; i++) {
+						barrier.await(30, TimeUnit.SECONDS);
+						if ((i & 1) == 0) {
+							if (share.putIfAbsent("test:key" + i, name) == null) {
+								absentWins.incrementAndGet();
+							}
+						} else if (name.equals("writer0")) {
+							share.put("test:key" + i, name);
+						}
+					}
+					return null;
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assertions.assertEquals(keys / 2, absentWins.get());
+		for (int i = 0; i < keys; i++) {
+			Object value = share.get("test:key" + i);
+			Assertions.assertNotNull(value, "key" + i);
+			Queue<Object> values = seen.get(i);
+			Assertions.assertEquals(consumers, values.size(), "key" + i);
+			for (Object v : values) {
+				Assertions.assertSame(value, v, "key" + i);
+			}
+		}
+	}
+}
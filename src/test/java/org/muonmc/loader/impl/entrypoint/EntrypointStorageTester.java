@@ -0,0 +1,188 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.entrypoint;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.muonmc.loader.api.LanguageAdapter;
+import org.muonmc.loader.api.LanguageAdapterException;
+import org.muonmc.loader.api.entrypoint.EntrypointContainer;
+import org.muonmc.loader.api.entrypoint.EntrypointDispatcher;
+import org.muonmc.loader.api.entrypoint.EntrypointException;
+import org.muonmc.loader.api.plugin.ModContainerExt;
+import org.muonmc.loader.api.plugin.ModMetadataExt;
+import org.muonmc.loader.impl.metadata.qmj.AdapterLoadableClassEntry;
+
+public class EntrypointStorageTester {
+
+	private final AtomicInteger created = new AtomicInteger();
+
+	/** Creates a new {@link Runnable} for every entrypoint, except for those with the value "broken". */
+	private final Map<String, LanguageAdapter> adapters = Collections.singletonMap("default", new LanguageAdapter() {
+		@Override
+		public <T> T create(org.muonmc.loader.api.ModContainer mod, String value, Class<T> type) throws LanguageAdapterException {
+			if (value.equals("broken")) {
+				throw new LanguageAdapterException("broken");
+			}
+			created.incrementAndGet();
+			return type.cast((Runnable) () -> {});
+		}
+	});
+
+	@Test
+	public void testContainersAreLazy() throws Exception {
+		EntrypointStorage storage = new EntrypointStorage();
+		add(storage, mod("a"), "main", "working");
+		add(storage, mod("b"), "main", "broken");
+
+		List<EntrypointContainer<Runnable>> containers = storage.getEntrypointContainers("main", Runnable.class);
+		Assertions.assertEquals(2, containers.size());
+		Assertions.assertEquals(0, created.get());
+		Assertions.assertSame(containers, storage.getEntrypointContainers("main", Runnable.class));
+
+		// Only the broken entrypoint throws, and only once it's used
+		Assertions.assertNotNull(containers.get(0).getEntrypoint());
+		Assertions.assertThrows(EntrypointException.class, () -> containers.get(1).getEntrypoint());
+		Assertions.assertEquals(1, created.get());
+
+		add(storage, mod("c"), "main", "working");
+		List<EntrypointContainer<Runnable>> added = storage.getEntrypointContainers("main", Runnable.class);
+		Assertions.assertNotSame(containers, added);
+		Assertions.assertEquals(3, added.size());
+		// Entrypoints which were already created are reused
+		Assertions.assertSame(containers.get(0).getEntrypoint(), added.get(0).getEntrypoint());
+	}
+
+	@Test
+	public void testDispatcherCaching() throws Exception {
+		EntrypointStorage storage = new EntrypointStorage();
+		Assertions.assertEquals(0, storage.getEntrypointDispatcher("main", Runnable.class).size());
+		add(storage, mod("a"), "main", "working");
+		add(storage, mod("b"), "other", "working");
+
+		EntrypointDispatcher<Runnable> dispatcher = storage.getEntrypointDispatcher("main", Runnable.class);
+		Assertions.assertEquals(1, dispatcher.size());
+		Assertions.assertSame(dispatcher, storage.getEntrypointDispatcher("main", Runnable.class));
+		Assertions.assertNotSame(dispatcher, storage.getEntrypointDispatcher("main", Object.class));
+		Assertions.assertEquals(1, storage.getEntrypointDispatcher("other", Runnable.class).size());
+
+		// Adding to a different key doesn't replace the dispatcher
+		add(storage, mod("c"), "other", "working");
+		Assertions.assertSame(dispatcher, storage.getEntrypointDispatcher("main", Runnable.class));
+		Assertions.assertEquals(2, storage.getEntrypointDispatcher("other", Runnable.class).size());
+
+		add(storage, mod("d"), "main", "working");
+		EntrypointDispatcher<Runnable> added = storage.getEntrypointDispatcher("main", Runnable.class);
+		Assertions.assertNotSame(dispatcher, added);
+		Assertions.assertEquals(2, added.size());
+		Assertions.assertEquals(1, dispatcher.size());
+		Assertions.assertSame(added.getContainers(), storage.getEntrypointContainers("main", Runnable.class));
+	}
+
+	@Test
+	public void testConcurrentAdd() throws Exception {
+		EntrypointStorage storage = new EntrypointStorage();
+		int count = 500;
+		int readers = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(readers + 1);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			AtomicBoolean adding = new AtomicBoolean(true);
+			Future<?> adder = executor.submit(() -> {
+				start.await();
+				try {
+					for (int i = 0; i < count; i++) {
+						add(storage, mod("mod" + i), "main", "working");
+					}
+				} finally {
+					adding.set(false);
+				}
+				return null;
+			});
+
+			List<Future<?>> reads = new ArrayList<>();
+			for (int i = 0; i < readers; i++) {
+				boolean useDispatcher = (i & 1) == 0;
+				reads.add(executor.submit(() -> {
+					start.await();
+					int last = 0;
+					while (adding.get()) {
+						int size = useDispatcher
+							? storage.getEntrypointDispatcher("main", Runnable.class).size()
+							: storage.getEntrypointContainers("main", Runnable.class).size();
+						// Each call must see at least every entrypoint that the previous call saw
+						Assertions.assertTrue(size >= last, size + " < " + last);
+						last = size;
+					}
+					return null;
+				}));
+			}
+
+			start.countDown();
+			adder.get(30, TimeUnit.SECONDS);
+			for (Future<?> read : reads) {
+				read.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Nothing cached while entrypoints were being added may be returned afterwards
+		Assertions.assertEquals(count, storage.getEntrypointContainers("main", Runnable.class).size());
+		Assertions.assertEquals(count, storage.getEntrypointDispatcher("main", Runnable.class).size());
+		Assertions.assertEquals(count, storage.getEntrypoints("main", Runnable.class).size());
+	}
+
+	private void add(EntrypointStorage storage, ModContainerExt mod, String key, String value) throws Exception {
+		storage.add(mod, key, new AdapterLoadableClassEntry(value), adapters);
+	}
+
+	static ModContainerExt mod(String id) {
+		ModMetadataExt metadata = (ModMetadataExt) Proxy.newProxyInstance(
+			EntrypointStorageTester.class.getClassLoader(), new Class<?>[] { ModMetadataExt.class }, (proxy, method, args) -> {
+				if (method.getName().equals("id")) {
+					return id;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+		return (ModContainerExt) Proxy.newProxyInstance(
+			EntrypointStorageTester.class.getClassLoader(), new Class<?>[] { ModContainerExt.class }, (proxy, method, args) -> {
+				if (method.getName().equals("metadata")) {
+					return metadata;
+				}
+				if (method.getName().equals("toString")) {
+					return id;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		);
+	}
+}
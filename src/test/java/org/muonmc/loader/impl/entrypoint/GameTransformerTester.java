@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.entrypoint;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.impl.launch.common.MuonLauncher;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldNode;
+
+public class GameTransformerTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testCachedOutputIsIdentical() throws IOException {
+		Path jar = dir.resolve("game.jar");
+		Path cache = dir.resolve("game-patches.bin");
+		List<Path> jars = Collections.singletonList(jar);
+		writeGameJar(jar, "game/Main");
+
+		TestPatch freshPatch = new TestPatch();
+		GameTransformer fresh = new GameTransformer(freshPatch);
+		fresh.locateEntrypoints(launcher(Environment.CLIENT), "intermediary", jars, cache);
+		Assertions.assertEquals(1, freshPatch.runs);
+		Assertions.assertTrue(Files.exists(cache));
+
+		TestPatch cachedPatch = new TestPatch();
+		GameTransformer cached = new GameTransformer(cachedPatch);
+		cached.locateEntrypoints(launcher(Environment.CLIENT), "intermediary", jars, cache);
+		Assertions.assertEquals(0, cachedPatch.runs);
+
+		for (String name : new String[] { "game.Main", "game.Hook" }) {
+			Assertions.assertNotNull(fresh.transform(name), name);
+			Assertions.assertArrayEquals(fresh.transform(name), cached.transform(name), name);
+		}
+		Assertions.assertNull(cached.transform("game.Other"));
+	}
+
+	@Test
+	public void testCacheInvalidation() throws IOException {
+		Path jar = dir.resolve("game.jar");
+		Path cache = dir.resolve("game-patches.bin");
+		List<Path> jars = Collections.singletonList(jar);
+		writeGameJar(jar, "game/Main");
+
+		new GameTransformer(new TestPatch()).locateEntrypoints(launcher(Environment.CLIENT), "intermediary", jars, cache);
+
+		// A different environment
+		TestPatch patch = new TestPatch();
+		new GameTransformer(patch).locateEntrypoints(launcher(Environment.DEDICATED_SERVER), "intermediary", jars, cache);
+		Assertions.assertEquals(1, patch.runs);
+
+		// A different namespace
+		patch = new TestPatch();
+		new GameTransformer(patch).locateEntrypoints(launcher(Environment.DEDICATED_SERVER), "named", jars, cache);
+		Assertions.assertEquals(1, patch.runs);
+
+		// A changed game jar
+		FileTime modified = Files.getLastModifiedTime(jar);
+		writeGameJar(jar, "game/Main");
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(modified.toMillis() + 10_000));
+		patch = new TestPatch();
+		new GameTransformer(patch).locateEntrypoints(launcher(Environment.DEDICATED_SERVER), "named", jars, cache);
+		Assertions.assertEquals(1, patch.runs);
+
+		patch = new TestPatch();
+		new GameTransformer(patch).locateEntrypoints(launcher(Environment.DEDICATED_SERVER), "named", jars, cache);
+		Assertions.assertEquals(0, patch.runs);
+
+		// A different game version, with the same game jars
+		patch = new TestPatch();
+		patch.gameVersion = "1.19.4";
+		new GameTransformer(patch).locateEntrypoints(launcher(Environment.DEDICATED_SERVER), "named", jars, cache);
+		Assertions.assertEquals(1, patch.runs);
+	}
+
+	/** Adds a field to the entrypoint class, and adds a new class. */
+	static final class TestPatch extends GamePatch {
+		int runs;
+		String gameVersion = "1.20.1";
+
+		@Override
+		public void appendCacheKey(List<String> key) {
+			key.add(gameVersion);
+		}
+
+		@Override
+		public void process(MuonLauncher launcher, String namespace, GamePatchContext context) {
+			runs++;
+
+			ClassNode main = context.getClassNode(launcher.getEntrypoint());
+			main.fields.add(new FieldNode(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "patched", "Z", null, null));
+			context.addPatchedClass(main);
+
+			ClassNode hook = new ClassNode();
+			hook.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "game/Hook", null, "java/lang/Object", null);
+			context.addPatchedClass(hook);
+		}
+	}
+
+	private static MuonLauncher launcher(Environment environment) {
+		return (MuonLauncher) Proxy.newProxyInstance(GameTransformerTester.class.getClassLoader(), new Class<?>[] { MuonLauncher.class }, (proxy, method, args) -> {
+			switch (method.getName()) {
+			case "getEnvironmentType":
+				return environment;
+			case "isDevelopment":
+				return false;
+			case "getEntrypoint":
+				return "game.Main";
+			case "getTargetNamespace":
+				return "intermediary";
+			default:
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static void writeGameJar(Path jar, String... classes) throws IOException {
+		try (OutputStream os = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(os)) {
+			for (String name : classes) {
+				ClassWriter writer = new ClassWriter(0);
+				writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+				writer.visitEnd();
+				zip.putNextEntry(new ZipEntry(name + ".class"));
+				zip.write(writer.toByteArray());
+			}
+		}
+	}
+}
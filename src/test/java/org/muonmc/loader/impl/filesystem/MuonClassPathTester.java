@@ -0,0 +1,147 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.filesystem;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MuonClassPathTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testPrefixAndExtension() throws IOException {
+		MuonClassPath classPath = new MuonClassPath();
+		classPath.addRoot(memoryRoot("a",
+			"assets/example/lang/en_us.json", "a",
+			"assets/example/textures/block.png", "a",
+			"data/example/recipes/block.json", "a",
+			"org/example/Main.class", "a"
+		));
+		classPath.addRoot(memoryRoot("b",
+			"assets/example/lang/en_us.json", "b",
+			"assets/other/icon.png", "b",
+			"assets/example.txt", "b"
+		));
+
+		List<Path> under = classPath.getResourcesUnder("assets/example/");
+		Assertions.assertEquals(3, under.size());
+		Assertions.assertEquals("/assets/example/lang/en_us.json", under.get(0).toString());
+		Assertions.assertEquals("/assets/example/lang/en_us.json", under.get(1).toString());
+		Assertions.assertEquals("/assets/example/textures/block.png", under.get(2).toString());
+		// Overlapping paths are returned in the same order as findResource and getResources use
+		Assertions.assertEquals("a", read(under.get(0)));
+		Assertions.assertEquals("b", read(under.get(1)));
+		Assertions.assertSame(classPath.findResource("assets/example/lang/en_us.json"), under.get(0));
+		Assertions.assertEquals(classPath.getResources("assets/example/lang/en_us.json"), under.subList(0, 2));
+
+		Assertions.assertEquals(under, classPath.getResourcesUnder("/assets/example/"));
+		Assertions.assertEquals(5, classPath.getResourcesUnder("assets/").size());
+		Assertions.assertEquals(5, classPath.getResourcesUnder("assets").size());
+		Assertions.assertTrue(classPath.getResourcesUnder("missing/").isEmpty());
+
+		Assertions.assertEquals(3, classPath.getResourcesWithExtension("json").size());
+		Assertions.assertEquals(2, classPath.getResourcesWithExtension("png").size());
+		Assertions.assertEquals(1, classPath.getResourcesWithExtension("class").size());
+		Assertions.assertTrue(classPath.getResourcesWithExtension("jso").isEmpty());
+
+		// Directories are listed once for every root which contains them
+		List<Path> directories = classPath.getResources("assets/example/");
+		Assertions.assertEquals(2, directories.size());
+		Assertions.assertEquals("b", read(directories.get(1).resolve("lang/en_us.json")));
+		Assertions.assertEquals(2, classPath.getResources("assets/").size());
+
+		// Roots added after the index was built
+		classPath.addRoot(memoryRoot("c", "assets/example/lang/de_de.json", "c"));
+		under = classPath.getResourcesUnder("assets/example/");
+		Assertions.assertEquals(4, under.size());
+		Assertions.assertEquals("/assets/example/lang/de_de.json", under.get(0).toString());
+		Assertions.assertEquals(4, classPath.getResourcesWithExtension("json").size());
+	}
+
+	@Test
+	public void testRootAddedDuringScan() throws IOException, InterruptedException {
+		int count = 2000;
+		Path jar = dir.resolve("mod.jar");
+		try (OutputStream os = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(os)) {
+			for (int i = 0; i < count; i++) {
+				zip.putNextEntry(new ZipEntry("assets/example/file" + i + ".json"));
+				zip.write(("" + i).getBytes(StandardCharsets.UTF_8));
+			}
+		}
+
+		List<FileSystem> opened = new ArrayList<>();
+		try {
+			for (int attempt = 0; attempt < 10; attempt++) {
+				FileSystem fs = FileSystems.newFileSystem(jar, (ClassLoader) null);
+				opened.add(fs);
+				MuonClassPath classPath = new MuonClassPath();
+				classPath.addRoot(memoryRoot("other", "assets/other/file.json", "other"));
+				// Builds the index before the jar is added, so the scanner adds to it while it's being queried
+				Assertions.assertEquals(1, classPath.getResourcesWithExtension("json").size());
+				classPath.addRoot(fs.getPath("/"));
+
+				while (true) {
+					boolean scanning = classPath.getUnindexedRootCount() > 0;
+					List<Path> under = classPath.getResourcesUnder("assets/example/");
+					Assertions.assertEquals(count, under.size());
+					Assertions.assertEquals(count, new HashSet<>(under).size());
+					List<Path> json = classPath.getResourcesWithExtension("json");
+					Assertions.assertEquals(count + 1, json.size());
+					Assertions.assertEquals(count + 1, new HashSet<>(json).size());
+					if (!scanning) {
+						break;
+					}
+					Thread.sleep(1);
+				}
+			}
+		} finally {
+			for (FileSystem fs : opened) {
+				fs.close();
+			}
+		}
+	}
+
+	private static Path memoryRoot(String name, String... files) throws IOException {
+		MuonMemoryFileSystem.ReadWrite fs = new MuonMemoryFileSystem.ReadWrite(name, true);
+		for (int i = 0; i < files.length; i += 2) {
+			Path path = fs.getRoot().resolve(files[i]);
+			Files.createDirectories(path.getParent());
+			Files.write(path, files[i + 1].getBytes(StandardCharsets.UTF_8));
+		}
+		return fs.replaceWithReadOnly(false).getRoot();
+	}
+
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+}
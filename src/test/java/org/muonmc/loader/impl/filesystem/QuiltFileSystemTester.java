@@ -22,12 +22,14 @@ import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -83,6 +85,34 @@ public class QuiltFileSystemTester {
 		}
 	}
 
+	/** Checks that {@link GlobPathMatcher} matches exactly the same paths as the regex from {@link GlobToRegex}. */
+	@Test
+	public void testGlobMatcherAgreesWithRegex() {
+		try (MuonMemoryFileSystem fs = new MuonMemoryFileSystem.ReadWrite("test_glob", true)) {
+			String[] paths = {
+				"/", "", "a", "/a", "a/b", "/a/b", "/a/b/c", "/assets/minecraft/textures/block/stone.png",
+				"/assets/minecraft/models/block/stone.json", "/data/mod/recipes/a.json", "/a.json", "a.json",
+				"/META-INF/MANIFEST.MF", "/a/b/c/d.class", "/a/b.c/d", "/dir/.hidden", "/x-y/z_1.txt"
+			};
+			String[] globs = {
+				"", "/", "*", "/*", "**", "/**", "**/*", "**/*.json", "*.json", "/assets/**", "/assets/*/textures/**",
+				"/assets/**/*.{png,json}", "**/block/*", "/a/**/c", "/a/**/**", "**/b/**", "/a/b", "a/b", "/?/b",
+				"/[a-c]/*", "/[!a]*/**", "/{a,data}/**", "/a/b{,.c}/*", "**.json", "/a/**b/c", "/a/{b/c,b}",
+				"**/*.class", "/META-INF/*.{MF,SF}", "/*/*/*", "/**/*/*", "**/.*", "/x\\-y/*", "/a*/b*", "*/**/*"
+			};
+
+			for (String glob : globs) {
+				Pattern regex = Pattern.compile(GlobToRegex.toRegex(glob, "/"));
+				PathMatcher matcher = fs.getPathMatcher("glob:" + glob);
+				for (String str : paths) {
+					Path path = fs.getPath(str);
+					boolean expected = regex.matcher(path.toString()).matches();
+					Assertions.assertEquals(expected, matcher.matches(path), () -> "glob '" + glob + "' on path '" + path + "'");
+				}
+			}
+		}
+	}
+
 	@SafeVarargs
 	private static <T> Set<T> set(T... values) {
 		Set<T> set = new HashSet<>();
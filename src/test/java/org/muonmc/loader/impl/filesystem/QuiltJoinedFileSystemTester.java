@@ -21,9 +21,11 @@ import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -31,6 +33,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.muonmc.loader.api.FasterFiles;
 import org.muonmc.loader.impl.filesystem.MuonJoinedFileSystem;
 import org.muonmc.loader.impl.filesystem.MuonMemoryFileSystem;
 
@@ -39,66 +42,74 @@ public class QuiltJoinedFileSystemTester {
 	@MethodSource("getPaths")
 	public void test(Path rw1, Path rw2) throws IOException {
 		// note, rw2 is mounted at the "sub" subdirectory in the joined filesystem
+		List<Path> from = Arrays.asList(rw1, rw2.resolve("sub"));
 		try (
 				MuonJoinedFileSystem jfs = new MuonJoinedFileSystem(
-				"jfs", Arrays.asList(rw1, rw2.resolve("sub"))
+				"jfs", from
 		)) {
 			Assertions.assertFalse(Files.newDirectoryStream(rw1).iterator().hasNext());
 			Assertions.assertFalse(Files.newDirectoryStream(rw2).iterator().hasNext());
-			Assertions.assertFalse(Files.newDirectoryStream(jfs.root).iterator().hasNext());
-
 			assertSetsEqual(getChildren(rw1));
 			assertSetsEqual(getChildren(rw2));
-			assertSetsEqual(getChildren(jfs.root));
+			checkJoined(jfs, from, root -> {
+				Assertions.assertFalse(Files.newDirectoryStream(root).iterator().hasNext());
+				assertSetsEqual(getChildren(root));
+			});
 
 			createTestFile(rw1, "greeting.txt");
 
 			Assertions.assertTrue(Files.newDirectoryStream(rw1).iterator().hasNext());
 			Assertions.assertFalse(Files.newDirectoryStream(rw2).iterator().hasNext());
-			Assertions.assertTrue(Files.newDirectoryStream(jfs.root).iterator().hasNext());
-
 			assertSetsEqual(getChildren(rw1), rw1.resolve("greeting.txt"));
 			assertSetsEqual(getChildren(rw2));
-			assertSetsEqual(getChildren(jfs.root), jfs.root.resolve("greeting.txt"));
+			checkJoined(jfs, from, root -> {
+				Assertions.assertTrue(Files.newDirectoryStream(root).iterator().hasNext());
+				assertSetsEqual(getChildren(root), root.resolve("greeting.txt"));
+			});
 
 			createTestFile(rw2, "greetings2.txt");
 
 			Assertions.assertTrue(Files.newDirectoryStream(rw1).iterator().hasNext());
 			Assertions.assertTrue(Files.newDirectoryStream(rw2).iterator().hasNext());
-			Assertions.assertTrue(Files.newDirectoryStream(jfs.root).iterator().hasNext());
-
 			assertSetsEqual(getChildren(rw1), rw1.resolve("greeting.txt"));
 			assertSetsEqual(getChildren(rw2), rw2.resolve("greetings2.txt"));
-			assertSetsEqual(getChildren(jfs.root), jfs.root.resolve("greeting.txt"));
+			checkJoined(jfs, from, root -> {
+				Assertions.assertTrue(Files.newDirectoryStream(root).iterator().hasNext());
+				assertSetsEqual(getChildren(root), root.resolve("greeting.txt"));
+			});
 
 			Files.createDirectory(rw2.resolve("sub"));
 			createTestFile(rw2, "sub/greetings3.txt");
 
 			Assertions.assertTrue(Files.newDirectoryStream(rw1).iterator().hasNext());
 			Assertions.assertTrue(Files.newDirectoryStream(rw2).iterator().hasNext());
-			Assertions.assertTrue(Files.newDirectoryStream(jfs.root).iterator().hasNext());
-
 			assertSetsEqual(getChildren(rw1), rw1.resolve("greeting.txt"));
 			assertSetsEqual(getChildren(rw2), rw2.resolve("greetings2.txt"), rw2.resolve("sub"));
-			assertSetsEqual(
-					getChildren(jfs.root), jfs.root.resolve("greeting.txt"), jfs.root.resolve("greetings3.txt")
-			);
+			checkJoined(jfs, from, root -> {
+				Assertions.assertTrue(Files.newDirectoryStream(root).iterator().hasNext());
+				assertSetsEqual(
+						getChildren(root), root.resolve("greeting.txt"), root.resolve("greetings3.txt")
+				);
+			});
 		}
 	}
 
 	@ParameterizedTest
 	@MethodSource("getPaths")
 	public void testDirectoryStream(Path rw1, Path rw2) throws IOException {
+		List<Path> from = Arrays.asList(rw1, rw2);
 		try (
 				MuonJoinedFileSystem jfs = new MuonJoinedFileSystem(
-				"jfs", Arrays.asList(rw1, rw2)
+				"jfs", from
 		)) {
 			createTestFile(rw1, "a.txt");
 			createTestFile(rw2, "b.txt");
 
-			DirectoryStream<Path> stream = Files.newDirectoryStream(jfs.root);
-			Assertions.assertEquals(toSet(stream).size(), 2);
-			stream.close();
+			checkJoined(jfs, from, root -> {
+				DirectoryStream<Path> stream = Files.newDirectoryStream(root);
+				Assertions.assertEquals(toSet(stream).size(), 2);
+				stream.close();
+			});
 		}
 	}
 
@@ -109,27 +120,62 @@ public class QuiltJoinedFileSystemTester {
 	@ParameterizedTest
 	@MethodSource("getPaths")
 	public void testMismatchedDirectoryStream(Path rw1, Path rw2) throws IOException {
+		List<Path> from = Arrays.asList(rw1, rw2);
 		try (
 				MuonJoinedFileSystem jfs = new MuonJoinedFileSystem(
-				"jfs", Arrays.asList(rw1, rw2)
+				"jfs", from
 		)) {
 			// Create a directory in rw2 but not in rw1 and iterate it via the joined filesystem
 			Files.createDirectory(rw2.resolve("streamTest"));
 			createTestFile(rw2, "streamTest/a.txt");
 
-			assertEqual(
-					Files.newDirectoryStream(jfs.root.resolve("streamTest")),
-					jfs.root.resolve("streamTest/a.txt"));
+			checkJoined(jfs, from, root -> {
+				assertEqual(
+						Files.newDirectoryStream(root.resolve("streamTest")),
+						root.resolve("streamTest/a.txt"));
+			});
 
 			// Create a file in rw1 with the same name as the directory in rw2 and assert that this is ignored
 			createTestFile(rw1, "streamTest");
 
-			assertEqual(
-					Files.newDirectoryStream(jfs.root.resolve("streamTest")),
-					jfs.root.resolve("streamTest/a.txt"));
+			checkJoined(jfs, from, root -> {
+				assertEqual(
+						Files.newDirectoryStream(root.resolve("streamTest")),
+						root.resolve("streamTest/a.txt"));
+				assertSetsEqual(
+						new HashSet<>(FasterFiles.getChildren(root.resolve("streamTest"))),
+						root.resolve("streamTest/a.txt"));
+
+				// Explicitly test the closing of directory streams
+				Files.newDirectoryStream(root.resolve("streamTest")).close();
+			});
+		}
+	}
+
+	@FunctionalInterface
+	interface JoinedCheck {
+		void check(Path root) throws IOException;
+	}
+
+	/** Runs the given check against the live joined filesystem, and then against a joined filesystem of read only
+	 * copies of every backing path. The copies are permanently read only, so that one uses the merged index. */
+	private static void checkJoined(MuonJoinedFileSystem live, List<Path> from, JoinedCheck check) throws IOException {
+		check.check(live.root);
+
+		List<Path> copies = new ArrayList<>();
+		List<Boolean> shouldClose = new ArrayList<>();
+		for (Path path : from) {
+			if (Files.isDirectory(path)) {
+				copies.add(new MuonMemoryFileSystem.ReadOnly("copy", true, path, false).getRoot());
+			} else {
+				copies.add(new MuonMemoryFileSystem.ReadWrite("empty", true).replaceWithReadOnly(false).getRoot());
+			}
+			shouldClose.add(true);
+		}
 
-			// Explicitly test the closing of directory streams
-			Files.newDirectoryStream(jfs.root.resolve("streamTest")).close();
+		try (MuonJoinedFileSystem indexed = new MuonJoinedFileSystem("indexed", copies, shouldClose)) {
+			Assertions.assertNotNull(indexed.getIndex());
+			check.check(indexed.root);
 		}
 	}
 
@@ -0,0 +1,518 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.filesystem;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+public class QuiltZipCustomCompressedTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testLz4Block() throws IOException {
+		Random random = new Random(42);
+		for (int length = 0; length < 300; length++) {
+			checkLz4(randomText(random, length));
+		}
+		checkLz4(new byte[100_000]);
+		checkLz4(randomText(random, 1_000_000));
+		byte[] noise = new byte[70_000];
+		random.nextBytes(noise);
+		checkLz4(noise);
+
+		byte[] src = randomText(random, 10_000);
+		byte[] compressed = new byte[Lz4Block.maxCompressedLength(src.length)];
+		int length = Lz4Block.compress(src, compressed);
+		Assertions.assertThrows(IOException.class, () -> Lz4Block.decompress(Arrays.copyOf(compressed, length - 1), new byte[src.length]));
+		Assertions.assertThrows(IOException.class, () -> Lz4Block.decompress(Arrays.copyOf(compressed, length), new byte[src.length - 1]));
+		Assertions.assertThrows(IOException.class, () -> Lz4Block.decompress(Arrays.copyOf(compressed, length), new byte[src.length + 1]));
+	}
+
+	private static void checkLz4(byte[] src) throws IOException {
+		byte[] compressed = new byte[Lz4Block.maxCompressedLength(src.length)];
+		int length = Lz4Block.compress(src, compressed);
+		byte[] decompressed = new byte[src.length];
+		Lz4Block.decompress(Arrays.copyOf(compressed, length), decompressed);
+		Assertions.assertArrayEquals(src, decompressed, "length " + src.length);
+	}
+
+	@Test
+	public void testMixedCodecs() throws IOException {
+		Map<String, byte[]> files = createFiles(new Random(7));
+		Path src = dir.resolve("src");
+		writeFolder(src, files);
+
+		int index = 0;
+		for (QuiltZipCodec codec : QuiltZipCodec.values()) {
+			for (int level : new int[] { Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION }) {
+				Path dst = dir.resolve("cache-" + index++ + ".bin");
+				MuonZipFileSystem.writeQuiltCompressedFileSystem(src, dst, codec, level);
+
+				try (MuonZipFileSystem fs = new MuonZipFileSystem("test", dst, "")) {
+					checkFiles(fs, files);
+					// Files which don't compress are always stored, so every codec except stored mixes codecs
+					Assertions.assertEquals(QuiltZipCodec.STORED, codecOf(fs, "/assets/noise.png"));
+					Assertions.assertEquals(QuiltZipCodec.STORED, codecOf(fs, "/empty.txt"));
+					Assertions.assertEquals(codec, codecOf(fs, "/org/example/Main.class"));
+					Assertions.assertEquals(codec == QuiltZipCodec.DEFLATE, MuonZipFileSystem.readDeflated(fs.getPath("/org/example/Main.class")) != null);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testReadsVersion2() throws IOException {
+		byte[] contents = "public class Main {}".getBytes(StandardCharsets.UTF_8);
+		ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+		try (DeflaterOutputStream out = new DeflaterOutputStream(deflated, new Deflater(Deflater.DEFAULT_COMPRESSION, true))) {
+			out.write(contents);
+		}
+
+		ByteArrayOutputStream directory = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(directory))) {
+			out.writeShort(0);
+			out.writeShort(1);
+			out.writeByte(3);
+			out.write("org".getBytes(StandardCharsets.UTF_8));
+			out.writeShort(1);
+			out.writeByte(9);
+			out.write("Main.java".getBytes(StandardCharsets.UTF_8));
+			out.writeInt(QuiltZipCustomCompressedWriter.HEADER_V2.length + 4);
+			out.writeInt(contents.length);
+			out.writeInt(deflated.size());
+			out.writeShort(0);
+		}
+
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(file);
+		out.write(QuiltZipCustomCompressedWriter.HEADER_V2);
+		out.writeInt(QuiltZipCustomCompressedWriter.HEADER_V2.length + 4 + deflated.size());
+		deflated.writeTo(out);
+		directory.writeTo(out);
+
+		Path dst = dir.resolve("cache-v2.bin");
+		Files.write(dst, file.toByteArray());
+		try (MuonZipFileSystem fs = new MuonZipFileSystem("test", dst, "")) {
+			Assertions.assertArrayEquals(contents, Files.readAllBytes(fs.getPath("/org/Main.java")));
+		}
+	}
+
+	/** Leaves a 3 GiB hole at the start of the data, so every file (and the directory) is beyond the reach of a 32 bit
+	 * offset. This relies on the file system supporting sparse files, otherwise it would write 3 GiB of zeros. */
+	@Test
+	@EnabledOnOs({ OS.LINUX, OS.MAC })
+	public void testAbove2GiB() throws IOException {
+		Map<String, byte[]> files = createFiles(new Random(8));
+		Path dst = dir.resolve("large.bin");
+
+		try (MuonMemoryFileSystem src = new MuonMemoryFileSystem.ReadWrite("large", true)) {
+			writeFolder(src.getRoot(), files);
+
+			QuiltZipCustomCompressedWriter writer = new QuiltZipCustomCompressedWriter(dst, QuiltZipCodec.LZ4, Deflater.DEFAULT_COMPRESSION, false);
+			try {
+				writer.start();
+				writer.currentOffset.addAndGet(3L << 30);
+
+				Path spilled = src.getRoot().resolve("org/example/Main.class");
+				writer.spill(spilled);
+				// Wait for the spilled file to be written, so it's read back from beyond 2 GiB
+				QuiltZipCustomCompressedWriter.SpilledData data = spilledData(src, spilled);
+				awaitWritten(writer, data);
+				Assertions.assertTrue(data.written.offset > Integer.MAX_VALUE);
+				Assertions.assertArrayEquals(files.get("/org/example/Main.class"), Files.readAllBytes(spilled));
+
+				writer.finish(src.getRoot());
+			} finally {
+				writer.close();
+			}
+		}
+
+		Assertions.assertTrue(Files.size(dst) > (3L << 30));
+		try (MuonZipFileSystem fs = new MuonZipFileSystem("test", dst, "")) {
+			checkFiles(fs, files);
+			for (String name : files.keySet()) {
+				Assertions.assertTrue(((MuonZipFileSystem.QuiltZipFile) fs.getEntry(fs.getPath(name))).offset > Integer.MAX_VALUE, name);
+			}
+			Assertions.assertEquals(QuiltZipCodec.LZ4, codecOf(fs, "/org/example/Main.class"));
+			Assertions.assertEquals(QuiltZipCodec.STORED, codecOf(fs, "/assets/noise.png"));
+		}
+	}
+
+	@Test
+	public void testSpilledFiles() throws IOException {
+		Map<String, byte[]> files = createFiles(new Random(10));
+		Path dst = dir.resolve("spilled.bin");
+
+		try (MuonMemoryFileSystem src = new MuonMemoryFileSystem.ReadWrite("spilled", true)) {
+			writeFolder(src.getRoot(), files);
+
+			QuiltZipCustomCompressedWriter writer = new QuiltZipCustomCompressedWriter(dst, QuiltZipCodec.DEFLATE, Deflater.DEFAULT_COMPRESSION, false);
+			try {
+				writer.start();
+				for (String name : files.keySet()) {
+					Path file = src.getRoot().resolve(name.substring(1));
+					writer.spill(file);
+					// Spilled files can be read at any time, whether or not they've been written yet
+					Assertions.assertArrayEquals(files.get(name), Files.readAllBytes(file), name);
+				}
+
+				for (String name : files.keySet()) {
+					Path file = src.getRoot().resolve(name.substring(1));
+					awaitWritten(writer, spilledData(src, file));
+					Assertions.assertEquals(files.get(name).length, Files.size(file), name);
+					Assertions.assertArrayEquals(files.get(name), Files.readAllBytes(file), name);
+				}
+				Assertions.assertEquals(QuiltZipCustomCompressedWriter.SPILL_BUDGET, writer.spillBudget.availablePermits());
+
+				writer.finish(src.getRoot());
+			} finally {
+				writer.close();
+			}
+		}
+
+		try (MuonZipFileSystem fs = new MuonZipFileSystem("test", dst, "")) {
+			checkFiles(fs, files);
+			Assertions.assertEquals(QuiltZipCodec.DEFLATE, codecOf(fs, "/org/example/Main.class"));
+		}
+	}
+
+	@Test
+	public void testModifiedAfterSpill() throws IOException {
+		Map<String, byte[]> files = createFiles(new Random(11));
+		Path dst = dir.resolve("modified.bin");
+		byte[] replaced = "replaced".getBytes(StandardCharsets.UTF_8);
+		byte[] appended = "appended".getBytes(StandardCharsets.UTF_8);
+
+		try (MuonMemoryFileSystem src = new MuonMemoryFileSystem.ReadWrite("modified", true)) {
+			writeFolder(src.getRoot(), files);
+			Path main = src.getRoot().resolve("org/example/Main.class");
+			Path other = src.getRoot().resolve("org/example/inner/Other.class");
+
+			QuiltZipCustomCompressedWriter writer = new QuiltZipCustomCompressedWriter(dst, QuiltZipCodec.LZ4, Deflater.DEFAULT_COMPRESSION, false);
+			try {
+				writer.start();
+				writer.spill(main);
+				writer.spill(other);
+				awaitWritten(writer, spilledData(src, main));
+				awaitWritten(writer, spilledData(src, other));
+
+				// Writing replaces the spilled file with a normal file, which finish has to write again
+				Files.write(main, replaced);
+				Files.write(other, appended, StandardOpenOption.APPEND);
+				Assertions.assertTrue(src.getEntry(main) instanceof QuiltMemoryFile);
+				Assertions.assertTrue(src.getEntry(other) instanceof QuiltMemoryFile);
+
+				writer.finish(src.getRoot());
+			} finally {
+				writer.close();
+			}
+		}
+
+		Map<String, byte[]> expected = new LinkedHashMap<>(files);
+		expected.put("/org/example/Main.class", replaced);
+		byte[] otherBytes = files.get("/org/example/inner/Other.class");
+		byte[] otherExpected = Arrays.copyOf(otherBytes, otherBytes.length + appended.length);
+		System.arraycopy(appended, 0, otherExpected, otherBytes.length, appended.length);
+		expected.put("/org/example/inner/Other.class", otherExpected);
+		try (MuonZipFileSystem fs = new MuonZipFileSystem("test", dst, "")) {
+			checkFiles(fs, expected);
+		}
+	}
+
+	@Test
+	public void testSpillBudget() throws Exception {
+		Path dst = dir.resolve("budget.bin");
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try (MuonMemoryFileSystem src = new MuonMemoryFileSystem.ReadWrite("budget", true)) {
+			Path first = src.getRoot().resolve("first.txt");
+			Path second = src.getRoot().resolve("second.txt");
+			Files.write(first, "first".getBytes(StandardCharsets.UTF_8));
+			Files.write(second, "second".getBytes(StandardCharsets.UTF_8));
+
+			QuiltZipCustomCompressedWriter writer = new QuiltZipCustomCompressedWriter(dst);
+			try {
+				writer.start();
+				// Pretend that the writer threads are busy with other spilled files
+				int taken = writer.spillBudget.drainPermits();
+				Assertions.assertEquals(QuiltZipCustomCompressedWriter.SPILL_BUDGET, taken);
+
+				Future<?> blocked = executor.submit(() -> {
+					writer.spill(first);
+					return null;
+				});
+				Assertions.assertThrows(TimeoutException.class, () -> blocked.get(500, TimeUnit.MILLISECONDS));
+				Assertions.assertTrue(writer.sourceFiles.isEmpty());
+
+				writer.spillBudget.release(taken);
+				blocked.get(30, TimeUnit.SECONDS);
+				awaitWritten(writer, spilledData(src, first));
+
+				// A crashed writer thread never frees up any space, so a blocked spill has to give up
+				taken = writer.spillBudget.drainPermits();
+				writer.exception = new IOException("crashed");
+				Future<?> failed = executor.submit(() -> {
+					writer.spill(second);
+					return null;
+				});
+				ExecutionException e = Assertions.assertThrows(
+					ExecutionException.class, () -> failed.get(30, TimeUnit.SECONDS)
+				);
+				Assertions.assertTrue(e.getCause() instanceof IOException, e.getCause().toString());
+				Assertions.assertSame(writer.exception, e.getCause().getCause());
+			} finally {
+				writer.close();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testReferencedZips() throws IOException {
+		Map<String, byte[]> files = createFiles(new Random(9));
+		Path jar = dir.resolve("mod.jar");
+		writeJar(jar, files);
+		byte[] transformed = "transformed".getBytes(StandardCharsets.UTF_8);
+		Path dst = dir.resolve("cache.bin");
+
+		try (
+			MuonZipFileSystem mod = new MuonZipFileSystem("mod", jar, "");
+			MuonUnifiedFileSystem src = new MuonUnifiedFileSystem("cache", true)
+		) {
+			for (String name : files.keySet()) {
+				Path to = src.getRoot().resolve(name.substring(1));
+				Files.createDirectories(to.getParent());
+				src.copyOnWrite(mod.getPath(name), to);
+			}
+			// Modified files can't be referenced, so they have to be written
+			Files.write(src.getRoot().resolve("org/example/Main.class"), transformed);
+
+			try (MuonZipFileSystem.StreamingWriter writer = MuonZipFileSystem.startQuiltCompressedFileSystem(dst, QuiltZipCodec.LZ4, Deflater.DEFAULT_COMPRESSION, true)) {
+				writer.finish(src.getRoot());
+			}
+		}
+
+		// Only the modified file and the directory are actually in the cache
+		Assertions.assertTrue(Files.size(dst) < 1024, "size " + Files.size(dst));
+
+		Map<String, byte[]> expected = new LinkedHashMap<>(files);
+		expected.put("/org/example/Main.class", transformed);
+		try (MuonZipFileSystem fs = new MuonZipFileSystem("test", dst, "")) {
+			checkFiles(fs, expected);
+			Assertions.assertEquals(1, fs.referencedSources.size());
+			Assertions.assertSame(fs.source, entryOf(fs, "/org/example/Main.class").source);
+			Assertions.assertSame(fs.referencedSources.get(0), entryOf(fs, "/assets/lang/en_us.json").source);
+			Assertions.assertEquals(QuiltZipCodec.STORED, codecOf(fs, "/assets/noise.png"));
+
+			MuonZipFileSystem.DeflatedFile deflated = MuonZipFileSystem.readDeflated(fs.getPath("/assets/lang/en_us.json"));
+			CRC32 crc = new CRC32();
+			crc.update(files.get("/assets/lang/en_us.json"));
+			Assertions.assertEquals(crc.getValue(), deflated.crc);
+
+			// Sub-folders share the referenced zips
+			try (MuonZipFileSystem sub = new MuonZipFileSystem("sub", fs.getPath("/assets"))) {
+				Assertions.assertArrayEquals(files.get("/assets/lang/en_us.json"), Files.readAllBytes(sub.getPath("/lang/en_us.json")));
+			}
+		}
+
+		// Changing the jar invalidates every reference, even if it's the same size
+		FileTime modified = Files.getLastModifiedTime(jar);
+		Files.setLastModifiedTime(jar, FileTime.fromMillis(modified.toMillis() + 10_000));
+		Assertions.assertThrows(ReferencedFileChangedIOException.class, () -> new MuonZipFileSystem("test", dst, ""));
+
+		Files.delete(jar);
+		Assertions.assertThrows(ReferencedFileChangedIOException.class, () -> new MuonZipFileSystem("test", dst, ""));
+	}
+
+	/** The referenced zip must be stamped when it's first referenced, since that's when its offsets were read. */
+	@Test
+	public void testReferencedZipChangedBeforeFinish() throws IOException {
+		Map<String, byte[]> files = createFiles(new Random(12));
+		Path jar = dir.resolve("mod.jar");
+		writeJar(jar, files);
+		Path dst = dir.resolve("cache.bin");
+
+		try (
+			MuonZipFileSystem mod = new MuonZipFileSystem("mod", jar, "");
+			MuonUnifiedFileSystem src = new MuonUnifiedFileSystem("cache", true)
+		) {
+			for (String name : files.keySet()) {
+				Path to = src.getRoot().resolve(name.substring(1));
+				Files.createDirectories(to.getParent());
+				src.copyOnWrite(mod.getPath(name), to);
+			}
+
+			QuiltZipCustomCompressedWriter writer = new QuiltZipCustomCompressedWriter(dst, QuiltZipCodec.LZ4, Deflater.DEFAULT_COMPRESSION, true);
+			try {
+				writer.start();
+				Assertions.assertNotNull(writer.createReference(src.getEntry(src.getRoot().resolve("assets/lang/en_us.json"))));
+
+				FileTime modified = Files.getLastModifiedTime(jar);
+				Files.setLastModifiedTime(jar, FileTime.fromMillis(modified.toMillis() + 10_000));
+
+				writer.finish(src.getRoot());
+			} finally {
+				writer.close();
+			}
+		}
+
+		Assertions.assertThrows(ReferencedFileChangedIOException.class, () -> new MuonZipFileSystem("test", dst, ""));
+	}
+
+	private static QuiltZipCustomCompressedWriter.SpilledData spilledData(MuonMemoryFileSystem fs, Path file) {
+		return ((QuiltZipCustomCompressedWriter.SpilledFile) fs.getEntry(file)).data;
+	}
+
+	/** Waits for a spilled file to be written, failing if it takes too long or a writer thread crashes. */
+	private static void awaitWritten(QuiltZipCustomCompressedWriter writer, QuiltZipCustomCompressedWriter.SpilledData data) {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (data.written == null) {
+			if (writer.exception != null) {
+				Assertions.fail("A writer thread failed", writer.exception);
+			}
+			if (System.nanoTime() - deadline > 0) {
+				Assertions.fail("Timed out waiting for a spilled file to be written");
+			}
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	private static Map<String, byte[]> createFiles(Random random) {
+		Map<String, byte[]> files = new LinkedHashMap<>();
+		files.put("/org/example/Main.class", randomText(random, 20_000));
+		files.put("/org/example/inner/Other.class", randomText(random, 300));
+		files.put("/assets/lang/en_us.json", randomText(random, 200_000));
+		byte[] noise = new byte[50_000];
+		random.nextBytes(noise);
+		files.put("/assets/noise.png", noise);
+		files.put("/empty.txt", new byte[0]);
+		return files;
+	}
+
+	/** @return Text made of a few repeated words, which compresses about as well as class files. */
+	private static byte[] randomText(Random random, int length) {
+		String[] words = { "java/lang/Object", "<init>", "()V", "Code", "LineNumberTable", "org/example/", " ", "\n" };
+		StringBuilder sb = new StringBuilder();
+		while (sb.length() < length) {
+			sb.append(words[random.nextInt(words.length)]);
+		}
+		return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void writeFolder(Path root, Map<String, byte[]> files) throws IOException {
+		for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+			Path path = root.resolve(entry.getKey().substring(1));
+			Files.createDirectories(path.getParent());
+			Files.write(path, entry.getValue());
+		}
+	}
+
+	private static void checkFiles(MuonZipFileSystem fs, Map<String, byte[]> files) throws IOException {
+		for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+			Path path = fs.getPath(entry.getKey());
+			byte[] expected = entry.getValue();
+			Assertions.assertEquals(expected.length, Files.size(path), entry.getKey());
+			Assertions.assertArrayEquals(expected, Files.readAllBytes(path), entry.getKey());
+
+			try (InputStream stream = Files.newInputStream(path)) {
+				Assertions.assertArrayEquals(expected, readAll(stream), entry.getKey());
+			}
+
+			// Random access, which every codec needs to support
+			try (SeekableByteChannel channel = Files.newByteChannel(path)) {
+				int from = expected.length / 2;
+				ByteBuffer buffer = ByteBuffer.allocate(expected.length - from);
+				channel.position(from);
+				while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+					// Keep reading
+				}
+				Assertions.assertArrayEquals(Arrays.copyOfRange(expected, from, expected.length), buffer.array(), entry.getKey());
+			}
+		}
+	}
+
+	private static byte[] readAll(InputStream stream) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int count;
+		while ((count = stream.read(buffer)) > 0) {
+			baos.write(buffer, 0, count);
+		}
+		return baos.toByteArray();
+	}
+
+	/** Writes a jar, with every file deflated except for the noise, which is stored. */
+	private static void writeJar(Path jar, Map<String, byte[]> files) throws IOException {
+		try (OutputStream os = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(os)) {
+			for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+				ZipEntry zipEntry = new ZipEntry(entry.getKey().substring(1));
+				if (entry.getKey().endsWith(".png")) {
+					CRC32 crc = new CRC32();
+					crc.update(entry.getValue());
+					zipEntry.setMethod(ZipEntry.STORED);
+					zipEntry.setSize(entry.getValue().length);
+					zipEntry.setCrc(crc.getValue());
+				}
+				zip.putNextEntry(zipEntry);
+				zip.write(entry.getValue());
+			}
+		}
+	}
+
+	private static MuonZipFileSystem.QuiltZipFile entryOf(MuonZipFileSystem fs, String path) {
+		return (MuonZipFileSystem.QuiltZipFile) fs.getEntry(fs.getPath(path));
+	}
+
+	private static QuiltZipCodec codecOf(MuonZipFileSystem fs, String path) {
+		return entryOf(fs, path).codec;
+	}
+}
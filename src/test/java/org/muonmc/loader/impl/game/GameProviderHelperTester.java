@@ -0,0 +1,74 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.game;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class GameProviderHelperTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testRemappedJarsKey() throws IOException {
+		Path client = write("client.jar", "client");
+		Path common = write("common.jar", "common");
+		URL mappings = write("mappings.tiny", "mappings").toUri().toURL();
+
+		Map<String, Path> inputs = new LinkedHashMap<>();
+		inputs.put("client", client);
+		inputs.put("common", common);
+		String key = GameProviderHelper.remappedJarsKey(inputs, "minecraft", "1.20.1", "intermediary", mappings);
+
+		// Only the content of the inputs matters, not their order or paths
+		Map<String, Path> reversed = new LinkedHashMap<>();
+		reversed.put("common", write("other/common.jar", "common"));
+		reversed.put("client", client);
+		Assertions.assertEquals(key, GameProviderHelper.remappedJarsKey(reversed, "minecraft", "1.20.1", "intermediary", mappings));
+
+		Assertions.assertNotEquals(key, GameProviderHelper.remappedJarsKey(inputs, "minecraft", "1.20.2", "intermediary", mappings));
+		Assertions.assertNotEquals(key, GameProviderHelper.remappedJarsKey(inputs, "minecraft", "1.20.1", "named", mappings));
+
+		Map<String, Path> renamed = new LinkedHashMap<>();
+		renamed.put("client", client);
+		renamed.put("server", common);
+		Assertions.assertNotEquals(key, GameProviderHelper.remappedJarsKey(renamed, "minecraft", "1.20.1", "intermediary", mappings));
+
+		write("mappings.tiny", "changed");
+		Assertions.assertNotEquals(key, GameProviderHelper.remappedJarsKey(inputs, "minecraft", "1.20.1", "intermediary", mappings));
+		write("mappings.tiny", "mappings");
+		write("client.jar", "changed");
+		Assertions.assertNotEquals(key, GameProviderHelper.remappedJarsKey(inputs, "minecraft", "1.20.1", "intermediary", mappings));
+	}
+
+	private Path write(String name, String content) throws IOException {
+		Path file = dir.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.game;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.impl.config.DummyGameProvider;
+import org.muonmc.loader.impl.util.LoaderUtil;
+
+public class LibClassifierTester {
+
+	enum TestLibrary implements LibClassifier.LibraryType {
+		ALPHA("alpha/Alpha.class"),
+		BETA("beta/Beta.class", "beta/OldBeta.class");
+
+		private final String[] paths;
+
+		TestLibrary(String... paths) {
+			this.paths = paths;
+		}
+
+		@Override
+		public boolean isApplicable(Environment env) {
+			return true;
+		}
+
+		@Override
+		public String[] getPaths() {
+			return paths;
+		}
+	}
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void testCacheSkipsUnchangedJars() throws IOException {
+		Path alpha = jar("alpha.jar", "alpha/Alpha.class");
+		Path beta = jar("beta.jar", "beta/OldBeta.class");
+		Path other = jar("other.jar", "other/Other.class");
+		Path cache = dir.resolve("cache").resolve("libraries.bin");
+
+		LibClassifier<TestLibrary> first = classify(cache, alpha, beta, other);
+		Assertions.assertEquals(3, first.jarsOpened);
+		Assertions.assertTrue(Files.exists(cache));
+
+		LibClassifier<TestLibrary> second = classify(cache, alpha, beta, other);
+		Assertions.assertEquals(0, second.jarsOpened);
+		Assertions.assertEquals(alpha, second.getOrigin(TestLibrary.ALPHA));
+		Assertions.assertEquals(beta, second.getOrigin(TestLibrary.BETA));
+		Assertions.assertEquals("beta/OldBeta.class", second.getLocalPath(TestLibrary.BETA));
+		Assertions.assertEquals(Collections.singletonList(other), second.getUnmatchedOrigins());
+	}
+
+	@Test
+	void testCacheInvalidatedWhenJarChanges() throws IOException {
+		Path alpha = jar("alpha.jar", "alpha/Alpha.class");
+		Path beta = jar("beta.jar", "beta/OldBeta.class");
+		Path cache = dir.resolve("libraries.bin");
+
+		classify(cache, alpha, beta);
+
+		FileTime modified = Files.getLastModifiedTime(beta);
+		jar("beta.jar", "beta/Beta.class", "beta/OldBeta.class");
+		Files.setLastModifiedTime(beta, FileTime.fromMillis(modified.toMillis() + 10_000));
+
+		LibClassifier<TestLibrary> changed = classify(cache, alpha, beta);
+		Assertions.assertEquals(1, changed.jarsOpened);
+		Assertions.assertEquals(alpha, changed.getOrigin(TestLibrary.ALPHA));
+		Assertions.assertEquals("beta/Beta.class", changed.getLocalPath(TestLibrary.BETA));
+
+		// The changed jar has been saved again
+		Assertions.assertEquals(0, classify(cache, alpha, beta).jarsOpened);
+	}
+
+	@Test
+	void testCacheIgnoresExclusions() throws IOException {
+		Path both = jar("both.jar", "alpha/Alpha.class", "beta/Beta.class");
+		Path cache = dir.resolve("libraries.bin");
+
+		LibClassifier<TestLibrary> first = classifier(cache);
+		first.process(both, TestLibrary.BETA);
+		first.saveCache();
+		Assertions.assertFalse(first.has(TestLibrary.BETA));
+
+		LibClassifier<TestLibrary> second = classify(cache, both);
+		Assertions.assertEquals(0, second.jarsOpened);
+		Assertions.assertEquals(both, second.getOrigin(TestLibrary.BETA));
+	}
+
+	private LibClassifier<TestLibrary> classifier(Path cache) throws IOException {
+		LibClassifier<TestLibrary> classifier = new LibClassifier<>(TestLibrary.class, Environment.CLIENT, new DummyGameProvider(dir));
+		classifier.useCache(cache);
+		return classifier;
+	}
+
+	private LibClassifier<TestLibrary> classify(Path cache, Path... jars) throws IOException {
+		LibClassifier<TestLibrary> classifier = classifier(cache);
+		classifier.process(Arrays.asList(jars));
+		classifier.saveCache();
+		return classifier;
+	}
+
+	private Path jar(String name, String... entries) throws IOException {
+		Path path = dir.resolve(name);
+
+		try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(path))) {
+			for (String entry : entries) {
+				zip.putNextEntry(new ZipEntry(entry));
+				zip.closeEntry();
+			}
+		}
+
+		return LoaderUtil.normalizeExistingPath(path);
+	}
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.gui;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.muonmc.loader.api.LoaderValue;
+import org.muonmc.loader.api.plugin.LoaderValueFactory;
+
+public class ForkCommCodecTester {
+
+	@Test
+	public void testPrimitives() throws IOException {
+		LoaderValueFactory lvf = LoaderValueFactory.getFactory();
+		List<LoaderValue> values = Arrays.asList(
+			lvf.nul(),
+			lvf.bool(false),
+			lvf.bool(true),
+			lvf.number(0),
+			lvf.number(-1),
+			lvf.number(Integer.MIN_VALUE),
+			lvf.number(Integer.MAX_VALUE),
+			lvf.number(Long.MIN_VALUE),
+			lvf.number(1L << 40),
+			lvf.number(0.5),
+			lvf.number(Double.NaN),
+			lvf.number(Double.NEGATIVE_INFINITY),
+			lvf.number(new BigInteger("123456789012345678901234567890")),
+			lvf.number(new BigDecimal("1.5")),
+			lvf.number(new BigDecimal("1E+3")),
+			lvf.number(new BigDecimal("-2.5E-30"))
+		);
+		Assertions.assertEquals(values, roundTrip(values));
+	}
+
+	@Test
+	public void testStrings() throws IOException {
+		LoaderValueFactory lvf = LoaderValueFactory.getFactory();
+		StringBuilder longString = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			longString.append((char) ('a' + i % 26));
+		}
+		List<LoaderValue> values = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			values.add(lvf.string(""));
+			values.add(lvf.string("repeated"));
+			values.add(lvf.string("unicode \u00e9\u4e2d\ud83d\ude00"));
+			values.add(lvf.string(longString.toString()));
+		}
+		Assertions.assertEquals(values, roundTrip(values));
+	}
+
+	@Test
+	public void testNested() throws IOException {
+		LoaderValueFactory lvf = LoaderValueFactory.getFactory();
+		Map<String, LoaderValue> inner = new LinkedHashMap<>();
+		inner.put("zeta", lvf.number(1));
+		inner.put("alpha", lvf.string("zeta"));
+		inner.put("empty", lvf.array(new LoaderValue[0]));
+
+		Map<String, LoaderValue> outer = new LinkedHashMap<>();
+		outer.put("name", lvf.string("alpha"));
+		outer.put("children", lvf.array(new LoaderValue[] { lvf.object(inner), lvf.object(inner), lvf.nul() }));
+		outer.put("empty", lvf.object(Collections.emptyMap()));
+
+		List<LoaderValue> values = Arrays.asList(lvf.object(outer), lvf.object(inner));
+		List<LoaderValue> read = roundTrip(values);
+		Assertions.assertEquals(values, read);
+
+		// Object keys must come back in the same order that they were written in
+		Assertions.assertEquals(
+			Arrays.asList("name", "children", "empty"), new ArrayList<>(read.get(0).asObject().keySet())
+		);
+		Assertions.assertEquals(
+			Arrays.asList("zeta", "alpha", "empty"), new ArrayList<>(read.get(1).asObject().keySet())
+		);
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		LoaderValueFactory lvf = LoaderValueFactory.getFactory();
+		MuonForkComms comms = new MuonForkComms(msg -> {});
+		try {
+			comms.sendCoalesced(1, "progress", lvf.number(10));
+			comms.send(lvf.string("first"));
+			comms.sendCoalesced(2, "progress", lvf.number(20));
+			comms.sendCoalesced(1, "progress", lvf.number(11));
+			comms.sendCoalesced(1, "text", lvf.string("loading"));
+			comms.send(lvf.string("second"));
+
+			List<LoaderValue> expected = Arrays.asList(
+				lvf.string("first"),
+				lvf.number(20),
+				lvf.number(11),
+				lvf.string("loading"),
+				lvf.string("second")
+			);
+			List<LoaderValue> batch = comms.takeBatch();
+			Assertions.assertEquals(expected, batch);
+			Assertions.assertEquals(expected, roundTrip(batch));
+		} finally {
+			comms.close();
+		}
+		Assertions.assertNull(comms.takeBatch());
+	}
+
+	private static List<LoaderValue> roundTrip(List<LoaderValue> values) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		new ForkCommCodec.Encoder().writeFrame(values, new DataOutputStream(baos));
+		byte[] bytes = baos.toByteArray();
+		int length = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+		Assertions.assertEquals(bytes.length - 4, length);
+		return ForkCommCodec.readFrame(Arrays.copyOfRange(bytes, 4, bytes.length));
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.metadata.qmj;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.muonmc.loader.api.Version;
+import org.muonmc.loader.api.VersionFormatException;
+import org.muonmc.loader.api.VersionRange;
+
+public class SemanticVersionImplTester {
+
+	/** The precedence example from the semver 2.0.0 spec, plus a few edge cases, in ascending order. */
+	private static final String[] ORDERED = {
+		"0.9.9", "1.0.0-0", "1.0.0-9", "1.0.0-10", "1.0.0-01", "1.0.0-alpha", "1.0.0-alpha.1", "1.0.0-alpha.beta",
+		"1.0.0-beta", "1.0.0-beta.2", "1.0.0-beta.11", "1.0.0-rc.1", "1.0.0", "1.0.1", "1.1", "1.10.0", "2"
+	};
+
+	@Test
+	public void testOrdering() throws VersionFormatException {
+		for (int i = 0; i < ORDERED.length; i++) {
+			for (int j = 0; j < ORDERED.length; j++) {
+				Version.Semantic a = SemanticVersionImpl.of(ORDERED[i]);
+				Version.Semantic b = SemanticVersionImpl.of(ORDERED[j]);
+				String message = ORDERED[i] + " vs " + ORDERED[j];
+				Assertions.assertEquals(Integer.signum(Integer.compare(i, j)), Integer.signum(a.compareTo(b)), message);
+				Assertions.assertEquals(Integer.signum(Integer.compare(i, j)), Integer.signum(a.compareTo((Version) b)), message);
+			}
+		}
+	}
+
+	@Test
+	public void testEmptyPreRelease() throws VersionFormatException {
+		Version.Semantic present = SemanticVersionImpl.of("1.0.0-");
+		Version.Semantic absent = SemanticVersionImpl.of("1.0.0");
+		Assertions.assertSame(Version.Semantic.EMPTY_BUT_PRESENT_PRERELEASE, present.preRelease());
+		Assertions.assertTrue(present.isPreReleasePresent());
+		Assertions.assertFalse(absent.isPreReleasePresent());
+		Assertions.assertTrue(present.compareTo(absent) < 0);
+	}
+
+	@Test
+	public void testInvalid() {
+		for (String invalid : new String[] { "1..0", ".1", "1.", "1.0-alpha..1", "1.0-alpha.", "1.0-al_pha", "a.b" }) {
+			Assertions.assertThrows(VersionFormatException.class, () -> SemanticVersionImpl.of(invalid), invalid);
+			// Parsing twice has to throw again, even though the generic version is interned
+			Assertions.assertFalse(Version.of(invalid).isSemantic(), invalid);
+			Assertions.assertThrows(VersionFormatException.class, () -> SemanticVersionImpl.of(invalid), invalid);
+		}
+	}
+
+	/** Parses every version and dependency of a large synthetic modpack, where lots of mods share the same versions
+	 * and specifiers, and checks that equal strings always produce the same instance. */
+	@Test
+	public void testSyntheticModpack() throws VersionFormatException {
+		Random random = new Random(42);
+		String[] specifierPrefixes = { "", "=", ">=", ">", "<=", "<", "~", "^" };
+		String[] preReleases = { "", "-alpha", "-beta.1", "-rc.2", "-pre3", "+build.7" };
+
+		List<String> modVersions = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			modVersions.add(random.nextInt(5) + "." + random.nextInt(20) + "." + random.nextInt(10) + preReleases[random.nextInt(preReleases.length)]);
+		}
+		// Some mods don't use semantic versions at all
+		for (int i = 0; i < 100; i++) {
+			modVersions.add("mc1.20.1-" + random.nextInt(50) + "_" + random.nextInt(3));
+		}
+
+		Map<String, Version> versions = new HashMap<>();
+		for (String raw : modVersions) {
+			Version version = Version.of(raw);
+			Version previous = versions.putIfAbsent(raw, version);
+			if (previous != null) {
+				Assertions.assertSame(previous, version, raw);
+			}
+			Assertions.assertEquals(raw, version.raw());
+		}
+
+		Map<String, VersionRange> ranges = new HashMap<>();
+		for (int mod = 0; mod < 2000; mod++) {
+			for (int dep = 0; dep < 8; dep++) {
+				String target = random.nextInt(5) + "." + random.nextInt(20) + (random.nextBoolean() ? "." + random.nextInt(10) : "");
+				String specifier = specifierPrefixes[random.nextInt(specifierPrefixes.length)] + target;
+				VersionRange range = V1ModMetadataReader.readVersionSpecifier(specifier);
+				VersionRange previous = ranges.putIfAbsent(specifier, range);
+				if (previous != null) {
+					Assertions.assertSame(previous, range, specifier);
+				}
+
+				Version.Semantic min = SemanticVersionImpl.of(target);
+				Assertions.assertSame(min, SemanticVersionImpl.of(target));
+				if (!specifier.startsWith("<") && !specifier.startsWith(">")) {
+					Assertions.assertTrue(range.isSatisfiedBy(min), specifier);
+				}
+			}
+		}
+
+		// The precomputed comparison gives the same order as the semver spec
+		List<Version.Semantic> semantic = new ArrayList<>();
+		for (Version version : versions.values()) {
+			if (version.isSemantic()) {
+				semantic.add(version.semantic());
+			}
+		}
+		for (Version.Semantic a : semantic) {
+			for (int i = 0; i < 20; i++) {
+				Version.Semantic b = semantic.get(random.nextInt(semantic.size()));
+				Assertions.assertEquals(referenceCompare(a, b), Integer.signum(a.compareTo(b)), a + " vs " + b);
+			}
+		}
+	}
+
+	private static int referenceCompare(Version.Semantic a, Version.Semantic b) {
+		for (int i = 0; i < Math.max(a.versionComponentCount(), b.versionComponentCount()); i++) {
+			int compare = Integer.compare(a.versionComponent(i), b.versionComponent(i));
+			if (compare != 0) return Integer.signum(compare);
+		}
+		if (!a.isPreReleasePresent() || !b.isPreReleasePresent()) {
+			return a.isPreReleasePresent() ? -1 : b.isPreReleasePresent() ? 1 : 0;
+		}
+		String[] partsA = a.preRelease().split("\\.");
+		String[] partsB = b.preRelease().split("\\.");
+		for (int i = 0; i < Math.min(partsA.length, partsB.length); i++) {
+			boolean numericA = partsA[i].matches("0|[1-9][0-9]*");
+			boolean numericB = partsB[i].matches("0|[1-9][0-9]*");
+			int compare;
+			if (numericA && numericB) {
+				compare = Long.compare(Long.parseLong(partsA[i]), Long.parseLong(partsB[i]));
+			} else if (numericA != numericB) {
+				compare = numericA ? -1 : 1;
+			} else {
+				compare = partsA[i].compareTo(partsB[i]);
+			}
+			if (compare != 0) return Integer.signum(compare);
+		}
+		return Integer.signum(Integer.compare(partsA.length, partsB.length));
+	}
+}
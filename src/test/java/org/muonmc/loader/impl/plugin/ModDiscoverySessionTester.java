@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.plugin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.impl.QuiltLoaderConfig;
+import org.muonmc.loader.impl.filesystem.MuonZipFileSystem;
+
+public class ModDiscoverySessionTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testReusesUnchangedZips() throws Exception {
+		Path mods = dir.resolve("mods");
+		Files.createDirectories(mods);
+		Path jar = mods.resolve("example.jar");
+		writeJar(jar, "first");
+
+		AtomicInteger loads = new AtomicInteger();
+		ModDiscoverySession.ZipLoader loader = zip -> {
+			loads.incrementAndGet();
+			return new MuonZipFileSystem(zip.getFileName().toString(), zip, "").getRoot();
+		};
+
+		QuiltLoaderConfig config = new QuiltLoaderConfig(dir.resolve("quilt-loader.txt"));
+		try (ModDiscoverySession session = new ModDiscoverySession(dir, dir.resolve("config"), mods, dir.resolve("cache"), null, config)) {
+			Path root = session.loadZip(jar, loader);
+			Assertions.assertEquals("first", read(root));
+			Assertions.assertSame(root, session.loadZip(jar, loader));
+
+			// Unchanged, so the next resolve reuses it
+			session.invalidateChanged();
+			Assertions.assertSame(root, session.loadZip(jar, loader));
+			Assertions.assertEquals(1, loads.get());
+
+			// Different size and modified time, so it must be read again
+			writeJar(jar, "second, which is longer");
+			FileTime modified = Files.getLastModifiedTime(jar);
+			Files.setLastModifiedTime(jar, FileTime.fromMillis(modified.toMillis() + 10_000));
+			session.invalidateChanged();
+			Assertions.assertFalse(root.getFileSystem().isOpen());
+
+			Path changed = session.loadZip(jar, loader);
+			Assertions.assertNotSame(root, changed);
+			Assertions.assertEquals("second, which is longer", read(changed));
+			Assertions.assertEquals(2, loads.get());
+		}
+	}
+
+	private static void writeJar(Path jar, String content) throws IOException {
+		try (OutputStream os = Files.newOutputStream(jar); ZipOutputStream zip = new ZipOutputStream(os)) {
+			zip.putNextEntry(new ZipEntry("content.txt"));
+			zip.write(content.getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	private static String read(Path root) throws IOException {
+		return new String(Files.readAllBytes(root.resolve("content.txt")), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.transformer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.api.LoaderValue;
+import org.muonmc.loader.api.plugin.LoaderValueFactory;
+import org.muonmc.loader.api.plugin.solver.ModLoadOption;
+import org.muonmc.loader.impl.transformer.InternalsHiderTransformTester.TestMod;
+
+public class ChasmInvokerTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testNoTransformers() throws IOException, ChasmTransformException {
+		LoaderValueFactory lvf = LoaderValueFactory.getFactory();
+		TestMod a = new TestMod("a", Collections.singletonMap("experimental_chasm_transformers", lvf.string("chasm")));
+		TestMod b = new TestMod("b");
+		Path rootA = dir.resolve("a");
+		Path rootB = dir.resolve("b");
+		write(rootA.resolve("a/Example.class"));
+		write(rootA.resolve("chasm/readme.txt"));
+		write(rootB.resolve("b/Example.class"));
+		// Only the declared folders are searched
+		write(rootB.resolve("chasm/ignored.chasm"));
+
+		Map<ModLoadOption, Path> roots = new HashMap<>();
+		roots.put(a, rootA);
+		roots.put(b, rootB);
+		Assertions.assertEquals(Collections.emptyList(), ChasmInvoker.findTransformers(cache(roots)));
+
+		// Without any transformers chasm must not look at the cache at all, since that would read every class
+		TransformCache unused = new TransformCache(dir.resolve("unused"), Collections.emptyList(), null) {
+			@Override
+			public Path getRoot(ModLoadOption mod) {
+				throw new AssertionError("Read the root of " + mod.id());
+			}
+
+			@Override
+			public List<ModLoadOption> getModsInCache() {
+				throw new AssertionError("Read the mods in the cache");
+			}
+		};
+		ChasmInvoker.applyChasm(unused, Collections.emptyList());
+	}
+
+	@Test
+	public void testFindsTransformers() throws IOException, ChasmTransformException {
+		LoaderValueFactory lvf = LoaderValueFactory.getFactory();
+		LoaderValue paths = lvf.array(new LoaderValue[] { lvf.string("chasm"), lvf.string("chasm/nested"), lvf.string("missing") });
+		TestMod a = new TestMod("a", Collections.singletonMap("experimental_chasm_transformers", paths));
+		Path rootA = dir.resolve("a");
+		write(rootA.resolve("a/Example.class"));
+		write(rootA.resolve("chasm/first.chasm"));
+		write(rootA.resolve("chasm/nested/second.chasm"));
+		write(rootA.resolve("other/ignored.chasm"));
+
+		List<String> ids = new ArrayList<>();
+		for (ChasmInvoker.TransformerFile file : ChasmInvoker.findTransformers(cache(Collections.singletonMap(a, rootA)))) {
+			Assertions.assertSame(a, file.mod);
+			ids.add(file.id);
+		}
+		Collections.sort(ids);
+		// Overlapping folders only find each transformer once, using the first folder for the id
+		Assertions.assertEquals(Arrays.asList("a:first", "a:nested/second"), ids);
+	}
+
+	private TransformCache cache(Map<ModLoadOption, Path> roots) {
+		List<ModLoadOption> mods = new ArrayList<>(roots.keySet());
+		return new TransformCache(dir.resolve("cache"), Collections.emptyList(), null) {
+			@Override
+			public Path getRoot(ModLoadOption mod) {
+				return roots.get(mod);
+			}
+
+			@Override
+			public List<ModLoadOption> getModsInCache() {
+				return mods;
+			}
+		};
+	}
+
+	private static void write(Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.write(file, new byte[] { 1, 2, 3 });
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.transformer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DenyLoadIndexTester {
+
+	@Test
+	public void testEmpty() {
+		Assertions.assertEquals(0, DenyLoadIndex.EMPTY.size());
+		Assertions.assertNull(DenyLoadIndex.EMPTY.get("a.b.C"));
+		Assertions.assertNull(DenyLoadIndex.EMPTY.getPackageReason("a.b"));
+		Assertions.assertSame(DenyLoadIndex.EMPTY, DenyLoadIndex.of(new HashMap<>()));
+	}
+
+	@Test
+	public void testLookups() throws IOException {
+		Map<String, String> reasons = new HashMap<>();
+		String client = "the class is annotated with @ClientOnly but we're on the dedicated server";
+		for (int i = 0; i < 5000; i++) {
+			reasons.put("com.example.client.Renderer" + i, client);
+		}
+		reasons.put("com.example.Missing", "because the mod 'other' isn't present");
+		reasons.put("com.example.server.package-info", "the package is annotated with @DedicatedServerOnly but we're on the client");
+		reasons.put("com.example.été.Café", "non-ascii");
+		reasons.put("com.example.😀.Emoji", "supplementary");
+
+		DenyLoadIndex index = DenyLoadIndex.read(DenyLoadIndex.write(reasons));
+		Assertions.assertEquals(reasons.size(), index.size());
+
+		for (Map.Entry<String, String> entry : reasons.entrySet()) {
+			Assertions.assertEquals(entry.getValue(), index.get(entry.getKey()), entry.getKey());
+		}
+
+		Assertions.assertEquals(reasons.get("com.example.server.package-info"), index.getPackageReason("com.example.server"));
+		Assertions.assertNull(index.getPackageReason("com.example.client"));
+		Assertions.assertNull(index.getPackageReason("com.example"));
+
+		for (int i = 0; i < 100_000; i++) {
+			Assertions.assertNull(index.get("net.minecraft.class_" + i));
+		}
+		Assertions.assertNull(index.get("com.example.client.Renderer"));
+		Assertions.assertNull(index.get("com.example.client.Renderer5000"));
+		Assertions.assertNull(index.get("com.example.Missin"));
+		Assertions.assertNull(index.get("com.example.Missing2"));
+		Assertions.assertNull(index.get(""));
+	}
+
+	@Test
+	public void testInvalid() {
+		byte[] data = DenyLoadIndex.write(Collections.singletonMap("a.B", "reason"));
+		Assertions.assertThrows(IOException.class, () -> DenyLoadIndex.read(Arrays.copyOf(data, data.length - 1)));
+		Assertions.assertThrows(IOException.class, () -> DenyLoadIndex.read(new byte[3]));
+	}
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.transformer;
+
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.api.LoaderValue;
+import org.muonmc.loader.api.ModInternal;
+import org.muonmc.loader.api.game.minecraft.ClientOnly;
+import org.muonmc.loader.api.game.minecraft.Environment;
+import org.muonmc.loader.api.gui.MuonLoaderIcon;
+import org.muonmc.loader.api.gui.MuonLoaderText;
+import org.muonmc.loader.api.plugin.ModContainerExt;
+import org.muonmc.loader.api.plugin.ModMetadataExt;
+import org.muonmc.loader.api.plugin.MuonPluginContext;
+import org.muonmc.loader.api.plugin.solver.LoadOption;
+import org.muonmc.loader.api.plugin.solver.ModLoadOption;
+import org.muonmc.loader.api.plugin.solver.QuiltFileHasher;
+import org.muonmc.loader.impl.MuonLoaderImpl;
+import org.muonmc.loader.impl.util.SystemProperties;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import net.fabricmc.accesswidener.AccessWidener;
+
+public class InternalsHiderTransformTester {
+
+	// Every class extends a loader api class, since looking up any class which isn't in the cache or loader needs a
+	// running launcher
+	private static final String ROOT = Type.getInternalName(LoadOption.class);
+	private static final String MOD_INTERNAL = Type.getDescriptor(ModInternal.class);
+	private static final String CLIENT_ONLY = Type.getDescriptor(ClientOnly.class);
+	private static final String EXCEPTION_UTIL = Type.getInternalName(MuonInternalExceptionUtil.class);
+
+	@TempDir
+	Path dir;
+
+	/** Checks that scanning first and then hiding internals in the same pass as stripping produces exactly the same
+	 * classes as transforming, then scanning, and then hiding internals in separate passes. */
+	@Test
+	public void testSinglePassMatchesTwoPasses() {
+		TestMod a = new TestMod("a");
+		TestMod b = new TestMod("b");
+		TestMod c = new TestMod("c");
+
+		Map<String, TestClass> classes = new LinkedHashMap<>();
+		classes.put("a/Api", new TestClass(a, createApi()));
+		classes.put("a/Internal", new TestClass(a, createInternal()));
+		classes.put("a/client/Screen", new TestClass(a, createScreen()));
+		classes.put("b/User", new TestClass(b, createUser()));
+		classes.put("c/Other", new TestClass(c, createOther()));
+
+		Map<String, byte[]> twoPass = runTwoPasses(classes);
+		Map<String, byte[]> singlePass = runSinglePass(classes);
+
+		Assertions.assertEquals(twoPass.keySet(), singlePass.keySet());
+		Assertions.assertFalse(singlePass.containsKey("a/client/Screen"));
+		for (Map.Entry<String, byte[]> entry : twoPass.entrySet()) {
+			Assertions.assertArrayEquals(entry.getValue(), singlePass.get(entry.getKey()), entry.getKey());
+		}
+
+		// secret(), hidden and SystemProperties are illegal, but clientSecret() is stripped and so only the class
+		// level exception applies
+		Assertions.assertEquals(3, countHiderCalls(singlePass.get("b/User"), "use"));
+		Assertions.assertEquals(1, countHiderCalls(singlePass.get("c/Other"), "<clinit>"));
+		Assertions.assertEquals(1, countHiderCalls(singlePass.get("c/Other"), "use"));
+	}
+
+	@Test
+	public void testScanMalformedClass() {
+		TransformCache cache = new TransformCache(dir, Collections.emptyList(), null);
+		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
+		// A class file version which is far too new for asm
+		byte[] bytes = { (byte) 0xCA, (byte) 0xFE, (byte) 0xBA, (byte) 0xBE, 0, 0, 0x7F, (byte) 0xFF };
+		IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class, () -> MuonTransformer.scan(
+			Environment.DEDICATED_SERVER, cache, "a/Broken", new TestMod("a"), bytes, internalsHider, true
+		));
+		Assertions.assertEquals("Failed to read the class a/Broken from mod a", e.getMessage());
+	}
+
+	private Map<String, byte[]> runTwoPasses(Map<String, TestClass> classes) {
+		TransformCache cache = new TransformCache(dir, Collections.emptyList(), null);
+		AccessWidener accessWidener = new AccessWidener();
+		Map<String, byte[]> transformed = new LinkedHashMap<>();
+
+		for (Map.Entry<String, TestClass> entry : classes.entrySet()) {
+			TestClass cls = entry.getValue();
+			byte[] result = transform(cache, accessWidener, entry.getKey(), cls, null);
+			if (!cache.getHiddenClasses().containsKey(entry.getKey())) {
+				transformed.put(entry.getKey(), result != null ? result : cls.bytes);
+			}
+		}
+
+		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
+		for (Map.Entry<String, byte[]> entry : transformed.entrySet()) {
+			internalsHider.scanClass(classes.get(entry.getKey()).mod, dir.resolve(entry.getKey()), entry.getValue());
+		}
+
+		Map<String, byte[]> output = new LinkedHashMap<>();
+		for (Map.Entry<String, byte[]> entry : transformed.entrySet()) {
+			output.put(entry.getKey(), internalsHider.run(classes.get(entry.getKey()).mod, entry.getValue()));
+		}
+		return output;
+	}
+
+	private Map<String, byte[]> runSinglePass(Map<String, TestClass> classes) {
+		TransformCache cache = new TransformCache(dir, Collections.emptyList(), null);
+		AccessWidener accessWidener = new AccessWidener();
+		InternalsHiderTransform internalsHider = new InternalsHiderTransform(InternalsHiderTransform.Target.MOD);
+
+		for (Map.Entry<String, TestClass> entry : classes.entrySet()) {
+			TestClass cls = entry.getValue();
+			MuonTransformer.scan(Environment.DEDICATED_SERVER, cache, entry.getKey(), cls.mod, cls.bytes, internalsHider, true);
+		}
+
+		Map<String, byte[]> output = new LinkedHashMap<>();
+		for (Map.Entry<String, TestClass> entry : classes.entrySet()) {
+			byte[] result = transform(cache, accessWidener, entry.getKey(), entry.getValue(), internalsHider);
+			if (result != null) {
+				output.put(entry.getKey(), result);
+			}
+		}
+		return output;
+	}
+
+	private static byte[] transform(TransformCache cache, AccessWidener accessWidener, String name, TestClass cls, InternalsHiderTransform internalsHider) {
+		return MuonTransformer.transform(Environment.DEDICATED_SERVER, cache, accessWidener, name, cls.mod, cls.bytes, internalsHider, true, false, true);
+	}
+
+	private static int countHiderCalls(byte[] bytes, String method) {
+		int[] count = { 0 };
+		new ClassReader(bytes).accept(new ClassVisitor(MuonLoaderImpl.ASM_VERSION) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+				if (!name.equals(method)) {
+					return null;
+				}
+				return new MethodVisitor(api) {
+					@Override
+					public void visitMethodInsn(int opcode, String owner, String name, String descriptor, boolean isInterface) {
+						if (owner.equals(EXCEPTION_UTIL)) {
+							count[0]++;
+						}
+					}
+				};
+			}
+		}, 0);
+		return count[0];
+	}
+
+	/** A class which is internal, except to b and c. Some of its members are more restricted. */
+	private static byte[] createApi() {
+		ClassWriter writer = startClass("a/Api", ROOT);
+		modInternal(writer.visitAnnotation(MOD_INTERNAL, false), "b", "c");
+		endMethod(startMethod(writer, "open"));
+		MethodVisitor secret = writer.visitMethod(Opcodes.ACC_PUBLIC, "secret", "()V", null, null);
+		modInternal(secret.visitAnnotation(MOD_INTERNAL, false));
+		endMethod(secret);
+		MethodVisitor clientSecret = writer.visitMethod(Opcodes.ACC_PUBLIC, "clientSecret", "()V", null, null);
+		modInternal(clientSecret.visitAnnotation(MOD_INTERNAL, false));
+		clientSecret.visitAnnotation(CLIENT_ONLY, false).visitEnd();
+		endMethod(clientSecret);
+		FieldVisitor hidden = writer.visitField(Opcodes.ACC_PUBLIC, "hidden", "I", null, null);
+		modInternal(hidden.visitAnnotation(MOD_INTERNAL, false), "c");
+		hidden.visitEnd();
+		return endClass(writer);
+	}
+
+	private static byte[] createInternal() {
+		ClassWriter writer = startClass("a/Internal", ROOT);
+		modInternal(writer.visitAnnotation(MOD_INTERNAL, false));
+		return endClass(writer);
+	}
+
+	/** A class which is stripped entirely, so its annotation must not be seen. */
+	private static byte[] createScreen() {
+		ClassWriter writer = startClass("a/client/Screen", ROOT);
+		writer.visitAnnotation(CLIENT_ONLY, false).visitEnd();
+		modInternal(writer.visitAnnotation(MOD_INTERNAL, false));
+		return endClass(writer);
+	}
+
+	private static byte[] createUser() {
+		ClassWriter writer = startClass("b/User", "a/Api");
+		MethodVisitor own = writer.visitMethod(Opcodes.ACC_PUBLIC, "own", "()V", null, null);
+		modInternal(own.visitAnnotation(MOD_INTERNAL, false));
+		endMethod(own);
+
+		MethodVisitor use = startMethod(writer, "use");
+		use.visitVarInsn(Opcodes.ALOAD, 0);
+		use.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "a/Api", "open", "()V", false);
+		use.visitVarInsn(Opcodes.ALOAD, 0);
+		use.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "a/Api", "secret", "()V", false);
+		use.visitVarInsn(Opcodes.ALOAD, 0);
+		use.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "a/Api", "clientSecret", "()V", false);
+		use.visitVarInsn(Opcodes.ALOAD, 0);
+		use.visitFieldInsn(Opcodes.GETFIELD, "a/Api", "hidden", "I");
+		use.visitInsn(Opcodes.POP);
+		use.visitFieldInsn(Opcodes.GETSTATIC, Type.getInternalName(SystemProperties.class), "DEVELOPMENT", "Ljava/lang/String;");
+		use.visitInsn(Opcodes.POP);
+		endMethod(use);
+
+		MethodVisitor client = writer.visitMethod(Opcodes.ACC_PUBLIC, "client", "()V", null, null);
+		client.visitAnnotation(CLIENT_ONLY, false).visitEnd();
+		client.visitCode();
+		client.visitVarInsn(Opcodes.ALOAD, 0);
+		client.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "a/Api", "secret", "()V", false);
+		endMethod(client);
+		return endClass(writer);
+	}
+
+	/** Extends a class it isn't allowed to, so needs a static initialiser to be added. */
+	private static byte[] createOther() {
+		ClassWriter writer = startClass("c/Other", "a/Internal");
+		MethodVisitor use = startMethod(writer, "use");
+		use.visitVarInsn(Opcodes.ALOAD, 0);
+		use.visitFieldInsn(Opcodes.GETFIELD, "a/Api", "hidden", "I");
+		use.visitInsn(Opcodes.POP);
+		use.visitInsn(Opcodes.ACONST_NULL);
+		use.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "b/User", "own", "()V", false);
+		endMethod(use);
+		return endClass(writer);
+	}
+
+	private static ClassWriter startClass(String name, String superName) {
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, superName, null);
+		MethodVisitor init = startMethod(writer, "<init>");
+		init.visitVarInsn(Opcodes.ALOAD, 0);
+		init.visitMethodInsn(Opcodes.INVOKESPECIAL, superName, "<init>", "()V", false);
+		endMethod(init);
+		return writer;
+	}
+
+	private static byte[] endClass(ClassWriter writer) {
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
+	private static MethodVisitor startMethod(ClassWriter writer, String name) {
+		MethodVisitor method = writer.visitMethod(Opcodes.ACC_PUBLIC, name, "()V", null, null);
+		method.visitCode();
+		return method;
+	}
+
+	private static void endMethod(MethodVisitor method) {
+		method.visitInsn(Opcodes.RETURN);
+		method.visitMaxs(0, 0);
+		method.visitEnd();
+	}
+
+	private static void modInternal(AnnotationVisitor annotation, String... exceptions) {
+		AnnotationVisitor array = annotation.visitArray("exceptions");
+		for (String exception : exceptions) {
+			array.visit(null, exception);
+		}
+		array.visitEnd();
+		annotation.visitEnd();
+	}
+
+	static final class TestClass {
+		final ModLoadOption mod;
+		final byte[] bytes;
+
+		TestClass(ModLoadOption mod, byte[] bytes) {
+			this.mod = mod;
+			this.bytes = bytes;
+		}
+	}
+
+	static final class TestMod extends ModLoadOption {
+		final ModMetadataExt metadata;
+
+		TestMod(String id) {
+			this(id, Collections.emptyMap());
+		}
+
+		TestMod(String id, Map<String, LoaderValue> values) {
+			this.metadata = (ModMetadataExt) Proxy.newProxyInstance(
+				getClass().getClassLoader(), new Class<?>[] { ModMetadataExt.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "id":
+						case "name":
+							return id;
+						case "value":
+							return values.get((String) args[0]);
+						default:
+							throw new UnsupportedOperationException(method.getName());
+					}
+				}
+			);
+		}
+
+		@Override
+		public ModMetadataExt metadata() {
+			return metadata;
+		}
+
+		@Override
+		public MuonPluginContext loader() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Path from() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Path resourceRoot() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean isMandatory() {
+			return true;
+		}
+
+		@Override
+		public String namespaceMappingFrom() {
+			return null;
+		}
+
+		@Override
+		public boolean needsTransforming() {
+			return true;
+		}
+
+		@Override
+		public byte[] computeOriginHash(QuiltFileHasher hasher) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public MuonLoaderIcon modFileIcon() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public MuonLoaderIcon modTypeIcon() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public ModContainerExt convertToMod(Path transformedResourceRoot) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String shortString() {
+			return id();
+		}
+
+		@Override
+		public String getSpecificInfo() {
+			return id();
+		}
+
+		@Override
+		public MuonLoaderText describe() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.transformer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.impl.MuonLoaderImpl;
+import org.muonmc.loader.impl.discovery.ModResolutionException;
+import org.muonmc.loader.impl.filesystem.MuonZipFileSystem;
+import org.muonmc.loader.impl.util.SharedCacheStore;
+
+public class TransformCacheManagerTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testReusesCache() throws IOException, ModResolutionException {
+		Map<String, String> options = options();
+		Path folder = dir.resolve("transform-cache");
+		byte[] index = DenyLoadIndex.write(Collections.singletonMap("com.example.Client", "client only"));
+		writeCache(folder, options, index);
+
+		TransformCacheResult result = TransformCacheManager.checkTransformCache(folder, options, "key");
+		Assertions.assertNotNull(result);
+		Assertions.assertFalse(result.isNewlyGenerated);
+		Assertions.assertEquals("key", result.cacheKey);
+		Assertions.assertEquals("client only", result.hiddenClasses.get("com.example.Client"));
+	}
+
+	@Test
+	public void testMissingHiddenClassIndex() throws IOException, ModResolutionException {
+		Map<String, String> options = options();
+		Path folder = dir.resolve("transform-cache");
+		// Written by a loader from before the binary index existed
+		writeCache(folder, options, null);
+
+		Assertions.assertNull(TransformCacheManager.checkTransformCache(folder, options, "key"));
+		Assertions.assertFalse(Files.exists(folder.resolve("files.zip")));
+	}
+
+	@Test
+	public void testUnreadableHiddenClassIndex() throws IOException, ModResolutionException {
+		Map<String, String> options = options();
+		Path folder = dir.resolve("transform-cache");
+		writeCache(folder, options, new byte[3]);
+
+		Assertions.assertNull(TransformCacheManager.checkTransformCache(folder, options, "key"));
+		Assertions.assertFalse(Files.exists(folder.resolve("files.zip")));
+	}
+
+	@Test
+	public void testCacheKey() {
+		String key = TransformCacheManager.cacheKey("mod#0=example\n");
+		Assertions.assertEquals(key, TransformCacheManager.cacheKey("mod#0=example\n"));
+		Assertions.assertNotEquals(key, TransformCacheManager.cacheKey("mod#0=example\nmod#1=other\n"));
+		// The shared cache can be used by several loader versions, which must never reuse each other's caches
+		Assertions.assertEquals(
+			new SharedCacheStore.KeyBuilder().add(MuonLoaderImpl.VERSION).add("mod#0=example\n").build(), key
+		);
+	}
+
+	private static Map<String, String> options() {
+		Map<String, String> options = new TreeMap<>();
+		options.put("mod#0", "example");
+		options.put("mod:example", "example.jar 0123456789abcdef");
+		return options;
+	}
+
+	private void writeCache(Path folder, Map<String, String> options, byte[] index) throws IOException {
+		Path src = dir.resolve("src");
+		Files.createDirectories(src);
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> entry : options.entrySet()) {
+			sb.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+		}
+		Files.write(src.resolve("options.txt"), sb.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(src.resolve("deny_load_reasons.json"), "{}".getBytes(StandardCharsets.UTF_8));
+		if (index != null) {
+			Files.write(src.resolve("deny_load_reasons.bin"), index);
+		}
+		Files.createFile(src.resolve("__TRANSFORM_COMPLETE"));
+
+		Files.createDirectories(folder);
+		MuonZipFileSystem.writeQuiltCompressedFileSystem(src, folder.resolve("files.zip"));
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class PrecomputedZipWriterTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testWrite() throws IOException {
+		Path zip = dir.resolve("small.zip");
+		try (PrecomputedZipWriter writer = new PrecomputedZipWriter(zip)) {
+			writer.write(PrecomputedZipWriter.Entry.folder("folder/"));
+			writer.write(PrecomputedZipWriter.Entry.compress("folder/text.txt", repeat("text", 100)));
+			writer.write(PrecomputedZipWriter.Entry.compress("folder/short.txt", repeat("a", 1)));
+		}
+
+		try (ZipFile file = new ZipFile(zip.toFile())) {
+			Assertions.assertEquals(3, file.size());
+			Assertions.assertTrue(file.getEntry("folder/").isDirectory());
+			Assertions.assertEquals(ZipEntry.DEFLATED, file.getEntry("folder/text.txt").getMethod());
+			Assertions.assertEquals(ZipEntry.STORED, file.getEntry("folder/short.txt").getMethod());
+			Assertions.assertEquals(new String(repeat("text", 100), StandardCharsets.UTF_8), read(file, "folder/text.txt"));
+			Assertions.assertEquals("a", read(file, "folder/short.txt"));
+		}
+	}
+
+	@Test
+	public void testTooManyEntriesForPlainZip() throws IOException {
+		int count = 0x1_0100;
+		Path zip = dir.resolve("many.zip");
+		try (PrecomputedZipWriter writer = new PrecomputedZipWriter(zip)) {
+			for (int i = 0; i < count; i++) {
+				writer.write(PrecomputedZipWriter.Entry.compress("file" + i + ".txt", ("" + i).getBytes(StandardCharsets.UTF_8)));
+			}
+		}
+
+		try (ZipFile file = new ZipFile(zip.toFile())) {
+			Assertions.assertEquals(count, file.size());
+			Assertions.assertEquals("0", read(file, "file0.txt"));
+			Assertions.assertEquals("" + (count - 1), read(file, "file" + (count - 1) + ".txt"));
+		}
+	}
+
+	@Test
+	public void testEntryTooLarge() throws IOException {
+		Assertions.assertThrows(IOException.class, () -> PrecomputedZipWriter.Entry.deflated("big", new byte[0], 1L << 31, 0));
+		Assertions.assertThrows(IOException.class, () -> PrecomputedZipWriter.Entry.deflated("negative", new byte[0], -1, 0));
+		PrecomputedZipWriter.Entry.deflated("largest", new byte[0], Integer.MAX_VALUE, 0);
+	}
+
+	@Test
+	public void testIncompressible() throws IOException {
+		byte[] contents = new byte[1000];
+		new Random(0).nextBytes(contents);
+		Path zip = dir.resolve("random.zip");
+		try (PrecomputedZipWriter writer = new PrecomputedZipWriter(zip)) {
+			writer.write(PrecomputedZipWriter.Entry.compress("random.bin", contents));
+			writer.write(PrecomputedZipWriter.Entry.compress("empty.txt", new byte[0]));
+		}
+
+		try (ZipFile file = new ZipFile(zip.toFile())) {
+			Assertions.assertEquals(ZipEntry.STORED, file.getEntry("random.bin").getMethod());
+			Assertions.assertEquals(1000, file.getEntry("random.bin").getSize());
+			Assertions.assertEquals(0, file.getEntry("empty.txt").getSize());
+		}
+	}
+
+	@Test
+	public void testVersionsMatch() throws IOException {
+		Assertions.assertEquals(20, writeAndReadVersion("plain.zip", 0));
+		Assertions.assertEquals(45, writeAndReadVersion("zip64.zip", 0x1_0000_0000L));
+	}
+
+	/** Writes a single entry at the given (pretend) offset, and checks that the version needed in the local header
+	 * matches the central header. */
+	private int writeAndReadVersion(String name, long offset) throws IOException {
+		Path zip = dir.resolve(name);
+		try (PrecomputedZipWriter writer = new PrecomputedZipWriter(zip)) {
+			writer.offset = offset;
+			writer.write(PrecomputedZipWriter.Entry.compress("a.txt", repeat("a", 1)));
+		}
+
+		ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(zip)).order(ByteOrder.LITTLE_ENDIAN);
+		Assertions.assertEquals(0x04034b50, bytes.getInt(0));
+		int localVersion = bytes.getShort(4);
+
+		// The offsets in the file are wrong when pretending, so search for the central header instead
+		int central = -1;
+		for (int i = 4; i < bytes.limit() - 4; i++) {
+			if (bytes.getInt(i) == 0x02014b50) {
+				central = i;
+				break;
+			}
+		}
+		Assertions.assertTrue(central > 0, "Missing central header");
+		Assertions.assertEquals(localVersion, bytes.getShort(central + 6), "Version needed");
+		Assertions.assertEquals(localVersion, bytes.getShort(central + 4), "Version made by");
+		return localVersion;
+	}
+
+	private static byte[] repeat(String text, int count) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.append(text);
+		}
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String read(ZipFile file, String name) throws IOException {
+		try (InputStream stream = file.getInputStream(file.getEntry(name))) {
+			byte[] buffer = new byte[(int) file.getEntry(name).getSize()];
+			int length = 0;
+			while (length < buffer.length) {
+				int count = stream.read(buffer, length, buffer.length - length);
+				if (count < 0) {
+					break;
+				}
+				length += count;
+			}
+			return new String(buffer, 0, length, StandardCharsets.UTF_8);
+		}
+	}
+}
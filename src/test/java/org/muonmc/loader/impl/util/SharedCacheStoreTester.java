@@ -0,0 +1,237 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muonmc.loader.impl.filesystem.MuonMemoryFileSystem;
+
+public class SharedCacheStoreTester {
+
+	@TempDir
+	Path dir;
+
+	@Test
+	public void testKeyBuilder() throws IOException {
+		Path file = dir.resolve("file.bin");
+		Files.write(file, "content".getBytes(StandardCharsets.UTF_8));
+
+		String key = new SharedCacheStore.KeyBuilder().add("a").addContent(file).build();
+		Assertions.assertEquals(64, key.length());
+		Assertions.assertEquals(key, new SharedCacheStore.KeyBuilder().add("a").addContent(file).build());
+		Assertions.assertEquals(key, new SharedCacheStore.KeyBuilder().add("a").addContent(file.toUri().toURL()).build());
+
+		// Every value is length prefixed, so moving characters between values changes the key
+		Assertions.assertNotEquals(
+			new SharedCacheStore.KeyBuilder().add("ab").add("c").build(),
+			new SharedCacheStore.KeyBuilder().add("a").add("bc").build()
+		);
+		Assertions.assertNotEquals(key, new SharedCacheStore.KeyBuilder().addContent(file).add("a").build());
+
+		Files.write(file, "changed".getBytes(StandardCharsets.UTF_8));
+		Assertions.assertNotEquals(key, new SharedCacheStore.KeyBuilder().add("a").addContent(file).build());
+	}
+
+	@Test
+	public void testGetOrCreate() throws IOException {
+		SharedCacheStore store = new SharedCacheStore(dir.resolve("store"));
+		Path entry = store.getOrCreate("category", "key", to -> write(to, "first"));
+		Assertions.assertEquals(dir.resolve("store").resolve("category").resolve("key"), entry);
+		Assertions.assertEquals("first", read(entry));
+
+		// Existing entries are never written again
+		Assertions.assertEquals(entry, store.getOrCreate("category", "key", to -> {
+			throw new AssertionError("Rewrote an existing entry");
+		}));
+		Assertions.assertEquals("first", read(entry));
+	}
+
+	@Test
+	public void testFailedWrite() throws IOException {
+		SharedCacheStore store = new SharedCacheStore(dir.resolve("store"));
+		Assertions.assertThrows(IOException.class, () -> store.getOrCreate("category", "key", to -> {
+			Files.createDirectories(to);
+			write(to.resolve("partial"), "partial");
+			throw new IOException("failed");
+		}));
+		// Only the lock file is left behind
+		Assertions.assertEquals(Collections.singletonList("key.lock"), list(dir.resolve("store/category")));
+
+		Path entry = store.getOrCreate("category", "key", to -> write(to, "second"));
+		Assertions.assertEquals("second", read(entry));
+	}
+
+	@Test
+	public void testConcurrentThreads() throws Exception {
+		Path log = dir.resolve("writes.log");
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<Path>> results = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				// Each thread uses its own store, like separate loader instances would
+				SharedCacheStore store = new SharedCacheStore(dir.resolve("store"));
+				results.add(executor.submit(() -> {
+					start.await();
+					return store.getOrCreate("category", "key", to -> writeSlowly(log, to));
+				}));
+			}
+			start.countDown();
+			for (Future<Path> result : results) {
+				Path entry = result.get(60, TimeUnit.SECONDS);
+				Assertions.assertEquals("content", read(entry));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assertions.assertEquals(1, Files.readAllLines(log).size());
+		Assertions.assertEquals(2, list(dir.resolve("store/category")).size());
+	}
+
+	/** Checks that the {@link java.nio.channels.FileLock} stops other processes from writing the same entry. */
+	@Test
+	public void testConcurrentProcesses() throws Exception {
+		Path store = dir.resolve("store");
+		Path log = dir.resolve("writes.log");
+		String javaPath = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+		String classPath = String.join(
+			File.pathSeparator,
+			codeSource(SharedCacheStore.class),
+			codeSource(SharedCacheStoreTester.class),
+			System.getProperty("java.class.path")
+		);
+
+		List<Process> processes = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			processes.add(new ProcessBuilder(
+				javaPath, "-cp", classPath, SharedCacheStoreTester.class.getName(), store.toString(), log.toString()
+			).redirectErrorStream(true).redirectOutput(dir.resolve("process" + i + ".log").toFile()).start());
+		}
+
+		Path entry = new SharedCacheStore(store).getOrCreate("category", "key", to -> writeSlowly(log, to));
+
+		for (int i = 0; i < processes.size(); i++) {
+			Process process = processes.get(i);
+			if (!process.waitFor(60, TimeUnit.SECONDS)) {
+				process.destroyForcibly();
+				Assertions.fail("Process " + i + " didn't finish");
+			}
+			String output = new String(Files.readAllBytes(dir.resolve("process" + i + ".log")), StandardCharsets.UTF_8);
+			Assertions.assertEquals(0, process.exitValue(), output);
+		}
+
+		Assertions.assertEquals("content", read(entry));
+		Assertions.assertEquals(1, Files.readAllLines(log).size());
+	}
+
+	/** Entry point for the processes started by {@link #testConcurrentProcesses()}. */
+	public static void main(String[] args) throws IOException {
+		Path log = Paths.get(args[1]);
+		new SharedCacheStore(Paths.get(args[0])).getOrCreate("category", "key", to -> writeSlowly(log, to));
+	}
+
+	@Test
+	public void testLinkFile() throws IOException {
+		Path shared = dir.resolve("shared.bin");
+		write(shared, "shared");
+		Path target = dir.resolve("instance/cache.bin");
+		Files.createDirectories(target.getParent());
+		write(target, "old");
+
+		Assertions.assertEquals(target, SharedCacheStore.link(shared, target));
+		Assertions.assertEquals("shared", read(target));
+		Assertions.assertTrue(Files.isSameFile(shared, target));
+	}
+
+	@Test
+	public void testLinkFolder() throws IOException {
+		Path shared = dir.resolve("shared");
+		Files.createDirectories(shared);
+		write(shared.resolve("a.jar"), "a");
+		write(shared.resolve("b.jar"), "b");
+		Path target = dir.resolve("instance/jars");
+
+		Assertions.assertEquals(target, SharedCacheStore.link(shared, target));
+		Assertions.assertEquals("a", read(target.resolve("a.jar")));
+		Assertions.assertTrue(Files.isSameFile(shared.resolve("b.jar"), target.resolve("b.jar")));
+	}
+
+	@Test
+	public void testLinkFallback() throws IOException {
+		Path shared = dir.resolve("shared.bin");
+		write(shared, "shared");
+
+		// Hardlinks can't cross file systems, so the shared entry must be used directly instead
+		try (FileSystem fs = new MuonMemoryFileSystem.ReadWrite("link-fallback", true)) {
+			Path target = fs.getPath("/instance/cache.bin");
+			Assertions.assertEquals(shared, SharedCacheStore.link(shared, target));
+			Assertions.assertFalse(Files.exists(target));
+		}
+		Assertions.assertEquals("shared", read(shared));
+	}
+
+	private static void writeSlowly(Path log, Path to) throws IOException {
+		Files.write(log, Collections.singletonList(to.toString()), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		try {
+			// Give every other writer a chance to try and write the same entry
+			Thread.sleep(500);
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+		write(to, "content");
+	}
+
+	private static String codeSource(Class<?> cls) throws Exception {
+		return Paths.get(cls.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+	}
+
+	private static void write(Path file, String content) throws IOException {
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static String read(Path file) throws IOException {
+		return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+	}
+
+	private static List<String> list(Path folder) throws IOException {
+		try (Stream<Path> stream = Files.list(folder)) {
+			return stream.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+		}
+	}
+}
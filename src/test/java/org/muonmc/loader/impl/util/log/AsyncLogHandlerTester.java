@@ -0,0 +1,181 @@
+/*
+ * Copyright 2024 QuiltMC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.muonmc.loader.impl.util.log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.muonmc.loader.impl.util.SystemProperties;
+
+public class AsyncLogHandlerTester {
+
+	@Test
+	public void testOrdering() throws Exception {
+		Recorder recorder = new Recorder();
+		AsyncLogHandler handler = new AsyncLogHandler(recorder);
+		// Far more messages than the queue can hold, so producers have to wait for the writer
+		int threads = 4;
+		int count = 5000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				int thread = t;
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int i = 0; i < count; i++) {
+						if ((i & 1) == 0) {
+							handler.log(System.currentTimeMillis(), LogLevel.INFO, LogCategory.LOG, thread + ":" + i, null, false, false);
+						} else {
+							handler.logFormat(System.currentTimeMillis(), LogLevel.INFO, LogCategory.LOG, "%s:%s", new Object[] { thread, i });
+						}
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		handler.flush();
+		List<String> messages = recorder.messages();
+		Assertions.assertEquals(threads * count, messages.size());
+
+		// Messages from different threads can interleave, but each thread's messages must stay in order
+		int[] next = new int[threads];
+		for (String message : messages) {
+			String[] parts = message.split(":");
+			int thread = Integer.parseInt(parts[0]);
+			Assertions.assertEquals(next[thread], Integer.parseInt(parts[1]), message);
+			next[thread]++;
+		}
+		handler.close();
+	}
+
+	@Test
+	public void testFlush() {
+		Recorder recorder = new Recorder();
+		recorder.delayNanos = TimeUnit.MILLISECONDS.toNanos(20);
+		AsyncLogHandler handler = new AsyncLogHandler(recorder);
+
+		for (int i = 0; i < 5; i++) {
+			handler.log(System.currentTimeMillis(), LogLevel.INFO, LogCategory.LOG, "info " + i, null, false, false);
+		}
+		handler.flush();
+		Assertions.assertEquals(5, recorder.messages().size());
+
+		// Errors are written before log returns, along with everything logged before them
+		handler.log(System.currentTimeMillis(), LogLevel.INFO, LogCategory.LOG, "before", null, false, false);
+		handler.log(System.currentTimeMillis(), LogLevel.ERROR, LogCategory.LOG, "error", null, false, false);
+		List<String> messages = recorder.messages();
+		Assertions.assertEquals(Arrays.asList("before", "error"), messages.subList(5, messages.size()));
+
+		// Everything queued is written by close, and anything logged afterwards is written directly
+		handler.log(System.currentTimeMillis(), LogLevel.INFO, LogCategory.LOG, "queued", null, false, false);
+		handler.close();
+		Assertions.assertTrue(recorder.closed);
+		Assertions.assertEquals("queued", recorder.messages().get(7));
+		handler.log(System.currentTimeMillis(), LogLevel.INFO, LogCategory.LOG, "after close", null, false, false);
+		Assertions.assertEquals("after close", recorder.messages().get(8));
+	}
+
+	@Test
+	public void testDeferredFormatting() {
+		Assertions.assertTrue(AsyncLogHandler.canDeferFormatting(new Object[] { "a", 1, 2L, null, LogLevel.INFO, new RuntimeException() }));
+		Assertions.assertFalse(AsyncLogHandler.canDeferFormatting(new Object[] { "a", new StringBuilder("mutable") }));
+		Assertions.assertFalse(AsyncLogHandler.canDeferFormatting(new Object[] { new ArrayList<>() }));
+	}
+
+	@Test
+	public void testReplayLimit() {
+		String previous = System.getProperty(SystemProperties.LOG_REPLAY_LIMIT);
+		System.setProperty(SystemProperties.LOG_REPLAY_LIMIT, "3");
+		BuiltinLogHandler builtin;
+		try {
+			builtin = new BuiltinLogHandler(true);
+		} finally {
+			if (previous == null) {
+				System.clearProperty(SystemProperties.LOG_REPLAY_LIMIT);
+			} else {
+				System.setProperty(SystemProperties.LOG_REPLAY_LIMIT, previous);
+			}
+		}
+
+		try {
+			builtin.configure(true, false);
+			for (int i = 0; i < 5; i++) {
+				builtin.log(1000 + i, LogLevel.INFO, LogCategory.LOG, "message " + i, null, false, false);
+			}
+
+			Recorder target = new Recorder();
+			Assertions.assertTrue(builtin.replay(target));
+			List<String> messages = target.messages();
+			Assertions.assertEquals(4, messages.size());
+			// The oldest messages are dropped, and replaced with a warning saying how many were lost
+			Assertions.assertTrue(messages.get(0).startsWith("2 earlier log messages were dropped"), messages.get(0));
+			Assertions.assertEquals(Arrays.asList("message 2", "message 3", "message 4"), messages.subList(1, 4));
+		} finally {
+			builtin.close();
+		}
+	}
+
+	/** Records every message, optionally taking a while to write each one. */
+	static final class Recorder implements LogHandler {
+		private final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+		volatile long delayNanos;
+		volatile boolean closed;
+
+		@Override
+		public void log(long time, LogLevel level, LogCategory category, String msg, Throwable exc, boolean fromReplay, boolean wasSuppressed) {
+			if (delayNanos > 0) {
+				LockSupport.parkNanos(delayNanos);
+			}
+			messages.add(msg);
+		}
+
+		@Override
+		public boolean shouldLog(LogLevel level, LogCategory category) {
+			return true;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+
+		List<String> messages() {
+			synchronized (messages) {
+				return new ArrayList<>(messages);
+			}
+		}
+	}
+}